@@ -0,0 +1,300 @@
+package arc;
+
+import arc.func.*;
+import arc.struct.*;
+import arc.util.*;
+
+/**
+ * Listener registry used by {@link Events}. Can also be instantiated separately.
+ * <p>
+ * Every event type (a class, or an enum constant used as a trigger) gets a {@link Listeners} instance with an integer id.
+ * Listener arrays are copy-on-write, so listeners can be added or removed while the event is being fired; the change applies
+ * to the next fire. Listeners with a higher priority are called first. Listeners with the same priority are called in
+ * registration order.
+ * <p>
+ * Registration is not thread-safe. Events can be posted from any thread with {@link #post(Object)} and are then fired in
+ * batches by {@link #dispatch()}.
+ */
+@SuppressWarnings("unchecked")
+public class EventBus{
+    private static final Listener[] noListeners = {};
+
+    private final ObjectMap<Object, Listeners> types = new ObjectMap<>();
+    private final ObjectMap<Class<?>, EnumTable> enumTables = new ObjectMap<>();
+    private final Seq<Listeners> byId = new Seq<>(Listeners.class);
+    private final Seq<EventQueue> queues = new Seq<>(EventQueue.class);
+    private final ThreadLocal<EventQueue> localQueue = Threads.local(() -> {
+        EventQueue queue = new EventQueue();
+        synchronized(queues){
+            queues.add(queue);
+        }
+        return queue;
+    });
+
+    //single-reference caches; reading one field is atomic, so a stale cache is never mismatched with its key
+    private Listeners lastClass;
+    private EnumTable lastEnumTable;
+
+    /** If true, the time spent in listeners is measured for every fired event. Fire counts are always recorded. */
+    public boolean profile;
+
+    /** Handle an event by class. */
+    public <T> void on(Class<T> type, Cons<T> listener){
+        on(type, 0, listener);
+    }
+
+    /** Handle an event by class. Listeners with a higher priority are called first. */
+    public <T> void on(Class<T> type, int priority, Cons<T> listener){
+        listeners(type).add(new Listener(listener, null, priority));
+    }
+
+    /** Handle an event by enum trigger or any other key. */
+    public void run(Object type, Runnable listener){
+        run(type, 0, listener);
+    }
+
+    /** Handle an event by enum trigger or any other key. Listeners with a higher priority are called first. */
+    public void run(Object type, int priority, Runnable listener){
+        listeners(type).add(new Listener(null, listener, priority));
+    }
+
+    /** Removes a listener added with {@link #on(Class, Cons)}. */
+    public <T> boolean remove(Class<T> type, Cons<T> listener){
+        Listeners list = types.get(type);
+        return list != null && list.remove(listener);
+    }
+
+    /** Removes a listener added with {@link #run(Object, Runnable)}. */
+    public boolean remove(Object type, Runnable listener){
+        Listeners list = types.get(type);
+        return list != null && list.remove(listener);
+    }
+
+    /** @return the id of an event type, to be used with {@link #fire(int, Object)}. Ids stay valid until {@link #clear()}. */
+    public int id(Object type){
+        return listeners(type).id;
+    }
+
+    /** Fires an event using a precomputed id. This skips all type lookups. */
+    public void fire(int id, Object event){
+        byId.items[id].fire(event, profile);
+    }
+
+    /** Fires an enum trigger. */
+    public <T extends Enum<T>> void fire(Enum<T> type){
+        EnumTable table = lastEnumTable;
+        Class<?> enumClass = type.getDeclaringClass();
+        if(table == null || table.type != enumClass){
+            table = enumTables.get(enumClass);
+            if(table == null) return;
+            lastEnumTable = table;
+        }
+        table.listeners[type.ordinal()].fire(type, profile);
+    }
+
+    /** Fires a non-enum event by class. */
+    public <T> void fire(T type){
+        fire(type.getClass(), type);
+    }
+
+    public <T> void fire(Class<?> ctype, T type){
+        Listeners list = lastClass;
+        if(list == null || list.type != ctype){
+            list = types.get(ctype);
+            if(list == null) return;
+            lastClass = list;
+        }
+        list.fire(type, profile);
+    }
+
+    /** Queues an event on the calling thread. It is fired during the next {@link #dispatch()}, in posting order. */
+    public void post(Object event){
+        localQueue.get().add(event);
+    }
+
+    /**
+     * Fires all events that were queued with {@link #post(Object)}, from every thread. Should be called from the thread that
+     * registers listeners, usually once per update.
+     * @return the amount of events fired.
+     */
+    public int dispatch(){
+        int fired = 0;
+        synchronized(queues){
+            for(int i = 0; i < queues.size; i++){
+                Seq<Object> events = queues.items[i].swap();
+                Object[] items = events.items;
+                for(int j = 0; j < events.size; j++){
+                    Object event = items[j];
+                    if(event instanceof Enum){
+                        fire((Enum)event);
+                    }else{
+                        fire(event);
+                    }
+                }
+                fired += events.size;
+                events.clear();
+            }
+        }
+        return fired;
+    }
+
+    /** @return every event type that has been registered, indexed by id. Do not modify. */
+    public Seq<Listeners> types(){
+        return byId;
+    }
+
+    /** Resets the fire counts and timings of every event type. */
+    public void resetStats(){
+        for(Listeners list : byId){
+            list.fires = list.time = 0;
+        }
+    }
+
+    /** Removes all listeners and invalidates every id. Pending queued events are discarded. */
+    public void clear(){
+        types.clear();
+        enumTables.clear();
+        byId.clear();
+        lastClass = null;
+        lastEnumTable = null;
+        synchronized(queues){
+            for(EventQueue queue : queues){
+                queue.clear();
+            }
+        }
+    }
+
+    private Listeners listeners(Object type){
+        Listeners list = types.get(type);
+        if(list == null){
+            if(type instanceof Enum){
+                //all constants of an enum get registered at once, so firing can index by ordinal
+                Class<?> enumClass = ((Enum<?>)type).getDeclaringClass();
+                Object[] constants = enumClass.getEnumConstants();
+                Listeners[] table = new Listeners[constants.length];
+                for(int i = 0; i < constants.length; i++){
+                    types.put(constants[i], table[i] = new Listeners(constants[i], byId.size));
+                    byId.add(table[i]);
+                }
+                enumTables.put(enumClass, new EnumTable(enumClass, table));
+                list = table[((Enum<?>)type).ordinal()];
+            }else{
+                types.put(type, list = new Listeners(type, byId.size));
+                byId.add(list);
+            }
+        }
+        return list;
+    }
+
+    /** All listeners of one event type, along with profiling data. */
+    public static class Listeners{
+        /** The class or trigger object of this event type. */
+        public final Object type;
+        public final int id;
+        /** Amount of times this event was fired, and nanoseconds spent in listeners while {@link EventBus#profile} was enabled. */
+        public long fires, time;
+
+        private Listener[] listeners = noListeners;
+
+        Listeners(Object type, int id){
+            this.type = type;
+            this.id = id;
+        }
+
+        /** @return the amount of listeners registered. */
+        public int size(){
+            return listeners.length;
+        }
+
+        void fire(Object event, boolean profile){
+            fires++;
+            //a concurrent modification replaces the array instead of changing it
+            Listener[] items = listeners;
+            if(items.length == 0) return;
+
+            long start = profile ? Time.nanos() : 0;
+            for(Listener listener : items){
+                if(listener.run != null){
+                    listener.run.run();
+                }else{
+                    listener.cons.get(event);
+                }
+            }
+            if(profile) time += Time.timeSinceNanos(start);
+        }
+
+        void add(Listener listener){
+            Listener[] items = listeners;
+            int index = items.length;
+            while(index > 0 && items[index - 1].priority < listener.priority) index--;
+
+            Listener[] result = new Listener[items.length + 1];
+            System.arraycopy(items, 0, result, 0, index);
+            result[index] = listener;
+            System.arraycopy(items, index, result, index + 1, items.length - index);
+            listeners = result;
+        }
+
+        boolean remove(Object listener){
+            Listener[] items = listeners;
+            for(int i = 0; i < items.length; i++){
+                if(items[i].cons == listener || items[i].run == listener){
+                    Listener[] result = new Listener[items.length - 1];
+                    System.arraycopy(items, 0, result, 0, i);
+                    System.arraycopy(items, i + 1, result, i, items.length - i - 1);
+                    listeners = result;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString(){
+            return type + " (" + listeners.length + " listeners, " + fires + " fires)";
+        }
+    }
+
+    static class Listener{
+        final Cons cons;
+        final Runnable run;
+        final int priority;
+
+        Listener(Cons cons, Runnable run, int priority){
+            this.cons = cons;
+            this.run = run;
+            this.priority = priority;
+        }
+    }
+
+    static class EnumTable{
+        final Class<?> type;
+        final Listeners[] listeners;
+
+        EnumTable(Class<?> type, Listeners[] listeners){
+            this.type = type;
+            this.listeners = listeners;
+        }
+    }
+
+    static class EventQueue{
+        Seq<Object> events = new Seq<>(), spare = new Seq<>();
+
+        synchronized void add(Object event){
+            events.add(event);
+        }
+
+        /** @return the queued events, which the caller must clear. */
+        synchronized Seq<Object> swap(){
+            Seq<Object> result = events;
+            events = spare;
+            spare = result;
+            return result;
+        }
+
+        synchronized void clear(){
+            events.clear();
+            spare.clear();
+        }
+    }
+}
@@ -1,62 +1,86 @@
 package arc;
 
 
-import arc.struct.Seq;
-import arc.struct.ObjectMap;
 import arc.func.Cons;
 
-/** Simple global event listener system. */
-@SuppressWarnings("unchecked")
+/**
+ * Simple global event listener system.
+ * @see EventBus
+ */
 public class Events{
-    private static final ObjectMap<Object, Seq<Cons<?>>> events = new ObjectMap<>();
+    private static final EventBus bus = new EventBus();
+
+    /** @return the bus backing this class, for profiling or queued dispatch. */
+    public static EventBus bus(){
+        return bus;
+    }
 
     /** Handle an event by class. */
     public static <T> void on(Class<T> type, Cons<T> listener){
-        events.get(type, () -> new Seq<>(Cons.class)).add(listener);
+        bus.on(type, listener);
+    }
+
+    /** Handle an event by class. Listeners with a higher priority are called first. */
+    public static <T> void on(Class<T> type, int priority, Cons<T> listener){
+        bus.on(type, priority, listener);
     }
 
     /** Handle an event by enum trigger. */
     public static void run(Object type, Runnable listener){
-        events.get(type, () -> new Seq<>(Cons.class)).add(e -> listener.run());
+        bus.run(type, listener);
+    }
+
+    /** Handle an event by enum trigger. Listeners with a higher priority are called first. */
+    public static void run(Object type, int priority, Runnable listener){
+        bus.run(type, priority, listener);
     }
 
     /** Only use this method if you have the reference to the exact listener object that was used. */
     public static <T> boolean remove(Class<T> type, Cons<T> listener){
-        return events.get(type, () -> new Seq<>(Cons.class)).remove(listener);
+        return bus.remove(type, listener);
+    }
+
+    /** Only use this method if you have the reference to the exact listener object that was used. */
+    public static boolean remove(Object type, Runnable listener){
+        return bus.remove(type, listener);
+    }
+
+    /** @return a precomputed id for an event class or trigger, for use with {@link #fire(int, Object)}. */
+    public static int id(Object type){
+        return bus.id(type);
+    }
+
+    /** Fires an event by precomputed id. */
+    public static void fire(int id, Object event){
+        bus.fire(id, event);
     }
 
     /** Fires an enum trigger. */
     public static <T extends Enum<T>> void fire(Enum<T> type){
-        Seq<Cons<?>> listeners = events.get(type);
-
-        if(listeners != null){
-            int len = listeners.size;
-            Cons[] items = listeners.items;
-            for(int i = 0; i < len; i++){
-                items[i].get(type);
-            }
-        }
+        bus.fire(type);
     }
 
     /** Fires a non-enum event by class. */
     public static <T> void fire(T type){
-        fire(type.getClass(), type);
+        bus.fire(type);
     }
 
     public static <T> void fire(Class<?> ctype, T type){
-        Seq<Cons<?>> listeners = events.get(ctype);
+        bus.fire(ctype, type);
+    }
+
+    /** Queues an event from any thread, to be fired by the next {@link #dispatch()}. */
+    public static void post(Object event){
+        bus.post(event);
+    }
 
-        if(listeners != null){
-            int len = listeners.size;
-            Cons[] items = listeners.items;
-            for(int i = 0; i < len; i++){
-                items[i].get(type);
-            }
-        }
+    /** Fires all queued events. */
+    public static int dispatch(){
+        return bus.dispatch();
     }
 
     /** Don't do this. */
     public static void clear(){
-        events.clear();
+        bus.clear();
     }
 }
@@ -9,14 +9,24 @@ import arc.util.io.*;
 import arc.util.serialization.*;
 
 import java.io.*;
+import java.nio.*;
 import java.util.*;
 import java.util.concurrent.*;
 
 import static arc.Core.*;
 
+/**
+ * Persistent key-value storage.
+ * <p>
+ * By default, every save rewrites the whole settings file. With {@link #setJournal(boolean)}, changes are instead appended
+ * to a journal file, which is compacted once it holds too many outdated records. Old settings files are imported automatically.
+ */
 public class Settings{
     protected final static byte typeBool = 0, typeInt = 1, typeLong = 2, typeFloat = 3, typeString = 4, typeBinary = 5;
+    /** Journal record that removes a key. */
+    protected final static byte opRemove = 6;
     protected final static int maxBackups = 10;
+    protected final static int journalMagic = 0x4152434A, journalVersion = 1;
 
     //general state data
     protected Fi dataDirectory;
@@ -37,6 +47,21 @@ public class Settings{
     protected UBJsonReader ureader = new UBJsonReader();
     protected Json json = new Json();
 
+    //journal state
+    protected boolean journal;
+    /** Keys that were changed or removed since the last save. */
+    protected ObjectSet<String> changedKeys = new ObjectSet<>();
+    /** Amount of records in the journal file, including outdated ones. */
+    protected int journalRecords;
+    /** If true, the next save rewrites the journal from scratch. */
+    protected boolean compactJournal;
+    /** The journal is compacted once it holds more than this many records per value, and at least {@link #compactMinRecords}. */
+    protected float compactRatio = 2f;
+    protected int compactMinRecords = 4096;
+    protected ReusableByteOutStream journalBytes = new ReusableByteOutStream(1024);
+    protected DataOutputStream journalOutput = new DataOutputStream(journalBytes);
+    protected CRC crc = new CRC();
+
     public void setJson(Json json){
         this.json = json;
     }
@@ -66,6 +91,33 @@ public class Settings{
         return modified;
     }
 
+    /**
+     * Enables the journal storage format. Must be called before loading.
+     * If no journal exists yet, the old settings file is imported, and the journal is written on the next save.
+     */
+    public void setJournal(boolean journal){
+        this.journal = journal;
+    }
+
+    public boolean isJournal(){
+        return journal;
+    }
+
+    /**
+     * Sets when the journal is rewritten to drop outdated records.
+     * @param ratio the max amount of journal records per stored value.
+     * @param minRecords the journal is never compacted while it holds fewer records than this.
+     */
+    public void setCompaction(float ratio, int minRecords){
+        this.compactRatio = ratio;
+        this.compactMinRecords = minRecords;
+    }
+
+    /** @return the amount of records in the journal, including the outdated ones that are dropped on the next compaction. */
+    public int getJournalRecords(){
+        return journalRecords;
+    }
+
     /** Loads all values and keybinds. */
     public synchronized void load(){
         try{
@@ -120,6 +172,21 @@ public class Settings{
 
     /** Loads a settings file into {@link #values} using the specified appName. */
     public synchronized void loadValues(){
+        if(journal){
+            Fi journalFile = getJournalFile();
+            if(journalFile.exists()){
+                try{
+                    loadJournal(journalFile);
+                    return;
+                }catch(Throwable e){
+                    Log.err("Failed to load settings journal, attempting to load settings file.", e);
+                    values.clear();
+                }
+            }
+            //import the settings file; the journal is written by the next save
+            compactJournal = true;
+        }
+
         //don't load settings files if neither of them exist
         if(!getSettingsFile().exists() && !getBackupSettingsFile().exists()){
             return;
@@ -154,7 +221,13 @@ public class Settings{
         }
     }
 
+    /** Loads values from a settings file or journal. */
     public synchronized void loadValues(Fi file) throws IOException{
+        if(isJournalFile(file)){
+            loadJournal(file);
+            return;
+        }
+
         try(DataInputStream stream = new DataInputStream(file.read(8192))){
             int amount = stream.readInt();
             //current theory: when corruptions happen, the only things written to the stream are a bunch of zeroes
@@ -183,7 +256,7 @@ public class Settings{
                     case typeBinary:
                         int length = stream.readInt();
                         byte[] bytes = new byte[length];
-                        stream.read(bytes);
+                        stream.readFully(bytes);
                         values.put(key, bytes);
                         break;
                     default:
@@ -198,8 +271,79 @@ public class Settings{
         }
     }
 
+    /**
+     * Loads a journal. An incomplete batch at the end of the journal (e.g. from a crash during saving) is ignored.
+     * The file is read into memory instead of being mapped, as a mapping would keep the file from being replaced on compaction.
+     */
+    public synchronized void loadJournal(Fi file) throws IOException{
+        ByteBuffer buffer = ByteBuffer.wrap(file.readBytes());
+        int limit = buffer.limit();
+
+        if(limit < 5 || buffer.getInt(0) != journalMagic) throw new IOException("Not a settings journal: " + file);
+        if(buffer.get(4) != journalVersion) throw new IOException("Unknown settings journal version: " + buffer.get(4));
+
+        ByteBufferInput input = new ByteBufferInput(buffer);
+        int position = 5, records = 0;
+
+        //each save appends one batch: size, checksum and records
+        while(position + 8 <= limit){
+            int size = buffer.getInt(position), checksum = buffer.getInt(position + 4), start = position + 8;
+            if(size < 0 || start + size > limit || checksum(buffer.array(), start, size) != checksum) break;
+
+            buffer.position(start);
+            while(buffer.position() < start + size){
+                byte type = buffer.get();
+                String key = input.readUTF();
+
+                switch(type){
+                    case opRemove:
+                        values.remove(key);
+                        break;
+                    case typeBool:
+                        values.put(key, buffer.get() != 0);
+                        break;
+                    case typeInt:
+                        values.put(key, buffer.getInt());
+                        break;
+                    case typeLong:
+                        values.put(key, buffer.getLong());
+                        break;
+                    case typeFloat:
+                        values.put(key, buffer.getFloat());
+                        break;
+                    case typeString:
+                        values.put(key, input.readUTF());
+                        break;
+                    case typeBinary:
+                        byte[] bytes = new byte[buffer.getInt()];
+                        buffer.get(bytes);
+                        values.put(key, bytes);
+                        break;
+                    default:
+                        throw new IOException("Unknown key type: " + type);
+                }
+                records++;
+            }
+
+            position = start + size;
+        }
+
+        if(position != limit){
+            Log.warn("Discarding @ bytes of incomplete settings journal data.", limit - position);
+            //appending after the broken batch would make the new batches unreachable
+            compactJournal = true;
+        }
+
+        journalRecords = records;
+    }
+
     /** Saves all entries from {@link #values} into the correct location. */
     public synchronized void saveValues(){
+        if(journal){
+            saveJournal();
+            return;
+        }
+
         Fi file = getSettingsFile();
 
         try(DataOutputStream stream = new DataOutputStream(file.write(false, 8192))){
@@ -207,29 +351,7 @@ public class Settings{
 
             for(Map.Entry<String, Object> entry : values.entrySet()){
                 stream.writeUTF(entry.getKey());
-
-                Object value = entry.getValue();
-
-                if(value instanceof Boolean){
-                    stream.writeByte(typeBool);
-                    stream.writeBoolean((Boolean)value);
-                }else if(value instanceof Integer){
-                    stream.writeByte(typeInt);
-                    stream.writeInt((Integer)value);
-                }else if(value instanceof Long){
-                    stream.writeByte(typeLong);
-                    stream.writeLong((Long)value);
-                }else if(value instanceof Float){
-                    stream.writeByte(typeFloat);
-                    stream.writeFloat((Float)value);
-                }else if(value instanceof String){
-                    stream.writeByte(typeString);
-                    stream.writeUTF((String)value);
-                }else if(value instanceof byte[]){
-                    stream.writeByte(typeBinary);
-                    stream.writeInt(((byte[])value).length);
-                    stream.write((byte[])value);
-                }
+                writeValue(stream, entry.getValue());
             }
 
         }catch(Throwable e){
@@ -238,6 +360,115 @@ public class Settings{
             throw new RuntimeException("Error writing preferences: " + file, e);
         }
 
+        changedKeys.clear();
+        backup(file, ".bin");
+    }
+
+    /** Appends all changes to the journal, or rewrites it if it has too many outdated records. */
+    protected void saveJournal(){
+        Fi file = getJournalFile();
+
+        try{
+            if(compactJournal || !file.exists() || journalRecords > Math.max(compactMinRecords, values.size() * compactRatio)){
+                compactJournal(file);
+            }else if(changedKeys.size > 0){
+                journalBytes.reset();
+                for(String key : changedKeys){
+                    Object value = values.get(key);
+                    if(value == null){
+                        journalOutput.writeByte(opRemove);
+                        journalOutput.writeUTF(key);
+                    }else{
+                        writeRecord(journalOutput, key, value);
+                    }
+                }
+
+                writeBatch(file, true);
+                journalRecords += changedKeys.size;
+                changedKeys.clear();
+            }
+        }catch(Throwable e){
+            //the journal may end with a broken batch now, which is ignored when loading; never append after it
+            compactJournal = true;
+            throw new RuntimeException("Error writing preferences: " + file, e);
+        }
+    }
+
+    /** Writes every value into a new journal, which replaces the old one. */
+    protected void compactJournal(Fi file) throws IOException{
+        journalBytes.reset();
+        for(Map.Entry<String, Object> entry : values.entrySet()){
+            writeRecord(journalOutput, entry.getKey(), entry.getValue());
+        }
+
+        Fi temp = file.sibling(file.name() + ".tmp");
+        writeBatch(temp, false);
+        temp.moveTo(file);
+
+        journalRecords = values.size();
+        compactJournal = false;
+        changedKeys.clear();
+        backup(file, ".journal");
+    }
+
+    /** Writes the contents of {@link #journalBytes} as one batch. */
+    protected void writeBatch(Fi file, boolean append) throws IOException{
+        int size = journalBytes.size();
+        byte[] bytes = journalBytes.getBytes();
+        crc.init();
+        crc.update(bytes, 0, size);
+
+        try(DataOutputStream stream = new DataOutputStream(file.write(append, 8192))){
+            if(!append){
+                stream.writeInt(journalMagic);
+                stream.writeByte(journalVersion);
+            }
+            stream.writeInt(size);
+            stream.writeInt(crc.getDigest());
+            stream.write(bytes, 0, size);
+        }
+    }
+
+    protected void writeRecord(DataOutputStream stream, String key, Object value) throws IOException{
+        stream.writeByte(type(value));
+        stream.writeUTF(key);
+        writeData(stream, value);
+    }
+
+    /** Writes the type and data of a value, as stored in the settings file. */
+    protected void writeValue(DataOutputStream stream, Object value) throws IOException{
+        stream.writeByte(type(value));
+        writeData(stream, value);
+    }
+
+    protected void writeData(DataOutputStream stream, Object value) throws IOException{
+        if(value instanceof Boolean){
+            stream.writeBoolean((Boolean)value);
+        }else if(value instanceof Integer){
+            stream.writeInt((Integer)value);
+        }else if(value instanceof Long){
+            stream.writeLong((Long)value);
+        }else if(value instanceof Float){
+            stream.writeFloat((Float)value);
+        }else if(value instanceof String){
+            stream.writeUTF((String)value);
+        }else if(value instanceof byte[]){
+            stream.writeInt(((byte[])value).length);
+            stream.write((byte[])value);
+        }
+    }
+
+    protected byte type(Object value){
+        if(value instanceof Boolean) return typeBool;
+        if(value instanceof Integer) return typeInt;
+        if(value instanceof Long) return typeLong;
+        if(value instanceof Float) return typeFloat;
+        if(value instanceof String) return typeString;
+        return typeBinary;
+    }
+
+    /** Copies a saved settings file into the backup folder, in the background. */
+    protected void backup(Fi file, String extension){
         executor.submit(() -> {
             //make sure two backups can't happen at once.
             synchronized(this){
@@ -248,7 +479,7 @@ public class Settings{
                 previous.sort(Structs.comparingLong(f -> -f.lastModified()));
 
                 //create new entry in the backup folder
-                file.copyTo(backupFolder.child(System.currentTimeMillis() + ".bin"));
+                file.copyTo(backupFolder.child(System.currentTimeMillis() + extension));
 
                 //delete older backups if they exceed the max backup count
                 while(previous.size >= maxBackups){
@@ -258,6 +489,24 @@ public class Settings{
         });
     }
 
+    protected boolean isJournalFile(Fi file) throws IOException{
+        if(file.length() < 4) return false;
+        try(DataInputStream stream = new DataInputStream(file.read(8))){
+            return stream.readInt() == journalMagic;
+        }
+    }
+
+    protected int checksum(byte[] bytes, int offset, int length){
+        crc.init();
+        crc.update(bytes, offset, length);
+        return crc.getDigest();
+    }
+
+    /** Returns the journal file, which is used instead of the settings file if {@link #setJournal(boolean)} is enabled. */
+    public Fi getJournalFile(){
+        return getDataDirectory().child("settings.journal");
+    }
+
     /** Returns the file used for writing settings to. Not available on all platforms! */
     public Fi getSettingsFile(){
         return getDataDirectory().child("settings.bin");
@@ -294,6 +543,8 @@ public class Settings{
     /** Clears all preference values. */
     public synchronized void clear(){
         values.clear();
+        changedKeys.clear();
+        compactJournal = true;
     }
 
     public synchronized Object getDefault(String name){
@@ -410,10 +661,15 @@ public class Settings{
         }
     }
 
-    /** Stores an object in the preference map. */
+    /** Stores an object in the preference map. With the journal enabled, storing a value equal to the current one does nothing. */
     public synchronized void put(String name, Object object){
         if(object instanceof Float || object instanceof Integer || object instanceof Boolean || object instanceof Long
         || object instanceof String || object instanceof byte[]){
+            if(journal){
+                //unchanged values don't need to be appended again; arrays may have been modified in place, so they always are
+                if(!(object instanceof byte[]) && object.equals(values.get(name))) return;
+                changedKeys.add(name);
+            }
             values.put(name, object);
             modified = true;
         }else{
@@ -422,7 +678,7 @@ public class Settings{
     }
 
     public synchronized void remove(String name){
-        values.remove(name);
+        if(values.remove(name) != null && journal) changedKeys.add(name);
         modified = true;
     }
 
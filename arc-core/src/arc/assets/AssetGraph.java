@@ -0,0 +1,536 @@
+package arc.assets;
+
+import arc.assets.AssetManager.*;
+import arc.assets.loaders.*;
+import arc.struct.*;
+import arc.struct.Queue;
+import arc.util.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Loads the assets of an {@link AssetManager} as a dependency graph. Dependency lookups and loadAsync steps run on an executor, so
+ * assets that do not depend on each other load in parallel. Synchronous steps run in {@link #update()}, within a time budget.
+ * <p>
+ * A loader that is not {@link AssetLoader#isConcurrent() concurrent} loads one asset at a time: the asset holds the loader from
+ * getDependencies until its last synchronous step, and other assets of that loader wait. Dependencies of that asset may still use
+ * the same loader, just like when assets are loaded one after another. When every blocked asset waits for a loader held by an asset
+ * that waits for its dependencies, the blocked asset takes the loader over, see {@link #steal()}.
+ * <p>
+ * Apart from executor jobs, everything runs in {@link AssetManager#update()}, while holding the lock of the manager.
+ */
+@SuppressWarnings("unchecked")
+class AssetGraph{
+    final AssetManager manager;
+    final ExecutorService executor;
+    /** Whether the executor was created for this graph, and has to be shut down with it. */
+    final boolean ownsExecutor;
+    /** Assets that are being loaded, by file name. */
+    final ObjectMap<String, Node> nodes = new ObjectMap<>();
+
+    /** Nodes whose executor job is done. This is the only way jobs hand data back to the updating thread. */
+    private final ConcurrentLinkedQueue<Node> finished = new ConcurrentLinkedQueue<>();
+    private final Queue<Node> syncQueue = new Queue<>();
+    /** Nodes that wait for their loader to become available. */
+    private final Seq<Node> blocked = new Seq<>();
+    private final ObjectMap<AssetLoader, Node> claims = new ObjectMap<>();
+    private boolean released;
+    /** Executor jobs that have not been polled yet. */
+    private int jobs;
+
+    AssetGraph(AssetManager manager, ExecutorService executor, boolean ownsExecutor){
+        this.manager = manager;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Starts loading the load queue, handles finished executor jobs, and runs synchronous steps until the sync budget of the manager
+     * is used up. At least one synchronous step is run per call, if there is one.
+     * @return whether all assets are loaded.
+     */
+    boolean update(){
+        long start = Time.nanos();
+        Seq<AssetDescriptor> queue = manager.loadQueue;
+        while(queue.size > 0){
+            request(queue.remove(0));
+        }
+
+        while(true){
+            poll();
+            if(syncQueue.size == 0){
+                if(jobs == 0 && blocked.size > 0 && steal()) continue;
+                break;
+            }
+            runSync(syncQueue.removeFirst());
+            if(Time.timeSinceNanos(start) >= manager.syncBudget) break;
+        }
+
+        return nodes.size == 0 && queue.size == 0;
+    }
+
+    boolean contains(String fileName, @Nullable Class type){
+        Node node = nodes.get(fileName);
+        return node != null && (type == null || node.desc.type == type);
+    }
+
+    @Nullable AssetDescriptor current(){
+        if(syncQueue.size > 0) return syncQueue.first().desc;
+        return nodes.size == 0 ? null : nodes.values().next().desc;
+    }
+
+    /**
+     * Cancels one load request of an asset that is being loaded. The asset is only dropped once nothing else references it.
+     * @return false if the asset was not requested through the load queue.
+     */
+    boolean unload(String fileName){
+        Node node = nodes.get(fileName);
+        if(node == null || node.requests.size == 0) return false;
+        node.requests.pop();
+        release(node);
+        return true;
+    }
+
+    private void request(AssetDescriptor desc){
+        if(manager.isLoaded(desc.fileName)){
+            reference(desc.fileName);
+            if(desc.params != null && desc.params.loadedCallback != null){
+                desc.params.loadedCallback.finishedLoading(manager, desc.fileName, desc.type);
+            }
+            manager.loaded++;
+            return;
+        }
+
+        Node node = nodes.get(desc.fileName);
+        if(node == null){
+            node = new Node(desc, loader(desc));
+            nodes.put(desc.fileName, node);
+            node.requests.add(desc);
+            node.refs++;
+            start(node);
+        }else{
+            node.requests.add(desc);
+            node.refs++;
+        }
+    }
+
+    private AssetLoader loader(AssetDescriptor desc){
+        AssetLoader loader = manager.getLoader(desc.type, desc.fileName);
+        if(loader == null) throw new ArcRuntimeException("No loader for type: " + desc.type.getSimpleName());
+        return loader;
+    }
+
+    private void start(Node node){
+        if(claim(node)){
+            begin(node);
+        }else{
+            blocked.add(node);
+        }
+    }
+
+    /** @return whether the node can use its loader now. */
+    private boolean claim(Node node){
+        if(node.loader.isConcurrent()) return true;
+
+        Node owner = claims.get(node.loader);
+        if(owner == node) return true;
+        if(owner == null){
+            claims.put(node.loader, node);
+            node.claimed = true;
+            return true;
+        }
+        //the owner waits for this node, so it has to go first
+        return needs(owner, node);
+    }
+
+    /** @return whether dependent can't load before dependency does. */
+    private boolean needs(Node dependent, Node dependency){
+        for(Node node : dependency.dependents){
+            if(node == dependent || needs(dependent, node)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called when nothing can continue: no job runs and nothing is ready, so every blocked asset waits for a loader that is held by
+     * an asset waiting for its dependencies, which may in turn need the blocked ones. The first such blocked asset takes the loader
+     * over. The asset that held it claims it again once its dependencies are loaded, and then repeats getDependencies to restore
+     * the state of the loader.
+     * @return whether a blocked asset could continue.
+     */
+    private boolean steal(){
+        for(int i = 0; i < blocked.size; i++){
+            Node node = blocked.get(i);
+            Node owner = claims.get(node.loader);
+            if(owner != null && owner.pending > 0){
+                claims.remove(node.loader);
+                owner.claimed = false;
+                owner.stolen = true;
+                blocked.remove(i);
+                claim(node);
+                resume(node);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Continues a node that was blocked, after it claimed its loader. */
+    private void resume(Node node){
+        if(node.resolved){
+            ready(node);
+        }else{
+            begin(node);
+        }
+    }
+
+    private void unclaim(Node node){
+        if(node.claimed){
+            claims.remove(node.loader);
+            node.claimed = false;
+            released = true;
+        }
+    }
+
+    private void begin(Node node){
+        AssetDescriptor desc = node.desc;
+        if(desc.file == null) desc.file = node.loader.resolve(desc.fileName);
+
+        if(node.async){
+            submit(node);
+            return;
+        }
+
+        long start = Time.nanos();
+        try{
+            node.dependencies = node.loader.getDependencies(desc.fileName, desc.file, desc.params);
+        }catch(RuntimeException e){
+            //handled with the other errors, so that failing never happens in the middle of linking another asset
+            node.error = e;
+        }
+        node.syncTime += Time.timeSinceNanos(start);
+        node.resolved = true;
+
+        if(node.error != null){
+            finished.add(node);
+        }else{
+            link(node);
+        }
+    }
+
+    private void submit(Node node){
+        node.running = true;
+        jobs++;
+        executor.submit(() -> {
+            AssetDescriptor desc = node.desc;
+            AsynchronousAssetLoader loader = (AsynchronousAssetLoader)node.loader;
+            long start = Time.nanos();
+            boolean resolving = !node.resolved;
+            try{
+                if(!node.cancelled){
+                    if(resolving){
+                        node.dependencies = loader.getDependencies(desc.fileName, desc.file, desc.params);
+                        resolving = false;
+                    }
+                    //without dependencies, there is nothing to wait for before the async part
+                    if(node.resolved || node.dependencies == null){
+                        if(node.reprime){
+                            loader.getDependencies(desc.fileName, desc.file, desc.params);
+                            node.reprime = false;
+                        }
+                        loader.loadAsync(manager, desc.fileName, desc.file, desc.params);
+                        node.loadedAsync = true;
+                    }
+                }
+            }catch(Throwable t){
+                node.error = new ArcRuntimeException((resolving ? "Couldn't load dependencies of asset: " : "Couldn't load asset: ") + desc.fileName, t);
+            }
+            node.asyncTime += Time.timeSinceNanos(start);
+            finished.add(node);
+        });
+    }
+
+    private void poll(){
+        Node node;
+        while((node = finished.poll()) != null){
+            if(node.running){
+                node.running = false;
+                jobs--;
+            }
+            if(node.cancelled){
+                unclaim(node);
+                //a newer node of the same file may own what the loader prepared by now
+                if(nodes.get(node.desc.fileName) == null) discard(node);
+            }else if(node.error != null){
+                failed(node, node.error);
+            }else if(!node.resolved){
+                node.resolved = true;
+                link(node);
+            }else{
+                syncQueue.addLast(node);
+            }
+        }
+
+        if(released){
+            released = false;
+            for(int i = 0; i < blocked.size; i++){
+                Node next = blocked.get(i);
+                if(claim(next)){
+                    blocked.remove(i--);
+                    resume(next);
+                }
+            }
+        }
+    }
+
+    private void link(Node node){
+        Seq<AssetDescriptor> dependencies = node.dependencies;
+        if(dependencies != null && dependencies.size > 0){
+            AssetLoadingTask.removeDuplicates(dependencies);
+            String fileName = node.desc.fileName;
+            Seq<String> names = manager.assetDependencies.get(fileName);
+            if(names == null) manager.assetDependencies.put(fileName, names = new Seq<>());
+            ObjectSet<String> linked = new ObjectSet<>();
+
+            for(AssetDescriptor dependency : dependencies){
+                //ignore subsequent dependencies if there are duplicates
+                if(!linked.add(dependency.fileName)) continue;
+
+                if(manager.isLoaded(dependency.fileName)){
+                    names.add(dependency.fileName);
+                    reference(dependency.fileName);
+                    continue;
+                }
+
+                Node child = nodes.get(dependency.fileName);
+                boolean created = child == null;
+                if(created){
+                    AssetLoader loader;
+                    try{
+                        loader = loader(dependency);
+                    }catch(RuntimeException e){
+                        node.error = e;
+                        finished.add(node);
+                        return;
+                    }
+                    child = new Node(dependency, loader);
+                    nodes.put(dependency.fileName, child);
+                }else if(child.desc.type != dependency.type){
+                    node.error = new ArcRuntimeException("Asset with name '" + dependency.fileName + "' already in task list, but has different type (expected: "
+                    + dependency.type.getSimpleName() + ", found: " + child.desc.type.getSimpleName() + ")");
+                    finished.add(node);
+                    return;
+                }
+
+                names.add(dependency.fileName);
+                child.refs++;
+                child.dependents.add(node);
+                node.pending++;
+                if(created){
+                    start(child);
+                }else if(blocked.contains(child, true) && claim(child)){
+                    //the child may now be waited on by the owner of its loader
+                    blocked.remove(child, true);
+                    resume(child);
+                }
+            }
+        }
+
+        if(node.pending == 0) ready(node);
+    }
+
+    private void ready(Node node){
+        if(node.stolen){
+            //another asset used the loader in the meantime
+            if(!claim(node)){
+                blocked.add(node);
+                return;
+            }
+            node.stolen = false;
+            node.reprime = true;
+        }
+
+        if(node.async && !node.loadedAsync){
+            submit(node);
+        }else{
+            syncQueue.addLast(node);
+        }
+    }
+
+    private void runSync(Node node){
+        AssetDescriptor desc = node.desc;
+        long start = Time.nanos();
+        Object asset;
+        try{
+            if(node.reprime){
+                node.reprime = false;
+                node.loader.getDependencies(desc.fileName, desc.file, desc.params);
+            }
+            if(node.async){
+                asset = ((AsynchronousAssetLoader)node.loader).loadSync(manager, desc.fileName, desc.file, desc.params);
+            }else{
+                asset = ((SynchronousAssetLoader)node.loader).load(manager, desc.fileName, desc.file, desc.params);
+            }
+            if(asset == null) throw new ArcRuntimeException("Loader returned null for asset: " + desc.fileName);
+        }catch(RuntimeException e){
+            node.syncTime += Time.timeSinceNanos(start);
+            failed(node, e);
+            return;
+        }
+        node.syncTime += Time.timeSinceNanos(start);
+        complete(node, asset);
+    }
+
+    private void complete(Node node, Object asset){
+        AssetDescriptor desc = node.desc;
+        unclaim(node);
+        nodes.remove(desc.fileName);
+
+        manager.addAsset(desc.fileName, desc.type, asset);
+        for(int i = 1; i < node.refs; i++){
+            reference(desc.fileName);
+        }
+        manager.timings.add(new AssetTiming(desc.fileName, desc.type, Time.timeSinceNanos(node.created), node.asyncTime, node.syncTime));
+
+        if(!node.requests.contains(desc, true)) loaded(desc, asset);
+        for(AssetDescriptor request : node.requests){
+            loaded(request, asset);
+        }
+        manager.loaded += node.requests.size;
+
+        for(Node dependent : node.dependents){
+            dependencyDone(dependent);
+        }
+    }
+
+    private void loaded(AssetDescriptor desc, Object asset){
+        if(desc.params != null && desc.params.loadedCallback != null){
+            desc.params.loadedCallback.finishedLoading(manager, desc.fileName, desc.type);
+        }
+        desc.loaded.get(asset);
+    }
+
+    private void dependencyDone(Node node){
+        if(--node.pending == 0 && node.error == null) ready(node);
+    }
+
+    private void failed(Node node, Throwable t){
+        RuntimeException ex = t instanceof RuntimeException ? (RuntimeException)t : new ArcRuntimeException(t);
+        try{
+            manager.taskFailed(node.desc, ex);
+        }catch(RuntimeException e){
+            cancelAll(node);
+
+            if(manager.listener != null){
+                manager.listener.error(node.desc, e);
+            }
+
+            if(node.desc.errored != null){
+                node.desc.errored.get(e);
+            }else{
+                throw new ArcRuntimeException(e);
+            }
+            return;
+        }
+
+        //the failure was ignored; drop the asset and let its dependents continue without it
+        Seq<Node> dependents = node.dependents.copy();
+        cancel(node);
+        for(Node dependent : dependents){
+            dependencyDone(dependent);
+        }
+    }
+
+    /** Cancels a node, along with everything that depends on it. */
+    private void cancelAll(Node node){
+        if(node.cancelled) return;
+        for(Node dependent : node.dependents.copy()){
+            cancelAll(dependent);
+        }
+        cancel(node);
+    }
+
+    private void release(Node node){
+        if(--node.refs <= 0) cancel(node);
+    }
+
+    private void cancel(Node node){
+        if(node.cancelled) return;
+        node.cancelled = true;
+
+        String fileName = node.desc.fileName;
+        if(nodes.get(fileName) == node) nodes.remove(fileName);
+        syncQueue.remove(node, true);
+        blocked.remove(node, true);
+        //a running job may still use the loader
+        if(!node.running){
+            unclaim(node);
+            discard(node);
+        }
+
+        //drop the references this node holds on its dependencies
+        Seq<String> names = manager.assetDependencies.remove(fileName);
+        if(names != null){
+            for(String name : names){
+                Node child = nodes.get(name);
+                if(child != null && child.dependents.remove(node, true)){
+                    release(child);
+                }else if(manager.isLoaded(name)){
+                    manager.unload(name);
+                }
+            }
+        }
+    }
+
+    /** Lets the loader release what loadAsync prepared for a node that will not be loaded synchronously anymore. */
+    private void discard(Node node){
+        if(node.loadedAsync){
+            node.loadedAsync = false;
+            AssetDescriptor desc = node.desc;
+            ((AsynchronousAssetLoader)node.loader).unloadAsync(manager, desc.fileName, desc.file, desc.params);
+        }
+    }
+
+    /** Adds a reference to a loaded asset and its dependencies. */
+    private void reference(String fileName){
+        RefCountedContainer ref = manager.assets.get(manager.assetTypes.get(fileName)).get(fileName);
+        ref.count++;
+        manager.incrementRefCountedDependencies(fileName);
+    }
+
+    static class Node{
+        final AssetDescriptor desc;
+        final AssetLoader loader;
+        final boolean async;
+        final long created = Time.nanos();
+        /** Descriptors from the load queue that requested this asset. */
+        final Seq<AssetDescriptor> requests = new Seq<>(1);
+        /** Nodes that wait for this one. */
+        final Seq<Node> dependents = new Seq<>(2);
+
+        /** References the asset gets once loaded: one per request and one per dependent. */
+        int refs;
+        /** Dependencies that are not loaded yet. */
+        int pending;
+        /** Whether getDependencies has been called. Never changed while running. */
+        boolean resolved;
+        boolean claimed, running;
+        /** Whether the loader was taken over while this node waited, and has to be claimed again. */
+        boolean stolen;
+        /** Whether getDependencies has to be repeated before the next step, as another asset used the loader. */
+        boolean reprime;
+        volatile boolean cancelled;
+
+        //written by executor jobs; read after the node is taken from the finished queue
+        Seq<AssetDescriptor> dependencies;
+        boolean loadedAsync;
+        Throwable error;
+        long asyncTime, syncTime;
+
+        Node(AssetDescriptor desc, AssetLoader loader){
+            this.desc = desc;
+            this.loader = loader;
+            this.async = loader instanceof AsynchronousAssetLoader;
+        }
+    }
+}
@@ -29,6 +29,8 @@ class AssetLoadingTask implements Callable<Void>{
 
     int ticks = 0;
     volatile boolean cancel = false;
+    volatile long asyncTime;
+    long syncTime;
 
     public AssetLoadingTask(AssetManager manager, AssetDescriptor assetDesc, AssetLoader loader, ExecutorService threadPool){
         this.manager = manager;
@@ -41,6 +43,16 @@ class AssetLoadingTask implements Callable<Void>{
     /** Loads parts of the asset asynchronously if the loader is an {@link AsynchronousAssetLoader}. */
     @Override
     public Void call(){
+        long start = Time.nanos();
+        try{
+            load();
+        }finally{
+            asyncTime += Time.timeSinceNanos(start);
+        }
+        return null;
+    }
+
+    private void load(){
         AsynchronousAssetLoader asyncLoader = (AsynchronousAssetLoader)loader;
         if(!dependenciesLoaded){
             dependencies = asyncLoader.getDependencies(assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
@@ -55,7 +67,6 @@ class AssetLoadingTask implements Callable<Void>{
         }else{
             asyncLoader.loadAsync(manager, assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
         }
-        return null;
     }
 
     /**
@@ -67,10 +78,15 @@ class AssetLoadingTask implements Callable<Void>{
      */
     public boolean update(){
         ticks++;
-        if(loader instanceof SynchronousAssetLoader){
-            handleSyncLoader();
-        }else{
-            handleAsyncLoader();
+        long start = Time.nanos();
+        try{
+            if(loader instanceof SynchronousAssetLoader){
+                handleSyncLoader();
+            }else{
+                handleAsyncLoader();
+            }
+        }finally{
+            syncTime += Time.timeSinceNanos(start);
         }
         return asset != null;
     }
@@ -136,7 +152,7 @@ class AssetLoadingTask implements Callable<Void>{
         return asset;
     }
 
-    private void removeDuplicates(Seq<AssetDescriptor> array){
+    static void removeDuplicates(Seq<AssetDescriptor> array){
         boolean ordered = array.ordered;
         array.ordered = true;
         for(int i = 0; i < array.size; ++i){
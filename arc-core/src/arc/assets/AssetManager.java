@@ -14,6 +14,10 @@ import java.util.concurrent.*;
 
 /**
  * Loads and stores assets like textures, bitmapfonts, tile maps, sounds, music and so on.
+ * <p>
+ * By default, assets are loaded one after another, with a single loading thread. With {@link #setParallel(int)}, assets are loaded
+ * as a dependency graph instead: the asynchronous parts of independent assets load in parallel, and each {@link #update()} runs
+ * synchronous steps for up to {@link #setSyncBudget(float)} milliseconds.
  * @author mzechner
  */
 @SuppressWarnings("unchecked")
@@ -28,12 +32,17 @@ public class AssetManager implements Disposable{
     final ExecutorService executor;
 
     final Seq<AssetLoadingTask> tasks = new Seq<>();
+    final Seq<AssetTiming> timings = new Seq<>();
     final FileHandleResolver resolver;
     AssetErrorListener listener = null;
     int loaded = 0;
     int toLoad = 0;
     int peakTasks = 0;
 
+    /** Used instead of the task stack when loading in parallel. */
+    @Nullable AssetGraph graph;
+    long syncBudget = Time.millisToNanos(4);
+
     /** Creates a new AssetManager with all default loaders. */
     public AssetManager(){
         this(Core.files::internal);
@@ -130,6 +139,7 @@ public class AssetManager implements Disposable{
     /** Returns true if an asset with the specified name is loading, queued to be loaded, or has been loaded. */
     public synchronized boolean contains(String fileName){
         if(tasks.size > 0 && tasks.first().assetDesc.fileName.equals(fileName)) return true;
+        if(graph != null && graph.contains(fileName, null)) return true;
 
         for(int i = 0; i < loadQueue.size; i++)
             if(loadQueue.get(i).fileName.equals(fileName)) return true;
@@ -143,6 +153,7 @@ public class AssetManager implements Disposable{
             AssetDescriptor assetDesc = tasks.first().assetDesc;
             if(assetDesc.type == type && assetDesc.fileName.equals(fileName)) return true;
         }
+        if(graph != null && graph.contains(fileName, type)) return true;
 
         for(int i = 0; i < loadQueue.size; i++){
             AssetDescriptor assetDesc = loadQueue.get(i);
@@ -167,6 +178,12 @@ public class AssetManager implements Disposable{
             }
         }
 
+        // check if it's being loaded as part of the graph
+        if(graph != null && graph.unload(fileName)){
+            toLoad--;
+            return;
+        }
+
         // check if it's in the queue
         int foundIndex = -1;
         for(int i = 0; i < loadQueue.size; i++){
@@ -402,6 +419,9 @@ public class AssetManager implements Disposable{
             "Asset with name '" + fileName + "' already in task list, but has different type (expected: "
             + type.getSimpleName() + ", found: " + desc.type.getSimpleName() + ")");
         }
+        if(graph != null && graph.contains(fileName, null) && !graph.contains(fileName, type)) throw new ArcRuntimeException(
+        "Asset with name '" + fileName + "' already in task list, but has different type (expected: "
+        + type.getSimpleName() + ", found: " + graph.nodes.get(fileName).desc.type.getSimpleName() + ")");
 
         // check loaded assets
         Class otherType = assetTypes.get(fileName);
@@ -428,6 +448,8 @@ public class AssetManager implements Disposable{
      * @return true if all loading is finished.
      */
     public synchronized boolean update(){
+        if(graph != null) return graph.update();
+
         try{
             if(tasks.size == 0){
                 // loop until we have a new task ready to be processed
@@ -450,6 +472,9 @@ public class AssetManager implements Disposable{
         if(tasks.size > 0){
             return tasks.first().assetDesc;
         }
+        if(graph != null){
+            return graph.current();
+        }
         return null;
     }
 
@@ -470,7 +495,7 @@ public class AssetManager implements Disposable{
 
     /** Returns true when all assets are loaded. Can be called from any thread. */
     public synchronized boolean isFinished(){
-        return loadQueue.size == 0 && tasks.size == 0;
+        return loadQueue.size == 0 && tasks.size == 0 && (graph == null || graph.nodes.size == 0);
     }
 
     /** Blocks until all assets are loaded. */
@@ -606,6 +631,7 @@ public class AssetManager implements Disposable{
             if(task.cancel) return true;
 
             addAsset(task.assetDesc.fileName, task.assetDesc.type, task.getAsset());
+            timings.add(new AssetTiming(task.assetDesc.fileName, task.assetDesc.type, Time.timeSinceNanos(task.startTime), task.asyncTime, task.syncTime));
 
             // otherwise, if a listener was found in the parameter invoke it
             if(task.assetDesc.params != null && task.assetDesc.params.loadedCallback != null){
@@ -627,7 +653,7 @@ public class AssetManager implements Disposable{
         throw ex;
     }
 
-    private void incrementRefCountedDependencies(String parent){
+    void incrementRefCountedDependencies(String parent){
         Seq<String> dependencies = assetDependencies.get(parent);
         if(dependencies == null) return;
 
@@ -695,6 +721,58 @@ public class AssetManager implements Disposable{
         loaders.put(suffix == null ? "" : suffix, loader);
     }
 
+    /**
+     * Switches to loading assets as a dependency graph. Dependency lookups and the asynchronous part of independent assets run in
+     * parallel on the executor, while synchronous parts run in {@link #update()}. Loaders that are not
+     * {@link AssetLoader#isConcurrent() concurrent} still load one asset at a time.
+     * Can only be called while nothing is loading.
+     * @param executor the executor to load on, or null to go back to loading one asset after another. Not shut down by this manager.
+     */
+    public synchronized void setParallel(@Nullable ExecutorService executor){
+        setGraph(executor == null ? null : new AssetGraph(this, executor, false));
+    }
+
+    /**
+     * Switches to loading assets as a dependency graph, with a new pool of loading threads.
+     * @param threads the amount of loading threads, or 0 to go back to loading one asset after another.
+     * @see #setParallel(ExecutorService)
+     */
+    public synchronized void setParallel(int threads){
+        setGraph(threads <= 0 ? null : new AssetGraph(this, Threads.executor("Assets", threads), true));
+    }
+
+    private void setGraph(@Nullable AssetGraph graph){
+        if(!isFinished()){
+            if(graph != null && graph.ownsExecutor) graph.executor.shutdown();
+            throw new IllegalStateException("Loading mode can't be changed while assets are loading.");
+        }
+        if(this.graph != null && this.graph.ownsExecutor) Threads.await(this.graph.executor);
+        this.graph = graph;
+    }
+
+    /** @return whether assets are loaded as a dependency graph. */
+    public synchronized boolean isParallel(){
+        return graph != null;
+    }
+
+    /**
+     * Sets the time each {@link #update()} may spend on synchronous loading steps, when loading in parallel.
+     * At least one step is always run. Defaults to 4 milliseconds.
+     */
+    public synchronized void setSyncBudget(float millis){
+        syncBudget = (long)(millis * 1000000L);
+    }
+
+    /** @return the time each update may spend on synchronous loading steps, in milliseconds. */
+    public synchronized float getSyncBudget(){
+        return syncBudget / 1000000f;
+    }
+
+    /** @return how long each loaded asset took to load, in the order they finished. Cleared with {@link #clear()}. Do not modify. */
+    public synchronized Seq<AssetTiming> getTimings(){
+        return timings;
+    }
+
     /** @return the number of loaded assets */
     public synchronized int getLoadedAssets(){
         return assetTypes.size;
@@ -702,7 +780,7 @@ public class AssetManager implements Disposable{
 
     /** @return the number of currently queued assets */
     public synchronized int getQueuedAssets(){
-        return loadQueue.size + tasks.size;
+        return loadQueue.size + tasks.size + (graph == null ? 0 : graph.nodes.size);
     }
 
     /** @return the progress in percent of completion. */
@@ -728,6 +806,7 @@ public class AssetManager implements Disposable{
     public synchronized void dispose(){
         clear();
         Threads.await(executor);
+        if(graph != null && graph.ownsExecutor) Threads.await(graph.executor);
     }
 
     /** Clears and disposes all assets and the preloading queue. */
@@ -770,6 +849,7 @@ public class AssetManager implements Disposable{
         this.peakTasks = 0;
         this.loadQueue.clear();
         this.tasks.clear();
+        this.timings.clear();
     }
 
     /**
@@ -0,0 +1,37 @@
+package arc.assets;
+
+/**
+ * How long it took to load one asset. All times are in nanoseconds.
+ * @see AssetManager#getTimings()
+ */
+public class AssetTiming{
+    public final String fileName;
+    public final Class<?> type;
+    /** Time from the start of loading until the asset was available. */
+    public final long totalTime;
+    /** Time spent in {@link arc.assets.loaders.AssetLoader#getDependencies} and loadAsync on a loading thread. */
+    public final long asyncTime;
+    /** Time spent on the thread calling {@link AssetManager#update()}, in load, loadSync or synchronous dependency lookups. */
+    public final long syncTime;
+    /** Time spent waiting for dependencies, loading threads, loaders or the next update. */
+    public final long queueTime;
+
+    public AssetTiming(String fileName, Class<?> type, long totalTime, long asyncTime, long syncTime){
+        this.fileName = fileName;
+        this.type = type;
+        this.totalTime = totalTime;
+        this.asyncTime = asyncTime;
+        this.syncTime = syncTime;
+        this.queueTime = Math.max(totalTime - asyncTime - syncTime, 0);
+    }
+
+    @Override
+    public String toString(){
+        return fileName + " (" + type.getSimpleName() + "): " + ms(totalTime) + "ms total, " + ms(queueTime) + "ms queued, "
+        + ms(asyncTime) + "ms async, " + ms(syncTime) + "ms sync";
+    }
+
+    private static String ms(long nanos){
+        return String.valueOf((int)(nanos / 10_000L) / 100f);
+    }
+}
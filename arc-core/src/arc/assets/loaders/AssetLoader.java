@@ -38,4 +38,13 @@ public abstract class AssetLoader<T, P extends AssetLoaderParameters<T>>{
      * @return other assets that the asset depends on and need to be loaded first or null if there are no dependencies.
      */
     public abstract Seq<AssetDescriptor> getDependencies(String fileName, Fi file, P parameter);
+
+    /**
+     * @return whether this loader can load several assets at the same time. Loaders that keep state between
+     * {@link #getDependencies(String, Fi, AssetLoaderParameters)} and the final loading step must return false, which is the default.
+     * Only used when an {@link arc.assets.AssetManager} loads assets in parallel.
+     */
+    public boolean isConcurrent(){
+        return false;
+    }
 }
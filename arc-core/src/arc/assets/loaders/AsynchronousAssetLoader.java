@@ -28,4 +28,11 @@ public abstract class AsynchronousAssetLoader<T, P extends AssetLoaderParameters
      * @param file the resolved file to load
      */
     public abstract T loadSync(AssetManager manager, String fileName, Fi file, P parameter);
+
+    /**
+     * Called when loading an asset is cancelled after {@link #loadAsync(AssetManager, String, Fi, AssetLoaderParameters)} and
+     * before {@link #loadSync(AssetManager, String, Fi, AssetLoaderParameters)}, so that what loadAsync prepared can be released.
+     */
+    public void unloadAsync(AssetManager manager, String fileName, Fi file, P parameter){
+    }
 }
@@ -6,13 +6,15 @@ import arc.assets.AssetManager;
 import arc.struct.Seq;
 import arc.files.Fi;
 import arc.graphics.Pixmap;
+import arc.struct.ObjectMap;
 
 /**
  * {@link AssetLoader} for {@link Pixmap} instances. The Pixmap is loaded asynchronously.
  * @author mzechner
  */
 public class PixmapLoader extends AsynchronousAssetLoader<Pixmap, PixmapLoader.PixmapParameter>{
-    Pixmap pixmap;
+    /** Pixmaps that were loaded asynchronously, by file name. Guarded by itself. */
+    final ObjectMap<String, Pixmap> pixmaps = new ObjectMap<>();
 
     public PixmapLoader(FileHandleResolver resolver){
         super(resolver);
@@ -20,15 +22,27 @@ public class PixmapLoader extends AsynchronousAssetLoader<Pixmap, PixmapLoader.P
 
     @Override
     public void loadAsync(AssetManager manager, String fileName, Fi file, PixmapParameter parameter){
-        pixmap = null;
-        pixmap = new Pixmap(file);
+        Pixmap pixmap = new Pixmap(file), old;
+        synchronized(pixmaps){
+            old = pixmaps.put(fileName, pixmap);
+        }
+        if(old != null) old.dispose();
     }
 
     @Override
     public Pixmap loadSync(AssetManager manager, String fileName, Fi file, PixmapParameter parameter){
-        Pixmap pixmap = this.pixmap;
-        this.pixmap = null;
-        return pixmap;
+        synchronized(pixmaps){
+            return pixmaps.remove(fileName);
+        }
+    }
+
+    @Override
+    public void unloadAsync(AssetManager manager, String fileName, Fi file, PixmapParameter parameter){
+        Pixmap pixmap;
+        synchronized(pixmaps){
+            pixmap = pixmaps.remove(fileName);
+        }
+        if(pixmap != null) pixmap.dispose();
     }
 
     @Override
@@ -36,6 +50,11 @@ public class PixmapLoader extends AsynchronousAssetLoader<Pixmap, PixmapLoader.P
         return null;
     }
 
+    @Override
+    public boolean isConcurrent(){
+        return true;
+    }
+
     public static class PixmapParameter extends AssetLoaderParameters<Pixmap>{
     }
 }
@@ -12,11 +12,13 @@ import arc.struct.*;
 /**
  * {@link AssetLoader} to load {@link TextureAtlas} instances. Passing a {@link TextureAtlasParameter} to
  * {@link AssetManager#load(String, Class, AssetLoaderParameters)} allows to specify whether the atlas regions should be flipped
- * on the y-axis or not.
+ * on the y-axis or not. Binary atlas indices written by {@link TextureAtlasIndex#write(TextureAtlasData, Fi)} are detected by their
+ * header.
  * @author mzechner
  */
 public class TextureAtlasLoader extends SynchronousAssetLoader<TextureAtlas, TextureAtlasLoader.TextureAtlasParameter>{
     TextureAtlasData data;
+    TextureAtlasIndex index;
 
     public TextureAtlasLoader(FileHandleResolver resolver){
         super(resolver);
@@ -24,12 +26,13 @@ public class TextureAtlasLoader extends SynchronousAssetLoader<TextureAtlas, Tex
 
     @Override
     public TextureAtlas load(AssetManager assetManager, String fileName, Fi file, TextureAtlasParameter parameter){
-        for(AtlasPage page : data.getPages()){
+        for(AtlasPage page : index != null ? index.getPages() : data.getPages()){
             page.texture = assetManager.get(page.textureFile.path(), Texture.class);
         }
 
-        TextureAtlas atlas = new TextureAtlas(data);
+        TextureAtlas atlas = index != null ? new TextureAtlas(index) : new TextureAtlas(data);
         data = null;
+        index = null;
         return atlas;
     }
 
@@ -37,14 +40,15 @@ public class TextureAtlasLoader extends SynchronousAssetLoader<TextureAtlas, Tex
     public Seq<AssetDescriptor> getDependencies(String fileName, Fi atlasFile, TextureAtlasParameter parameter){
         Fi imgDir = atlasFile.parent();
 
-        if(parameter != null){
-            data = new TextureAtlasData(atlasFile, imgDir, parameter.flip);
+        boolean flip = parameter != null && parameter.flip;
+        if(TextureAtlasIndex.isIndex(atlasFile)){
+            index = new TextureAtlasIndex(atlasFile, imgDir, flip);
         }else{
-            data = new TextureAtlasData(atlasFile, imgDir, false);
+            data = new TextureAtlasData(atlasFile, imgDir, flip);
         }
 
         Seq<AssetDescriptor> dependencies = new Seq<>();
-        for(AtlasPage page : data.getPages()){
+        for(AtlasPage page : index != null ? index.getPages() : data.getPages()){
             TextureParameter params = new TextureParameter();
             params.genMipMaps = page.useMipMaps;
             params.minFilter = page.minFilter;
@@ -14,6 +14,10 @@ import arc.struct.*;
  * @author mzechner
  */
 public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoader.TextureParameter>{
+    /** Pixel data that was loaded asynchronously, by file name. Guarded by itself. */
+    final ObjectMap<String, TextureLoaderInfo> infos = new ObjectMap<>();
+    /** @deprecated The info of the last {@link #loadAsync(AssetManager, String, Fi, TextureParameter)} call. Loaded data is kept per file name now. */
+    @Deprecated
     TextureLoaderInfo info = new TextureLoaderInfo();
 
     public TextureLoader(FileHandleResolver resolver){
@@ -22,6 +26,7 @@ public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoade
 
     @Override
     public void loadAsync(AssetManager manager, String fileName, Fi file, TextureParameter parameter){
+        TextureLoaderInfo info = new TextureLoaderInfo();
         info.filename = fileName;
         if(parameter == null || parameter.textureData == null){
             boolean genMipMaps = false;
@@ -38,10 +43,22 @@ public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoade
             info.texture = parameter.texture;
         }
         if(!info.data.isPrepared()) info.data.prepare();
+
+        this.info = info;
+
+        TextureLoaderInfo old;
+        synchronized(infos){
+            old = infos.put(fileName, info);
+        }
+        if(old != null) dispose(old.data);
     }
 
     @Override
     public Texture loadSync(AssetManager manager, String fileName, Fi file, TextureParameter parameter){
+        TextureLoaderInfo info;
+        synchronized(infos){
+            info = infos.remove(fileName);
+        }
         if(info == null) return null;
         Texture texture = info.texture;
         if(texture != null){
@@ -56,11 +73,32 @@ public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoade
         return texture;
     }
 
+    @Override
+    public void unloadAsync(AssetManager manager, String fileName, Fi file, TextureParameter parameter){
+        TextureLoaderInfo info;
+        synchronized(infos){
+            info = infos.remove(fileName);
+        }
+        if(info != null) dispose(info.data);
+    }
+
+    /** Releases the pixmap of prepared data that will not be uploaded. */
+    static void dispose(TextureData data){
+        if(data.isCustom() || !data.isPrepared()) return;
+        Pixmap pixmap = data.consumePixmap();
+        if(data.disposePixmap() && pixmap != null) pixmap.dispose();
+    }
+
     @Override
     public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, TextureParameter parameter){
         return null;
     }
 
+    @Override
+    public boolean isConcurrent(){
+        return true;
+    }
+
     public static class TextureLoaderInfo{
         String filename;
         TextureData data;
@@ -227,6 +227,20 @@ public class Mesh implements Disposable{
         this.autoBind = autoBind;
     }
 
+    /**
+     * Sets whether vertex uploads append to a streaming ring buffer instead of replacing the whole buffer.
+     * Useful for meshes that are re-uploaded many times per frame, such as the one in {@link arc.graphics.g2d.SpriteBatch}.
+     * Has no effect on meshes backed by vertex arrays.
+     * @see VertexData#setStreaming(boolean)
+     */
+    public void setStreaming(boolean streaming){
+        vertices.setStreaming(streaming);
+    }
+
+    public boolean isStreaming(){
+        return vertices.isStreaming();
+    }
+
     /**
      * Binds the underlying {@link VertexBufferObject} and {@link IndexBufferObject} if indices where given. Use this with OpenGL
      * ES 2.0 and when auto-bind is disabled.
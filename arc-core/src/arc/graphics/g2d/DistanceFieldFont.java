@@ -173,5 +173,12 @@ public class DistanceFieldFont extends Font{
             super.draw(start, end);
             setSmoothingUniform(0);
         }
+
+        @Override
+        public void draw(GlyphLayoutCache.Entry entry, float x, float y){
+            setSmoothingUniform(getSmoothingFactor());
+            super.draw(entry, x, y);
+            setSmoothingUniform(0);
+        }
     }
 }
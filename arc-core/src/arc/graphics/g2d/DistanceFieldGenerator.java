@@ -0,0 +1,424 @@
+package arc.graphics.g2d;
+
+import arc.files.*;
+import arc.func.*;
+import arc.graphics.*;
+import arc.graphics.Texture.*;
+import arc.graphics.g2d.Font.*;
+import arc.graphics.g2d.PixmapPacker.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Generates signed distance field fonts for {@link DistanceFieldFont} from glyphs that were rendered at a higher resolution.
+ * <p>
+ * Every generated pixel is white, with the distance to the nearest glyph edge in its alpha channel: 0.5 at the edge, 1 at
+ * {@link #spread} pixels inside the glyph, and 0 at {@link #spread} pixels outside of it. Distances are exact euclidean distances
+ * between the pixels of the high resolution glyph, computed with the linear time transform of Felzenszwalb and Huttenlocher, and
+ * are then sampled at the centers of the generated pixels.
+ * <p>
+ * {@link #generate(FontData, Seq)} processes the glyphs of a font in parallel on a {@link ForkJoinPool}. The output does not
+ * depend on the amount of threads. The result can be written to a font file with page images, or turned into a font directly.
+ * The FreeType extension generates distance field fonts from font files, and the packer extension converts fonts offline.
+ */
+public class DistanceFieldGenerator{
+    /** The size of the source glyphs relative to the generated font. Higher values give more accurate edges. */
+    public int downscale = 4;
+    /** The distance in generated pixels at which the field reaches 0 or 1. Glyphs are padded by this on every side. */
+    public float spread = 4f;
+    /** The size of the generated pages. */
+    public int pageWidth = 512, pageHeight = 512;
+    /** Space between glyphs on a page. */
+    public int padding = 1;
+    /** Source pixels with at least this alpha, from 0 to 255, are inside a glyph. */
+    public int threshold = 128;
+
+    protected @Nullable ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /** Sets the pool that glyphs are processed on. Null processes everything on the calling thread. */
+    public void setPool(@Nullable ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /** @return the amount of pixels added to every side of a glyph. */
+    public int glyphPadding(){
+        return (int)Math.ceil(spread);
+    }
+
+    /** Generates the distance field of a whole pixmap. */
+    public Pixmap generate(Pixmap source){
+        return generate(source, 0, 0, source.width, source.height, 0, 0);
+    }
+
+    /**
+     * Generates the distance field of a region of a pixmap. Only the alpha of the source is used.
+     * @param offsetX source pixels between the left edge of the first generated pixel and the region, from 0 to downscale - 1.
+     * @param offsetY source pixels between the top edge of the first generated pixel and the region, from 0 to downscale - 1.
+     * @return a new pixmap that is ceil((size + offset) / downscale) + 2 * {@link #glyphPadding()} pixels in each dimension.
+     */
+    public Pixmap generate(Pixmap source, int x, int y, int width, int height, int offsetX, int offsetY){
+        int ds = downscale, pad = glyphPadding();
+        if(ds < 1) throw new IllegalArgumentException("downscale must be at least 1: " + ds);
+        if(offsetX < 0 || offsetX >= ds || offsetY < 0 || offsetY >= ds){
+            throw new IllegalArgumentException("Offsets must be from 0 to downscale - 1: " + offsetX + ", " + offsetY);
+        }
+
+        int outWidth = (width + offsetX + ds - 1) / ds + pad * 2, outHeight = (height + offsetY + ds - 1) / ds + pad * 2;
+        int gridWidth = outWidth * ds, gridHeight = outHeight * ds, left = pad * ds + offsetX, top = pad * ds + offsetY;
+
+        //squared distances to the nearest inside pixel, and to the nearest outside pixel
+        float far = (float)gridWidth * gridWidth + (float)gridHeight * gridHeight;
+        float[] outside = new float[gridWidth * gridHeight], inside = new float[gridWidth * gridHeight];
+        for(int gy = 0; gy < gridHeight; gy++){
+            int sy = gy - top;
+            for(int gx = 0; gx < gridWidth; gx++){
+                int sx = gx - left, i = gx + gy * gridWidth;
+                boolean in = sx >= 0 && sy >= 0 && sx < width && sy < height && (source.get(x + sx, y + sy) & 0xff) >= threshold;
+                outside[i] = in ? 0f : far;
+                inside[i] = in ? far : 0f;
+            }
+        }
+        Transform transform = new Transform(Math.max(gridWidth, gridHeight));
+        transform.apply(outside, gridWidth, gridHeight);
+        transform.apply(inside, gridWidth, gridHeight);
+
+        //the center of a generated pixel lies between the two middle source pixels when the downscale is even
+        int lo = (ds - 1) / 2, hi = ds / 2;
+        float scale = 1f / (ds * spread * 2f);
+        Pixmap result = new Pixmap(outWidth, outHeight);
+        for(int oy = 0; oy < outHeight; oy++){
+            for(int ox = 0; ox < outWidth; ox++){
+                int gx = ox * ds, gy = oy * ds;
+                float distance =
+                    signed(outside, inside, gx + lo + (gy + lo) * gridWidth) + signed(outside, inside, gx + hi + (gy + lo) * gridWidth) +
+                    signed(outside, inside, gx + lo + (gy + hi) * gridWidth) + signed(outside, inside, gx + hi + (gy + hi) * gridWidth);
+                float alpha = Math.min(Math.max(0.5f - distance / 4f * scale, 0f), 1f);
+                result.set(ox, oy, 0xffffff00 | (int)(alpha * 255f + 0.5f));
+            }
+        }
+        return result;
+    }
+
+    /** @return the distance from the center of a source pixel to the glyph edge, negative inside. */
+    private static float signed(float[] outside, float[] inside, int index){
+        float out = outside[index];
+        return out > 0f ? (float)Math.sqrt(out) - 0.5f : 0.5f - (float)Math.sqrt(inside[index]);
+    }
+
+    /**
+     * Generates a distance field font from a font that was rendered at {@link #downscale} times the size. Every glyph with pixels is
+     * processed in parallel, then the results are packed into pages. The source is not modified.
+     * @param pages the page images of the source font, in the order of {@link Glyph#page}.
+     */
+    public Result generate(FontData source, Seq<Pixmap> pages){
+        Seq<Glyph> glyphs = new Seq<>();
+        for(Glyph[] page : source.glyphs){
+            if(page == null) continue;
+            for(Glyph glyph : page){
+                if(glyph != null) glyphs.add(glyph);
+            }
+        }
+        int mapped = glyphs.size;
+        if(source.missingGlyph != null && !glyphs.contains(source.missingGlyph, true)) glyphs.add(source.missingGlyph);
+
+        Glyph[] results = new Glyph[glyphs.size];
+        Pixmap[] fields = new Pixmap[glyphs.size];
+        Intc task = i -> {
+            Glyph glyph = glyphs.get(i);
+            results[i] = scale(glyph, source.flipped);
+            if(hasPixels(glyph)) fields[i] = field(glyph, pages.get(glyph.page), source.flipped);
+        };
+        if(pool == null || glyphs.size <= 1){
+            for(int i = 0; i < glyphs.size; i++) task.get(i);
+        }else{
+            pool.invoke(new GlyphTask(0, glyphs.size, task));
+        }
+
+        //kerning amounts are scaled like the other metrics
+        for(int i = 0; i < glyphs.size; i++){
+            byte[][] kerning = glyphs.get(i).kerning;
+            if(kerning == null) continue;
+            for(int page = 0; page < kerning.length; page++){
+                if(kerning[page] == null) continue;
+                for(int c = 0; c < kerning[page].length; c++){
+                    int amount = kerning[page][c];
+                    if(amount != 0) results[i].setKerning(page * kerning[page].length + c, Math.round(amount / (float)downscale));
+                }
+            }
+        }
+
+        //pack the tallest glyphs first
+        Integer[] order = new Integer[glyphs.size];
+        for(int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(fields[b] == null ? 0 : fields[b].height, fields[a] == null ? 0 : fields[a].height));
+
+        PixmapPacker packer = new PixmapPacker(pageWidth, pageHeight, padding, false, new SkylineStrategy());
+        packer.setTransparentColor(new Color(1f, 1f, 1f, 0f));
+        for(int i : order){
+            if(fields[i] == null) continue;
+            String name = String.valueOf(i);
+            Rect rect = packer.pack(name, fields[i]);
+            results[i].srcX = (int)rect.x;
+            results[i].srcY = (int)rect.y;
+            results[i].page = packer.getPageIndex(name);
+            fields[i].dispose();
+        }
+
+        Result result = new Result();
+        for(PixmapPacker.Page page : packer.getPages()) result.pages.add(page.getPixmap());
+
+        FontData data = result.data;
+        float scale = 1f / downscale;
+        int pad = glyphPadding();
+        data.flipped = source.flipped;
+        data.padTop = source.padTop * scale + pad;
+        data.padRight = source.padRight * scale + pad;
+        data.padBottom = source.padBottom * scale + pad;
+        data.padLeft = source.padLeft * scale + pad;
+        data.lineHeight = Math.round(source.lineHeight * scale);
+        data.capHeight = source.capHeight * scale;
+        data.xHeight = source.xHeight * scale;
+        data.ascent = source.ascent * scale;
+        data.descent = source.descent * scale;
+        data.down = source.flipped ? data.lineHeight : -data.lineHeight;
+        data.blankLineScale = source.blankLineScale;
+        data.markupEnabled = source.markupEnabled;
+        data.breakChars = source.breakChars;
+        data.xChars = source.xChars;
+        data.capChars = source.capChars;
+        for(int i = 0; i < glyphs.size; i++){
+            Glyph glyph = results[i];
+            if(glyphs.get(i) == source.missingGlyph) data.missingGlyph = glyph;
+            if(i < mapped) data.setGlyph(glyph.id, glyph);
+        }
+
+        //same as loading a font file, so both give the same layout
+        Glyph space = data.getGlyph(' ');
+        if(space != null){
+            space.width = (int)(data.padLeft + space.xadvance + data.padRight);
+            space.xoffset = (int)-data.padLeft;
+            data.spaceXadvance = space.xadvance;
+        }else{
+            data.spaceXadvance = source.spaceXadvance * scale;
+        }
+        return result;
+    }
+
+    private boolean hasPixels(Glyph glyph){
+        return glyph.width > 0 && glyph.height > 0 && glyph.id != ' ';
+    }
+
+    /** @return the metrics of a glyph at the generated size, including the padding of the field. */
+    private Glyph scale(Glyph source, boolean flipped){
+        int ds = downscale, pad = glyphPadding();
+        Glyph glyph = new Glyph();
+        glyph.id = source.id;
+        glyph.xadvance = Math.round(source.xadvance / (float)ds);
+        glyph.fixedWidth = source.fixedWidth;
+        glyph.xoffset = Math.floorDiv(source.xoffset, ds);
+        glyph.yoffset = Math.floorDiv(source.yoffset, ds);
+        if(hasPixels(source)){
+            glyph.xoffset -= pad;
+            glyph.yoffset -= pad;
+            glyph.width = (source.width + Math.floorMod(source.xoffset, ds) + ds - 1) / ds + pad * 2;
+            glyph.height = (source.height + offsetY(source, flipped) + ds - 1) / ds + pad * 2;
+        }
+        return glyph;
+    }
+
+    private Pixmap field(Glyph glyph, Pixmap page, boolean flipped){
+        return generate(page, glyph.srcX, glyph.srcY, glyph.width, glyph.height, Math.floorMod(glyph.xoffset, downscale), offsetY(glyph, flipped));
+    }
+
+    /** @return the source pixels above a glyph, so that its offset from the baseline is a multiple of the downscale. */
+    private int offsetY(Glyph glyph, boolean flipped){
+        int ds = downscale, below = Math.floorMod(glyph.yoffset, ds);
+        //a flipped yoffset is the top of the glyph, otherwise it is the bottom
+        return flipped ? below : (ds - (glyph.height + below) % ds) % ds;
+    }
+
+    /** A generated font, with its pages. */
+    public static class Result implements Disposable{
+        /** The font data. Glyphs have no texture coordinates until a font is created from it. */
+        public final FontData data = new FontData();
+        public final Seq<Pixmap> pages = new Seq<>();
+
+        /**
+         * Writes the font in the text format that {@link FontData} loads, and its pages as PNG images next to it. The pages are
+         * called like the font file, with the page index appended if there are several.
+         */
+        public void write(Fi fontFile){
+            String name = fontFile.nameWithoutExtension();
+            data.fontFile = fontFile;
+            data.imagePaths = new String[pages.size];
+            for(int i = 0; i < pages.size; i++){
+                Fi image = fontFile.sibling(name + (pages.size == 1 ? "" : "_" + i) + ".png");
+                PixmapIO.writePng(image, pages.get(i));
+                data.imagePaths[i] = image.path();
+            }
+
+            Seq<Glyph> glyphs = new Seq<>();
+            int kernings = 0;
+            for(Glyph[] page : data.glyphs){
+                if(page == null) continue;
+                for(Glyph glyph : page){
+                    if(glyph == null) continue;
+                    glyphs.add(glyph);
+                    kernings += countKerning(glyph);
+                }
+            }
+            if(data.missingGlyph != null && !glyphs.contains(data.missingGlyph, true)){
+                glyphs.add(data.missingGlyph);
+                kernings += countKerning(data.missingGlyph);
+            }
+
+            //the base line is derived from the ascent, like the ascent is derived from it when loading
+            int base = Math.round((data.flipped ? -data.ascent : data.ascent) + data.capHeight);
+            StringBuilder out = new StringBuilder();
+            out.append(Strings.format("info face=\"@\" size=@ bold=0 italic=0 charset=\"\" unicode=1 stretchH=100 smooth=1 aa=1 padding=@,@,@,@ spacing=0,0\n",
+            name, (int)data.lineHeight, (int)data.padTop, (int)data.padRight, (int)data.padBottom, (int)data.padLeft));
+            out.append(Strings.format("common lineHeight=@ base=@ scaleW=@ scaleH=@ pages=@ packed=0\n",
+            (int)data.lineHeight, base, pages.first().width, pages.first().height, pages.size));
+            for(int i = 0; i < pages.size; i++){
+                out.append(Strings.format("page id=@ file=\"@\"\n", i, new Fi(data.imagePaths[i]).name()));
+            }
+            out.append("chars count=").append(glyphs.size).append('\n');
+            for(Glyph glyph : glyphs){
+                out.append(Strings.format("char id=@ x=@ y=@ width=@ height=@ xoffset=@ yoffset=@ xadvance=@ page=@ chnl=0\n",
+                glyph.id, glyph.srcX, glyph.srcY, glyph.width, glyph.height, glyph.xoffset,
+                data.flipped ? glyph.yoffset : -(glyph.height + glyph.yoffset), glyph.xadvance, glyph.page));
+            }
+            out.append("kernings count=").append(kernings).append('\n');
+            for(Glyph glyph : glyphs){
+                if(glyph.kerning == null) continue;
+                for(int page = 0; page < glyph.kerning.length; page++){
+                    if(glyph.kerning[page] == null) continue;
+                    for(int c = 0; c < glyph.kerning[page].length; c++){
+                        int amount = glyph.kerning[page][c];
+                        if(amount != 0){
+                            out.append(Strings.format("kerning first=@ second=@ amount=@\n", glyph.id, page * glyph.kerning[page].length + c, amount));
+                        }
+                    }
+                }
+            }
+            fontFile.writeString(out.toString());
+        }
+
+        private static int countKerning(Glyph glyph){
+            if(glyph.kerning == null) return 0;
+            int count = 0;
+            for(byte[] page : glyph.kerning){
+                if(page == null) continue;
+                for(byte amount : page){
+                    if(amount != 0) count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Creates a font with a linear filtered texture for each page. The font owns its textures, and the pages may be disposed
+         * afterwards. The font must be drawn with {@link DistanceFieldFont#createDistanceFieldShader()}.
+         */
+        public DistanceFieldFont createFont(){
+            Seq<TextureRegion> regions = new Seq<>();
+            for(Pixmap page : pages){
+                Texture texture = new Texture(page);
+                texture.setFilter(TextureFilter.linear, TextureFilter.linear);
+                regions.add(new TextureRegion(texture));
+            }
+            DistanceFieldFont font = new DistanceFieldFont(data, regions, false);
+            font.setOwnsTexture(true);
+            return font;
+        }
+
+        /** Disposes the pages. */
+        @Override
+        public void dispose(){
+            for(Pixmap page : pages) page.dispose();
+            pages.clear();
+        }
+    }
+
+    /** Squared euclidean distance transform of Felzenszwalb and Huttenlocher, applied to columns and then to rows. */
+    static class Transform{
+        final float[] f, d, z;
+        final int[] v;
+
+        Transform(int size){
+            f = new float[size];
+            d = new float[size];
+            z = new float[size + 1];
+            v = new int[size];
+        }
+
+        void apply(float[] grid, int width, int height){
+            for(int x = 0; x < width; x++){
+                for(int y = 0; y < height; y++) f[y] = grid[x + y * width];
+                transform(height);
+                for(int y = 0; y < height; y++) grid[x + y * width] = d[y];
+            }
+            for(int y = 0; y < height; y++){
+                int row = y * width;
+                System.arraycopy(grid, row, f, 0, width);
+                transform(width);
+                System.arraycopy(d, 0, grid, row, width);
+            }
+        }
+
+        /** Finds the lower envelope of the parabolas rooted at every f[q]. */
+        void transform(int n){
+            int k = 0;
+            v[0] = 0;
+            z[0] = Float.NEGATIVE_INFINITY;
+            z[1] = Float.POSITIVE_INFINITY;
+            for(int q = 1; q < n; q++){
+                float s = intersect(q, v[k]);
+                while(s <= z[k]){
+                    k--;
+                    s = intersect(q, v[k]);
+                }
+                k++;
+                v[k] = q;
+                z[k] = s;
+                z[k + 1] = Float.POSITIVE_INFINITY;
+            }
+            k = 0;
+            for(int q = 0; q < n; q++){
+                while(z[k + 1] < q) k++;
+                int dq = q - v[k];
+                d[q] = dq * dq + f[v[k]];
+            }
+        }
+
+        private float intersect(int q, int p){
+            return ((f[q] + q * q) - (f[p] + p * p)) / (2f * (q - p));
+        }
+    }
+
+    static class GlyphTask extends RecursiveAction{
+        private static final long serialVersionUID = 7382915406274619053L;
+        final int from, to;
+        final Intc body;
+
+        GlyphTask(int from, int to, Intc body){
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from > 1){
+                int mid = (from + to) >>> 1;
+                invokeAll(new GlyphTask(from, mid, body), new GlyphTask(mid, to, body));
+            }else{
+                body.get(from);
+            }
+        }
+    }
+}
@@ -31,7 +31,9 @@ import arc.graphics.Texture.TextureFilter;
 import arc.graphics.g2d.GlyphLayout.GlyphRun;
 import arc.graphics.g2d.TextureAtlas.AtlasRegion;
 import arc.util.ArcRuntimeException;
+import arc.util.Align;
 import arc.util.Disposable;
+import arc.util.Nullable;
 import arc.util.io.Streams;
 
 import java.io.BufferedReader;
@@ -62,6 +64,7 @@ public class Font implements Disposable{
 
     public final FontData data;
     private final FontCache cache;
+    private @Nullable GlyphLayoutCache layoutCache;
     Seq<TextureRegion> regions;
     boolean integer;
     private boolean flipped;
@@ -202,10 +205,7 @@ public class Font implements Disposable{
      * @see FontCache#addText(CharSequence, float, float)
      */
     public GlyphLayout draw(CharSequence str, float x, float y){
-        cache.clear();
-        GlyphLayout layout = cache.addText(str, x, y);
-        cache.draw();
-        return layout;
+        return draw(str, x, y, 0, str.length(), 0, Align.left, false, null);
     }
 
     public GlyphLayout draw(CharSequence str, float x, float y, Color color, float scale, boolean integer, int halign){
@@ -230,10 +230,7 @@ public class Font implements Disposable{
      * @see FontCache#addText(CharSequence, float, float, int, int, float, int, boolean, String)
      */
     public GlyphLayout draw(CharSequence str, float x, float y, float targetWidth, int halign, boolean wrap){
-        cache.clear();
-        GlyphLayout layout = cache.addText(str, x, y, targetWidth, halign, wrap);
-        cache.draw();
-        return layout;
+        return draw(str, x, y, 0, str.length(), targetWidth, halign, wrap, null);
     }
 
     /**
@@ -241,10 +238,7 @@ public class Font implements Disposable{
      * @see FontCache#addText(CharSequence, float, float, int, int, float, int, boolean, String)
      */
     public GlyphLayout draw(CharSequence str, float x, float y, int start, int end, float targetWidth, int halign, boolean wrap){
-        cache.clear();
-        GlyphLayout layout = cache.addText(str, x, y, start, end, targetWidth, halign, wrap);
-        cache.draw();
-        return layout;
+        return draw(str, x, y, start, end, targetWidth, halign, wrap, null);
     }
 
     /**
@@ -253,6 +247,11 @@ public class Font implements Disposable{
      */
     public GlyphLayout draw(CharSequence str, float x, float y, int start, int end, float targetWidth, int halign,
                             boolean wrap, String truncate){
+        if(layoutCache != null){
+            GlyphLayoutCache.Entry entry = layoutCache.get(this, str, start, end, cache.getColor(), targetWidth, halign, wrap, truncate);
+            entry.draw(x, y);
+            return entry.layout;
+        }
         cache.clear();
         GlyphLayout layout = cache.addText(str, x, y, start, end, targetWidth, halign, wrap, truncate);
         cache.draw();
@@ -269,6 +268,18 @@ public class Font implements Disposable{
         cache.draw();
     }
 
+    /**
+     * Sets the cache that text drawn with this font is laid out through, or null to lay out text every time it is drawn. A cache
+     * may be shared by several fonts. The layouts returned by draw methods are then shared, and must not be modified.
+     */
+    public void setLayoutCache(@Nullable GlyphLayoutCache layoutCache){
+        this.layoutCache = layoutCache;
+    }
+
+    public @Nullable GlyphLayoutCache getLayoutCache(){
+        return layoutCache;
+    }
+
     /** Returns the color of text drawn with this font. */
     public Color getColor(){
         return cache.getColor();
@@ -522,6 +533,11 @@ public class Font implements Disposable{
         public float cursorX;
         /** The glyph to display for characters not in the font. May be null. */
         public Glyph missingGlyph;
+        /**
+         * Incremented when glyphs are added, moved or removed while the font is in use, so that text laid out with the old glyphs
+         * can be laid out again.
+         */
+        public int glyphVersion;
 
         /** The width of the space character. */
         public float spaceXadvance;
@@ -807,6 +823,17 @@ public class Font implements Disposable{
             down = flipped ? lineHeight : -lineHeight;
         }
 
+        /**
+         * Called when text that was laid out before is drawn again, without getting its glyphs. Fonts that add or evict glyphs
+         * while in use track which glyphs are needed with this.
+         * @param version The {@link #glyphVersion} when the layout was made.
+         * @return whether glyphs of the layout changed since then, so that the text has to be laid out again. By default, any
+         * change of the glyph version counts.
+         */
+        public boolean markUsed(GlyphLayout layout, int version){
+            return version != glyphVersion;
+        }
+
         public void setGlyph(int ch, Glyph glyph){
             Glyph[] page = glyphs[ch / PAGE_SIZE];
             if(page == null) glyphs[ch / PAGE_SIZE] = page = new Glyph[PAGE_SIZE];
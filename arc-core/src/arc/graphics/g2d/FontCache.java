@@ -31,6 +31,8 @@ public class FontCache{
 
     /** Vertex data per page. */
     private float[][] pageVertices;
+    /** Vertices of a {@link GlyphLayoutCache} entry, moved to the drawing position. */
+    private float[] translated = {};
     /** Number of vertex data entries per page. */
     private int[] idx;
     /**
@@ -271,6 +273,30 @@ public class FontCache{
         }
     }
 
+    /**
+     * Draws the vertices of a layout cache entry at a position, without adding them to this cache. With integer positions, the
+     * position is rounded like {@link #translate(float, float)} does.
+     */
+    public void draw(GlyphLayoutCache.Entry entry, float x, float y){
+        if(integer){
+            x = Math.round(x);
+            y = Math.round(y);
+        }
+        Seq<TextureRegion> regions = font.getRegions();
+        for(int i = 0, n = entry.counts.length; i < n; i++){
+            int count = entry.counts[i];
+            if(count == 0) continue;
+            if(translated.length < count) translated = new float[count];
+            float[] vertices = entry.vertices[i], translated = this.translated;
+            System.arraycopy(vertices, 0, translated, 0, count);
+            for(int v = 0; v < count; v += 6){
+                translated[v] += x;
+                translated[v + 1] += y;
+            }
+            Draw.vert(regions.get(i).texture, translated, 0, count);
+        }
+    }
+
     public void draw(float alphaModulation){
         if(alphaModulation == 1){
             draw();
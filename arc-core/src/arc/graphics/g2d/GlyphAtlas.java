@@ -0,0 +1,304 @@
+package arc.graphics.g2d;
+
+import arc.func.*;
+import arc.graphics.*;
+import arc.graphics.Texture.*;
+import arc.graphics.gl.*;
+import arc.struct.*;
+import arc.util.*;
+
+import java.nio.*;
+
+/**
+ * A texture atlas for glyphs that are added while a font is in use. Pages have a fixed size and are split into horizontal
+ * shelves of similar heights. When every page is full, the least recently used shelf that was not used in the last
+ * {@link #keepFrames} frames is cleared and reused. Only the changed parts of a page are uploaded to its texture.
+ * <p>
+ * Glyphs are added with an integer key, usually the character. {@link #get(int)} marks a glyph as used in the current frame,
+ * which is set with {@link #setFrame(long)}. Text that is drawn from vertices that were created before, such as a
+ * {@link FontCache}, must still mark its glyphs as used, or they may be replaced while they are drawn.
+ * <p>
+ * Adding glyphs and uploading must happen on the rendering thread.
+ */
+public class GlyphAtlas implements Disposable{
+    /** Shelf heights are rounded up to a multiple of this, so shelves can be reused by glyphs of similar height. */
+    static final int shelfStep = 4;
+
+    public final int pageWidth, pageHeight, maxPages, padding;
+    final Seq<Page> pages = new Seq<>();
+    final IntMap<Slot> slots = new IntMap<>();
+    private ByteBuffer uploadBuffer;
+    private final TextureFilter minFilter, magFilter;
+    private long frame;
+
+    /** Frames that a glyph is kept for after it was last used. Must be at least 1. */
+    public int keepFrames = 2;
+    /** Called with the key of every glyph that is evicted. */
+    public @Nullable Intc evicted;
+    /** Glyphs that were evicted, texture uploads, and the amount of pixels uploaded. */
+    public long evictions, uploads, uploadedPixels;
+
+    public GlyphAtlas(int pageWidth, int pageHeight, int maxPages, int padding, TextureFilter minFilter, TextureFilter magFilter){
+        if(maxPages < 1) throw new IllegalArgumentException("maxPages must be at least 1: " + maxPages);
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.maxPages = maxPages;
+        this.padding = padding;
+        this.minFilter = minFilter;
+        this.magFilter = magFilter;
+        addPage();
+    }
+
+    /** Sets the current frame. Glyphs used in this frame and the frames before it are not evicted. */
+    public void setFrame(long frame){
+        this.frame = frame;
+    }
+
+    public long getFrame(){
+        return frame;
+    }
+
+    /** @return the glyph with a key, or null if it was never added or has been evicted. Marks it as used. */
+    public @Nullable Slot get(int key){
+        Slot slot = slots.get(key);
+        if(slot != null) slot.shelf.lastUsed = frame;
+        return slot;
+    }
+
+    public boolean has(int key){
+        return slots.containsKey(key);
+    }
+
+    /**
+     * Adds a glyph, replacing an older one with the same key. The pixmap is copied and may be disposed afterwards.
+     * @param pinned If true, the glyph is never evicted, which is useful for the missing glyph.
+     * @return the location of the glyph, or null if no space could be freed because every shelf was used recently.
+     */
+    public @Nullable Slot add(int key, Pixmap pixmap, boolean pinned){
+        int width = pixmap.width + padding, height = pixmap.height + padding;
+        if(width > pageWidth || height > pageHeight){
+            throw new IllegalArgumentException("Glyph " + key + " is larger than the page size: " + pixmap.width + "x" + pixmap.height);
+        }
+        Slot old = slots.get(key);
+        if(old != null) remove(old);
+
+        Shelf shelf = findShelf(width, height);
+        if(shelf == null) return null;
+
+        Page page = pages.get(shelf.page);
+        Slot slot = new Slot();
+        slot.key = key;
+        slot.shelf = shelf;
+        slot.page = shelf.page;
+        slot.x = shelf.x;
+        slot.y = shelf.y;
+        slot.width = pixmap.width;
+        slot.height = pixmap.height;
+        slot.pinned = pinned;
+
+        shelf.x += width;
+        shelf.slots.add(slot);
+        shelf.lastUsed = frame;
+        if(pinned) shelf.pinned++;
+        slots.put(key, slot);
+
+        //clear the padding too, it may still hold an evicted glyph
+        page.pixmap.fillRect(slot.x, slot.y, Math.min(width, pageWidth - slot.x), Math.min(height, pageHeight - slot.y), 0);
+        page.pixmap.draw(pixmap, slot.x, slot.y, false);
+        shelf.dirtyMin = Math.min(shelf.dirtyMin, slot.x);
+        shelf.dirtyMax = Math.max(shelf.dirtyMax, Math.min(slot.x + width, pageWidth));
+        page.dirty = true;
+        return slot;
+    }
+
+    /**
+     * Checks for space without changing the atlas, so that glyphs that did not fit are not rasterized again until they do.
+     * @return whether {@link #add(int, Pixmap, boolean)} would find space for a glyph of this size in the current frame.
+     */
+    public boolean fits(int width, int height){
+        width += padding;
+        height += padding;
+        if(width > pageWidth || height > pageHeight) return false;
+        if(pages.size < maxPages) return true;
+
+        int shelfHeight = shelfHeight(height);
+        for(Page page : pages){
+            if(page.nextY + shelfHeight <= pageHeight) return true;
+            for(Shelf shelf : page.shelves){
+                if(shelf.height >= height && ((shelf.height <= height * 2 && shelf.x + width <= pageWidth) || (shelf.pinned == 0 && shelf.lastUsed <= frame - keepFrames))){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Removes a glyph. Its space is reused when its shelf is cleared. */
+    public void remove(int key){
+        Slot slot = slots.get(key);
+        if(slot != null) remove(slot);
+    }
+
+    private void remove(Slot slot){
+        slots.remove(slot.key);
+        slot.shelf.slots.remove(slot, true);
+        if(slot.pinned) slot.shelf.pinned--;
+        //an empty shelf can be reused right away
+        if(slot.shelf.slots.isEmpty()) slot.shelf.x = 0;
+    }
+
+    /** Uploads the changed parts of every page to its texture. */
+    public void upload(){
+        for(Page page : pages){
+            if(!page.dirty) continue;
+            page.dirty = false;
+            Pixmap pixmap = page.pixmap;
+            page.texture.bind();
+            for(Shelf shelf : page.shelves){
+                if(shelf.dirtyMax <= shelf.dirtyMin) continue;
+                int x = shelf.dirtyMin, width = shelf.dirtyMax - shelf.dirtyMin, height = Math.min(shelf.height, pageHeight - shelf.y);
+                int rowBytes = width * 4;
+                if(uploadBuffer == null || uploadBuffer.capacity() < rowBytes * height){
+                    uploadBuffer = Buffers.newByteBuffer(Math.max(rowBytes * height, pageWidth * shelfStep * 16));
+                }
+                //copy the rectangle to consecutive rows, as row length can't be set for uploads
+                ByteBuffer source = pixmap.pixels.duplicate();
+                uploadBuffer.clear();
+                for(int y = 0; y < height; y++){
+                    int start = ((shelf.y + y) * pageWidth + x) * 4;
+                    source.limit(start + rowBytes).position(start);
+                    uploadBuffer.put(source);
+                }
+                uploadBuffer.flip();
+                Gl.texSubImage2D(page.texture.glTarget, 0, x, shelf.y, width, height, pixmap.getGLFormat(), pixmap.getGLType(), uploadBuffer);
+                uploads++;
+                uploadedPixels += width * height;
+                shelf.dirtyMin = Integer.MAX_VALUE;
+                shelf.dirtyMax = 0;
+            }
+        }
+    }
+
+    /** @return the shelf a rect of this size (with padding) should be placed at the end of, or null if there is no space. */
+    private @Nullable Shelf findShelf(int width, int height){
+        //an open shelf with the least wasted height
+        Shelf best = null;
+        for(Page page : pages){
+            for(Shelf shelf : page.shelves){
+                if(shelf.height >= height && shelf.height <= height * 2 && shelf.x + width <= pageWidth && (best == null || shelf.height < best.height)){
+                    best = shelf;
+                }
+            }
+        }
+        if(best != null) return best;
+
+        int shelfHeight = shelfHeight(height);
+        for(Page page : pages){
+            if(page.nextY + shelfHeight <= pageHeight) return page.addShelf(shelfHeight);
+        }
+        if(pages.size < maxPages){
+            return addPage().addShelf(shelfHeight);
+        }
+
+        //reuse the least recently used shelf that fits
+        for(Page page : pages){
+            for(Shelf shelf : page.shelves){
+                if(shelf.height >= height && shelf.pinned == 0 && shelf.lastUsed <= frame - keepFrames
+                && (best == null || shelf.lastUsed < best.lastUsed || (shelf.lastUsed == best.lastUsed && shelf.height < best.height))){
+                    best = shelf;
+                }
+            }
+        }
+        if(best != null) evict(best);
+        return best;
+    }
+
+    private int shelfHeight(int height){
+        return Math.min((height + shelfStep - 1) / shelfStep * shelfStep, pageHeight);
+    }
+
+    private void evict(Shelf shelf){
+        for(Slot slot : shelf.slots){
+            slots.remove(slot.key);
+            evictions++;
+            if(evicted != null) evicted.get(slot.key);
+        }
+        shelf.slots.clear();
+        shelf.x = 0;
+    }
+
+    private Page addPage(){
+        Page page = new Page(pages.size);
+        pages.add(page);
+        return page;
+    }
+
+    public Seq<Page> getPages(){
+        return pages;
+    }
+
+    /** @return the amount of glyphs in the atlas. */
+    public int size(){
+        return slots.size;
+    }
+
+    @Override
+    public void dispose(){
+        for(Page page : pages){
+            page.texture.dispose();
+            page.pixmap.dispose();
+        }
+        pages.clear();
+        slots.clear();
+        uploadBuffer = null;
+    }
+
+    /** The location of a glyph in the atlas. */
+    public static class Slot{
+        public int key, page, x, y, width, height;
+        boolean pinned;
+        Shelf shelf;
+    }
+
+    public class Page{
+        public final Pixmap pixmap;
+        public final Texture texture;
+        /** Lazily created region that covers the whole page. */
+        private TextureRegion region;
+        final Seq<Shelf> shelves = new Seq<>();
+        final int index;
+        int nextY;
+        boolean dirty;
+
+        Page(int index){
+            this.index = index;
+            pixmap = new Pixmap(pageWidth, pageHeight);
+            texture = new Texture(new PixmapTextureData(pixmap, false, false));
+            texture.setFilter(minFilter, magFilter);
+        }
+
+        Shelf addShelf(int height){
+            Shelf shelf = new Shelf();
+            shelf.page = index;
+            shelf.y = nextY;
+            shelf.height = height;
+            shelf.lastUsed = frame;
+            nextY += height;
+            shelves.add(shelf);
+            return shelf;
+        }
+
+        public TextureRegion region(){
+            if(region == null) region = new TextureRegion(texture);
+            return region;
+        }
+    }
+
+    static class Shelf{
+        final Seq<Slot> slots = new Seq<>(false, 16);
+        int page, y, height, x, pinned;
+        long lastUsed;
+        /** Range of x that must be uploaded. */
+        int dirtyMin = Integer.MAX_VALUE, dirtyMax;
+    }
+}
@@ -0,0 +1,258 @@
+package arc.graphics.g2d;
+
+import arc.graphics.*;
+import arc.graphics.g2d.Font.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.pooling.*;
+
+import java.util.*;
+
+/**
+ * A least-recently-used cache of laid out text. Every entry holds the {@link GlyphLayout} and the finished glyph vertices of a
+ * piece of text, so drawing text that does not change skips glyph lookup, kerning, wrapping and vertex generation. Entries are
+ * keyed by font, text, color, target width, alignment, wrapping, truncation and the font scale, markup and integer settings.
+ * <p>
+ * Set it on one or more fonts with {@link Font#setLayoutCache(GlyphLayoutCache)}. The cache is not thread-safe. Entries are laid
+ * out again when {@link FontData#markUsed(GlyphLayout, int)} reports that their glyphs changed; fonts that change their glyphs
+ * otherwise must be {@link #clear(Font) cleared}.
+ */
+public class GlyphLayoutCache{
+    /** Estimated bytes of an entry without its text, glyphs and vertices. */
+    static final int entryBytes = 200, runBytes = 80, glyphBytes = 12;
+
+    private final ObjectMap<Key, Entry> entries = new ObjectMap<>();
+    private final Key probe = new Key();
+    /** Most and least recently used entries. */
+    private @Nullable Entry head, tail;
+    private long bytes;
+
+    /** The maximum amount of entries. */
+    public int maxEntries;
+    /** The maximum estimated size of all entries, in bytes. */
+    public long maxBytes;
+    /** Lookups that found an entry, lookups that created an entry, and entries removed to stay within the limits. */
+    public long hits, misses, evictions;
+
+    /** Creates a cache that holds up to 4096 entries or 8 megabytes. */
+    public GlyphLayoutCache(){
+        this(4096, 8 * 1024 * 1024);
+    }
+
+    public GlyphLayoutCache(int maxEntries, long maxBytes){
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the entry for a piece of text, laying it out if it is not cached. Arguments are the same as
+     * {@link GlyphLayout#setText(Font, CharSequence, int, int, Color, float, int, boolean, String)}. The entry is only valid until
+     * the next call.
+     */
+    public Entry get(Font font, CharSequence str, int start, int end, Color color, float targetWidth, int halign, boolean wrap, @Nullable String truncate){
+        probe.set(font, str, start, end, color.toFloatBits(), targetWidth, halign, wrap, truncate);
+        Entry entry = entries.get(probe);
+        probe.text = null;
+        if(entry != null){
+            //the glyphs of this text changed since it was laid out
+            if(font.data.markUsed(entry.layout, entry.version)){
+                remove(entry);
+                entry = null;
+            }
+        }
+        if(entry != null){
+            hits++;
+            unlink(entry);
+            link(entry);
+            return entry;
+        }
+
+        misses++;
+        Key key = new Key();
+        key.set(font, str.subSequence(start, end).toString(), 0, end - start, color.toFloatBits(), targetWidth, halign, wrap, truncate);
+        entry = new Entry(key, font);
+        entry.version = font.data.glyphVersion;
+        entry.layout.setText(font, key.text, 0, key.end, color, targetWidth, halign, wrap, truncate);
+        entry.build();
+
+        entries.put(key, entry);
+        link(entry);
+        bytes += entry.bytes;
+        trim();
+        return entry;
+    }
+
+    /** Removes the least recently used entries until the cache is within its limits. The newest entry is always kept. */
+    public void trim(){
+        while(tail != null && tail != head && (entries.size > maxEntries || bytes > maxBytes)){
+            remove(tail);
+            evictions++;
+        }
+    }
+
+    /** Removes every entry of a font. Call this when its glyphs or textures change. */
+    public void clear(Font font){
+        for(Entry entry = head; entry != null; ){
+            Entry next = entry.next;
+            if(entry.key.font == font) remove(entry);
+            entry = next;
+        }
+    }
+
+    /** Removes every entry. */
+    public void clear(){
+        while(head != null) remove(head);
+    }
+
+    /** Resets the hit, miss and eviction counters. */
+    public void resetStats(){
+        hits = misses = evictions = 0;
+    }
+
+    /** @return the fraction of lookups that were hits, or 0 if there were none. */
+    public float hitRate(){
+        return hits + misses == 0 ? 0f : (float)hits / (hits + misses);
+    }
+
+    public int size(){
+        return entries.size;
+    }
+
+    /** @return the estimated size of all entries, in bytes. */
+    public long bytes(){
+        return bytes;
+    }
+
+    private void remove(Entry entry){
+        entries.remove(entry.key);
+        unlink(entry);
+        bytes -= entry.bytes;
+        Pools.free(entry.layout);
+    }
+
+    private void link(Entry entry){
+        entry.next = head;
+        if(head != null) head.prev = entry;
+        head = entry;
+        if(tail == null) tail = entry;
+    }
+
+    private void unlink(Entry entry){
+        if(entry.prev != null) entry.prev.next = entry.next;
+        else head = entry.next;
+        if(entry.next != null) entry.next.prev = entry.prev;
+        else tail = entry.prev;
+        entry.prev = entry.next = null;
+    }
+
+    @Override
+    public String toString(){
+        return "GlyphLayoutCache{" +
+        "size=" + entries.size +
+        ", bytes=" + bytes +
+        ", hits=" + hits +
+        ", misses=" + misses +
+        ", evictions=" + evictions +
+        '}';
+    }
+
+    /** Laid out text and its glyph vertices, relative to a drawing position of 0, 0. */
+    public static class Entry{
+        final Key key;
+        final Font font;
+        @Nullable Entry prev, next;
+        int bytes, version;
+
+        /** The layout of the text. Must not be modified. */
+        public final GlyphLayout layout = Pools.obtain(GlyphLayout.class, GlyphLayout::new);
+        /** Vertices for each texture page of the font, in the format of {@link FontCache#getVertices(int)}. */
+        public float[][] vertices;
+        /** The amount of vertex floats for each texture page. */
+        public int[] counts;
+
+        Entry(Key key, Font font){
+            this.key = key;
+            this.font = font;
+        }
+
+        void build(){
+            FontCache cache = font.getCache();
+            cache.clear();
+            cache.addText(layout, 0, 0);
+
+            int pages = font.getRegions().size;
+            vertices = new float[pages][];
+            counts = new int[pages];
+            bytes = entryBytes + key.end * 2 + layout.runs.size * runBytes;
+            for(int i = 0; i < pages; i++){
+                int count = cache.getVertexCount(i);
+                counts[i] = count;
+                vertices[i] = count == 0 ? new float[0] : Arrays.copyOf(cache.getVertices(i), count);
+                bytes += count * 4 + count / 24 * glyphBytes;
+            }
+            cache.clear();
+        }
+
+        /** Draws the text with the font's {@link FontCache}. See {@link FontCache#draw(Entry, float, float)}. */
+        public void draw(float x, float y){
+            font.getCache().draw(this, x, y);
+        }
+    }
+
+    /** A lookup key. Stored keys own their text, while the probe key points into the text that is being drawn. */
+    static class Key{
+        Font font;
+        CharSequence text;
+        int start, end, halign, hash;
+        float color, targetWidth, scaleX, scaleY;
+        boolean wrap, markup, integer;
+        @Nullable String truncate;
+
+        void set(Font font, CharSequence text, int start, int end, float color, float targetWidth, int halign, boolean wrap, @Nullable String truncate){
+            this.font = font;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.color = color;
+            this.targetWidth = targetWidth;
+            this.halign = halign;
+            this.wrap = wrap;
+            this.truncate = truncate;
+            scaleX = font.data.scaleX;
+            scaleY = font.data.scaleY;
+            markup = font.data.markupEnabled;
+            integer = font.usesIntegerPositions();
+
+            int h = System.identityHashCode(font);
+            for(int i = start; i < end; i++) h = 31 * h + text.charAt(i);
+            h = 31 * h + Float.floatToIntBits(color);
+            h = 31 * h + Float.floatToIntBits(targetWidth);
+            h = 31 * h + Float.floatToIntBits(scaleX);
+            h = 31 * h + Float.floatToIntBits(scaleY);
+            h = 31 * h + halign;
+            h = 31 * h + (wrap ? 1 : 0) + (markup ? 2 : 0) + (integer ? 4 : 0);
+            h = 31 * h + (truncate == null ? 0 : truncate.hashCode());
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this == o) return true;
+            if(!(o instanceof Key)) return false;
+            Key other = (Key)o;
+            if(hash != other.hash || font != other.font || end - start != other.end - other.start || color != other.color
+            || targetWidth != other.targetWidth || scaleX != other.scaleX || scaleY != other.scaleY || halign != other.halign
+            || wrap != other.wrap || markup != other.markup || integer != other.integer) return false;
+            if(truncate == null ? other.truncate != null : !truncate.equals(other.truncate)) return false;
+            for(int i = 0, n = end - start; i < n; i++){
+                if(text.charAt(start + i) != other.text.charAt(other.start + i)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package arc.graphics.g2d;
+
+import arc.graphics.*;
+import arc.graphics.gl.*;
+
+import java.util.*;
+
+/**
+ * A {@link SpriteBatch} that binds several textures at once, and stores the texture slot of each sprite in its vertices.
+ * Switching textures only flushes once every slot is in use, so sprites from different textures that share blending and shader
+ * are drawn in one call. Sorting, requests and the public API behave the same as in SpriteBatch.
+ * <p>
+ * Custom shaders set through {@link Draw#shader(Shader)} do not know about texture slots, so while one is active,
+ * this batch falls back to a single texture per draw call.
+ */
+public class MultiTextureBatch extends SpriteBatch{
+    //xy + color + uv + mix_color + texture slot
+    public static final int VERTEX_SIZE = SpriteBatch.VERTEX_SIZE + 1;
+    public static final int SPRITE_SIZE = 4 * VERTEX_SIZE;
+
+    public static final VertexAttribute textureIndex = new VertexAttribute(1, "a_texindex");
+
+    protected final int maxTextures;
+    protected final Texture[] textures;
+    protected final int[] textureUnits;
+    /** Amount of slots in use by the current draw call. */
+    protected int slotCount;
+
+    private final float[] converted = new float[SPRITE_SIZE * 64];
+
+    /** Constructs a batch with a size of 4096 and up to 8 textures per draw call. */
+    public MultiTextureBatch(){
+        this(4096, 8);
+    }
+
+    /**
+     * @param size The max number of sprites in a single batch. Max of 8191.
+     * @param maxTextures The max number of textures per draw call. Clamped to the amount of texture units the device supports.
+     */
+    public MultiTextureBatch(int size, int maxTextures){
+        super(0, null);
+
+        if(size > 8191) throw new IllegalArgumentException("Can't have more than 8191 sprites per batch: " + size);
+        if(size <= 0) throw new IllegalArgumentException("size must be > 0: " + size);
+        if(maxTextures <= 0) throw new IllegalArgumentException("maxTextures must be > 0: " + maxTextures);
+
+        int units = Gl.getInt(Gl.maxTextureImageUnits);
+        this.maxTextures = units > 0 ? Math.min(maxTextures, units) : maxTextures;
+        this.textures = new Texture[this.maxTextures];
+        this.textureUnits = new int[this.maxTextures];
+        for(int i = 0; i < textureUnits.length; i++){
+            textureUnits[i] = i;
+        }
+
+        createMesh(size, VertexAttribute.position, VertexAttribute.color, VertexAttribute.texCoords, VertexAttribute.mixColor, textureIndex);
+        spriteSize = SPRITE_SIZE;
+        shader = createShader(this.maxTextures);
+        ownsShader = true;
+    }
+
+    /** @return the maximum amount of textures drawn in one call. */
+    public int getMaxTextures(){
+        return maxTextures;
+    }
+
+    @Override
+    protected void flush(){
+        super.flush();
+
+        if(idx == 0 && slotCount > 0){
+            Arrays.fill(textures, 0, slotCount, null);
+            slotCount = 0;
+        }
+    }
+
+    @Override
+    protected void discard(){
+        super.discard();
+
+        Arrays.fill(textures, 0, slotCount, null);
+        slotCount = 0;
+    }
+
+    @Override
+    protected void bindTextures(){
+        //bind in reverse, so that unit 0 is active afterwards
+        for(int i = slotCount - 1; i >= 0; i--){
+            textures[i].bind(i);
+        }
+
+        if(customShader == null){
+            int location = shader.fetchUniformLocation("u_textures", false);
+            if(location != -1){
+                Gl.uniform1iv(location, maxTextures, textureUnits, 0);
+            }
+        }
+    }
+
+    /** @return the slot of this texture in the current draw call. Flushes if all slots are taken. */
+    protected int slot(Texture texture){
+        final Texture[] textures = this.textures;
+        final int count = slotCount;
+        for(int i = 0; i < count; i++){
+            if(textures[i] == texture) return i;
+        }
+
+        if(count >= (customShader == null ? maxTextures : 1)){
+            flush();
+        }
+
+        lastTexture = texture;
+        textures[slotCount] = texture;
+        return slotCount++;
+    }
+
+    @Override
+    protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
+        final float[] converted = this.converted;
+        final int vertices = count / SpriteBatch.VERTEX_SIZE;
+        float slot = slot(texture);
+        int done = 0;
+
+        while(done < vertices){
+            int remaining = (buffer.capacity() - idx) / VERTEX_SIZE;
+            if(remaining == 0){
+                flush();
+                slot = slot(texture);
+                continue;
+            }
+
+            int amount = Math.min(Math.min(remaining, vertices - done), converted.length / VERTEX_SIZE);
+            for(int v = 0, src = offset + done * SpriteBatch.VERTEX_SIZE, dst = 0; v < amount; v++, src += SpriteBatch.VERTEX_SIZE, dst += VERTEX_SIZE){
+                converted[dst] = spriteVertices[src];
+                converted[dst + 1] = spriteVertices[src + 1];
+                converted[dst + 2] = spriteVertices[src + 2];
+                converted[dst + 3] = spriteVertices[src + 3];
+                converted[dst + 4] = spriteVertices[src + 4];
+                converted[dst + 5] = spriteVertices[src + 5];
+                converted[dst + 6] = slot;
+            }
+
+            buffer.put(converted, 0, amount * VERTEX_SIZE);
+            idx += amount * VERTEX_SIZE;
+            done += amount;
+        }
+    }
+
+    @Override
+    protected void drawSuper(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+        constructVertices(tmpVertices, 0, region, x, y, originX, originY, width, height, rotation);
+        drawSuper(region.texture, tmpVertices, 0, SpriteBatch.SPRITE_SIZE);
+    }
+
+    /** Creates the default shader, which samples from one of {@code maxTextures} samplers based on the vertex texture slot. */
+    public static Shader createShader(int maxTextures){
+        StringBuilder sample = new StringBuilder();
+        for(int i = 0; i < maxTextures; i++){
+            if(i > 0) sample.append("  else ");
+            else sample.append("  ");
+            if(i < maxTextures - 1) sample.append("if(v_texindex < ").append(i).append(".5) ");
+            sample.append("c = texture2D(u_textures[").append(i).append("], v_texCoords);\n");
+        }
+
+        return new Shader(
+        "attribute vec4 a_position;\n" +
+        "attribute vec4 a_color;\n" +
+        "attribute vec2 a_texCoord0;\n" +
+        "attribute vec4 a_mix_color;\n" +
+        "attribute float a_texindex;\n" +
+        "uniform mat4 u_projTrans;\n" +
+        "varying vec4 v_color;\n" +
+        "varying vec4 v_mix_color;\n" +
+        "varying vec2 v_texCoords;\n" +
+        "varying float v_texindex;\n" +
+        "\n" +
+        "void main(){\n" +
+        "   v_color = a_color;\n" +
+        "   v_color.a = v_color.a * (255.0/254.0);\n" +
+        "   v_mix_color = a_mix_color;\n" +
+        "   v_mix_color.a *= (255.0/254.0);\n" +
+        "   v_texCoords = a_texCoord0;\n" +
+        "   v_texindex = a_texindex;\n" +
+        "   gl_Position = u_projTrans * a_position;\n" +
+        "}",
+
+        "\n" +
+        "varying lowp vec4 v_color;\n" +
+        "varying lowp vec4 v_mix_color;\n" +
+        "varying highp vec2 v_texCoords;\n" +
+        "varying mediump float v_texindex;\n" +
+        "uniform highp sampler2D u_textures[" + maxTextures + "];\n" +
+        "\n" +
+        "void main(){\n" +
+        //GLSL ES 1.0 can't index samplers with a varying, so every slot gets its own branch
+        "  vec4 c;\n" +
+        sample +
+        "  gl_FragColor = v_color * mix(c, vec4(v_mix_color.rgb, c.a), v_mix_color.a);\n" +
+        "}"
+        );
+    }
+}
@@ -0,0 +1,231 @@
+package arc.graphics.g2d;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.gl.*;
+import arc.math.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * A batch that passes everything to the current batch while recording the sprites that are drawn, so they can be drawn again
+ * with {@link #replay()} without running the code that drew them. Recorded vertices keep the colors they were drawn with.
+ * <p>
+ * Recording stops when something is drawn that can't be replayed: a draw request, a flush (such as for scissors), or a change of
+ * the shader, transform, projection or sorting. Drawing still continues as usual in that case. Sprites are replayed at the z
+ * they were drawn at.
+ */
+public class RecordingBatch extends Batch{
+    private static final int vertexSize = SpriteBatch.VERTEX_SIZE;
+
+    private Batch target;
+    private boolean recording;
+    private float[] vertices = new float[SpriteBatch.SPRITE_SIZE * 16];
+    private int size;
+    /** Sprites are replayed in runs with the same texture, blending and z. Each run ends at an offset in the vertices. */
+    private final Seq<Texture> runTextures = new Seq<>();
+    private final Seq<Blending> runBlending = new Seq<>();
+    private final FloatSeq runZ = new FloatSeq();
+    private final IntSeq runEnds = new IntSeq();
+    private final float[] spriteVertices = new float[SpriteBatch.SPRITE_SIZE];
+    private float endColor = Color.whiteFloatBits, endMixColor = Color.clearFloatBits, endZ;
+    private Blending endBlending = Blending.normal;
+
+    /** Clears the recording and starts a new one. {@link Core#batch} is set to this batch until {@link #end()}. */
+    public void begin(){
+        if(target != null) throw new IllegalStateException("RecordingBatch.end must be called before begin.");
+        clear();
+        target = Core.batch;
+        Core.batch = this;
+        recording = true;
+        colorPacked = target.getPackedColor();
+        mixColorPacked = target.getPackedMixColor();
+        blending = target.getBlending();
+        z = target.z;
+    }
+
+    /**
+     * Restores the previous batch.
+     * @return whether everything drawn since {@link #begin()} was recorded. If not, the recording is cleared.
+     */
+    public boolean end(){
+        if(target == null) throw new IllegalStateException("RecordingBatch.begin must be called before end.");
+        Core.batch = target;
+        target = null;
+        endColor = colorPacked;
+        endMixColor = mixColorPacked;
+        endBlending = blending;
+        endZ = z;
+        boolean recorded = recording;
+        recording = false;
+        if(!recorded) clear();
+        return recorded;
+    }
+
+    /** @return whether this batch is between {@link #begin()} and {@link #end()}. */
+    public boolean isRecording(){
+        return target != null;
+    }
+
+    /** Draws the recorded sprites with the current batch, and leaves it with the colors, blending and z of the end of the recording. */
+    public void replay(){
+        Batch batch = Core.batch;
+        for(int i = 0, start = 0; i < runEnds.size; i++){
+            int end = runEnds.get(i);
+            Blending blending = runBlending.get(i);
+            if(batch.getBlending() != blending) batch.setBlending(blending);
+            if(batch.z != runZ.get(i)) batch.z(runZ.get(i));
+            batch.draw(runTextures.get(i), vertices, start, end - start);
+            start = end;
+        }
+        if(batch.getBlending() != endBlending) batch.setBlending(endBlending);
+        if(batch.z != endZ) batch.z(endZ);
+        batch.setPackedColor(endColor);
+        batch.setPackedMixColor(endMixColor);
+    }
+
+    /** Moves the recorded sprites. */
+    public void translate(float x, float y){
+        float[] vertices = this.vertices;
+        for(int i = 0; i < size; i += vertexSize){
+            vertices[i] += x;
+            vertices[i + 1] += y;
+        }
+    }
+
+    public void clear(){
+        size = 0;
+        runTextures.clear();
+        runBlending.clear();
+        runZ.clear();
+        runEnds.clear();
+    }
+
+    /** @return the amount of recorded sprites. */
+    public int sprites(){
+        return size / SpriteBatch.SPRITE_SIZE;
+    }
+
+    /** @return the approximate amount of memory used by the recording, in bytes. */
+    public int memory(){
+        //each run has an end offset, a z and two references
+        return vertices.length * 4 + runEnds.items.length * 16;
+    }
+
+    /** Releases the memory of the recording. */
+    public void trim(){
+        vertices = Arrays.copyOf(vertices, Math.max(size, SpriteBatch.SPRITE_SIZE));
+    }
+
+    private void add(Texture texture, float[] spriteVertices, int offset, int count){
+        if(!recording || texture == null) return;
+        int last = runEnds.size - 1;
+        if(last < 0 || runTextures.get(last) != texture || runBlending.get(last) != blending || runZ.get(last) != z){
+            runTextures.add(texture);
+            runBlending.add(blending);
+            runZ.add(z);
+            runEnds.add(size);
+            last++;
+        }
+        if(size + count > vertices.length) vertices = Arrays.copyOf(vertices, Math.max(size + count, vertices.length * 7 / 4));
+        System.arraycopy(spriteVertices, offset, vertices, size, count);
+        size += count;
+        runEnds.set(last, size);
+    }
+
+    @Override
+    protected void draw(Texture texture, float[] spriteVertices, int offset, int count){
+        target.draw(texture, spriteVertices, offset, count);
+        add(texture, spriteVertices, offset, count);
+    }
+
+    @Override
+    protected void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+        target.draw(region, x, y, originX, originY, width, height, rotation);
+        if(recording){
+            SpriteBatch.constructVertices(spriteVertices, 0, region, x, y, originX, originY, width, height, rotation, colorPacked, mixColorPacked);
+            add(region.texture, spriteVertices, 0, SpriteBatch.SPRITE_SIZE);
+        }
+    }
+
+    @Override
+    protected void draw(Runnable request){
+        recording = false;
+        target.draw(request);
+    }
+
+    @Override
+    protected void flush(){
+        recording = false;
+        target.flush();
+    }
+
+    @Override
+    protected void discard(){
+        target.discard();
+    }
+
+    @Override
+    protected void z(float z){
+        this.z = z;
+        target.z(z);
+    }
+
+    @Override
+    protected void setSort(boolean sort){
+        recording = false;
+        target.setSort(sort);
+    }
+
+    @Override
+    protected void setPackedColor(float packedColor){
+        colorPacked = packedColor;
+        target.setPackedColor(packedColor);
+    }
+
+    @Override
+    protected void setPackedMixColor(float packedColor){
+        mixColorPacked = packedColor;
+        target.setPackedMixColor(packedColor);
+    }
+
+    @Override
+    protected void setBlending(Blending blending){
+        this.blending = blending;
+        target.setBlending(blending);
+    }
+
+    @Override
+    protected Mat getProjection(){
+        return target.getProjection();
+    }
+
+    @Override
+    protected Mat getTransform(){
+        return target.getTransform();
+    }
+
+    @Override
+    protected void setProjection(Mat projection){
+        recording = false;
+        target.setProjection(projection);
+    }
+
+    @Override
+    protected void setTransform(Mat transform){
+        recording = false;
+        target.setTransform(transform);
+    }
+
+    @Override
+    protected void setShader(Shader shader, boolean apply){
+        recording = false;
+        target.setShader(shader, apply);
+    }
+
+    @Override
+    protected Shader getShader(){
+        return target.getShader();
+    }
+}
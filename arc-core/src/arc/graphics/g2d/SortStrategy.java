@@ -0,0 +1,144 @@
+package arc.graphics.g2d;
+
+import java.util.*;
+
+/**
+ * Determines the order in which a Z-sorting {@link SpriteBatch} flushes its draw requests.
+ * @see SpriteBatch#setSortStrategy(SortStrategy)
+ */
+public interface SortStrategy{
+    /** Counting sort over contiguous Z layers on the calling thread. Used on devices without proper multithreading. */
+    SortStrategy standard = SpriteBatch::sortRequestsStandard;
+    /** Counting sort that distributes work across the common fork-join pool. */
+    SortStrategy threaded = SpriteBatch::sortRequestsThreaded;
+
+    /**
+     * Writes the indices of all pending requests into {@code order}, in the order they should be drawn.
+     * Requests must be ordered by ascending Z. Requests with the same Z should keep their submission order,
+     * unless the strategy documents otherwise.
+     * @param batch the batch that is being flushed. Request data can be queried with {@link SpriteBatch#getRequestTexture(int)} and related methods.
+     * @param z the Z value of each request, as raw float bits.
+     * @param count the amount of pending requests.
+     * @param order the destination array. Its length is at least {@code count}.
+     */
+    void sort(SpriteBatch batch, int[] z, int count, int[] order);
+
+    /**
+     * Sorts requests by packing (Z, request index) into a single long key, which is then sorted with an LSD radix sort.
+     * Only the Z bytes that actually differ between requests are sorted, so a frame with few layers takes one or two passes.
+     * Each batch should have its own instance, as the key buffers are reused between frames.
+     */
+    class Radix implements SortStrategy{
+        /**
+         * If true, requests with the same Z are additionally grouped by texture and blending, which reduces texture switches.
+         * Note that this changes the overlap order of sprites on the same layer. {@link Draw#draw(float, Runnable)} requests
+         * are never moved, and requests are never moved across them.
+         */
+        public final boolean groupTextures;
+
+        private final int[] histograms = new int[4 * 256];
+        private long[] keys = {}, swap = {};
+
+        public Radix(){
+            this(false);
+        }
+
+        public Radix(boolean groupTextures){
+            this.groupTextures = groupTextures;
+        }
+
+        @Override
+        public void sort(SpriteBatch batch, int[] z, int count, int[] order){
+            if(count == 0) return;
+
+            if(keys.length < count){
+                keys = new long[count + (count >> 3)];
+                swap = new long[keys.length];
+            }
+
+            long[] keys = this.keys, swap = this.swap;
+            final int[] hist = histograms;
+            Arrays.fill(hist, 0);
+
+            //flipping the sign bit makes unsigned byte order equal to the signed order used by the counting sorts
+            for(int i = 0; i < count; i++){
+                int key = z[i] ^ 0x80000000;
+                keys[i] = ((long)key << 32) | i;
+                hist[key & 0xff]++;
+                hist[256 + ((key >>> 8) & 0xff)]++;
+                hist[512 + ((key >>> 16) & 0xff)]++;
+                hist[768 + (key >>> 24)]++;
+            }
+
+            //the index bits never need to be sorted: keys start out in index order, and each pass is stable
+            for(int pass = 0; pass < 4; pass++){
+                final int offset = pass * 256, shift = 32 + pass * 8;
+
+                //every key has the same digit, so this pass would not move anything
+                if(hist[offset + (int)((keys[0] >>> shift) & 0xff)] == count) continue;
+
+                for(int i = 0, sum = 0; i < 256; i++){
+                    int c = hist[offset + i];
+                    hist[offset + i] = sum;
+                    sum += c;
+                }
+
+                for(int i = 0; i < count; i++){
+                    long key = keys[i];
+                    swap[hist[offset + (int)((key >>> shift) & 0xff)]++] = key;
+                }
+
+                long[] t = keys;
+                keys = swap;
+                swap = t;
+            }
+
+            this.keys = keys;
+            this.swap = swap;
+
+            for(int i = 0; i < count; i++){
+                order[i] = (int)keys[i];
+            }
+
+            if(groupTextures){
+                group(batch, keys, count, order);
+            }
+        }
+
+        /** Groups every run of same-Z requests that are not separated by Runnable requests. */
+        private void group(SpriteBatch batch, long[] keys, int count, int[] order){
+            int start = 0;
+            for(int i = 0; i < count; i++){
+                if(batch.isRequestRun(order[i])){
+                    groupSegment(batch, start, i, order);
+                    start = i + 1;
+                }else if((int)(keys[i] >>> 32) != (int)(keys[start] >>> 32)){
+                    groupSegment(batch, start, i, order);
+                    start = i;
+                }
+            }
+            groupSegment(batch, start, count, order);
+        }
+
+        private void groupSegment(SpriteBatch batch, int from, int to, int[] order){
+            if(to - from < 2) return;
+
+            //the segment has been sorted already, so swap can be reused as scratch space
+            final long[] segment = swap;
+            int len = to - from;
+            for(int i = 0; i < len; i++){
+                int index = order[from + i];
+                //texture indices are -1 only for invalid requests, which are ignored anyway
+                long texture = (batch.getRequestTextureIndex(index) + 1) & 0x7fffff, blend = batch.getRequestBlendingIndex(index);
+                segment[i] = (texture << 40) | (blend << 32) | index;
+            }
+
+            //request indices are unique and ascending within the segment, so this stays stable
+            Arrays.sort(segment, 0, len);
+
+            for(int i = 0; i < len; i++){
+                order[from + i] = (int)segment[i];
+            }
+        }
+    }
+}
@@ -32,6 +32,8 @@ public class SpriteBatch extends Batch{
 
     protected Mesh mesh;
     protected FloatBuffer buffer;
+    /** Amount of floats per sprite in the mesh. Differs from {@link #SPRITE_SIZE} in batches with a custom vertex format. */
+    protected int spriteSize = SPRITE_SIZE;
 
     final float[] tmpVertices = new float[SPRITE_SIZE];
 
@@ -39,18 +41,39 @@ public class SpriteBatch extends Batch{
     int requestVertOffset = 0;
 
     protected boolean sort, flushing;
-    protected DrawRequest[] requests = new DrawRequest[initialSize], copy = new DrawRequest[0];
+    //requests are stored as parallel arrays, so recording them allocates nothing once the arrays have grown
     protected int[] requestZ = new int[initialSize];
+    protected int[] requestOffsets = new int[initialSize], requestLengths = new int[initialSize];
+    /** Index into {@link #textureTable}, or -1 for Runnable requests. */
+    protected int[] requestTextures = new int[initialSize];
+    /** Index into {@link #blendingTable}, stored unsigned. */
+    protected byte[] requestBlending = new byte[initialSize];
+    protected Runnable[] requestRuns = new Runnable[initialSize];
+    /** Indices of requests in the order they are flushed. Written by the sort strategy. */
+    protected int[] requestOrder = new int[initialSize];
     protected int numRequests = 0;
     protected int[] contiguous = new int[2048], contiguousCopy = new int[2048];
     protected int intZ = Float.floatToRawIntBits(z + 16f);
-
-    protected static class DrawRequest{
-        int verticesOffset, verticesLength;
-        Texture texture;
-        Blending blending;
-        Runnable run;
-    }
+    protected SortStrategy sortStrategy;
+
+    /** Textures referenced by the pending requests. Cleared after every flush. */
+    protected Texture[] textureTable = new Texture[64];
+    protected int textureCount;
+    protected ObjectIntMap<Texture> textureIndices = new ObjectIntMap<>();
+    protected Texture lastRequestTexture;
+    protected int lastRequestTextureIndex;
+    /** Blending modes referenced by the pending requests. Cleared after every flush. */
+    protected Blending[] blendingTable = new Blending[8];
+    protected int blendingCount;
+
+    /** Duration of the last request sort, in nanoseconds. */
+    protected long lastSortTime;
+    /** Amount of requests processed by the last request sort. */
+    protected int lastSortRequests;
+
+    /** Flush and draw call counters of the current frame and the last completed frame. */
+    protected int flushes, drawCalls, lastFrameFlushes, lastFrameDrawCalls;
+    protected long statFrame = -1;
 
     /**
      * Constructs a new SpriteBatch with a size of 4096, one buffer, and the default shader.
@@ -83,29 +106,7 @@ public class SpriteBatch extends Batch{
         if(size > 8191) throw new IllegalArgumentException("Can't have more than 8191 sprites per batch: " + size);
 
         if(size > 0){
-            projectionMatrix.setOrtho(0, 0, Core.graphics.getWidth(), Core.graphics.getHeight());
-
-            mesh = new Mesh(true, false, size * 4, size * 6,
-            VertexAttribute.position,
-            VertexAttribute.color,
-            VertexAttribute.texCoords,
-            VertexAttribute.mixColor
-            );
-
-            int len = size * 6;
-            short[] indices = new short[len];
-            short j = 0;
-            for(int i = 0; i < len; i += 6, j += 4){
-                indices[i] = j;
-                indices[i + 1] = (short)(j + 1);
-                indices[i + 2] = (short)(j + 2);
-                indices[i + 3] = (short)(j + 2);
-                indices[i + 4] = (short)(j + 3);
-                indices[i + 5] = j;
-            }
-            mesh.setIndices(indices);
-            mesh.getVerticesBuffer().position(0);
-            mesh.getVerticesBuffer().limit(mesh.getVerticesBuffer().capacity());
+            createMesh(size, VertexAttribute.position, VertexAttribute.color, VertexAttribute.texCoords, VertexAttribute.mixColor);
 
             if(defaultShader == null){
                 shader = createShader();
@@ -113,18 +114,10 @@ public class SpriteBatch extends Batch{
             }else{
                 shader = defaultShader;
             }
-
-            //mark indices as dirty once for GL30
-            mesh.getIndicesBuffer();
-            buffer = mesh.getVerticesBuffer();
         }else{
             shader = null;
         }
 
-        for(int i = 0; i < requests.length; i++){
-            requests[i] = new DrawRequest();
-        }
-
         if(multithreaded){
             try{
                 commonPool = new ForkJoinHolder();
@@ -132,6 +125,98 @@ public class SpriteBatch extends Batch{
                 multithreaded = false;
             }
         }
+
+        sortStrategy = multithreaded ? SortStrategy.threaded : SortStrategy.standard;
+    }
+
+    /**
+     * Sets the strategy used to order draw requests when Z-sorting is enabled. Flushes the batch.
+     * @see SortStrategy
+     */
+    public void setSortStrategy(SortStrategy strategy){
+        if(strategy == null) throw new IllegalArgumentException("strategy cannot be null.");
+        flush();
+        if(strategy == SortStrategy.threaded && commonPool == null){
+            commonPool = new ForkJoinHolder();
+        }
+        this.sortStrategy = strategy;
+    }
+
+    public SortStrategy getSortStrategy(){
+        return sortStrategy;
+    }
+
+    /**
+     * Sets whether flushes append their vertices to a streaming ring buffer, instead of re-uploading the whole buffer at offset 0.
+     * Reduces driver synchronization when a frame has many texture switches. Flushes the batch.
+     * @see Mesh#setStreaming(boolean)
+     */
+    public void setStreaming(boolean streaming){
+        if(mesh == null) return;
+        flush();
+        mesh.setStreaming(streaming);
+    }
+
+    /** @return the time taken by the last request sort, in nanoseconds. */
+    public long getLastSortTime(){
+        return lastSortTime;
+    }
+
+    /** @return the amount of requests that were sorted during the last flush. */
+    public int getLastSortRequests(){
+        return lastSortRequests;
+    }
+
+    /** @return the amount of times this batch was flushed during the last completed frame, including empty flushes. */
+    public int getLastFrameFlushes(){
+        return lastFrameFlushes;
+    }
+
+    /** @return the amount of draw calls issued by this batch during the last completed frame. */
+    public int getLastFrameDrawCalls(){
+        return lastFrameDrawCalls;
+    }
+
+    protected void countFlush(boolean drawn){
+        long frame = Core.graphics == null ? 0 : Core.graphics.getFrameId();
+        if(frame != statFrame){
+            lastFrameFlushes = flushes;
+            lastFrameDrawCalls = drawCalls;
+            flushes = drawCalls = 0;
+            statFrame = frame;
+        }
+        flushes++;
+        if(drawn) drawCalls++;
+    }
+
+    /** Sets up the projection and the mesh for {@code size} sprites, with vertices in the given format. */
+    protected void createMesh(int size, VertexAttribute... attributes){
+        projectionMatrix.setOrtho(0, 0, Core.graphics.getWidth(), Core.graphics.getHeight());
+
+        mesh = new Mesh(true, false, size * 4, size * 6, attributes);
+        mesh.setIndices(quadIndices(size));
+        mesh.getVerticesBuffer().position(0);
+        mesh.getVerticesBuffer().limit(mesh.getVerticesBuffer().capacity());
+
+        //mark indices as dirty once for GL30
+        mesh.getIndicesBuffer();
+        buffer = mesh.getVerticesBuffer();
+    }
+
+    /** @return indices for drawing {@code size} quads as pairs of triangles. */
+    protected static short[] quadIndices(int size){
+        int len = size * 6;
+        short[] indices = new short[len];
+        short j = 0;
+        for(int i = 0; i < len; i += 6, j += 4){
+            indices[i] = j;
+            indices[i + 1] = (short)(j + 1);
+            indices[i + 2] = (short)(j + 2);
+            indices[i + 3] = (short)(j + 2);
+            indices[i + 4] = (short)(j + 3);
+            indices[i + 5] = j;
+        }
+        return indices;
     }
 
     @Override
@@ -182,32 +267,32 @@ public class SpriteBatch extends Batch{
         if(sort && !flushing){
             int num = numRequests;
             if(num > 0){
-                final DrawRequest last = requests[num - 1];
-                if(last.run == null && last.texture == texture && last.blending == blending && requestZ[num - 1] == intZ){
+                final int last = num - 1, lastTexture = requestTextures[last];
+                if(lastTexture >= 0 && textureTable[lastTexture] == texture && blendingTable[requestBlending[last] & 0xff] == blending && requestZ[last] == intZ){
                     if(spriteVertices != emptyVertices){
                         prepare(count);
                         System.arraycopy(spriteVertices, offset, requestVerts, requestVertOffset, count);
                         requestVertOffset += count;
                     }
-                    last.verticesLength += count;
+                    requestLengths[last] += count;
                     return;
                 }
             }
-            if(num >= this.requests.length) expandRequests();
-            final DrawRequest req = requests[num];
+            if(num >= this.requestZ.length) expandRequests();
             if(spriteVertices != emptyVertices){
-                req.verticesOffset = requestVertOffset;
+                requestOffsets[num] = requestVertOffset;
                 prepare(count);
                 System.arraycopy(spriteVertices, offset, requestVerts, requestVertOffset, count);
                 requestVertOffset += count;
             }else{
-                req.verticesOffset = offset;
+                requestOffsets[num] = offset;
             }
-            req.verticesLength = count;
+            requestLengths[num] = count;
             requestZ[num] = intZ;
-            req.texture = texture;
-            req.blending = blending;
-            req.run = null;
+            //invalid requests without a texture are recorded, but ignored when flushing
+            requestTextures[num] = texture == null ? -1 : textureIndex(texture);
+            requestBlending[num] = blendingIndex(blending);
+            requestRuns[num] = null;
             numRequests++;
         }else{
             drawSuper(texture, spriteVertices, offset, count);
@@ -230,12 +315,12 @@ public class SpriteBatch extends Batch{
     @Override
     protected void draw(Runnable request){
         if(sort && !flushing){
-            if(numRequests >= requests.length) expandRequests();
-            final DrawRequest req = requests[numRequests];
-            req.run = request;
-            req.blending = blending;
-            requestZ[numRequests] = intZ;
-            req.texture = null;
+            int num = numRequests;
+            if(num >= requestZ.length) expandRequests();
+            requestRuns[num] = request;
+            requestBlending[num] = blendingIndex(blending);
+            requestZ[num] = intZ;
+            requestTextures[num] = -1;
             numRequests++;
         }else{
             request.run();
@@ -246,13 +331,43 @@ public class SpriteBatch extends Batch{
         if(requestVertOffset + i >= requestVerts.length) requestVerts = Arrays.copyOf(requestVerts, requestVerts.length << 1);
     }
 
-    protected void expandRequests(){
-        final DrawRequest[] requests = this.requests, newRequests = Arrays.copyOf(requests, requests.length * 7 / 4);
-        for(int i = requests.length; i < newRequests.length; i++){
-            newRequests[i] = new DrawRequest();
+    protected int textureIndex(Texture texture){
+        if(texture == lastRequestTexture) return lastRequestTextureIndex;
+
+        int index = textureIndices.get(texture, -1);
+        if(index == -1){
+            if(textureCount == textureTable.length) textureTable = Arrays.copyOf(textureTable, textureCount * 2);
+            textureTable[index = textureCount++] = texture;
+            textureIndices.put(texture, index);
         }
-        this.requests = newRequests;
-        this.requestZ = Arrays.copyOf(requestZ, newRequests.length);
+        lastRequestTexture = texture;
+        lastRequestTextureIndex = index;
+        return index;
+    }
+
+    protected byte blendingIndex(Blending blending){
+        //there are only ever a few blending modes in use, so a linear scan is faster than hashing
+        final Blending[] table = blendingTable;
+        final int count = blendingCount;
+        for(int i = 0; i < count; i++){
+            if(table[i] == blending) return (byte)i;
+        }
+        if(count == 256) throw new IllegalStateException("Too many different blending modes in one sorted batch: " + count);
+        if(count == table.length) blendingTable = Arrays.copyOf(table, count * 2);
+        blendingTable[count] = blending;
+        blendingCount++;
+        return (byte)count;
+    }
+
+    protected void expandRequests(){
+        final int length = requestZ.length * 7 / 4;
+        this.requestZ = Arrays.copyOf(requestZ, length);
+        this.requestOffsets = Arrays.copyOf(requestOffsets, length);
+        this.requestLengths = Arrays.copyOf(requestLengths, length);
+        this.requestTextures = Arrays.copyOf(requestTextures, length);
+        this.requestBlending = Arrays.copyOf(requestBlending, length);
+        this.requestRuns = Arrays.copyOf(requestRuns, length);
+        this.requestOrder = new int[length];
     }
 
     @Override
@@ -263,6 +378,8 @@ public class SpriteBatch extends Batch{
             flushing = false;
         }
 
+        countFlush(idx != 0);
+
         if(idx == 0) return;
 
         getShader().bind();
@@ -273,11 +390,11 @@ public class SpriteBatch extends Batch{
         }
 
         Gl.depthMask(false);
-        int count = idx / SPRITE_SIZE * 6;
+        int count = idx / spriteSize * 6;
 
         blending.apply();
 
-        lastTexture.bind();
+        bindTextures();
         Mesh mesh = this.mesh;
         //calling buffer() marks it as dirty, so it gets reuploaded upon render
         mesh.getVerticesBuffer();
@@ -293,25 +410,35 @@ public class SpriteBatch extends Batch{
         idx = 0;
     }
 
+    /** Binds the textures used by the pending vertices. Called during flushing, after the shader has been bound. */
+    protected void bindTextures(){
+        lastTexture.bind();
+    }
+
     protected void flushRequests(){
         if(numRequests == 0) return;
         sortRequests();
         float preColor = colorPacked, preMixColor = mixColorPacked;
         Blending preBlending = blending;
 
-        float[] vertices = this.requestVerts;
-        DrawRequest[] r = copy;
+        final float[] vertices = this.requestVerts;
+        final int[] order = requestOrder, offsets = requestOffsets, lengths = requestLengths, requestTextures = this.requestTextures;
+        final byte[] blendings = requestBlending;
+        final Runnable[] runs = requestRuns;
+        final Texture[] textures = textureTable;
+        final Blending[] blendingTable = this.blendingTable;
         int num = numRequests;
         for(int j = 0; j < num; j++){
-            final DrawRequest req = r[j];
+            final int i = order[j];
 
-            super.setBlending(req.blending);
+            super.setBlending(blendingTable[blendings[i] & 0xff]);
 
-            if(req.run != null){
-                req.run.run();
-                req.run = null;
-            }else if(req.texture != null){
-                drawSuper(req.texture, vertices, req.verticesOffset, req.verticesLength);
+            final int texture = requestTextures[i];
+            if(texture >= 0){
+                drawSuper(textures[texture], vertices, offsets[i], lengths[i]);
+            }else if(runs[i] != null){
+                runs[i].run();
+                runs[i] = null;
             } // the request is invalid, but crashing wouldn't be very nice, so it is simply ignored
         }
 
@@ -321,6 +448,13 @@ public class SpriteBatch extends Batch{
 
         numRequests = 0;
         requestVertOffset = 0;
+
+        //release texture references, so disposed textures are not kept alive by the batch
+        Arrays.fill(textures, 0, textureCount, null);
+        Arrays.fill(blendingTable, 0, blendingCount, null);
+        textureIndices.clear();
+        textureCount = blendingCount = 0;
+        lastRequestTexture = null;
     }
 
     protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
@@ -367,14 +501,16 @@ public class SpriteBatch extends Batch{
     }
 
     protected final void constructVertices(float[] vertices, int idx, TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+        constructVertices(vertices, idx, region, x, y, originX, originY, width, height, rotation, colorPacked, mixColorPacked);
+    }
+
+    /** Writes the vertices of a sprite in the format of this batch, with the specified packed colors. */
+    static void constructVertices(float[] vertices, int idx, TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation, float color, float mixColor){
         float u = region.u;
         float v = region.v2;
         float u2 = region.u2;
         float v2 = region.v;
 
-        float color = this.colorPacked;
-        float mixColor = this.mixColorPacked;
-
         if(!Mathf.zero(rotation)){
             //bottom left and top right corner points relative to origin
             float worldOriginX = x + originX;
@@ -494,17 +630,39 @@ public class SpriteBatch extends Batch{
     //region request sorting
 
     protected void sortRequests(){
-        if(multithreaded){
-            sortRequestsThreaded();
-        }else{
-            sortRequestsStandard();
-        }
+        long start = Time.nanos();
+        sortStrategy.sort(this, requestZ, numRequests, requestOrder);
+        lastSortTime = Time.timeSinceNanos(start);
+        lastSortRequests = numRequests;
     }
 
-    protected void sortRequestsThreaded(){
-        final int numRequests = this.numRequests;
-        final int[] itemZ = requestZ;
+    /** @return the texture of a pending request, or null if it is a {@link Draw#draw(float, Runnable)} request. */
+    public Texture getRequestTexture(int index){
+        int texture = requestTextures[index];
+        return texture < 0 ? null : textureTable[texture];
+    }
+
+    /** @return the index of a pending request's texture in this frame's texture table, or -1 if it has no texture. */
+    public int getRequestTextureIndex(int index){
+        return requestTextures[index];
+    }
+
+    /** @return the blending of a pending request. */
+    public Blending getRequestBlending(int index){
+        return blendingTable[requestBlending[index] & 0xff];
+    }
 
+    /** @return the index of a pending request's blending in this frame's blending table. Always in [0, 255]. */
+    public int getRequestBlendingIndex(int index){
+        return requestBlending[index] & 0xff;
+    }
+
+    /** @return whether a pending request is a {@link Draw#draw(float, Runnable)} request. */
+    public boolean isRequestRun(int index){
+        return requestRuns[index] != null;
+    }
+
+    protected void sortRequestsThreaded(int[] itemZ, int numRequests, int[] order){
         int[] contiguous = this.contiguous;
         int ci = 0, cl = contiguous.length;
         int z = itemZ[0];
@@ -540,17 +698,13 @@ public class SpriteBatch extends Batch{
             ptr += sorted[i * 3 + 2];
             locs[i + 1] = ptr;
         }
-        if(copy.length < requests.length) copy = new DrawRequest[requests.length];
         PopulateTask.tasks = sorted;
-        PopulateTask.src = requests;
-        PopulateTask.dest = copy;
+        PopulateTask.dest = order;
         PopulateTask.locs = locs;
         commonPool.pool.invoke(new PopulateTask(0, L));
     }
 
-    protected void sortRequestsStandard(){ // Non-threaded implementation for weak devices
-        final int numRequests = this.numRequests;
-        final int[] itemZ = requestZ;
+    protected void sortRequestsStandard(int[] itemZ, int numRequests, int[] order){ // Non-threaded implementation for weak devices
         int[] contiguous = this.contiguous;
         int ci = 0, cl = contiguous.length;
         int z = itemZ[0];
@@ -579,18 +733,13 @@ public class SpriteBatch extends Batch{
 
         final int[] sorted = CountingSort.countingSortMap(contiguous, contiguousCopy, L);
 
-        if(copy.length < numRequests) copy = new DrawRequest[numRequests + (numRequests >> 3)];
         int ptr = 0;
-        final DrawRequest[] items = requests, dest = copy;
+        final int[] dest = order;
         for(int i = 0; i < L * 3; i += 3){
-            final int pos = sorted[i + 1], length = sorted[i + 2];
-            if(length < 10){
-                final int end = pos + length;
-                for(int sj = pos, dj = ptr; sj < end; sj++, dj++){
-                    dest[dj] = items[sj];
-                }
-            }else System.arraycopy(items, pos, dest, ptr, Math.min(length, dest.length - ptr));
-            ptr += length;
+            final int pos = sorted[i + 1], end = pos + sorted[i + 2];
+            for(int sj = pos; sj < end; sj++){
+                dest[ptr++] = sj;
+            }
         }
     }
 
@@ -819,8 +968,7 @@ public class SpriteBatch extends Batch{
     static class PopulateTask extends RecursiveAction{
         int from, to;
         static int[] tasks;
-        static DrawRequest[] src;
-        static DrawRequest[] dest;
+        static int[] dest;
         static int[] locs;
 
         //private static final int threshold = 256;
@@ -844,17 +992,12 @@ public class SpriteBatch extends Batch{
                     return;
                 }
             }
-            final DrawRequest[] src = PopulateTask.src, dest = PopulateTask.dest;
+            final int[] dest = PopulateTask.dest;
             final int[] tasks = PopulateTask.tasks;
             for(int i = from; i < to; i++){
-                final int point = i * 3, pos = tasks[point + 1], length = tasks[point + 2];
-                if(length < 10){
-                    final int end = pos + length;
-                    for(int sj = pos, dj = locs[i]; sj < end; sj++, dj++){
-                        dest[dj] = src[sj];
-                    }
-                }else{
-                    System.arraycopy(src, pos, dest, locs[i], Math.min(length, dest.length - locs[i]));
+                final int point = i * 3, pos = tasks[point + 1], end = pos + tasks[point + 2];
+                for(int sj = pos, dj = locs[i]; sj < end; sj++, dj++){
+                    dest[dj] = sj;
                 }
             }
         }
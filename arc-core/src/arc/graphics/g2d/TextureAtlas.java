@@ -27,6 +27,10 @@ public class TextureAtlas implements Disposable{
     private final ObjectMap<Texture, Pixmap> pixmaps = new ObjectMap<>();
     protected AtlasRegion error, white;
     protected float drawableScale = 1f;
+    /** Regions that are created on first use, or null. */
+    protected @Nullable TextureAtlasIndex index;
+    protected Texture[] indexTextures;
+    private boolean indexLoaded;
 
     /** Returns a new texture atlas with only a blank texture region.*/
     public static TextureAtlas blankAtlas(){
@@ -74,6 +78,19 @@ public class TextureAtlas implements Disposable{
         if(data != null) load(data);
     }
 
+    /**
+     * Loads a binary atlas index. Regions are created when they are first found, so loading time and memory do not depend on the
+     * amount of regions. {@link #getRegions()} and {@link #getRegionMap()} create every region.
+     */
+    public TextureAtlas(TextureAtlasIndex index){
+        this.index = index;
+        indexTextures = new Texture[index.pages.size];
+        for(int i = 0; i < index.pages.size; i++){
+            indexTextures[i] = loadPage(index.pages.get(i));
+        }
+        error = find("error");
+    }
+
     public void setDrawableScale(float scale){
         this.drawableScale = scale;
     }
@@ -81,18 +98,7 @@ public class TextureAtlas implements Disposable{
     private void load(TextureAtlasData data){
         ObjectMap<AtlasPage, Texture> pageToTexture = new ObjectMap<>();
         for(AtlasPage page : data.pages){
-            Texture texture;
-            if(page.texture == null){
-                texture = new Texture(page.textureFile, page.useMipMaps);
-                texture.setFilter(page.minFilter, page.magFilter);
-                texture.setWrap(page.uWrap, page.vWrap);
-            }else{
-                texture = page.texture;
-                texture.setFilter(page.minFilter, page.magFilter);
-                texture.setWrap(page.uWrap, page.vWrap);
-            }
-            textures.add(texture);
-            pageToTexture.put(page, texture);
+            pageToTexture.put(page, loadPage(page));
         }
 
         for(Region region : data.regions){
@@ -116,6 +122,42 @@ public class TextureAtlas implements Disposable{
         error = find("error");
     }
 
+    private Texture loadPage(AtlasPage page){
+        Texture texture;
+        if(page.texture == null){
+            texture = new Texture(page.textureFile, page.useMipMaps);
+            texture.setFilter(page.minFilter, page.magFilter);
+            texture.setWrap(page.uWrap, page.vWrap);
+        }else{
+            texture = page.texture;
+            texture.setFilter(page.minFilter, page.magFilter);
+            texture.setWrap(page.uWrap, page.vWrap);
+        }
+        textures.add(texture);
+        return texture;
+    }
+
+    /** @return the region created from the index, or null if the index does not contain it. */
+    private @Nullable AtlasRegion loadIndexed(String name){
+        if(index == null) return null;
+        int i = index.indexOf(name);
+        if(i == -1) return null;
+        AtlasRegion region = index.region(i, indexTextures);
+        regions.add(region);
+        regionmap.put(name, region);
+        return region;
+    }
+
+    /** Creates every region of the index that was not created yet. */
+    private void loadIndex(){
+        if(index == null || indexLoaded) return;
+        indexLoaded = true;
+        for(int i = 0; i < index.size(); i++){
+            String name = index.name(i);
+            if(!regionmap.containsKey(name)) loadIndexed(name);
+        }
+    }
+
     public PixmapRegion getPixmap(String name){
         return getPixmap(find(name));
     }
@@ -162,13 +204,15 @@ public class TextureAtlas implements Disposable{
         textureRegion.width, textureRegion.height);
     }
 
-    /** Returns all regions in the atlas. */
+    /** Returns all regions in the atlas. With an index, this creates every region. */
     public Seq<AtlasRegion> getRegions(){
+        loadIndex();
         return regions;
     }
 
-    /** Returns the region map in the atlas. */
+    /** Returns the region map in the atlas. With an index, this creates every region. */
     public ObjectMap<String, AtlasRegion> getRegionMap(){
+        loadIndex();
         return regionmap;
     }
 
@@ -196,7 +240,9 @@ public class TextureAtlas implements Disposable{
      * @return The region, or the error region (if it is defined), or null.
      */
     public AtlasRegion find(String name){
-        AtlasRegion r = regionmap.get(name, error);
+        AtlasRegion r = regionmap.get(name);
+        if(r == null) r = loadIndexed(name);
+        if(r == null) r = error;
         if(r == null && !name.equals("error"))
             throw new IllegalArgumentException("The region \"" + name + "\" does not exist!");
         return r;
@@ -208,11 +254,12 @@ public class TextureAtlas implements Disposable{
 
     public TextureRegion find(String name, TextureRegion def){
         TextureRegion region = regionmap.get(name);
+        if(region == null) region = loadIndexed(name);
         return region == null || region == error ? def : region;
     }
 
     public boolean has(String s){
-        return regionmap.containsKey(s);
+        return regionmap.containsKey(s) || (index != null && index.indexOf(s) != -1);
     }
 
     @SuppressWarnings("unchecked")
@@ -257,6 +304,7 @@ public class TextureAtlas implements Disposable{
      * @return The ninepatch, or null.
      */
     public NinePatch createPatch(String name){
+        if(!regionmap.containsKey(name)) loadIndexed(name);
         for(int i = 0, n = regions.size; i < n; i++){
             AtlasRegion region = regions.get(i);
             if(region.name.equals(name)){
@@ -0,0 +1,268 @@
+package arc.graphics.g2d;
+
+import arc.Files.*;
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.Texture.*;
+import arc.graphics.g2d.TextureAtlas.*;
+import arc.graphics.g2d.TextureAtlas.TextureAtlasData.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel.*;
+import java.util.*;
+
+/**
+ * A compact binary texture atlas with a name index sorted for binary search. The file is memory-mapped when possible, and regions
+ * are only read when they are first needed, so loading does not depend on the amount of regions. Create one from a regular pack
+ * file with {@link #write(TextureAtlasData, Fi)}, and load it with {@link TextureAtlas#TextureAtlas(TextureAtlasIndex)}.
+ * <p>
+ * The file is big-endian: a header, a fixed-size record for every page and region, a table of unique ninepatch splits and pads,
+ * and all names as UTF-16 chars. Regions are sorted by name.
+ */
+public class TextureAtlasIndex{
+    public static final byte formatVersion = 0;
+    public static final byte[] formatHeader = {'A', 'A', 'T', 'L', 'I'};
+
+    static final int headerBytes = 22, pageBytes = 16, regionBytes = 28, patchBytes = 16;
+    static final int flagRotate = 1, flagPads = 2;
+
+    final Seq<AtlasPage> pages = new Seq<>();
+    final boolean flip;
+    private final ByteBuffer buffer;
+    private final int regionCount, patchCount, regionsOffset, patchesOffset, namesOffset;
+
+    /**
+     * Opens an index file, and reads its pages.
+     * @param flip If true, all regions loaded will be flipped for use with a perspective where 0,0 is the upper left corner.
+     */
+    public TextureAtlasIndex(Fi file, Fi imagesDir, boolean flip){
+        this.flip = flip;
+        try{
+            //classpath and packed internal files can't be mapped
+            buffer = file.type() == FileType.classpath || !file.file().exists() ? ByteBuffer.wrap(file.readBytes()) : file.map(MapMode.READ_ONLY);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+
+            for(int i = 0; i < formatHeader.length; i++){
+                if(buffer.get(i) != formatHeader[i]) throw new IOException("Invalid binary atlas index header.");
+            }
+            int pageCount = buffer.getInt(6);
+            regionCount = buffer.getInt(10);
+            patchCount = buffer.getInt(14);
+            int nameChars = buffer.getInt(18);
+
+            regionsOffset = headerBytes + pageCount * pageBytes;
+            patchesOffset = regionsOffset + regionCount * regionBytes;
+            namesOffset = patchesOffset + patchCount * patchBytes;
+            if(namesOffset + nameChars * 2L > buffer.capacity()) throw new IOException("Truncated binary atlas index.");
+
+            for(int i = 0; i < pageCount; i++){
+                int offset = headerBytes + i * pageBytes;
+                TextureFilter min = TextureFilter.all[buffer.get(offset + 10)], mag = TextureFilter.all[buffer.get(offset + 11)];
+                TextureWrap wrapX = TextureWrap.all[buffer.get(offset + 12)], wrapY = TextureWrap.all[buffer.get(offset + 13)];
+                pages.add(new AtlasPage(imagesDir.child(string(buffer.getInt(offset), buffer.getShort(offset + 4) & 0xffff)),
+                buffer.getShort(offset + 6), buffer.getShort(offset + 8), min.isMipMap(), min, mag, wrapX, wrapY));
+            }
+        }catch(Exception e){
+            throw new ArcRuntimeException("Error reading binary atlas index: " + file, e);
+        }
+    }
+
+    /** @return whether the file starts with the header of an index. */
+    public static boolean isIndex(Fi file){
+        if(!file.exists()) return false;
+        try(InputStream input = file.read()){
+            for(byte b : formatHeader){
+                if(input.read() != b) return false;
+            }
+            return true;
+        }catch(IOException e){
+            return false;
+        }
+    }
+
+    public Seq<AtlasPage> getPages(){
+        return pages;
+    }
+
+    /** @return the amount of regions. */
+    public int size(){
+        return regionCount;
+    }
+
+    /** @return the index of the region with a name, or -1 if there is none. Does not allocate. */
+    public int indexOf(String name){
+        int low = 0, high = regionCount - 1;
+        while(low <= high){
+            int mid = (low + high) >>> 1, compare = compare(mid, name);
+            if(compare < 0){
+                low = mid + 1;
+            }else if(compare > 0){
+                high = mid - 1;
+            }else{
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public String name(int index){
+        int offset = record(index);
+        return string(buffer.getInt(offset), buffer.getShort(offset + 4) & 0xffff);
+    }
+
+    /** @return whether the region has ninepatch splits. */
+    public boolean hasSplits(int index){
+        return buffer.getShort(record(index) + 24) != -1;
+    }
+
+    /** Creates the region at an index. Every call returns a new region. */
+    public AtlasRegion region(int index, Texture[] textures){
+        int offset = record(index);
+        int width = buffer.getShort(offset + 12), height = buffer.getShort(offset + 14);
+        int flags = buffer.get(offset + 26);
+        boolean rotate = (flags & flagRotate) != 0;
+
+        AtlasRegion region = new AtlasRegion(textures[buffer.getShort(offset + 6)], buffer.getShort(offset + 8), buffer.getShort(offset + 10),
+        rotate ? height : width, rotate ? width : height);
+        region.name = name(index);
+        region.offsetX = buffer.getShort(offset + 16);
+        region.offsetY = buffer.getShort(offset + 18);
+        region.originalWidth = buffer.getShort(offset + 20);
+        region.originalHeight = buffer.getShort(offset + 22);
+        region.rotate = rotate;
+
+        int patch = buffer.getShort(offset + 24);
+        if(patch != -1){
+            int patchOffset = patchesOffset + patch * patchBytes;
+            region.splits = new int[4];
+            for(int i = 0; i < 4; i++) region.splits[i] = buffer.getShort(patchOffset + i * 2);
+            if((flags & flagPads) != 0){
+                region.pads = new int[4];
+                for(int i = 0; i < 4; i++) region.pads[i] = buffer.getShort(patchOffset + 8 + i * 2);
+            }
+        }
+        if(flip) region.flip(false, true);
+        return region;
+    }
+
+    private int record(int index){
+        if(index < 0 || index >= regionCount) throw new IndexOutOfBoundsException("index must be in [0, " + regionCount + "): " + index);
+        return regionsOffset + index * regionBytes;
+    }
+
+    /** Compares the name of a region with a string, in the same order as {@link String#compareTo(String)}. */
+    private int compare(int index, String name){
+        int offset = regionsOffset + index * regionBytes;
+        int chars = namesOffset + buffer.getInt(offset) * 2, length = buffer.getShort(offset + 4) & 0xffff;
+        for(int i = 0, n = Math.min(length, name.length()); i < n; i++){
+            char c = buffer.getChar(chars + i * 2), other = name.charAt(i);
+            if(c != other) return c - other;
+        }
+        return length - name.length();
+    }
+
+    private String string(int start, int length){
+        char[] chars = new char[length];
+        for(int i = 0; i < length; i++) chars[i] = buffer.getChar(namesOffset + (start + i) * 2);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the pages and regions of a pack file as an index. Like {@link TextureAtlas}, the last region with a name replaces
+     * earlier ones.
+     */
+    public static void write(TextureAtlasData data, Fi file){
+        //later regions replace earlier ones with the same name
+        ObjectMap<String, Region> byName = new ObjectMap<>();
+        for(Region region : data.regions) byName.put(region.name, region);
+        Seq<Region> regions = byName.values().toSeq();
+        regions.sort(Structs.comparing(r -> r.name));
+
+        StringBuilder names = new StringBuilder();
+        ObjectIntMap<AtlasPage> pageIndex = new ObjectIntMap<>();
+        for(int i = 0; i < data.pages.size; i++) pageIndex.put(data.pages.get(i), i);
+
+        //identical splits and pads are stored once
+        ObjectIntMap<String> patchIndex = new ObjectIntMap<>();
+        Seq<int[]> patches = new Seq<>();
+        IntSeq regionPatches = new IntSeq();
+        for(Region region : regions){
+            if(region.splits == null){
+                regionPatches.add(-1);
+                continue;
+            }
+            int[] patch = new int[8];
+            System.arraycopy(region.splits, 0, patch, 0, 4);
+            if(region.pads != null) System.arraycopy(region.pads, 0, patch, 4, 4);
+            String key = Arrays.toString(patch);
+            if(!patchIndex.containsKey(key)){
+                patchIndex.put(key, patches.size);
+                patches.add(patch);
+            }
+            regionPatches.add(patchIndex.get(key));
+        }
+
+        int[] pageNames = new int[data.pages.size];
+        for(int i = 0; i < data.pages.size; i++){
+            pageNames[i] = names.length();
+            names.append(data.pages.get(i).textureFile.name());
+        }
+        int[] regionNames = new int[regions.size];
+        for(int i = 0; i < regions.size; i++){
+            regionNames[i] = names.length();
+            names.append(regions.get(i).name);
+        }
+
+        try(Writes write = file.writes(false)){
+            write.b(formatHeader);
+            write.b(formatVersion);
+            write.i(data.pages.size);
+            write.i(regions.size);
+            write.i(patches.size);
+            write.i(names.length());
+
+            for(int i = 0; i < data.pages.size; i++){
+                AtlasPage page = data.pages.get(i);
+                write.i(pageNames[i]);
+                write.s(page.textureFile.name().length());
+                write.s(page.width);
+                write.s(page.height);
+                write.b(page.minFilter.ordinal());
+                write.b(page.magFilter.ordinal());
+                write.b(page.uWrap.ordinal());
+                write.b(page.vWrap.ordinal());
+                write.s(0);
+            }
+
+            for(int i = 0; i < regions.size; i++){
+                Region region = regions.get(i);
+                write.i(regionNames[i]);
+                write.s(region.name.length());
+                write.s(pageIndex.get(region.page));
+                write.s(region.left);
+                write.s(region.top);
+                write.s(region.width);
+                write.s(region.height);
+                write.s((int)region.offsetX);
+                write.s((int)region.offsetY);
+                write.s(region.originalWidth);
+                write.s(region.originalHeight);
+                write.s(regionPatches.get(i));
+                write.b((region.rotate ? flagRotate : 0) | (region.splits != null && region.pads != null ? flagPads : 0));
+                write.b(0);
+            }
+
+            for(int[] patch : patches){
+                for(int value : patch) write.s(value);
+            }
+
+            for(int i = 0; i < names.length(); i++){
+                write.s(names.charAt(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package arc.graphics.gl;
+
+import arc.graphics.*;
+
+import java.nio.*;
+
+/**
+ * Uploads vertex data of a bound array buffer. In streaming mode, each upload goes to the next free region of a GPU ring buffer
+ * instead of replacing the whole buffer, so that draws using previous data don't stall the upload.
+ */
+class StreamingUpload{
+    /** Size of the GPU ring buffer used in streaming mode, relative to the client buffer. */
+    static final int streamScale = 4;
+
+    boolean streaming;
+    /** In streaming mode: byte offset of the last upload in the GPU buffer, and where the next upload goes. */
+    int offset, write;
+
+    void setStreaming(boolean streaming){
+        this.streaming = streaming;
+        offset = 0;
+        //forces the ring to be allocated on the next upload
+        write = Integer.MAX_VALUE;
+    }
+
+    /** Uploads the data up to the limit of the buffer into the currently bound array buffer. */
+    void upload(ByteBuffer data, int usage){
+        if(streaming){
+            int bytes = data.limit(), capacity = data.capacity() * streamScale;
+            if(bytes > capacity - write){
+                //orphan the old storage; the driver allocates a new block instead of waiting for draws that still use it
+                Gl.bufferData(Gl.arrayBuffer, capacity, null, Gl.streamDraw);
+                write = 0;
+            }
+            Gl.bufferSubData(Gl.arrayBuffer, write, bytes, data);
+            offset = write;
+            write += bytes;
+        }else{
+            Gl.bufferData(Gl.arrayBuffer, data.limit(), data, usage);
+        }
+    }
+}
@@ -16,8 +16,11 @@ import java.nio.*;
  * @author mzechner, Dave Clayton <contact@redskyforge.com>
  */
 public class VertexBufferObject implements VertexData{
+    final StreamingUpload stream = new StreamingUpload();
     boolean dirty = false;
     boolean bound = false;
+    /** The shader the attributes were bound for, if bound with one. */
+    private @Nullable Shader boundShader;
     private Mesh mesh;
     private FloatBuffer buffer;
     private ByteBuffer byteBuffer;
@@ -76,14 +79,24 @@ public class VertexBufferObject implements VertexData{
         buffer.limit(l / 4);
     }
 
-    private void upload(){
-        Gl.bufferData(Gl.arrayBuffer, byteBuffer.limit(), byteBuffer, usage);
+    @Override
+    public void setStreaming(boolean streaming){
+        if(bound) throw new ArcRuntimeException("Cannot change streaming mode while VBO is bound");
+        stream.setStreaming(streaming);
+        dirty = true;
+    }
+
+    @Override
+    public boolean isStreaming(){
+        return stream.streaming;
     }
 
     private void bufferChanged(){
         if(bound){
-            upload();
+            stream.upload(byteBuffer, usage);
             dirty = false;
+            //streaming uploads go to a new region of the buffer, which the attributes have to point at
+            if(stream.streaming && boundShader != null) bindAttributes(boundShader);
         }
     }
 
@@ -115,7 +128,7 @@ public class VertexBufferObject implements VertexData{
         Gl.bindBuffer(Gl.arrayBuffer, bufferHandle);
         if(dirty){
             byteBuffer.limit(buffer.limit() * 4);
-            upload();
+            stream.upload(byteBuffer, usage);
             dirty = false;
         }
 
@@ -129,7 +142,11 @@ public class VertexBufferObject implements VertexData{
     @Override
     public void bind(Shader shader){
         bind();
+        bindAttributes(shader);
+        boundShader = shader;
+    }
 
+    private void bindAttributes(Shader shader){
         int offset = 0;
         for(VertexAttribute attribute : mesh.attributes){
             int location = shader.getAttributeLocation(attribute.alias);
@@ -138,7 +155,7 @@ public class VertexBufferObject implements VertexData{
             if(location < 0) continue;
 
             Gl.enableVertexAttribArray(location);
-            Gl.vertexAttribPointer(location, attribute.components, attribute.type, attribute.normalized, mesh.vertexSize, aoffset);
+            Gl.vertexAttribPointer(location, attribute.components, attribute.type, attribute.normalized, mesh.vertexSize, stream.offset + aoffset);
         }
     }
 
@@ -149,6 +166,7 @@ public class VertexBufferObject implements VertexData{
         }
         Gl.bindBuffer(Gl.arrayBuffer, 0);
         bound = false;
+        boundShader = null;
     }
 
     /** Disposes of all resources this VertexBufferObject uses. */
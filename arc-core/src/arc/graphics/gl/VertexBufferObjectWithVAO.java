@@ -36,6 +36,11 @@ public class VertexBufferObjectWithVAO implements VertexData{
     boolean isBound = false;
     int vaoHandle = -1;
     IntSeq cachedLocations = new IntSeq();
+    final StreamingUpload stream = new StreamingUpload();
+    /** The stream offset the cached attribute pointers were set for. */
+    int cachedOffset;
+    /** The shader the attributes were bound for. */
+    @Nullable Shader boundShader;
 
     /**
      * Constructs a new interleaved VertexBufferObjectWithVAO.
@@ -71,14 +76,25 @@ public class VertexBufferObjectWithVAO implements VertexData{
         return buffer;
     }
 
-    private void upload(){
-        Gl.bufferData(Gl.arrayBuffer, byteBuffer.limit(), byteBuffer, usage);
+    @Override
+    public void setStreaming(boolean streaming){
+        if(isBound) throw new ArcRuntimeException("Cannot change streaming mode while VBO is bound");
+        stream.setStreaming(streaming);
+        isDirty = true;
+    }
+
+    @Override
+    public boolean isStreaming(){
+        return stream.streaming;
     }
 
     private void bufferChanged(){
         if(isBound){
-            upload();
+            Gl.bindBuffer(Gl.arrayBuffer, bufferHandle);
+            stream.upload(byteBuffer, usage);
             isDirty = false;
+            //streaming uploads go to a new region of the buffer, which the attributes have to point at
+            if(stream.streaming) bindAttributes(boundShader);
         }
     }
 
@@ -106,16 +122,17 @@ public class VertexBufferObjectWithVAO implements VertexData{
     public void bind(Shader shader){
         Core.gl30.glBindVertexArray(vaoHandle);
 
-        bindAttributes(shader);
-
-        //if our data has changed upload it
+        //if our data has changed upload it; this comes first, as streaming uploads move the attribute offset
         bindData();
 
+        bindAttributes(shader);
+
+        boundShader = shader;
         isBound = true;
     }
 
     private void bindAttributes(Shader shader){
-        boolean stillValid = this.cachedLocations.size != 0;
+        boolean stillValid = this.cachedLocations.size != 0 && cachedOffset == stream.offset;
 
         if(stillValid){
             for(int i = 0; stillValid && i < mesh.attributes.length; i++){
@@ -129,8 +146,9 @@ public class VertexBufferObjectWithVAO implements VertexData{
             Gl.bindBuffer(Gl.arrayBuffer, bufferHandle);
             unbindAttributes(shader);
             this.cachedLocations.clear();
+            cachedOffset = stream.offset;
 
-            int offset = 0;
+            int offset = stream.offset;
             for(int i = 0; i < mesh.attributes.length; i++){
                 VertexAttribute attribute = mesh.attributes[i];
                 this.cachedLocations.add(shader.getAttributeLocation(attribute.alias));
@@ -166,7 +184,7 @@ public class VertexBufferObjectWithVAO implements VertexData{
         if(isDirty){
             Gl.bindBuffer(Gl.arrayBuffer, bufferHandle);
             byteBuffer.limit(buffer.limit() * 4);
-            upload();
+            stream.upload(byteBuffer, usage);
             isDirty = false;
         }
     }
@@ -175,6 +193,7 @@ public class VertexBufferObjectWithVAO implements VertexData{
     public void unbind(Shader shader){
         Core.gl30.glBindVertexArray(0);
         isBound = false;
+        boundShader = null;
     }
 
     /**
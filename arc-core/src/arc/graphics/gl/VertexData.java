@@ -58,6 +58,20 @@ public interface VertexData extends Disposable{
      */
     FloatBuffer buffer();
 
+    /**
+     * Enables or disables streaming uploads. In streaming mode, the GPU buffer is a ring several times larger than the client buffer:
+     * every upload is appended after the previous one with glBufferSubData, and the storage is orphaned with glBufferData(null)
+     * once the ring is full. This avoids stalling on draws that still read the previous data.
+     * Only implemented by buffer objects; other implementations ignore this.
+     */
+    default void setStreaming(boolean streaming){
+    }
+
+    /** @return whether streaming uploads are enabled. */
+    default boolean isStreaming(){
+        return false;
+    }
+
     /** Binds this VertexData for rendering via glDrawArrays or glDrawElements. */
     void bind(Shader shader);
 
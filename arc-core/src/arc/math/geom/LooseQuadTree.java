@@ -0,0 +1,164 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * A loose quad tree stored in flat arrays. Unlike {@link QuadTree}, nodes are never split or merged: the tree is a complete
+ * hierarchy of grids, where level d has 2^d * 2^d cells.
+ * <p>
+ * Each object is stored in the cell that contains its center, on the deepest level where it is no larger than a cell. Cells are
+ * loose: the objects of a cell may extend beyond it by half a cell on each side. This means insertion and removal never walk the
+ * tree, and objects that move slightly usually stay in the same cell. Queries scan the range of cells they overlap on each level
+ * that has any objects, instead of descending through nodes.
+ * <p>
+ * Objects with their center outside the bounds are stored in the closest cell that can still contain them, which is higher up
+ * the further outside they are. The root cell is checked by every query, so it can hold objects of any size and position.
+ */
+public class LooseQuadTree extends SpatialIndex{
+    public final Rect bounds;
+    public final int maxDepth;
+
+    /** Amount of objects on each level. Queries skip empty levels. */
+    protected final int[] counts;
+    /** Index of the first cell of each level. */
+    protected final int[] offsets;
+    /** Cell size of each level. */
+    protected final float[] cellWidths, cellHeights;
+
+    /** Creates a tree with a maximum depth of 8, which has 256 * 256 cells on its deepest level. */
+    public LooseQuadTree(Rect bounds){
+        this(bounds, 8);
+    }
+
+    public LooseQuadTree(Rect bounds, int maxDepth){
+        if(maxDepth < 0 || maxDepth > 12) throw new IllegalArgumentException("maxDepth must be between 0 and 12: " + maxDepth);
+        this.bounds = new Rect(bounds);
+        this.maxDepth = maxDepth;
+
+        offsets = new int[maxDepth + 2];
+        cellWidths = new float[maxDepth + 1];
+        cellHeights = new float[maxDepth + 1];
+        for(int d = 0; d <= maxDepth; d++){
+            offsets[d + 1] = offsets[d] + (1 << (d * 2));
+            cellWidths[d] = bounds.width / (1 << d);
+            cellHeights[d] = bounds.height / (1 << d);
+        }
+
+        heads = new int[offsets[maxDepth + 1]];
+        counts = new int[maxDepth + 1];
+        Arrays.fill(heads, -1);
+    }
+
+    @Override
+    protected int bucket(float x, float y, float width, float height){
+        Rect bounds = this.bounds;
+        float cx = x + width / 2f, cy = y + height / 2f;
+        float ccx = Math.min(Math.max(cx, bounds.x), bounds.x + bounds.width), ccy = Math.min(Math.max(cy, bounds.y), bounds.y + bounds.height);
+        //a center outside the bounds is moved inside, which makes the object larger from the perspective of its cell
+        width += Math.abs(cx - ccx) * 2f;
+        height += Math.abs(cy - ccy) * 2f;
+        cx = ccx;
+        cy = ccy;
+
+        int d = 0;
+        while(d < maxDepth && width <= cellWidths[d + 1] && height <= cellHeights[d + 1]) d++;
+
+        int side = 1 << d;
+        int ix = Math.min((int)((cx - bounds.x) / cellWidths[d]), side - 1);
+        int iy = Math.min((int)((cy - bounds.y) / cellHeights[d]), side - 1);
+        return offsets[d] + iy * side + ix;
+    }
+
+    @Override
+    protected void linked(int id, int bucket){
+        counts[level(bucket)]++;
+    }
+
+    @Override
+    protected void unlinked(int id, int bucket){
+        counts[level(bucket)]--;
+    }
+
+    /** @return the level of a cell. */
+    protected int level(int cell){
+        int d = 0;
+        while(cell >= offsets[d + 1]) d++;
+        return d;
+    }
+
+    @Override
+    public void clear(){
+        super.clear();
+        Arrays.fill(counts, 0);
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, IntSeq out){
+        int[] heads = this.heads, next = this.next;
+        for(int d = 0; d <= maxDepth; d++){
+            if(counts[d] == 0) continue;
+            int side = 1 << d, offset = offsets[d];
+            int minX = min(x, bounds.x, cellWidths[d], side), maxX = max(x + width, bounds.x, cellWidths[d], side);
+            int minY = min(y, bounds.y, cellHeights[d], side), maxY = max(y + height, bounds.y, cellHeights[d], side);
+
+            for(int cy = minY; cy <= maxY; cy++){
+                for(int cell = offset + cy * side + minX, last = offset + cy * side + maxX; cell <= last; cell++){
+                    for(int id = heads[cell]; id != -1; id = next[id]){
+                        if(overlaps(id, x, y, width, height)) out.add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, Intc out){
+        int[] heads = this.heads, next = this.next;
+        for(int d = 0; d <= maxDepth; d++){
+            if(counts[d] == 0) continue;
+            int side = 1 << d, offset = offsets[d];
+            int minX = min(x, bounds.x, cellWidths[d], side), maxX = max(x + width, bounds.x, cellWidths[d], side);
+            int minY = min(y, bounds.y, cellHeights[d], side), maxY = max(y + height, bounds.y, cellHeights[d], side);
+
+            for(int cy = minY; cy <= maxY; cy++){
+                for(int cell = offset + cy * side + minX, last = offset + cy * side + maxX; cell <= last; cell++){
+                    for(int id = heads[cell]; id != -1; id = next[id]){
+                        if(overlaps(id, x, y, width, height)) out.get(id);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean any(float x, float y, float width, float height){
+        int[] heads = this.heads, next = this.next;
+        for(int d = 0; d <= maxDepth; d++){
+            if(counts[d] == 0) continue;
+            int side = 1 << d, offset = offsets[d];
+            int minX = min(x, bounds.x, cellWidths[d], side), maxX = max(x + width, bounds.x, cellWidths[d], side);
+            int minY = min(y, bounds.y, cellHeights[d], side), maxY = max(y + height, bounds.y, cellHeights[d], side);
+
+            for(int cy = minY; cy <= maxY; cy++){
+                for(int cell = offset + cy * side + minX, last = offset + cy * side + maxX; cell <= last; cell++){
+                    for(int id = heads[cell]; id != -1; id = next[id]){
+                        if(overlaps(id, x, y, width, height)) return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    //the loose bounds of cell i span from (i - 0.5) to (i + 1.5) cells, so the range is extended by one and a half cells
+    private static int min(float coordinate, float origin, float cellSize, int side){
+        return Math.min(Math.max((int)Math.floor((coordinate - origin) / cellSize - 1.5f), 0), side - 1);
+    }
+
+    private static int max(float coordinate, float origin, float cellSize, int side){
+        return Math.min(Math.max((int)Math.floor((coordinate - origin) / cellSize + 0.5f), 0), side - 1);
+    }
+}
@@ -0,0 +1,369 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.geom.IntQuadTree.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A static tree of integer ids that is rebuilt from scratch instead of being modified, which is faster when most objects move
+ * every update.
+ * <p>
+ * {@link #build} sorts objects by the Morton code of their center, so objects that are close in space are close in memory. Groups
+ * of {@link #nodeSize} sorted objects then become the leaf nodes, and groups of nodes become the next level, up to a single root.
+ * Every node stores the exact bounds of everything below it, so objects of any size are handled well.
+ * <p>
+ * Building and {@link #pairs(IntSeq)} split the work into fixed chunks, which run on a {@link ForkJoinPool}. The results never
+ * depend on the amount of threads or their timing, so they can be used in lockstep simulations.
+ * Queries do not modify any state, so they can run on several threads at once.
+ */
+public class PackedQuadTree{
+    /** Amount of objects processed by one parallel task. */
+    protected static final int chunkSize = 1024;
+
+    /** The maximum amount of children of each node. */
+    public final int nodeSize;
+
+    protected ForkJoinPool pool = ForkJoinPool.commonPool();
+    protected int count;
+    /** Bounds of each node as minX, minY, maxX and maxY. The first {@link #count} nodes are the objects, in Morton order. */
+    protected float[] boxes = {};
+    /** For objects, their id. For other nodes, the index of their first child. */
+    protected int[] indices = {};
+    /** The index after the last node of each level. Level 0 contains the objects themselves. */
+    protected IntSeq levels = new IntSeq();
+
+    //build buffers; keys hold the Morton code in the upper and the input index in the lower 32 bits
+    private long[] keys = {};
+    private float[] input = {};
+    private int[] inputIds = {};
+    private final Seq<IntSeq> buffers = new Seq<>();
+
+    public PackedQuadTree(){
+        this(8);
+    }
+
+    public PackedQuadTree(int nodeSize){
+        if(nodeSize < 2) throw new IllegalArgumentException("nodeSize must be >= 2: " + nodeSize);
+        this.nodeSize = nodeSize;
+    }
+
+    /** Sets the pool used for building and {@link #pairs(IntSeq)}. Null runs everything on the calling thread. */
+    public void setPool(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /** Builds the tree from the objects with ids 0 to count - 1. The provider may be called from several threads at once. */
+    public void build(int count, IntQuadTreeProvider provider){
+        prepare(count);
+        run(count, (from, to) -> {
+            Rect rect = new Rect();
+            for(int i = from; i < to; i++){
+                provider.hitbox(i, rect);
+                setInput(i, i, rect);
+            }
+        });
+        build();
+    }
+
+    /** Builds the tree from the objects with the given ids. The provider may be called from several threads at once. */
+    public void build(IntSeq ids, IntQuadTreeProvider provider){
+        int[] items = ids.items;
+        prepare(ids.size);
+        run(ids.size, (from, to) -> {
+            Rect rect = new Rect();
+            for(int i = from; i < to; i++){
+                provider.hitbox(items[i], rect);
+                setInput(i, items[i], rect);
+            }
+        });
+        build();
+    }
+
+    /** Builds the tree from every object of the Seq, using its index as id. Hitboxes may be requested from several threads at once. */
+    public <T extends QuadTreeObject> void build(Seq<T> objects){
+        Object[] items = objects.items;
+        prepare(objects.size);
+        run(objects.size, (from, to) -> {
+            Rect rect = new Rect();
+            for(int i = from; i < to; i++){
+                ((QuadTreeObject)items[i]).hitbox(rect);
+                setInput(i, i, rect);
+            }
+        });
+        build();
+    }
+
+    /** @return the amount of objects in this tree. */
+    public int size(){
+        return count;
+    }
+
+    /** Adds the ids of objects that intersect the given rectangle to the output, in Morton order. */
+    public void intersect(float x, float y, float width, float height, IntSeq out){
+        if(count > 0) intersect(indices.length - 1, levels.size - 1, x, y, x + width, y + height, out);
+    }
+
+    private void intersect(int node, int level, float minX, float minY, float maxX, float maxY, IntSeq out){
+        float[] boxes = this.boxes;
+        int start = indices[node], end = Math.min(start + nodeSize, levels.items[level - 1]);
+        for(int child = start; child < end; child++){
+            int b = child * 4;
+            if(boxes[b] < maxX && boxes[b + 2] > minX && boxes[b + 1] < maxY && boxes[b + 3] > minY){
+                if(level == 1){
+                    out.add(indices[child]);
+                }else{
+                    intersect(child, level - 1, minX, minY, maxX, maxY, out);
+                }
+            }
+        }
+    }
+
+    /** Processes objects that intersect the given rectangle, in Morton order. */
+    public void intersect(float x, float y, float width, float height, Intc out){
+        if(count > 0) intersect(indices.length - 1, levels.size - 1, x, y, x + width, y + height, out);
+    }
+
+    private void intersect(int node, int level, float minX, float minY, float maxX, float maxY, Intc out){
+        float[] boxes = this.boxes;
+        int start = indices[node], end = Math.min(start + nodeSize, levels.items[level - 1]);
+        for(int child = start; child < end; child++){
+            int b = child * 4;
+            if(boxes[b] < maxX && boxes[b + 2] > minX && boxes[b + 1] < maxY && boxes[b + 3] > minY){
+                if(level == 1){
+                    out.get(indices[child]);
+                }else{
+                    intersect(child, level - 1, minX, minY, maxX, maxY, out);
+                }
+            }
+        }
+    }
+
+    public void intersect(Rect rect, IntSeq out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    public void intersect(Rect rect, Intc out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /** @return whether an object intersects this rectangle. */
+    public boolean any(float x, float y, float width, float height){
+        return count > 0 && any(indices.length - 1, levels.size - 1, x, y, x + width, y + height);
+    }
+
+    private boolean any(int node, int level, float minX, float minY, float maxX, float maxY){
+        float[] boxes = this.boxes;
+        int start = indices[node], end = Math.min(start + nodeSize, levels.items[level - 1]);
+        for(int child = start; child < end; child++){
+            int b = child * 4;
+            if(boxes[b] < maxX && boxes[b + 2] > minX && boxes[b + 1] < maxY && boxes[b + 3] > minY
+            && (level == 1 || any(child, level - 1, minX, minY, maxX, maxY))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds every pair of objects that intersect each other. Each pair is reported once, as two consecutive ids in the output.
+     * The order of the pairs only depends on the objects, not on the amount of threads.
+     */
+    public void pairs(IntSeq out){
+        int chunks = (count + chunkSize - 1) / chunkSize;
+        while(buffers.size < chunks) buffers.add(new IntSeq());
+
+        run(count, (from, to) -> {
+            IntSeq buffer = buffers.get(from / chunkSize);
+            buffer.clear();
+            for(int i = from; i < to; i++){
+                int b = i * 4;
+                pairs(indices.length - 1, levels.size - 1, i, boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], buffer);
+            }
+        });
+
+        int total = 0;
+        for(int i = 0; i < chunks; i++) total += buffers.get(i).size;
+        out.ensureCapacity(total);
+        for(int i = 0; i < chunks; i++) out.addAll(buffers.get(i));
+    }
+
+    /** Adds the pairs of one object with every intersecting object that comes after it in Morton order. */
+    private void pairs(int node, int level, int object, float minX, float minY, float maxX, float maxY, IntSeq out){
+        float[] boxes = this.boxes;
+        int start = indices[node], end = Math.min(start + nodeSize, levels.items[level - 1]);
+        for(int child = start; child < end; child++){
+            int b = child * 4;
+            if(boxes[b] < maxX && boxes[b + 2] > minX && boxes[b + 1] < maxY && boxes[b + 3] > minY){
+                if(level == 1){
+                    if(child > object) out.add(indices[object], indices[child]);
+                }else if(lastObject(child, level - 1) > object){
+                    pairs(child, level - 1, object, minX, minY, maxX, maxY, out);
+                }
+            }
+        }
+    }
+
+    /** @return the index of the last object below a node. */
+    private int lastObject(int node, int level){
+        while(level > 0){
+            node = Math.min(indices[node] + nodeSize, levels.items[level - 1]) - 1;
+            level--;
+        }
+        return node;
+    }
+
+    private void prepare(int count){
+        this.count = count;
+        if(keys.length < count){
+            int capacity = Math.max(count, keys.length * 7 / 4);
+            keys = new long[capacity];
+            input = new float[capacity * 4];
+            inputIds = new int[capacity];
+        }
+
+        levels.clear();
+        levels.add(count);
+        int total = count, size = count;
+        do{
+            size = (size + nodeSize - 1) / nodeSize;
+            total += size;
+            levels.add(total);
+        }while(size > 1);
+
+        if(indices.length != total){
+            indices = new int[total];
+            boxes = new float[total * 4];
+        }
+    }
+
+    private void setInput(int index, int id, Rect rect){
+        int b = index * 4;
+        input[b] = rect.x;
+        input[b + 1] = rect.y;
+        input[b + 2] = rect.x + rect.width;
+        input[b + 3] = rect.y + rect.height;
+        inputIds[index] = id;
+    }
+
+    private void build(){
+        int count = this.count;
+        if(count == 0) return;
+
+        //bounds of all centers, for the Morton code grid
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        float[] input = this.input;
+        for(int i = 0; i < count; i++){
+            float cx = (input[i * 4] + input[i * 4 + 2]) / 2f, cy = (input[i * 4 + 1] + input[i * 4 + 3]) / 2f;
+            minX = Math.min(minX, cx);
+            minY = Math.min(minY, cy);
+            maxX = Math.max(maxX, cx);
+            maxY = Math.max(maxY, cy);
+        }
+
+        float ox = minX, oy = minY;
+        float sx = maxX > minX ? 65535f / (maxX - minX) : 0f, sy = maxY > minY ? 65535f / (maxY - minY) : 0f;
+        long[] keys = this.keys;
+        run(count, (from, to) -> {
+            for(int i = from; i < to; i++){
+                int mx = (int)(((input[i * 4] + input[i * 4 + 2]) / 2f - ox) * sx);
+                int my = (int)(((input[i * 4 + 1] + input[i * 4 + 3]) / 2f - oy) * sy);
+                keys[i] = (((morton(mx, my) & 0xffffffffL) << 32) | i) ^ Long.MIN_VALUE;
+            }
+        });
+
+        //codes use all 32 high bits, so the sign bit is flipped to make the signed sort order them as unsigned, then by input index
+        if(pool == null){
+            Arrays.sort(keys, 0, count);
+        }else{
+            pool.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(keys, 0, count)));
+        }
+
+        float[] boxes = this.boxes;
+        int[] indices = this.indices, inputIds = this.inputIds;
+        run(count, (from, to) -> {
+            for(int i = from; i < to; i++){
+                int source = (int)keys[i];
+                System.arraycopy(input, source * 4, boxes, i * 4, 4);
+                indices[i] = inputIds[source];
+            }
+        });
+
+        //each level is built from the one below it
+        for(int level = 1; level < levels.size; level++){
+            int childStart = level == 1 ? 0 : levels.items[level - 2], childEnd = levels.items[level - 1];
+            int nodeStart = childEnd, nodes = levels.items[level] - nodeStart;
+            run(nodes, (from, to) -> {
+                for(int n = from; n < to; n++){
+                    int first = childStart + n * nodeSize, last = Math.min(first + nodeSize, childEnd);
+                    float nx = Float.POSITIVE_INFINITY, ny = Float.POSITIVE_INFINITY, mx = Float.NEGATIVE_INFINITY, my = Float.NEGATIVE_INFINITY;
+                    for(int c = first; c < last; c++){
+                        nx = Math.min(nx, boxes[c * 4]);
+                        ny = Math.min(ny, boxes[c * 4 + 1]);
+                        mx = Math.max(mx, boxes[c * 4 + 2]);
+                        my = Math.max(my, boxes[c * 4 + 3]);
+                    }
+                    int node = nodeStart + n, b = node * 4;
+                    boxes[b] = nx;
+                    boxes[b + 1] = ny;
+                    boxes[b + 2] = mx;
+                    boxes[b + 3] = my;
+                    indices[node] = first;
+                }
+            });
+        }
+    }
+
+    /** Runs the body over fixed chunks of the range [0, count), in parallel if there is a pool and more than one chunk. */
+    private void run(int count, Intc2 body){
+        int chunks = (count + chunkSize - 1) / chunkSize;
+        if(pool == null || chunks <= 1){
+            for(int i = 0; i < chunks; i++){
+                body.get(i * chunkSize, Math.min((i + 1) * chunkSize, count));
+            }
+        }else{
+            pool.invoke(new ChunkTask(0, chunks, count, body));
+        }
+    }
+
+    /** @return the Morton code of two 16-bit coordinates, interleaving their bits. */
+    public static int morton(int x, int y){
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static int spread(int v){
+        v &= 0xffff;
+        v = (v | (v << 8)) & 0x00ff00ff;
+        v = (v | (v << 4)) & 0x0f0f0f0f;
+        v = (v | (v << 2)) & 0x33333333;
+        v = (v | (v << 1)) & 0x55555555;
+        return v;
+    }
+
+    static class ChunkTask extends RecursiveAction{
+        private static final long serialVersionUID = 4196820539728120351L;
+
+        final int from, to, count;
+        final Intc2 body;
+
+        ChunkTask(int from, int to, int count, Intc2 body){
+            this.from = from;
+            this.to = to;
+            this.count = count;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from > 1){
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(from, mid, count, body), new ChunkTask(mid, to, count, body));
+            }else{
+                body.get(from * chunkSize, Math.min(to * chunkSize, count));
+            }
+        }
+    }
+}
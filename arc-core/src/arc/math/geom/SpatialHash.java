@@ -0,0 +1,168 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * A uniform grid of square cells, hashed into a power-of-two amount of buckets, so the covered area is unbounded. Works best when objects
+ * are about as large as a cell or smaller, and similar in size.
+ * <p>
+ * Each object is stored in the cell that contains its center. Queries are extended by half the size of the largest object inserted
+ * since the last {@link #clear()}, so a single large object makes every query slower.
+ */
+public class SpatialHash extends SpatialIndex{
+    public final float cellSize;
+
+    protected final float inverse;
+    /** Cell coordinates of each id, indexed by id * 2. Several cells can share a bucket, so they are checked during queries. */
+    protected int[] cells = {};
+    protected int mask;
+    protected float maxWidth, maxHeight;
+
+    public SpatialHash(float cellSize){
+        this(cellSize, 1024);
+    }
+
+    /** @param buckets the initial amount of buckets, rounded up to a power of two. Grows with the amount of objects. */
+    public SpatialHash(float cellSize, int buckets){
+        if(cellSize <= 0) throw new IllegalArgumentException("cellSize must be > 0: " + cellSize);
+        this.cellSize = cellSize;
+        this.inverse = 1f / cellSize;
+        resize(Mathf.nextPowerOfTwo(Math.max(buckets, 16)));
+    }
+
+    @Override
+    public void insert(int id, float x, float y, float width, float height){
+        maxWidth = Math.max(maxWidth, width);
+        maxHeight = Math.max(maxHeight, height);
+        super.insert(id, x, y, width, height);
+        //the bucket may stay the same while the cell changes
+        cells[id * 2] = cell(x + width / 2f);
+        cells[id * 2 + 1] = cell(y + height / 2f);
+
+        if(size > heads.length) resize(heads.length * 2);
+    }
+
+    @Override
+    public void ensureCapacity(int ids){
+        super.ensureCapacity(ids);
+        if(cells.length < buckets.length * 2) cells = Arrays.copyOf(cells, buckets.length * 2);
+    }
+
+    @Override
+    protected int bucket(float x, float y, float width, float height){
+        return hash(cell(x + width / 2f), cell(y + height / 2f));
+    }
+
+    @Override
+    public void clear(){
+        super.clear();
+        maxWidth = maxHeight = 0f;
+    }
+
+    /** Changes the amount of buckets, and moves every object into its new bucket. */
+    public void resize(int buckets){
+        if(Integer.bitCount(buckets) != 1) throw new IllegalArgumentException("buckets must be a power of two: " + buckets);
+
+        int[] oldHeads = heads;
+        heads = new int[buckets];
+        Arrays.fill(heads, -1);
+        mask = buckets - 1;
+
+        //relink every object into the new buckets
+        size = 0;
+        for(int head : oldHeads){
+            for(int id = head; id != -1;){
+                int after = next[id];
+                link(id, hash(cells[id * 2], cells[id * 2 + 1]));
+                id = after;
+            }
+        }
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, IntSeq out){
+        float hw = maxWidth / 2f, hh = maxHeight / 2f;
+        int minX = cell(x - hw), minY = cell(y - hh), maxX = cell(x + width + hw), maxY = cell(y + height + hh);
+        int[] heads = this.heads, next = this.next, cells = this.cells;
+
+        if((long)(maxX - minX + 1) * (maxY - minY + 1) >= heads.length){
+            //the query covers more cells than there are buckets, so every bucket is checked once instead
+            for(int head : heads){
+                for(int id = head; id != -1; id = next[id]){
+                    if(overlaps(id, x, y, width, height)) out.add(id);
+                }
+            }
+            return;
+        }
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                for(int id = heads[hash(cx, cy)]; id != -1; id = next[id]){
+                    if(cells[id * 2] == cx && cells[id * 2 + 1] == cy && overlaps(id, x, y, width, height)) out.add(id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void intersect(float x, float y, float width, float height, Intc out){
+        float hw = maxWidth / 2f, hh = maxHeight / 2f;
+        int minX = cell(x - hw), minY = cell(y - hh), maxX = cell(x + width + hw), maxY = cell(y + height + hh);
+        int[] heads = this.heads, next = this.next, cells = this.cells;
+
+        if((long)(maxX - minX + 1) * (maxY - minY + 1) >= heads.length){
+            for(int head : heads){
+                for(int id = head; id != -1; id = next[id]){
+                    if(overlaps(id, x, y, width, height)) out.get(id);
+                }
+            }
+            return;
+        }
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                for(int id = heads[hash(cx, cy)]; id != -1; id = next[id]){
+                    if(cells[id * 2] == cx && cells[id * 2 + 1] == cy && overlaps(id, x, y, width, height)) out.get(id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean any(float x, float y, float width, float height){
+        float hw = maxWidth / 2f, hh = maxHeight / 2f;
+        int minX = cell(x - hw), minY = cell(y - hh), maxX = cell(x + width + hw), maxY = cell(y + height + hh);
+        int[] heads = this.heads, next = this.next, cells = this.cells;
+
+        if((long)(maxX - minX + 1) * (maxY - minY + 1) >= heads.length){
+            for(int head : heads){
+                for(int id = head; id != -1; id = next[id]){
+                    if(overlaps(id, x, y, width, height)) return true;
+                }
+            }
+            return false;
+        }
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                for(int id = heads[hash(cx, cy)]; id != -1; id = next[id]){
+                    if(cells[id * 2] == cx && cells[id * 2 + 1] == cy && overlaps(id, x, y, width, height)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    protected int cell(float coordinate){
+        return (int)Math.floor(coordinate * inverse);
+    }
+
+    protected int hash(int cx, int cy){
+        int h = cx * 0x9E3779B1 ^ cy * 0x85EBCA6B;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,219 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.geom.IntQuadTree.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * Base class for spatial indexes that store integer ids in flat arrays, such as {@link LooseQuadTree} and {@link SpatialHash}.
+ * <p>
+ * Ids are used as array indices, so they should be small non-negative numbers, like entity or array indices. The bounds of each
+ * object are copied on insertion, so queries never call back into the objects. Every id is stored in exactly one bucket, which
+ * is a doubly linked list through {@link #next} and {@link #prev}.
+ * <p>
+ * Modifications are not thread-safe. Queries do not modify any state, so they can run on several threads at once.
+ */
+public abstract class SpatialIndex{
+    /** Bounds of each object as x, y, width and height, indexed by id * 4. */
+    protected float[] boxes = {};
+    /** Linked list pointers of each id. -1 marks the end of a list. */
+    protected int[] next = {}, prev = {};
+    /** Bucket of each id, or -1 if the id is not in this index. */
+    protected int[] buckets = {};
+    /** First id of each bucket, or -1. */
+    protected int[] heads = {};
+    protected int size;
+
+    private final Rect tmp = new Rect();
+
+    /** @return the bucket an object with these bounds belongs in. */
+    protected abstract int bucket(float x, float y, float width, float height);
+
+    /** Processes objects that intersect the given rectangle. */
+    public abstract void intersect(float x, float y, float width, float height, Intc out);
+
+    /** Adds the ids of objects that intersect the given rectangle to the output, in no particular order. */
+    public abstract void intersect(float x, float y, float width, float height, IntSeq out);
+
+    /** @return whether an object intersects this rectangle. */
+    public abstract boolean any(float x, float y, float width, float height);
+
+    /** Called after an id is added to a bucket. */
+    protected void linked(int id, int bucket){
+    }
+
+    /** Called after an id is removed from a bucket. */
+    protected void unlinked(int id, int bucket){
+    }
+
+    /** Inserts an object, or moves it if it already is in this index. */
+    public void insert(int id, float x, float y, float width, float height){
+        if(id < 0) throw new IllegalArgumentException("id must be >= 0: " + id);
+        ensureCapacity(id + 1);
+
+        float[] boxes = this.boxes;
+        int offset = id * 4;
+        boxes[offset] = x;
+        boxes[offset + 1] = y;
+        boxes[offset + 2] = width;
+        boxes[offset + 3] = height;
+
+        int bucket = bucket(x, y, width, height);
+        int old = buckets[id];
+        if(old == bucket) return;
+        if(old != -1) unlink(id);
+        link(id, bucket);
+    }
+
+    public void insert(int id, Rect rect){
+        insert(id, rect.x, rect.y, rect.width, rect.height);
+    }
+
+    /** @return whether the object was in this index. */
+    public boolean remove(int id){
+        if(id < 0 || id >= buckets.length || buckets[id] == -1) return false;
+        unlink(id);
+        return true;
+    }
+
+    public boolean contains(int id){
+        return id >= 0 && id < buckets.length && buckets[id] != -1;
+    }
+
+    /** Fills the output with the stored bounds of an object. */
+    public Rect hitbox(int id, Rect out){
+        if(!contains(id)) throw new IllegalArgumentException("Object not in index: " + id);
+        return out.set(boxes[id * 4], boxes[id * 4 + 1], boxes[id * 4 + 2], boxes[id * 4 + 3]);
+    }
+
+    /** @return the amount of objects in this index. */
+    public int size(){
+        return size;
+    }
+
+    /** Removes all objects. */
+    public void clear(){
+        Arrays.fill(heads, -1);
+        Arrays.fill(buckets, -1);
+        size = 0;
+    }
+
+    /** Removes all objects, then inserts the objects with ids 0 to count - 1. Bounds are only requested once per object. */
+    public void rebuild(int count, IntQuadTreeProvider provider){
+        clear();
+        ensureCapacity(count);
+        Rect tmp = this.tmp;
+        for(int i = 0; i < count; i++){
+            provider.hitbox(i, tmp);
+            insert(i, tmp.x, tmp.y, tmp.width, tmp.height);
+        }
+    }
+
+    /** Removes all objects, then inserts the objects with the given ids. */
+    public void rebuild(IntSeq ids, IntQuadTreeProvider provider){
+        clear();
+        Rect tmp = this.tmp;
+        for(int i = 0; i < ids.size; i++){
+            int id = ids.items[i];
+            provider.hitbox(id, tmp);
+            insert(id, tmp.x, tmp.y, tmp.width, tmp.height);
+        }
+    }
+
+    /** Removes all objects, then inserts every object of the Seq, using its index as id. */
+    public <T extends QuadTreeObject> void rebuild(Seq<T> objects){
+        clear();
+        ensureCapacity(objects.size);
+        Rect tmp = this.tmp;
+        Object[] items = objects.items;
+        for(int i = 0; i < objects.size; i++){
+            ((QuadTreeObject)items[i]).hitbox(tmp);
+            insert(i, tmp.x, tmp.y, tmp.width, tmp.height);
+        }
+    }
+
+    /** Adds the ids of objects that intersect the given rectangle to the output. */
+    public void intersect(Rect rect, IntSeq out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /** Processes objects that intersect the given rectangle. */
+    public void intersect(Rect rect, Intc out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /**
+     * Runs several rectangle queries at once.
+     * @param rects the queries, as x, y, width and height each.
+     * @param count the amount of queries.
+     * @param out receives the ids that intersect each query, one query after another.
+     * @param offsets receives count + 1 values: the results of query i are stored in out between offsets[i] and offsets[i + 1].
+     */
+    public void intersectAll(float[] rects, int count, IntSeq out, IntSeq offsets){
+        offsets.ensureCapacity(count + 1);
+        for(int i = 0; i < count; i++){
+            offsets.add(out.size);
+            intersect(rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2], rects[i * 4 + 3], out);
+        }
+        offsets.add(out.size);
+    }
+
+    /** Adds all ids in this index to the output. */
+    public void getObjects(IntSeq out){
+        out.ensureCapacity(size);
+        int[] heads = this.heads, next = this.next;
+        for(int head : heads){
+            for(int id = head; id != -1; id = next[id]){
+                out.add(id);
+            }
+        }
+    }
+
+    /** Makes sure ids below the given amount can be inserted without growing any arrays. */
+    public void ensureCapacity(int ids){
+        if(ids <= buckets.length) return;
+        int capacity = Math.max(ids, Math.max(16, buckets.length * 7 / 4));
+        int old = buckets.length;
+
+        boxes = Arrays.copyOf(boxes, capacity * 4);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        buckets = Arrays.copyOf(buckets, capacity);
+        Arrays.fill(buckets, old, capacity, -1);
+    }
+
+    protected void link(int id, int bucket){
+        int head = heads[bucket];
+        next[id] = head;
+        prev[id] = -1;
+        if(head != -1) prev[head] = id;
+        heads[bucket] = id;
+        buckets[id] = bucket;
+        size++;
+        linked(id, bucket);
+    }
+
+    protected void unlink(int id){
+        int bucket = buckets[id], before = prev[id], after = next[id];
+        if(before == -1){
+            heads[bucket] = after;
+        }else{
+            next[before] = after;
+        }
+        if(after != -1) prev[after] = before;
+        buckets[id] = -1;
+        size--;
+        unlinked(id, bucket);
+    }
+
+    /** @return whether the stored bounds of an object overlap the rectangle. */
+    protected final boolean overlaps(int id, float x, float y, float width, float height){
+        float[] boxes = this.boxes;
+        int offset = id * 4;
+        float bx = boxes[offset], by = boxes[offset + 1];
+        return bx < x + width && bx + boxes[offset + 2] > x && by < y + height && by + boxes[offset + 3] > y;
+    }
+}
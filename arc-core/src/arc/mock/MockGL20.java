@@ -5,6 +5,14 @@ import arc.graphics.*;
 import java.nio.*;
 
 public class MockGL20 implements GL20{
+    /** Upload statistics, for testing buffer streaming without a GPU. Reset manually. */
+    public long uploadedBytes;
+    public int bufferDataCalls, bufferSubDataCalls;
+    /** Offset of the last call to {@link #glVertexAttribPointer(int, int, int, boolean, int, int)}. */
+    public int attribPointerOffset;
+    /** Amount of draw calls issued, for testing batching without a GPU. Reset manually. */
+    public int drawCalls;
+
     @Override
     public void glActiveTexture(int texture){
 
@@ -97,12 +105,12 @@ public class MockGL20 implements GL20{
 
     @Override
     public void glDrawArrays(int mode, int first, int count){
-
+        drawCalls++;
     }
 
     @Override
     public void glDrawElements(int mode, int count, int type, Buffer indices){
-
+        drawCalls++;
     }
 
     @Override
@@ -257,12 +265,14 @@ public class MockGL20 implements GL20{
 
     @Override
     public void glBufferData(int target, int size, Buffer data, int usage){
-
+        bufferDataCalls++;
+        if(data != null) uploadedBytes += size;
     }
 
     @Override
     public void glBufferSubData(int target, int offset, int size, Buffer data){
-
+        bufferSubDataCalls++;
+        uploadedBytes += size;
     }
 
     @Override
@@ -323,7 +333,7 @@ public class MockGL20 implements GL20{
 
     @Override
     public void glDrawElements(int mode, int count, int type, int indices){
-
+        drawCalls++;
     }
 
     @Override
@@ -758,6 +768,6 @@ public class MockGL20 implements GL20{
 
     @Override
     public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int ptr){
-
+        attribPointerOffset = ptr;
     }
 }
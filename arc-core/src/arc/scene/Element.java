@@ -41,6 +41,9 @@ public class Element{
     /** Alpha value of the parent. Should be multiplied with the actor's alpha, allowing a parent's alpha to affect all children. */
     protected float parentAlpha = 1f;
 
+    /** Slot of this element in the spatial index of its parent, or -1. */
+    int indexSlot = -1;
+
     private Scene stage;
     private boolean needsLayout = true;
     private boolean layoutEnabled = true;
@@ -59,6 +62,8 @@ public class Element{
      */
     public void act(float delta){
         Seq<Action> actions = this.actions;
+        //actions and update functions can change anything about how an element looks
+        if(actions.size > 0 || update != null) invalidateRender();
         if(actions.size > 0){
             if(stage != null && stage.getActionsRequestRendering()) Core.graphics.requestRendering();
             for(int i = 0; i < actions.size; i++){
@@ -80,7 +85,13 @@ public class Element{
     }
 
     public void updateVisibility(){
-        if(visibility != null) this.visible = visibility.get();
+        if(visibility != null){
+            boolean visible = visibility.get();
+            if(this.visible != visible){
+                this.visible = visible;
+                invalidateRender();
+            }
+        }
     }
 
     public boolean hasMouse(){
@@ -107,6 +118,8 @@ public class Element{
     @SuppressWarnings("unchecked")
     public boolean fire(SceneEvent event){
         event.targetActor = this;
+        //elements may look different when they are entered, pressed, focused or changed, but not when the mouse moves over them
+        if(!(event instanceof InputEvent) || ((InputEvent)event).type != InputEventType.mouseMoved) invalidateRender();
 
         // Collect ancestors so event propagation is unaffected by hierarchy changes.
         Seq<Group> ancestors = Pools.obtain(Seq.class, Seq::new);
@@ -401,6 +414,7 @@ public class Element{
         if(this.x != x || this.y != y){
             this.x = x;
             this.y = y;
+            boundsChanged();
         }
     }
 
@@ -422,6 +436,7 @@ public class Element{
         if(this.x != x || this.y != y){
             this.x = x;
             this.y = y;
+            boundsChanged();
         }
     }
 
@@ -430,6 +445,7 @@ public class Element{
         if(x != 0 || y != 0){
             this.x += x;
             this.y += y;
+            boundsChanged();
         }
     }
 
@@ -441,6 +457,7 @@ public class Element{
         if(this.width != width){
             this.width = width;
             sizeChanged();
+            boundsChanged();
         }
     }
 
@@ -452,6 +469,7 @@ public class Element{
         if(this.height != height){
             this.height = height;
             sizeChanged();
+            boundsChanged();
         }
     }
 
@@ -474,6 +492,14 @@ public class Element{
     protected void rotationChanged(){
     }
 
+    /** Updates the bounds of this actor in the spatial index of its parent, if it has one, and invalidates the render caches above it. */
+    void boundsChanged(){
+        if(parent != null){
+            if(parent.childIndex != null) parent.childMoved(this);
+            parent.invalidateRender();
+        }
+    }
+
     public void setSize(float size){
         setSize(size, size);
     }
@@ -484,6 +510,7 @@ public class Element{
             this.width = width;
             this.height = height;
             sizeChanged();
+            boundsChanged();
         }
     }
 
@@ -493,6 +520,7 @@ public class Element{
             width += size;
             height += size;
             sizeChanged();
+            boundsChanged();
         }
     }
 
@@ -502,6 +530,7 @@ public class Element{
             this.width += width;
             this.height += height;
             sizeChanged();
+            boundsChanged();
         }
     }
 
@@ -510,11 +539,13 @@ public class Element{
         if(this.x != x || this.y != y){
             this.x = x;
             this.y = y;
+            boundsChanged();
         }
         if(this.width != width || this.height != height){
             this.width = width;
             this.height = height;
             sizeChanged();
+            boundsChanged();
         }
     }
 
@@ -522,6 +553,7 @@ public class Element{
     public void setOrigin(float originX, float originY){
         this.originX = originX;
         this.originY = originY;
+        boundsChanged();
     }
 
     /** Sets the origin position to the specified {@link Align alignment}. */
@@ -539,30 +571,35 @@ public class Element{
             originY = height;
         else
             originY = height / 2;
+        boundsChanged();
     }
 
     /** Sets the scale for both X and Y */
     public void setScale(float scaleXY){
         this.scaleX = scaleXY;
         this.scaleY = scaleXY;
+        boundsChanged();
     }
 
     /** Sets the scale X and scale Y. */
     public void setScale(float scaleX, float scaleY){
         this.scaleX = scaleX;
         this.scaleY = scaleY;
+        boundsChanged();
     }
 
     /** Adds the specified scale to the current scale. */
     public void scaleBy(float scale){
         scaleX += scale;
         scaleY += scale;
+        boundsChanged();
     }
 
     /** Adds the specified scale to the current scale. */
     public void scaleBy(float scaleX, float scaleY){
         this.scaleX += scaleX;
         this.scaleY += scaleY;
+        boundsChanged();
     }
 
     public float getRotation(){
@@ -573,6 +610,7 @@ public class Element{
         if(this.rotation != degrees){
             this.rotation = degrees;
             rotationChanged();
+            boundsChanged();
         }
     }
 
@@ -581,6 +619,7 @@ public class Element{
         if(this.rotation != degrees){
             this.rotation = degrees;
             rotationChanged();
+            boundsChanged();
         }
     }
 
@@ -589,15 +628,18 @@ public class Element{
         if(amountInDegrees != 0){
             rotation += amountInDegrees;
             rotationChanged();
+            boundsChanged();
         }
     }
 
     public void setColor(float r, float g, float b, float a){
         color.set(r, g, b, a);
+        invalidateRender();
     }
 
     public void setColor(Color color){
         this.color.set(color);
+        invalidateRender();
     }
 
     /** Changes the z-order for this actor so it is in front of all siblings. */
@@ -635,6 +677,8 @@ public class Element{
         if(children.get(index) == this) return;
         if(!children.remove(this, true)) return;
         children.insert(index, this);
+        parent.invalidateIndex();
+        parent.invalidateRender();
     }
 
     /** Calls {@link #clipBegin(float, float, float, float)} to clip this actor's bounds. */
@@ -816,6 +860,22 @@ public class Element{
      * maximum, or actual size of the actor (meaning it does not affect the parent actor's layout). */
     public void invalidate(){
         needsLayout = true;
+        invalidateRender();
+    }
+
+    /**
+     * Marks the {@link Group#setRenderCache(boolean) render caches} of this element and the groups above it as outdated. This is
+     * done by layout, actions, events and the setters of elements, but must be called after changing fields that affect drawing,
+     * such as {@link #visible} or {@link #color}, directly.
+     */
+    public void invalidateRender(){
+        if(RenderCache.enabled == 0) return;
+        for(Element element = this; element != null; element = element.parent){
+            if(element instanceof Group){
+                RenderCache cache = ((Group)element).renderCache;
+                if(cache != null) cache.dirty = true;
+            }
+        }
     }
 
     /** Invalidates this actor and its ascendants, calling {@link #invalidate()} on each. This method should be called when state
@@ -825,7 +885,7 @@ public class Element{
         if(!layoutEnabled) return;
         invalidate();
         Group parent = this.parent;
-        if(parent != null) parent.invalidateHierarchy();
+        if(parent != null) parent.childInvalidated(this);
     }
 
     /** Sizes this actor to its preferred width and height, then calls {@link #validate()}.
@@ -869,6 +929,7 @@ public class Element{
     public void setTranslation(float x, float y){
         translation.x = x;
         translation.y = y;
+        boundsChanged();
     }
 
     public void keyDown(KeyCode key, Runnable l){
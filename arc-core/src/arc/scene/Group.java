@@ -10,9 +10,12 @@ import arc.math.Affine2;
 import arc.math.Mat;
 import arc.scene.event.Touchable;
 import arc.scene.style.*;
+import arc.scene.ui.Dialog;
 import arc.scene.ui.layout.Table;
 import arc.scene.ui.layout.Table.DrawRect;
 import arc.scene.utils.Cullable;
+import arc.struct.IntSeq;
+import arc.util.Nullable;
 
 /**
  * 2D scene graph node that may contain other actors.
@@ -23,7 +26,8 @@ import arc.scene.utils.Cullable;
  * @author Nathan Sweet
  */
 public abstract class Group extends Element implements Cullable{
-    private static final Vec2 tmp = new Vec2();
+    private static final Vec2 tmp = new Vec2(), corner = new Vec2();
+    private static final Rect bounds = new Rect();
 
     protected final SnapshotSeq<Element> children = new SnapshotSeq<>(true, 4, Element.class);
     private final Affine2 worldTransform = new Affine2();
@@ -31,6 +35,13 @@ public abstract class Group extends Element implements Cullable{
     private final Mat oldTransform = new Mat();
     protected boolean transform = false;
     protected Rect cullingArea;
+    /** Index of the bounds of cullable children, used by {@link #hit(float, float, boolean)} and culling. May be null. */
+    protected @Nullable SpatialIndex childIndex;
+    /** Recording of what the children drew, replayed while nothing changes. May be null. */
+    protected @Nullable RenderCache renderCache;
+    private boolean indexInvalid;
+    /** Hit testing uses its own candidates, as children may hit test the scene while being drawn. */
+    private @Nullable IntSeq unindexed, drawCandidates, hitCandidates;
 
     @Override
     public void act(float delta){
@@ -54,7 +65,21 @@ public abstract class Group extends Element implements Cullable{
 
     protected void drawChildren(){
         parentAlpha *= this.color.a;
+        RenderCache cache = this.renderCache;
+        if(cache == null){
+            drawChildElements();
+        }else if(cache.valid(this)){
+            cache.replay();
+        }else{
+            cache.begin();
+            drawChildElements();
+            cache.end(this);
+        }
+    }
+
+    private void drawChildElements(){
         SnapshotSeq<Element> children = this.children;
+        if(cullingArea != null) validateIndex();
         Element[] actors = children.begin();
         Rect cullingArea = this.cullingArea;
         if(cullingArea != null){
@@ -63,9 +88,17 @@ public abstract class Group extends Element implements Cullable{
             float cullRight = cullLeft + cullingArea.width;
             float cullBottom = cullingArea.y;
             float cullTop = cullBottom + cullingArea.height;
+            //only the children that may overlap the area are checked, in the same order
+            int[] slots = null;
+            int count = children.size;
+            if(childIndex != null){
+                IntSeq candidates = query(cullLeft, cullBottom, cullingArea.width, cullingArea.height, drawCandidates);
+                slots = candidates.items;
+                count = candidates.size;
+            }
             if(transform){
-                for(int i = 0, n = children.size; i < n; i++){
-                    Element child = actors[i];
+                for(int i = 0; i < count; i++){
+                    Element child = actors[slots == null ? i : slots[i]];
                     child.parentAlpha = parentAlpha;
                     if(!child.visible) continue;
                     float cx = child.x, cy = child.y;
@@ -81,8 +114,8 @@ public abstract class Group extends Element implements Cullable{
                 float offsetX = x, offsetY = y;
                 x = 0;
                 y = 0;
-                for(int i = 0, n = children.size; i < n; i++){
-                    Element child = actors[i];
+                for(int i = 0; i < count; i++){
+                    Element child = actors[slots == null ? i : slots[i]];
                     child.parentAlpha = parentAlpha;
                     if(!child.visible) continue;
                     float cx = child.x, cy = child.y;
@@ -192,8 +225,16 @@ public abstract class Group extends Element implements Cullable{
         if(touchable && this.touchable == Touchable.disabled) return null;
         Vec2 point = tmp;
         Element[] childrenArray = children.items;
-        for(int i = children.size - 1; i >= 0; i--){
-            Element child = childrenArray[i];
+        int[] slots = null;
+        int count = children.size;
+        if(childIndex != null){
+            validateIndex();
+            IntSeq candidates = query(x, y, 0f, 0f, hitCandidates);
+            slots = candidates.items;
+            count = candidates.size;
+        }
+        for(int i = count - 1; i >= 0; i--){
+            Element child = childrenArray[slots == null ? i : slots[i]];
             if(!child.visible) continue;
             child.parentToLocalCoordinates(point.set(x, y));
             Element hit = child.hit(point.x, point.y, touchable);
@@ -206,6 +247,150 @@ public abstract class Group extends Element implements Cullable{
     protected void childrenChanged(){
     }
 
+    /**
+     * Called by a child when {@link Element#invalidateHierarchy()} is called on it, which means its size may have changed. By default,
+     * this invalidates the hierarchy of this group.
+     */
+    public void childInvalidated(Element child){
+        invalidateHierarchy();
+    }
+
+    /** @return the spatial index of child bounds, or null if every child is checked. */
+    public @Nullable SpatialIndex getChildIndex(){
+        return childIndex;
+    }
+
+    /**
+     * Sets a spatial index, such as a {@link SpatialHash} or {@link LooseQuadTree}, that stores the bounds of the children. It is used
+     * by {@link #hit(float, float, boolean)} and by culling with the {@link #setCullingArea(Rect) culling area} to only check children
+     * that may contain the point or overlap the area, which is much faster for groups with thousands of children. Children are still
+     * hit and drawn in the same order.
+     * <p>
+     * The index is updated when children move, resize, scale or rotate through the setters of {@link Element}, and is rebuilt when
+     * children are added, removed or reordered. Call {@link #invalidateIndex()} after changing the position fields of a child or its
+     * {@link Element#cullable} flag directly.
+     * <p>
+     * Only cullable children are indexed: they are hit only within their bounds, including rotation, scale and translation. Children
+     * that can be hit or drawn outside of their bounds, like groups with children outside of them, should not be cullable. Modal
+     * {@link Dialog dialogs} are never indexed.
+     * @param index May be null, which checks every child like before.
+     */
+    public void setChildIndex(@Nullable SpatialIndex index){
+        if(childIndex != null) childIndex.clear();
+        childIndex = index;
+        if(index != null && unindexed == null){
+            unindexed = new IntSeq();
+            drawCandidates = new IntSeq();
+            hitCandidates = new IntSeq();
+        }
+        indexInvalid = true;
+    }
+
+    /**
+     * Enables or disables caching of what the children of this group draw. While nothing in the group changes, the recorded sprites
+     * are drawn again without drawing the children, which is much faster for static panels with many elements or much text.
+     * <p>
+     * The cache is rebuilt after children are added, removed, moved or laid out, after an action or update function runs on any
+     * element in the group, and after input and change events are fired on them. Changes to fields such as {@link Element#visible}
+     * need a call to {@link Element#invalidateRender()}, and so does drawing that changes over time by itself, such as a blinking
+     * cursor: the element has to call it from {@link Element#act(float)} when it would draw differently, as its draw method is
+     * not called while the cache is valid. Moving the group itself only moves the cached sprites, and changes of its alpha or
+     * culling area rebuild it.
+     * <p>
+     * Groups whose children flush the batch, such as clipping scroll panes, or change its shader or transform, can't be cached and
+     * are drawn as usual. Hits, rebuilds and memory are reported by {@link #getRenderCache()}.
+     */
+    public void setRenderCache(boolean cache){
+        if((renderCache != null) == cache) return;
+        if(cache){
+            renderCache = new RenderCache();
+            RenderCache.enabled++;
+        }else{
+            renderCache.dispose();
+            renderCache = null;
+            RenderCache.enabled--;
+        }
+    }
+
+    /** @return the render cache of this group, or null if it is not enabled. */
+    public @Nullable RenderCache getRenderCache(){
+        return renderCache;
+    }
+
+    /** Rebuilds the spatial index of children before it is next used. */
+    public void invalidateIndex(){
+        indexInvalid = true;
+    }
+
+    /** Called by a child when its bounds have changed. */
+    void childMoved(Element child){
+        if(indexInvalid) return;
+        int slot = child.indexSlot;
+        if(slot < 0 || slot >= children.size || children.items[slot] != child || indexed(child) != childIndex.contains(slot)){
+            indexInvalid = true;
+            return;
+        }
+        if(indexed(child)){
+            childBounds(child, bounds);
+            childIndex.insert(slot, bounds);
+        }
+    }
+
+    /** Rebuilds the spatial index if children have changed. The children are indexed by their position in {@link #children}. */
+    protected void validateIndex(){
+        if(!indexInvalid || childIndex == null) return;
+        indexInvalid = false;
+        childIndex.clear();
+        unindexed.clear();
+        Element[] items = children.items;
+        for(int i = 0, n = children.size; i < n; i++){
+            Element child = items[i];
+            child.indexSlot = i;
+            if(indexed(child)){
+                childBounds(child, bounds);
+                childIndex.insert(i, bounds);
+            }else{
+                unindexed.add(i);
+            }
+        }
+    }
+
+    /** @return whether the child is hit only within its bounds. Modal dialogs are hit anywhere, so they are always checked. */
+    private boolean indexed(Element child){
+        return child.cullable && !(child instanceof Dialog && ((Dialog)child).isModal());
+    }
+
+    /** @return the sorted positions of children that are not indexed or whose bounds overlap the rectangle. */
+    private IntSeq query(float x, float y, float width, float height, IntSeq out){
+        out.clear();
+        out.addAll(unindexed);
+        childIndex.intersect(x, y, width, height, out);
+        out.sort();
+        return out;
+    }
+
+    /**
+     * Computes the area in which a child may be hit or drawn, in the coordinates of this group. This is the transformed bounds of the
+     * child, combined with its untransformed bounds that culling uses, and extended by one unit so that edges are included.
+     */
+    protected void childBounds(Element child, Rect out){
+        float w = child.width, h = child.height, tx = child.translation.x, ty = child.translation.y;
+        //hit() checks the translation on top of the translated position
+        float left = Math.min(Math.min(0f, w), Math.min(tx, w + tx)), right = Math.max(Math.max(0f, w), Math.max(tx, w + tx));
+        float bottom = Math.min(Math.min(0f, h), Math.min(ty, h + ty)), top = Math.max(Math.max(0f, h), Math.max(ty, h + ty));
+
+        float minX = Math.min(child.x, child.x + w), minY = Math.min(child.y, child.y + h);
+        float maxX = Math.max(child.x, child.x + w), maxY = Math.max(child.y, child.y + h);
+        for(int i = 0; i < 4; i++){
+            child.localToParentCoordinates(corner.set(i % 2 == 0 ? left : right, i < 2 ? bottom : top));
+            minX = Math.min(minX, corner.x);
+            minY = Math.min(minY, corner.y);
+            maxX = Math.max(maxX, corner.x);
+            maxY = Math.max(maxY, corner.y);
+        }
+        out.set(minX - 1f, minY - 1f, maxX - minX + 2f, maxY - minY + 2f);
+    }
+
     /** Recursively iterates through every child of this group. */
     public void forEach(Cons<Element> cons){
         for(Element e : getChildren()){
@@ -253,6 +438,8 @@ public abstract class Group extends Element implements Cullable{
         children.add(actor);
         actor.parent = this;
         actor.setScene(getScene());
+        indexInvalid = true;
+        invalidateRender();
         childrenChanged();
     }
 
@@ -272,6 +459,8 @@ public abstract class Group extends Element implements Cullable{
             children.insert(index, actor);
         actor.parent = this;
         actor.setScene(getScene());
+        indexInvalid = true;
+        invalidateRender();
         childrenChanged();
     }
 
@@ -288,6 +477,8 @@ public abstract class Group extends Element implements Cullable{
         children.insert(index, actor);
         actor.parent = this;
         actor.setScene(getScene());
+        indexInvalid = true;
+        invalidateRender();
         childrenChanged();
     }
 
@@ -307,6 +498,8 @@ public abstract class Group extends Element implements Cullable{
             children.insert(index + 1, actor);
         actor.parent = this;
         actor.setScene(getScene());
+        indexInvalid = true;
+        invalidateRender();
         childrenChanged();
     }
 
@@ -330,6 +523,8 @@ public abstract class Group extends Element implements Cullable{
         }
         actor.parent = null;
         actor.setScene(null);
+        indexInvalid = true;
+        invalidateRender();
         childrenChanged();
         return true;
     }
@@ -346,6 +541,8 @@ public abstract class Group extends Element implements Cullable{
         }
         children.end();
         children.clear();
+        indexInvalid = true;
+        invalidateRender();
         childrenChanged();
     }
 
@@ -422,6 +619,8 @@ public abstract class Group extends Element implements Cullable{
         if(first < 0 || first >= maxIndex) return false;
         if(second < 0 || second >= maxIndex) return false;
         children.swap(first, second);
+        indexInvalid = true;
+        invalidateRender();
         return true;
     }
 
@@ -431,6 +630,8 @@ public abstract class Group extends Element implements Cullable{
         int secondIndex = children.indexOf(second, true);
         if(firstIndex == -1 || secondIndex == -1) return false;
         children.swap(firstIndex, secondIndex);
+        indexInvalid = true;
+        invalidateRender();
         return true;
     }
 
@@ -0,0 +1,112 @@
+package arc.scene;
+
+import arc.graphics.g2d.*;
+import arc.math.geom.*;
+
+/**
+ * Records the sprites drawn by the children of a {@link Group} and draws them again while nothing in the group changes. Created
+ * with {@link Group#setRenderCache(boolean)}.
+ */
+public class RenderCache{
+    /** Amount of enabled caches. Elements only look for caches to invalidate if there are any. */
+    static int enabled;
+
+    /** Totals of all caches, reset with {@link #resetStats()}. */
+    public static int totalHits, totalRebuilds, totalFailures;
+    /** Memory used by the recordings of all caches, in bytes. */
+    public static long totalMemory;
+
+    /** Frames drawn from the recording, recordings made, and recordings that failed as something was drawn that can't be recorded. */
+    public int hits, rebuilds, failures;
+
+    private final RecordingBatch batch = new RecordingBatch();
+    /** Set when something in the group changed. */
+    boolean dirty = true;
+    private boolean recorded, failed, recording;
+    /** The state of the group when it was recorded. */
+    private float x, y, alpha;
+    private boolean culled;
+    private final Rect area = new Rect();
+    private int memory;
+
+    /** @return whether the recording can be drawn instead of the children. Moves the recording if the group moved. */
+    boolean valid(Group group){
+        if(dirty || !recorded || group.parentAlpha != alpha || !sameArea(group.cullingArea)) return false;
+        //children of groups that don't transform are drawn at the position of the group
+        if(!group.transform && (group.x != x || group.y != y)){
+            batch.translate(group.x - x, group.y - y);
+            x = group.x;
+            y = group.y;
+        }
+        return true;
+    }
+
+    void replay(){
+        hits++;
+        totalHits++;
+        batch.replay();
+    }
+
+    /** Starts recording the children, unless the last recording failed and nothing changed since. */
+    void begin(){
+        recording = dirty || !failed;
+        if(!recording) return;
+        //anything invalidated while the children are drawn, such as by their layout, is recorded again next frame
+        dirty = false;
+        batch.begin();
+    }
+
+    void end(Group group){
+        if(!recording) return;
+        recording = false;
+        rebuilds++;
+        totalRebuilds++;
+        recorded = batch.end();
+        failed = !recorded;
+        if(failed){
+            failures++;
+            totalFailures++;
+        }
+        x = group.x;
+        y = group.y;
+        alpha = group.parentAlpha;
+        culled = group.cullingArea != null;
+        if(culled) area.set(group.cullingArea);
+
+        int memory = batch.memory();
+        totalMemory += memory - this.memory;
+        this.memory = memory;
+    }
+
+    private boolean sameArea(Rect cullingArea){
+        if(cullingArea == null) return !culled;
+        return culled && area.x == cullingArea.x && area.y == cullingArea.y && area.width == cullingArea.width && area.height == cullingArea.height;
+    }
+
+    /** @return the amount of recorded sprites. */
+    public int sprites(){
+        return batch.sprites();
+    }
+
+    /** @return the memory used by the recording, in bytes. */
+    public int memory(){
+        return memory;
+    }
+
+    /** @return whether the last recording failed, so the children are drawn as usual until something changes. */
+    public boolean isFailed(){
+        return failed;
+    }
+
+    void dispose(){
+        totalMemory -= memory;
+        memory = 0;
+        batch.clear();
+        recorded = false;
+    }
+
+    /** Resets the total hits, rebuilds and failures of all caches. */
+    public static void resetStats(){
+        totalHits = totalRebuilds = totalFailures = 0;
+    }
+}
@@ -34,6 +34,7 @@ public class Button extends Table implements Disableable{
     private ButtonStyle style;
     private ClickListener clickListener;
     private boolean programmaticChangeEvents;
+    private boolean wasPressed;
 
     public Button(ButtonStyle style){
         initialize();
@@ -81,6 +82,13 @@ public class Button extends Table implements Disableable{
         if(disabledProvider != null){
             setDisabled(disabledProvider.get());
         }
+
+        //the pressed look outlasts the click by a timeout, which a render cache would not see end
+        boolean pressed = isPressed();
+        if(pressed != wasPressed){
+            wasPressed = pressed;
+            invalidateRender();
+        }
     }
 
     private void initialize(){
@@ -100,6 +108,7 @@ public class Button extends Table implements Disableable{
         if(this.isChecked == isChecked) return;
         if(buttonGroup != null && !buttonGroup.canCheck(this, isChecked)) return;
         this.isChecked = isChecked;
+        invalidateRender();
 
         if(fireEvent){
             ChangeEvent changeEvent = Pools.obtain(ChangeEvent.class, ChangeEvent::new);
@@ -148,6 +157,7 @@ public class Button extends Table implements Disableable{
     /** When true, the button will not toggle {@link #isChecked()} when clicked and will not fire a {@link ChangeEvent}. */
     @Override
     public void setDisabled(boolean isDisabled){
+        if(this.isDisabled != isDisabled) invalidateRender();
         this.isDisabled = isDisabled;
     }
 
@@ -342,6 +342,7 @@ public class Dialog extends Table{
 
     public void setModal(boolean isModal){
         this.isModal = isModal;
+        if(parent != null) parent.invalidateIndex();
     }
 
     public void setKeepWithinStage(boolean keepWithinStage){
@@ -0,0 +1,31 @@
+package arc.scene.ui;
+
+/**
+ * A {@link ListView} that lays out items in rows of several columns. Each row is as tall as its tallest item. Without a set amount
+ * of {@link #columns}, as many columns of {@link #itemWidth} as fit in the width of the grid are used, and the items are
+ * stretched to fill the row.
+ */
+public class GridView extends ListView{
+    /** The smallest width of items, which determines the amount of columns if it is not set. */
+    public float itemWidth = 40f;
+    /** The amount of columns, or 0 to fit as many as the width allows. Call {@link #invalidateHierarchy()} after changing it. */
+    public int columns;
+
+    public GridView(){
+    }
+
+    public GridView(Adapter adapter){
+        super(adapter);
+    }
+
+    @Override
+    protected int columns(){
+        if(columns > 0) return columns;
+        return Math.max((int)(getWidth() / itemWidth), 1);
+    }
+
+    @Override
+    public float getPrefWidth(){
+        return itemWidth * Math.max(columns, 1);
+    }
+}
@@ -4,6 +4,7 @@ import arc.Core;
 import arc.func.Prov;
 import arc.graphics.Color;
 import arc.graphics.g2d.Font;
+import arc.graphics.g2d.Font.FontData;
 import arc.graphics.g2d.FontCache;
 import arc.graphics.g2d.Draw;
 import arc.graphics.g2d.GlyphLayout;
@@ -40,6 +41,8 @@ public class Label extends Element{
     protected float fontScaleX = 1, fontScaleY = 1;
     protected boolean fontScaleChanged = false;
     protected String ellipsis;
+    /** {@link FontData#glyphVersion} of the last layout. */
+    protected int glyphVersion;
 
     public Label(Prov<CharSequence> sup){
         this("", new LabelStyle(scene.getStyle(LabelStyle.class)));
@@ -128,6 +131,7 @@ public class Label extends Element{
     private void scaleAndComputePrefSize(){
         if(cache == null) return;
         Font font = cache.getFont();
+        glyphVersion = font.getData().glyphVersion;
         float oldScaleX = font.getScaleX();
         float oldScaleY = font.getScaleY();
         if(fontScaleChanged) font.getData().setScale(fontScaleX, fontScaleY);
@@ -153,6 +157,7 @@ public class Label extends Element{
     public void layout(){
         if(cache == null) return;
         Font font = cache.getFont();
+        glyphVersion = font.getData().glyphVersion;
         float oldScaleX = font.getScaleX();
         float oldScaleY = font.getScaleY();
         if(fontScaleChanged) font.getData().setScale(fontScaleX, fontScaleY);
@@ -214,6 +219,10 @@ public class Label extends Element{
 
     @Override
     public void draw(){
+        if(cache != null){
+            FontData data = cache.getFont().getData();
+            if(data.markUsed(layout, glyphVersion)) invalidateHierarchy();
+        }
         validate();
         Color color = tempColor.set(this.color);
         color.a *= parentAlpha;
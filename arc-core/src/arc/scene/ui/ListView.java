@@ -0,0 +1,320 @@
+package arc.scene.ui;
+
+import arc.math.geom.*;
+import arc.scene.*;
+import arc.scene.ui.layout.*;
+import arc.struct.*;
+import arc.util.*;
+
+/**
+ * A list that only has elements for the items in view, for lists too large to hold an element for each item. Elements are created,
+ * bound to items and recycled by an {@link Adapter}. Items are laid out from the top, each as wide as the list.
+ * <p>
+ * The list is meant to be the widget of a {@link ScrollPane}, which sets the area in view with {@link #setCullingArea(Rect)} when it
+ * is drawn. Without a culling area, every item in the bounds of the list has an element once it is drawn.
+ * <p>
+ * Item heights can vary. They are kept in a {@link PrefixSumTree}, so the items at a scroll position are found in logarithmic time.
+ * Call {@link #itemChanged(int)} or {@link #dataChanged()} when the items or their heights change.
+ */
+public class ListView extends WidgetGroup{
+    private static final Rect tmpArea = new Rect();
+
+    /** Heights of the rows, from the top. */
+    protected final PrefixSumTree rows = new PrefixSumTree();
+    /** Elements of the items from {@link #firstItem}, in order. */
+    protected Seq<Element> items = new Seq<>(), lastItems = new Seq<>();
+    protected IntSeq itemTypes = new IntSeq(), lastItemTypes = new IntSeq();
+    protected int firstItem;
+    /** Elements that are not bound to an item, by item type. */
+    protected final IntMap<Seq<Element>> recycled = new IntMap<>();
+    protected @Nullable Adapter adapter;
+
+    /** The height of items when {@link Adapter#height(int)} is negative. Call {@link #dataChanged()} after changing it. */
+    public float itemHeight = 40f;
+    /** Rows before and after the area in view that also have elements, so they are ready when scrolling. */
+    public int buffer = 2;
+    /** Elements created by the adapter, and items bound to elements, for benchmarks. */
+    public int created, bound;
+
+    private boolean dataInvalid = true, itemsInvalid = true;
+    private int indexColumns;
+
+    public ListView(){
+    }
+
+    public ListView(Adapter adapter){
+        setAdapter(adapter);
+    }
+
+    /** Sets the adapter. Elements of the previous adapter are discarded. */
+    public void setAdapter(@Nullable Adapter adapter){
+        recycleAll();
+        recycled.clear();
+        this.adapter = adapter;
+        dataChanged();
+    }
+
+    public @Nullable Adapter getAdapter(){
+        return adapter;
+    }
+
+    /** Binds every item in view again and measures the heights of all items again. Call this when items are added or removed. */
+    public void dataChanged(){
+        dataInvalid = true;
+        invalidateHierarchy();
+    }
+
+    /** Binds an item again if it is in view, and updates its height. */
+    public void itemChanged(int index){
+        if(adapter == null || dataInvalid) return;
+        if(index < 0 || index >= adapter.size()) throw new IndexOutOfBoundsException("index: " + index + ", size: " + adapter.size());
+        int row = index / indexColumns;
+        float height = rowHeight(row, indexColumns);
+        if(height != rows.get(row)){
+            rows.set(row, height);
+            invalidateHierarchy();
+        }
+
+        int slot = index - firstItem;
+        if(slot >= 0 && slot < items.size){
+            Element element = items.get(slot);
+            adapter.unbind(element, index);
+            adapter.bind(element, index);
+            bound++;
+            place(element, index, indexColumns);
+        }
+    }
+
+    /** @return the element of an item, or null if the item is not in view. */
+    public @Nullable Element getElement(int index){
+        int slot = index - firstItem;
+        return slot >= 0 && slot < items.size ? items.get(slot) : null;
+    }
+
+    /** @return the first item with an element. */
+    public int getFirstItem(){
+        return firstItem;
+    }
+
+    /** @return the amount of items with an element, starting at {@link #getFirstItem()}. */
+    public int getItemCount(){
+        return items.size;
+    }
+
+    /** @return the position of the top of an item from the top of the list. */
+    public float getItemOffset(int index){
+        validateRows();
+        return rows.sum(index / indexColumns);
+    }
+
+    /** Scrolls the parent {@link ScrollPane} so an item is in view. */
+    public void scrollTo(int index){
+        validateRows();
+        int row = index / indexColumns;
+        float top = rows.sum(row), height = rows.get(row);
+        if(parent instanceof ScrollPane){
+            //the scroll pane may not have laid out this list yet
+            parent.validate();
+            ((ScrollPane)parent).scrollTo(0, getHeight() - top - height, getWidth(), height);
+        }
+    }
+
+    /** @return the amount of items in a row. */
+    protected int columns(){
+        return 1;
+    }
+
+    /** @return the height of an item. */
+    protected float itemHeight(int index){
+        float height = adapter.height(index);
+        return height < 0 ? itemHeight : height;
+    }
+
+    /** @return the height of a row, which is the height of its tallest item. */
+    protected float rowHeight(int row, int columns){
+        float height = 0;
+        for(int i = row * columns, n = Math.min(i + columns, adapter.size()); i < n; i++){
+            height = Math.max(height, itemHeight(i));
+        }
+        return height;
+    }
+
+    /** Sets the bounds of an element in its row. */
+    protected void place(Element element, int index, int columns){
+        int row = index / columns, column = index % columns;
+        float width = getWidth() / columns, height = itemHeight(index);
+        element.setBounds(column * width, getHeight() - rows.sum(row) - height, width, height);
+        element.validate();
+    }
+
+    /** Measures the heights of all rows again if the data changed or the amount of columns did. */
+    private void validateRows(){
+        int columns = Math.max(columns(), 1);
+        if(!dataInvalid && columns == indexColumns) return;
+        boolean rebind = dataInvalid;
+        dataInvalid = false;
+        indexColumns = columns;
+        itemsInvalid = true;
+        if(rebind) recycleAll();
+
+        int size = adapter == null ? 0 : adapter.size();
+        int rowCount = (size + columns - 1) / columns;
+        rows.setSize(rowCount, itemHeight);
+        for(int row = 0; row < rowCount; row++){
+            float height = rowHeight(row, columns);
+            if(height != itemHeight) rows.set(row, height);
+        }
+    }
+
+    @Override
+    public float getPrefHeight(){
+        validateRows();
+        return rows.total();
+    }
+
+    @Override
+    public void layout(){
+        float height = rows.total();
+        validateRows();
+        //the amount of columns can depend on the width
+        if(rows.total() != height) invalidateHierarchy();
+        itemsInvalid = true;
+        //without a culling area, elements are bound when drawn, so a scroll pane can set the area first
+        if(cullingArea != null) updateItems();
+    }
+
+    @Override
+    public void setCullingArea(Rect cullingArea){
+        super.setCullingArea(cullingArea);
+        validate();
+        updateItems();
+    }
+
+    @Override
+    public void draw(){
+        validate();
+        updateItems();
+        super.draw();
+    }
+
+    /** Binds elements to the items in view and recycles the elements of items that left the view. */
+    protected void updateItems(){
+        validateRows();
+        int columns = indexColumns;
+        int size = adapter == null ? 0 : adapter.size();
+
+        Rect area = cullingArea != null ? cullingArea : tmpArea.set(0, 0, getWidth(), getHeight());
+        float top = getHeight() - area.y - area.height, bottom = getHeight() - area.y;
+        int first = 0, last = 0;
+        if(size > 0 && bottom >= 0 && top <= rows.total()){
+            int firstRow = Math.max(rows.find(top) - buffer, 0), lastRow = Math.min(rows.find(bottom) + buffer, rows.size - 1);
+            first = firstRow * columns;
+            last = Math.min((lastRow + 1) * columns, size);
+        }
+        if(first == firstItem && last == firstItem + items.size && !itemsInvalid) return;
+
+        //elements of items that stay in view are kept, the others are recycled before new ones are bound
+        Seq<Element> old = items;
+        IntSeq oldTypes = itemTypes;
+        int oldFirst = firstItem;
+        for(int i = 0; i < old.size; i++){
+            int index = oldFirst + i;
+            if(index < first || index >= last) recycle(old.get(i), index, oldTypes.get(i));
+        }
+
+        items = lastItems;
+        itemTypes = lastItemTypes;
+        lastItems = old;
+        lastItemTypes = oldTypes;
+        items.clear();
+        itemTypes.clear();
+        firstItem = first;
+
+        for(int index = first; index < last; index++){
+            int slot = index - oldFirst;
+            Element element;
+            if(slot >= 0 && slot < old.size){
+                element = old.get(slot);
+                itemTypes.add(oldTypes.get(slot));
+                if(itemsInvalid) place(element, index, columns);
+            }else{
+                int type = adapter.type(index);
+                element = obtain(type);
+                adapter.bind(element, index);
+                bound++;
+                itemTypes.add(type);
+                place(element, index, columns);
+            }
+            items.add(element);
+        }
+        old.clear();
+        oldTypes.clear();
+        itemsInvalid = false;
+    }
+
+    private Element obtain(int type){
+        Seq<Element> pool = recycled.get(type);
+        Element element;
+        if(pool != null && pool.size > 0){
+            element = pool.pop();
+        }else{
+            element = adapter.create(type);
+            created++;
+        }
+        addChild(element);
+        return element;
+    }
+
+    private void recycle(Element element, int index, int type){
+        adapter.unbind(element, index);
+        removeChild(element);
+        Seq<Element> pool = recycled.get(type);
+        if(pool == null) recycled.put(type, pool = new Seq<>());
+        pool.add(element);
+    }
+
+    private void recycleAll(){
+        for(int i = 0; i < items.size; i++){
+            recycle(items.get(i), firstItem + i, itemTypes.get(i));
+        }
+        items.clear();
+        itemTypes.clear();
+        firstItem = 0;
+    }
+
+    @Override
+    protected void childrenChanged(){
+        //the size of the list does not depend on its elements
+    }
+
+    @Override
+    public void childInvalidated(Element child){
+        invalidate();
+    }
+
+    /** Creates elements for the items of a {@link ListView} and binds them to items. */
+    public interface Adapter{
+        /** @return the amount of items. */
+        int size();
+
+        /** @return a new element for items of a type. */
+        Element create(int type);
+
+        /** Shows an item in an element created for its type. The element may have shown another item before. */
+        void bind(Element element, int index);
+
+        /** Called when an element stops showing an item, before it is recycled or bound again. */
+        default void unbind(Element element, int index){
+        }
+
+        /** @return the type of an item. Elements are only recycled for items of the same type. */
+        default int type(int index){
+            return 0;
+        }
+
+        /** @return the height of an item, or a negative value to use {@link ListView#itemHeight}. */
+        default float height(int index){
+            return -1f;
+        }
+    }
+}
@@ -454,8 +454,20 @@ public class TextField extends Element implements Disableable{
         if(selectionStart > newDisplayText.length()) selectionStart = textLength;
     }
 
+    @Override
+    public void act(float delta){
+        super.act(delta);
+        //the cursor blinks while drawing, which a render cache skips until something changes
+        Scene stage = getScene();
+        if(stage != null && stage.getKeyboardFocus() == this && !disabled && Core.graphics.isContinuousRendering() &&
+        (Time.nanos() - lastBlink) / 1000000000.0f > blinkTime){
+            invalidateRender();
+        }
+    }
+
     private void blink(){
         if(!Core.graphics.isContinuousRendering()){
+            if(!cursorOn) invalidateRender();
             cursorOn = true;
             return;
         }
@@ -463,6 +475,7 @@ public class TextField extends Element implements Disableable{
         if((time - lastBlink) / 1000000000.0f > blinkTime){
             cursorOn = !cursorOn;
             lastBlink = time;
+            invalidateRender();
         }
     }
 
@@ -40,6 +40,12 @@ public class Cell<T extends Element> implements Poolable{
     int column, row;
     int cellAboveIndex;
     float computedPadTop, computedPadLeft, computedPadBottom, computedPadRight;
+    /** Sizes of the element when the table last measured this cell, with the preferred size clamped to the minimum and maximum. */
+    float measuredMinWidth, measuredMinHeight, measuredPrefWidth, measuredPrefHeight;
+    /** Space given to this cell by the last full layout of the table, used to lay out this cell alone when only its element changed. */
+    float cellX, cellY, cellWidth, weightedWidth, weightedHeight;
+    /** Whether the element of this cell was invalidated since the table was last laid out. */
+    boolean dirty;
     private Table table;
 
     public Cell(){
@@ -673,6 +679,7 @@ public class Cell<T extends Element> implements Poolable{
         element = null;
         table = null;
         endRow = false;
+        dirty = false;
         cellAboveIndex = -1;
 
         Cell defaults = defaults();
@@ -18,6 +18,8 @@ import arc.struct.*;
 import arc.util.*;
 import arc.util.pooling.*;
 
+import java.util.*;
+
 import static arc.Core.*;
 import static arc.scene.ui.layout.Cell.*;
 
@@ -31,6 +33,15 @@ import static arc.scene.ui.layout.Cell.*;
 public class Table extends WidgetGroup{
     private static float[] columnWeightedWidth, rowWeightedHeight;
     private static Pool<Cell> cellPool = Pools.get(Cell.class, Cell::new);
+    private static int layoutDepth;
+
+    /**
+     * Layout counters of all tables, for benchmarks. Partial passes only lay out the cells whose element was invalidated; measured
+     * cells had the sizes of their element requested, and placed cells had their element positioned. Reset with {@link #resetLayoutStats()}.
+     */
+    public static int layoutPasses, partialLayoutPasses, cellsMeasured, cellsPlaced;
+    /** Time spent laying out tables, in nanoseconds. Tables laid out by another table are included in the time of that table. */
+    public static long layoutNanos;
 
     private final Seq<Cell> cells = new Seq<>(4);
     private final Cell cellDefaults;
@@ -44,6 +55,16 @@ public class Table extends WidgetGroup{
     private boolean implicitEndRow;
     private Cell rowDefaults;
     private boolean sizeInvalid = true;
+    /** Whether every cell must be positioned again, as the sizes of rows or columns may have changed. */
+    private boolean boundsInvalid = true;
+    /** Cells whose element was invalidated since the last layout. The first measuredCells of them have been measured. */
+    private Seq<Cell> dirtyCells = new Seq<>(false, 4), placedCells = new Seq<>(false, 4);
+    private int measuredCells;
+    private final ObjectMap<Element, Cell> elementCells = new ObjectMap<>();
+    /** Whether any cell spans columns or is uniform, so a change to one cell can affect the rows and columns of others. */
+    private boolean linkedCells;
+    private float lastLayoutWidth, lastLayoutHeight;
+    private int lastLayoutAlign;
     private float[] columnMinWidth, rowMinHeight;
     private float[] columnPrefWidth, rowPrefHeight;
     private float tableMinWidth, tableMinHeight;
@@ -173,7 +194,40 @@ public class Table extends WidgetGroup{
     @Override
     public void invalidate(){
         sizeInvalid = true;
+        clearDirtyCells();
+        super.invalidate();
+    }
+
+    /**
+     * Marks the cell of the child as changed, so only that cell is measured and laid out again if the sizes of its row and column stay
+     * the same. Like {@link #invalidateHierarchy()}, the parents of this table are invalidated too.
+     */
+    @Override
+    public void childInvalidated(Element child){
+        if(!sizeInvalid){
+            Cell cell = elementCells.get(child);
+            if(cell == null){
+                //children without a cell are laid out with the whole table
+                invalidateHierarchy();
+                return;
+            }
+            if(!cell.dirty){
+                cell.dirty = true;
+                dirtyCells.add(cell);
+            }else{
+                //the cell may have been measured already, cells that did not change again are skipped when measuring
+                measuredCells = 0;
+            }
+        }
         super.invalidate();
+        Group parent = this.parent;
+        if(parent != null) parent.childInvalidated(this);
+    }
+
+    /** Resets the layout counters of all tables. */
+    public static void resetLayoutStats(){
+        layoutPasses = partialLayoutPasses = cellsMeasured = cellsPlaced = 0;
+        layoutNanos = 0;
     }
 
     /** Adds a new cell to the table with the specified element. */
@@ -602,6 +656,7 @@ public class Table extends WidgetGroup{
         }
         cellPool.freeAll(cells);
         cells.clear();
+        elementCells.clear();
         rows = 0;
         columns = 0;
         if(rowDefaults != null) cellPool.free(rowDefaults);
@@ -668,7 +723,7 @@ public class Table extends WidgetGroup{
 
     @Override
     public float getPrefWidth(){
-        if(sizeInvalid) computeSize();
+        validateSize();
         float width = tablePrefWidth;
         if(background != null) return Math.max(width, background.getMinWidth());
         return width;
@@ -676,7 +731,7 @@ public class Table extends WidgetGroup{
 
     @Override
     public float getPrefHeight(){
-        if(sizeInvalid) computeSize();
+        validateSize();
         float height = tablePrefHeight;
         if(background != null) return Math.max(height, background.getMinHeight());
         return height;
@@ -684,13 +739,13 @@ public class Table extends WidgetGroup{
 
     @Override
     public float getMinWidth(){
-        if(sizeInvalid) computeSize();
+        validateSize();
         return tableMinWidth;
     }
 
     @Override
     public float getMinHeight(){
-        if(sizeInvalid) computeSize();
+        validateSize();
         return tableMinHeight;
     }
 
@@ -856,12 +911,46 @@ public class Table extends WidgetGroup{
 
     @Override
     public void layout(){
+        long time = layoutDepth++ == 0 ? Time.nanos() : 0L;
+        try{
+            layoutCells();
+        }finally{
+            if(--layoutDepth == 0) layoutNanos += Time.timeSinceNanos(time);
+        }
+    }
+
+    private void layoutCells(){
         float width = getWidth();
         float height = getHeight();
 
-        layout(0, 0, width, height);
+        validateSize();
+        Seq<Cell> changed = dirtyCells;
+        dirtyCells = placedCells;
+        placedCells = changed;
+        measuredCells = 0;
+        for(int i = 0; i < changed.size; i++){
+            changed.get(i).dirty = false;
+        }
+
+        //when only some elements changed and their rows and columns did not, the other cells stay where they are
+        boolean partial = changed.size > 0 && !boundsInvalid && width == lastLayoutWidth && height == lastLayoutHeight && align == lastLayoutAlign;
+        Seq<Cell> cells;
+        if(partial){
+            partialLayoutPasses++;
+            for(int i = 0; i < changed.size; i++){
+                placeCell(changed.get(i));
+            }
+            cells = changed;
+        }else{
+            layoutPasses++;
+            layout(0, 0, width, height);
+            boundsInvalid = false;
+            lastLayoutWidth = width;
+            lastLayoutHeight = height;
+            lastLayoutAlign = align;
+            cells = this.cells;
+        }
 
-        Seq<Cell> cells = this.cells;
         if(round){
             for(int i = 0, n = cells.size; i < n; i++){
                 Cell c = cells.get(i);
@@ -883,19 +972,146 @@ public class Table extends WidgetGroup{
                 if(actor != null) actor.setBounds(c.elementX, actorY, c.elementWidth, actorHeight);
             }
         }
-        // Validate children separately from sizing actors to ensure actors without a cell are validated.
-        Seq<Element> children = getChildren();
-        for(int i = 0, n = children.size; i < n; i++){
-            Element child = children.get(i);
-            child.validate();
+        if(partial){
+            for(int i = 0; i < changed.size; i++){
+                Element element = changed.get(i).element;
+                if(element != null) element.validate();
+            }
+        }else{
+            // Validate children separately from sizing actors to ensure actors without a cell are validated.
+            Seq<Element> children = getChildren();
+            for(int i = 0, n = children.size; i < n; i++){
+                Element child = children.get(i);
+                child.validate();
+            }
+        }
+        changed.clear();
+    }
+
+    /** Computes the sizes of the table, or only measures the cells that changed if the table was not invalidated. */
+    private void validateSize(){
+        if(sizeInvalid){
+            computeSize();
+        }else if(measuredCells < dirtyCells.size){
+            measureDirtyCells();
+        }
+    }
+
+    private void clearDirtyCells(){
+        for(int i = 0; i < dirtyCells.size; i++){
+            dirtyCells.get(i).dirty = false;
         }
+        dirtyCells.clear();
+        measuredCells = 0;
+    }
+
+    /**
+     * Measures the cells whose element was invalidated. If their sizes changed, the sizes of their rows and columns are updated from
+     * the stored sizes of the other cells, which are not measured again.
+     */
+    private void measureDirtyCells(){
+        float[] oldSizes = null;
+        boolean rescan = false, padChanged = false;
+        for(int i = measuredCells; i < dirtyCells.size; i++){
+            Cell c = dirtyCells.get(i);
+            cellsMeasured++;
+
+            float prefWidth = c.prefWidth();
+            float prefHeight = c.prefHeight();
+            float minWidth = c.minWidth();
+            float minHeight = c.minHeight();
+            float maxWidth = c.maxWidth();
+            float maxHeight = c.maxHeight();
+            if(prefWidth < minWidth) prefWidth = minWidth;
+            if(prefHeight < minHeight) prefHeight = minHeight;
+            if(maxWidth > 0 && prefWidth > maxWidth) prefWidth = maxWidth;
+            if(maxHeight > 0 && prefHeight > maxHeight) prefHeight = maxHeight;
+
+            if(minWidth == c.measuredMinWidth && minHeight == c.measuredMinHeight && prefWidth == c.measuredPrefWidth &&
+            prefHeight == c.measuredPrefHeight && c.padLeft == c.computedPadLeft && c.padTop == c.computedPadTop &&
+            c.padRight == c.computedPadRight && c.padBottom == c.computedPadBottom) continue;
+
+            if(linkedCells || c.colspan != 1 || c.uniformX || c.uniformY){
+                //the sizes of other rows and columns depend on this cell
+                computeSize();
+                return;
+            }
+            if(oldSizes == null) oldSizes = rowAndColumnSizes();
+            //the stored positions of cells include their padding
+            padChanged |= c.padLeft != c.computedPadLeft || c.padTop != c.computedPadTop || c.padRight != c.computedPadRight ||
+            c.padBottom != c.computedPadBottom;
+
+            //rows and columns that grow are updated directly, the ones that may shrink are computed again
+            int column = c.column, row = c.row;
+            float hpadding = c.padLeft + c.padRight, vpadding = c.padTop + c.padBottom;
+            float oldHpadding = c.computedPadLeft + c.computedPadRight, oldVpadding = c.computedPadTop + c.computedPadBottom;
+            rescan |= shrinks(columnMinWidth[column], c.measuredMinWidth + oldHpadding, minWidth + hpadding);
+            rescan |= shrinks(columnPrefWidth[column], c.measuredPrefWidth + oldHpadding, prefWidth + hpadding);
+            rescan |= shrinks(rowMinHeight[row], c.measuredMinHeight + oldVpadding, minHeight + vpadding);
+            rescan |= shrinks(rowPrefHeight[row], c.measuredPrefHeight + oldVpadding, prefHeight + vpadding);
+
+            c.measuredMinWidth = minWidth;
+            c.measuredMinHeight = minHeight;
+            c.measuredPrefWidth = prefWidth;
+            c.measuredPrefHeight = prefHeight;
+            c.computedPadLeft = c.padLeft;
+            c.computedPadTop = c.padTop;
+            c.computedPadRight = c.padRight;
+            c.computedPadBottom = c.padBottom;
+
+            columnMinWidth[column] = Math.max(columnMinWidth[column], minWidth + hpadding);
+            columnPrefWidth[column] = Math.max(columnPrefWidth[column], prefWidth + hpadding);
+            rowMinHeight[row] = Math.max(rowMinHeight[row], minHeight + vpadding);
+            rowPrefHeight[row] = Math.max(rowPrefHeight[row], prefHeight + vpadding);
+        }
+        measuredCells = dirtyCells.size;
+        if(oldSizes == null) return;
+
+        if(rescan){
+            Arrays.fill(columnMinWidth, 0f);
+            Arrays.fill(columnPrefWidth, 0f);
+            Arrays.fill(rowMinHeight, 0f);
+            Arrays.fill(rowPrefHeight, 0f);
+            for(int i = 0, n = cells.size; i < n; i++){
+                Cell c = cells.get(i);
+                int column = c.column, row = c.row;
+                float hpadding = c.computedPadLeft + c.computedPadRight, vpadding = c.computedPadTop + c.computedPadBottom;
+                columnMinWidth[column] = Math.max(columnMinWidth[column], c.measuredMinWidth + hpadding);
+                columnPrefWidth[column] = Math.max(columnPrefWidth[column], c.measuredPrefWidth + hpadding);
+                rowMinHeight[row] = Math.max(rowMinHeight[row], c.measuredMinHeight + vpadding);
+                rowPrefHeight[row] = Math.max(rowPrefHeight[row], c.measuredPrefHeight + vpadding);
+            }
+        }
+        computeTableSize();
+        //if no row, column or padding changed, the changed cells are placed by themselves
+        if(padChanged || !Arrays.equals(oldSizes, rowAndColumnSizes())) boundsInvalid = true;
+    }
+
+    /** @return the minimum and preferred sizes of all columns and rows, in one array. */
+    private float[] rowAndColumnSizes(){
+        float[] out = new float[columns * 2 + rows * 2];
+        System.arraycopy(columnMinWidth, 0, out, 0, columns);
+        System.arraycopy(columnPrefWidth, 0, out, columns, columns);
+        System.arraycopy(rowMinHeight, 0, out, columns * 2, rows);
+        System.arraycopy(rowPrefHeight, 0, out, columns * 2 + rows, rows);
+        return out;
+    }
+
+    /** @return whether a row or column may become smaller when one of its cells changes from the old to the new size. */
+    private static boolean shrinks(float current, float old, float size){
+        return size < old && old >= current;
     }
 
     private void computeSize(){
         sizeInvalid = false;
+        boundsInvalid = true;
+        clearDirtyCells();
+        elementCells.clear();
+        linkedCells = false;
 
         Seq<Cell> cells = this.cells;
         int cellCount = cells.size;
+        cellsMeasured += cellCount;
 
         // Implicitly End the row for layout purposes.
         if(cellCount > 0 && !cells.peek().endRow){
@@ -939,6 +1155,13 @@ public class Table extends WidgetGroup{
             if(maxWidth > 0 && prefWidth > maxWidth) prefWidth = maxWidth;
             if(maxHeight > 0 && prefHeight > maxHeight) prefHeight = maxHeight;
 
+            c.measuredMinWidth = minWidth;
+            c.measuredMinHeight = minHeight;
+            c.measuredPrefWidth = prefWidth;
+            c.measuredPrefHeight = prefHeight;
+            if(c.element != null) elementCells.put(c.element, c);
+            if(colspan != 1 || c.uniformX || c.uniformY) linkedCells = true;
+
             if(colspan == 1){ // Spanned column min and pref width is added later.
                 float hpadding = c.computedPadLeft + c.computedPadRight;
                 columnPrefWidth[column] = Math.max(columnPrefWidth[column], prefWidth + hpadding);
@@ -1027,6 +1250,11 @@ public class Table extends WidgetGroup{
             }
         }
 
+        computeTableSize();
+    }
+
+    /** Determines the table min and pref size from the sizes of rows and columns. */
+    private void computeTableSize(){
         // Determine table min and pref size.
         tableMinWidth = 0;
         tableMinHeight = 0;
@@ -1056,7 +1284,7 @@ public class Table extends WidgetGroup{
         Seq<Cell> cells = this.cells;
         int cellCount = cells.size;
 
-        if(sizeInvalid) computeSize();
+        validateSize();
 
         float padLeft = getMarginLeft();
         float hpadding = padLeft + getMarginRight();
@@ -1066,6 +1294,9 @@ public class Table extends WidgetGroup{
         int columns = this.columns, rows = this.rows;
         float[] expandWidth = this.expandWidth, expandHeight = this.expandHeight;
         float[] columnWidth = this.columnWidth, rowHeight = this.rowHeight;
+        //the sizes may be left from a previous layout, if only some cells were measured since then
+        Arrays.fill(columnWidth, 0f);
+        Arrays.fill(rowHeight, 0f);
 
         float totalExpandWidth = 0, totalExpandHeight = 0;
         for(int i = 0; i < columns; i++)
@@ -1114,20 +1345,8 @@ public class Table extends WidgetGroup{
             for(int ii = column, nn = ii + colspan; ii < nn; ii++)
                 spannedWeightedWidth += columnWeightedWidth[ii];
             float weightedHeight = rowWeightedHeight[row];
-
-            float prefWidth = c.prefWidth();
-            float prefHeight = c.prefHeight();
-            float minWidth = c.minWidth();
-            float minHeight = c.minHeight();
-            float maxWidth = c.maxWidth();
-            float maxHeight = c.maxHeight();
-            if(prefWidth < minWidth) prefWidth = minWidth;
-            if(prefHeight < minHeight) prefHeight = minHeight;
-            if(maxWidth > 0 && prefWidth > maxWidth) prefWidth = maxWidth;
-            if(maxHeight > 0 && prefHeight > maxHeight) prefHeight = maxHeight;
-
-            c.elementWidth = Math.min(spannedWeightedWidth - c.computedPadLeft - c.computedPadRight, prefWidth);
-            c.elementHeight = Math.min(weightedHeight - c.computedPadTop - c.computedPadBottom, prefHeight);
+            c.weightedWidth = spannedWeightedWidth;
+            c.weightedHeight = weightedHeight;
 
             if(colspan == 1) columnWidth[column] = Math.max(columnWidth[column], spannedWeightedWidth);
             rowHeight[row] = Math.max(rowHeight[row], weightedHeight);
@@ -1216,32 +1435,10 @@ public class Table extends WidgetGroup{
 
             currentX += c.computedPadLeft;
 
-            float fillX = c.fillX, fillY = c.fillY;
-            if(fillX > 0){
-                c.elementWidth = Math.max(spannedCellWidth * fillX, c.minWidth());
-                float maxWidth = c.maxWidth;
-                if(maxWidth > 0) c.elementWidth = Math.min(c.elementWidth, maxWidth);
-            }
-            if(fillY > 0){
-                c.elementHeight = Math.max(rowHeight[c.row] * fillY - c.computedPadTop - c.computedPadBottom, c.minHeight());
-                float maxHeight = c.maxHeight();
-                if(maxHeight > 0) c.elementHeight = Math.min(c.elementHeight, maxHeight);
-            }
-
-            align = c.align;
-            if((align & Align.left) != 0)
-                c.elementX = currentX;
-            else if((align & Align.right) != 0)
-                c.elementX = currentX + spannedCellWidth - c.elementWidth;
-            else
-                c.elementX = currentX + (spannedCellWidth - c.elementWidth) / 2;
-
-            if((align & Align.top) != 0)
-                c.elementY = currentY + c.computedPadTop;
-            else if((align & Align.bottom) != 0)
-                c.elementY = currentY + rowHeight[c.row] - c.elementHeight - c.computedPadBottom;
-            else
-                c.elementY = currentY + (rowHeight[c.row] - c.elementHeight + c.computedPadTop - c.computedPadBottom) / 2;
+            c.cellX = currentX;
+            c.cellY = currentY;
+            c.cellWidth = spannedCellWidth;
+            placeCell(c);
 
             if(c.endRow){
                 currentX = x;
@@ -1251,6 +1448,50 @@ public class Table extends WidgetGroup{
         }
     }
 
+    /** Sizes and aligns the element of a cell within the space given to the cell by the last full layout. */
+    private void placeCell(Cell c){
+        cellsPlaced++;
+        float prefWidth = c.prefWidth();
+        float prefHeight = c.prefHeight();
+        float minWidth = c.minWidth();
+        float minHeight = c.minHeight();
+        float maxWidth = c.maxWidth();
+        float maxHeight = c.maxHeight();
+        if(prefWidth < minWidth) prefWidth = minWidth;
+        if(prefHeight < minHeight) prefHeight = minHeight;
+        if(maxWidth > 0 && prefWidth > maxWidth) prefWidth = maxWidth;
+        if(maxHeight > 0 && prefHeight > maxHeight) prefHeight = maxHeight;
+
+        c.elementWidth = Math.min(c.weightedWidth - c.computedPadLeft - c.computedPadRight, prefWidth);
+        c.elementHeight = Math.min(c.weightedHeight - c.computedPadTop - c.computedPadBottom, prefHeight);
+
+        float currentX = c.cellX, currentY = c.cellY, spannedCellWidth = c.cellWidth, rowHeight = this.rowHeight[c.row];
+        float fillX = c.fillX, fillY = c.fillY;
+        if(fillX > 0){
+            c.elementWidth = Math.max(spannedCellWidth * fillX, c.minWidth());
+            if(c.maxWidth > 0) c.elementWidth = Math.min(c.elementWidth, c.maxWidth);
+        }
+        if(fillY > 0){
+            c.elementHeight = Math.max(rowHeight * fillY - c.computedPadTop - c.computedPadBottom, c.minHeight());
+            if(maxHeight > 0) c.elementHeight = Math.min(c.elementHeight, maxHeight);
+        }
+
+        int align = c.align;
+        if((align & Align.left) != 0)
+            c.elementX = currentX;
+        else if((align & Align.right) != 0)
+            c.elementX = currentX + spannedCellWidth - c.elementWidth;
+        else
+            c.elementX = currentX + (spannedCellWidth - c.elementWidth) / 2;
+
+        if((align & Align.top) != 0)
+            c.elementY = currentY + c.computedPadTop;
+        else if((align & Align.bottom) != 0)
+            c.elementY = currentY + rowHeight - c.elementHeight - c.computedPadBottom;
+        else
+            c.elementY = currentY + (rowHeight - c.elementHeight + c.computedPadTop - c.computedPadBottom) / 2;
+    }
+
     public interface DrawRect{
         void draw(float x, float y, float width, float height);
     }
@@ -92,13 +92,14 @@ public class WidgetGroup extends Group{
     @Override
     public void invalidate(){
         needsLayout = true;
+        invalidateRender();
     }
 
     @Override
     public void invalidateHierarchy(){
         invalidate();
         Group parent = this.parent;
-        if(parent != null) parent.invalidateHierarchy();
+        if(parent != null) parent.childInvalidated(this);
     }
 
     @Override
@@ -0,0 +1,175 @@
+package arc.struct;
+
+import arc.files.*;
+
+import java.nio.*;
+import java.nio.channels.FileChannel.*;
+import java.util.*;
+
+/**
+ * A resizable array of long stored outside of the Java heap, in chunks that are never copied. See {@link OffHeapSeq}.
+ * Must be disposed when no longer needed.
+ */
+public class OffHeapLongSeq extends OffHeapSeq{
+    /** Typed views of each chunk. */
+    private LongBuffer[] views = {};
+
+    /** Creates an empty sequence with chunks of {@link #defaultChunkBytes} that are released to the garbage collector. */
+    public OffHeapLongSeq(){
+        this(defaultChunkBytes, false);
+    }
+
+    /** Creates an empty sequence with chunks of {@link #defaultChunkBytes} that can hold at least the specified amount of elements. */
+    public OffHeapLongSeq(int capacity){
+        this(defaultChunkBytes, false);
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * @param chunkBytes Size of each chunk in bytes, must be a power of two.
+     * @param unsafe Whether chunks are freed immediately on {@link #dispose()}. Requires the arc natives.
+     */
+    public OffHeapLongSeq(int chunkBytes, boolean unsafe){
+        super(8, chunkBytes, unsafe);
+    }
+
+    /**
+     * Creates a fixed-size sequence backed by a memory-mapped file of big-endian values, such as one written with
+     * {@link #write(arc.util.io.Writes)} after the 4-byte size has been skipped, or with {@link arc.util.io.Writes#l(long)}.
+     */
+    public static OffHeapLongSeq map(Fi file, MapMode mode){
+        OffHeapLongSeq seq = new OffHeapLongSeq(defaultChunkBytes, false);
+        seq.mapFile(file, mode);
+        return seq;
+    }
+
+    @Override
+    protected void chunkAdded(int index, ByteBuffer chunk){
+        if(index >= views.length) views = Arrays.copyOf(views, Math.max(8, index * 2));
+        views[index] = chunk.asLongBuffer();
+    }
+
+    @Override
+    protected void chunksRemoved(int from){
+        for(int i = from; i < views.length; i++) views[i] = null;
+    }
+
+    public void add(long value){
+        if(size == capacity) ensureCapacity(1);
+        views[size >>> shift].put(size & mask, value);
+        size++;
+    }
+
+    public void addAll(LongSeq array){
+        addAll(array.items, 0, array.size);
+    }
+
+    public void addAll(long... array){
+        addAll(array, 0, array.length);
+    }
+
+    /** Copies elements from an array, one chunk at a time. */
+    public void addAll(long[] array, int offset, int length){
+        if(offset + length > array.length)
+            throw new IllegalArgumentException("offset + length must be <= length: " + offset + " + " + length + " <= " + array.length);
+        ensureCapacity(length);
+        int index = size;
+        while(length > 0){
+            LongBuffer view = views[index >>> shift].duplicate();
+            view.position(index & mask);
+            int count = Math.min(length, view.remaining());
+            view.put(array, offset, count);
+            offset += count;
+            index += count;
+            length -= count;
+        }
+        size = index;
+    }
+
+    public long get(int index){
+        if(index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        return views[index >>> shift].get(index & mask);
+    }
+
+    /** Copies elements starting at the specified index into an array, one chunk at a time. */
+    public void get(int start, long[] out, int offset, int length){
+        if(start + length > size)
+            throw new IndexOutOfBoundsException("start + length can't be > size: " + start + " + " + length + " > " + size);
+        while(length > 0){
+            LongBuffer view = views[start >>> shift].duplicate();
+            view.position(start & mask);
+            int count = Math.min(length, view.remaining());
+            view.get(out, offset, count);
+            offset += count;
+            start += count;
+            length -= count;
+        }
+    }
+
+    public void set(int index, long value){
+        if(index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        views[index >>> shift].put(index & mask, value);
+    }
+
+    public void incr(int index, long value){
+        if(index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        LongBuffer view = views[index >>> shift];
+        view.put(index & mask, view.get(index & mask) + value);
+    }
+
+    public boolean contains(long value){
+        return indexOf(value) != -1;
+    }
+
+    public int indexOf(long value){
+        for(int i = 0; i < size; i++){
+            if(views[i >>> shift].get(i & mask) == value) return i;
+        }
+        return -1;
+    }
+
+    /** Removes and returns the last item. */
+    public long pop(){
+        if(size == 0) throw new IllegalStateException("Array is empty.");
+        size--;
+        return views[size >>> shift].get(size & mask);
+    }
+
+    /** Returns the last item. */
+    public long peek(){
+        if(size == 0) throw new IllegalStateException("Array is empty.");
+        return views[(size - 1) >>> shift].get((size - 1) & mask);
+    }
+
+    /** Returns the first item. */
+    public long first(){
+        if(size == 0) throw new IllegalStateException("Array is empty.");
+        return views[0].get(0);
+    }
+
+    /** Copies all elements into a new heap array. */
+    public long[] toArray(){
+        long[] array = new long[size];
+        get(0, array, 0, size);
+        return array;
+    }
+
+    /** Copies all elements into a new heap sequence. */
+    public LongSeq toSeq(){
+        return new LongSeq(toArray());
+    }
+
+    @Override
+    public String toString(){
+        if(size == 0) return "[]";
+        StringBuilder buffer = new StringBuilder(32);
+        buffer.append('[');
+        buffer.append(get(0));
+        for(int i = 1; i < size; i++){
+            buffer.append(", ");
+            buffer.append(get(i));
+        }
+        buffer.append(']');
+        return buffer.toString();
+    }
+}
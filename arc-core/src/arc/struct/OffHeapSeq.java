@@ -0,0 +1,231 @@
+package arc.struct;
+
+import arc.files.*;
+import arc.util.*;
+import arc.util.io.*;
+
+import java.nio.*;
+import java.nio.channels.FileChannel.*;
+import java.util.*;
+
+/**
+ * Base class for resizable arrays of primitives stored outside of the Java heap, such as {@link OffHeapIntSeq}. Elements are
+ * stored in fixed-size chunks of direct memory, so growing only allocates new chunks and never copies existing elements, and
+ * large arrays do not add to garbage collection work.
+ * <p>
+ * Values are stored big-endian, which is the format used by {@link Writes} and {@link Reads}, so {@link #write(Writes)} and
+ * {@link #read(Reads)} transfer whole chunks of bytes at once.
+ * <p>
+ * Like a {@link arc.graphics.Pixmap}, a sequence must be disposed with {@link #dispose()} when it is no longer needed. Unsafe
+ * sequences are freed immediately, which requires the arc natives. Other sequences release their memory to the garbage
+ * collector, which frees direct memory eventually.
+ */
+public abstract class OffHeapSeq implements Disposable{
+    /** The default size of a chunk in bytes. */
+    public static final int defaultChunkBytes = 1 << 20;
+    /** Size of the buffer used to transfer bytes from and to streams. */
+    private static final int transferBytes = 1 << 16;
+
+    public int size;
+
+    /** Size of an element in bytes. */
+    protected final int elementBytes;
+    /** The element index of the chunk is index >>> shift, and the index within the chunk is index & mask. */
+    protected final int shift, mask;
+    protected final boolean unsafe;
+    protected ByteBuffer[] chunks = {};
+    protected int chunkCount, capacity;
+    /** Whether the chunks are slices of a memory-mapped file, which can not grow. */
+    protected boolean mapped;
+    private boolean disposed;
+
+    /**
+     * @param chunkBytes Size of each chunk in bytes, must be a power of two.
+     * @param unsafe Whether chunks are allocated with {@link Buffers#newUnsafeByteBuffer(int)}, which dispose() frees immediately.
+     */
+    protected OffHeapSeq(int elementBytes, int chunkBytes, boolean unsafe){
+        if(Integer.bitCount(chunkBytes) != 1 || chunkBytes < elementBytes)
+            throw new IllegalArgumentException("chunkBytes must be a power of two >= " + elementBytes + ": " + chunkBytes);
+        this.elementBytes = elementBytes;
+        this.unsafe = unsafe;
+        shift = Integer.numberOfTrailingZeros(chunkBytes / elementBytes);
+        mask = (1 << shift) - 1;
+    }
+
+    /** Called when a chunk is added, so subclasses can create a typed view of it. */
+    protected abstract void chunkAdded(int index, ByteBuffer chunk);
+
+    /** Called when chunks at or after an index are removed. */
+    protected abstract void chunksRemoved(int from);
+
+    /** @return the amount of elements that can be stored without allocating another chunk. */
+    public int capacity(){
+        return capacity;
+    }
+
+    /** @return the amount of elements in a chunk. */
+    public int chunkSize(){
+        return 1 << shift;
+    }
+
+    /** @return whether this sequence is a view of a memory-mapped file. */
+    public boolean isMapped(){
+        return mapped;
+    }
+
+    /** Returns true if the array is empty. */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * Reduces the size of the array to the specified size. If the array is already smaller than the specified size, no action is
+     * taken.
+     */
+    public void truncate(int newSize){
+        if(size > newSize) size = newSize;
+    }
+
+    /** Sets the array size, leaving any values beyond the current size undefined. */
+    public void setSize(int newSize){
+        if(newSize < 0) throw new IllegalArgumentException("newSize must be >= 0: " + newSize);
+        if(newSize > capacity) ensureCapacity(newSize - size);
+        size = newSize;
+    }
+
+    /**
+     * Allocates chunks to accommodate the specified number of additional items. Existing elements are never moved.
+     * @throws IllegalStateException if this sequence is disposed, or mapped and too small.
+     */
+    public void ensureCapacity(int additionalCapacity){
+        if(additionalCapacity < 0) throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
+        long sizeNeeded = (long)size + additionalCapacity;
+        if(sizeNeeded <= capacity) return;
+        if(disposed) throw new IllegalStateException("Sequence is disposed.");
+        if(mapped) throw new IllegalStateException("Memory-mapped sequences can not grow: " + sizeNeeded + " > " + capacity);
+        if(sizeNeeded > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many elements: " + sizeNeeded);
+
+        while(capacity < sizeNeeded){
+            int bytes = elementBytes << shift;
+            ByteBuffer chunk = unsafe ? Buffers.newUnsafeByteBuffer(bytes) : ByteBuffer.allocateDirect(bytes);
+            addChunk(chunk.order(ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    /** Frees the chunks that are not needed for the current size. Mapped sequences are not changed. */
+    public void shrink(){
+        if(mapped) return;
+        int needed = (size + mask) >>> shift;
+        if(needed >= chunkCount) return;
+        for(int i = needed; i < chunkCount; i++){
+            free(chunks[i]);
+            chunks[i] = null;
+        }
+        chunkCount = needed;
+        capacity = needed << shift;
+        chunksRemoved(needed);
+    }
+
+    /** Writes the size, followed by every element. */
+    public void write(Writes write){
+        write.i(size);
+        byte[] transfer = new byte[(int)Math.min(transferBytes, Math.max((long)size * elementBytes, 1))];
+        long remaining = (long)size * elementBytes;
+        for(int i = 0; remaining > 0; i++){
+            ByteBuffer chunk = chunks[i].duplicate();
+            chunk.position(0);
+            int chunkRemaining = (int)Math.min(remaining, chunk.capacity());
+            remaining -= chunkRemaining;
+            while(chunkRemaining > 0){
+                int length = Math.min(chunkRemaining, transfer.length);
+                chunk.get(transfer, 0, length);
+                write.b(transfer, 0, length);
+                chunkRemaining -= length;
+            }
+        }
+    }
+
+    /** Reads elements written with {@link #write(Writes)}, and adds them after the current elements. */
+    public void read(Reads read){
+        int count = read.i();
+        if(count < 0) throw new ArcRuntimeException("Invalid element count: " + count);
+        ensureCapacity(count);
+
+        byte[] transfer = new byte[(int)Math.min(transferBytes, Math.max((long)count * elementBytes, 1))];
+        long remaining = (long)count * elementBytes, position = (long)size * elementBytes;
+        while(remaining > 0){
+            ByteBuffer chunk = chunks[(int)(position / (elementBytes << shift))].duplicate();
+            int offset = (int)(position % (elementBytes << shift));
+            chunk.position(offset);
+            int length = (int)Math.min(Math.min(remaining, transfer.length), chunk.capacity() - offset);
+            read.b(transfer, 0, length);
+            chunk.put(transfer, 0, length);
+            remaining -= length;
+            position += length;
+        }
+        size += count;
+    }
+
+    /**
+     * Replaces the contents of this sequence with a memory-mapped file of big-endian values. The size is the length of the file,
+     * and can not grow. With {@link MapMode#READ_WRITE}, changes are written to the file.
+     */
+    protected void mapFile(Fi file, MapMode mode){
+        if(disposed) throw new IllegalStateException("Sequence is disposed.");
+        ByteBuffer buffer = file.map(mode);
+        if(buffer.capacity() / elementBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("File is too large: " + file);
+
+        chunksRemoved(0);
+        for(int i = 0; i < chunkCount; i++) free(chunks[i]);
+        chunks = new ByteBuffer[0];
+        chunkCount = capacity = 0;
+
+        int count = buffer.capacity() / elementBytes, chunkBytes = elementBytes << shift;
+        for(long offset = 0; offset < (long)count * elementBytes; offset += chunkBytes){
+            buffer.limit((int)Math.min(offset + chunkBytes, (long)count * elementBytes));
+            buffer.position((int)offset);
+            addChunk(buffer.slice().order(ByteOrder.BIG_ENDIAN));
+        }
+        mapped = true;
+        size = capacity = count;
+    }
+
+    private void addChunk(ByteBuffer chunk){
+        if(chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, Math.max(8, chunkCount * 2));
+        chunks[chunkCount] = chunk;
+        chunkAdded(chunkCount++, chunk);
+        capacity += 1 << shift;
+    }
+
+    private void free(ByteBuffer chunk){
+        if(unsafe && !mapped) Buffers.disposeUnsafeByteBuffer(chunk);
+    }
+
+    /**
+     * Releases all chunks. Unsafe chunks are freed immediately. Memory-mapped files stay mapped until the buffers are garbage
+     * collected.
+     */
+    @Override
+    public void dispose(){
+        if(disposed) return;
+        for(int i = 0; i < chunkCount; i++) free(chunks[i]);
+        chunksRemoved(0);
+        chunks = new ByteBuffer[0];
+        chunkCount = capacity = size = 0;
+        disposed = true;
+    }
+
+    @Override
+    public boolean isDisposed(){
+        return disposed;
+    }
+
+    /** @return the amount of bytes allocated for chunks. */
+    public long allocatedBytes(){
+        return (long)capacity * elementBytes;
+    }
+}
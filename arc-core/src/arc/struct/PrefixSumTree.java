@@ -0,0 +1,96 @@
+package arc.struct;
+
+import java.util.*;
+
+/**
+ * A Fenwick tree of float values, which changes a value, sums the values before an index and finds the index at an offset in
+ * logarithmic time. Used as an index of item positions, where each value is the size of an item. Sums are stored as doubles, so
+ * offsets stay exact for large amounts of values.
+ */
+public class PrefixSumTree{
+    /** Number of values. */
+    public int size;
+    private float[] values;
+    /** Sums of ranges of values, from index 1. The range of an index ends at that index and is as long as its lowest set bit. */
+    private double[] tree;
+
+    public PrefixSumTree(){
+        this(16);
+    }
+
+    public PrefixSumTree(int capacity){
+        values = new float[capacity];
+        tree = new double[capacity + 1];
+    }
+
+    /** Sets the amount of values. Every value is set to the specified one. */
+    public void setSize(int size, float value){
+        if(size < 0) throw new IllegalArgumentException("size must be >= 0: " + size);
+        if(size > values.length){
+            values = new float[Math.max(size, values.length * 7 / 4)];
+            tree = new double[values.length + 1];
+        }
+        this.size = size;
+        Arrays.fill(values, 0, size, value);
+        Arrays.fill(tree, 0, size + 1, 0.0);
+        //each range adds itself to the next range that contains it
+        for(int i = 1; i <= size; i++){
+            tree[i] += value;
+            int parent = i + (i & -i);
+            if(parent <= size) tree[parent] += tree[i];
+        }
+    }
+
+    public float get(int index){
+        if(index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        return values[index];
+    }
+
+    public void set(int index, float value){
+        if(index >= size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        double delta = (double)value - values[index];
+        if(delta == 0) return;
+        values[index] = value;
+        for(int i = index + 1; i <= size; i += i & -i){
+            tree[i] += delta;
+        }
+    }
+
+    /** @return the sum of the values before an index. */
+    public float sum(int end){
+        if(end > size) throw new IndexOutOfBoundsException("end can't be > size: " + end + " > " + size);
+        double sum = 0;
+        for(int i = end; i > 0; i -= i & -i){
+            sum += tree[i];
+        }
+        return (float)sum;
+    }
+
+    /** @return the sum of all values. */
+    public float total(){
+        return sum(size);
+    }
+
+    /**
+     * @return the index of the value whose range contains an offset from the start, so that {@code sum(index) <= offset < sum(index + 1)}.
+     * Offsets before the start return 0 and offsets past the end return the last index. Returns -1 if there are no values.
+     */
+    public int find(float offset){
+        if(size == 0) return -1;
+        //descend the tree, skipping every range that ends before the offset
+        int index = 0;
+        double remaining = offset;
+        for(int step = Integer.highestOneBit(size); step > 0; step >>= 1){
+            int next = index + step;
+            if(next <= size && tree[next] <= remaining){
+                index = next;
+                remaining -= tree[next];
+            }
+        }
+        return Math.min(index, size - 1);
+    }
+
+    public void clear(){
+        size = 0;
+    }
+}
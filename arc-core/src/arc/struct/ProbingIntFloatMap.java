@@ -0,0 +1,717 @@
+package arc.struct;
+
+import arc.math.*;
+import arc.util.*;
+
+import java.util.*;
+
+/**
+ * An unordered map where the keys are ints and values are floats, with the same API as {@link IntFloatMap}. This implementation uses linear
+ * probing with Robin Hood hashing: on insertion, a key that is further from its home slot takes the place of one that is closer,
+ * which keeps every probe short even at high load factors. Removal shifts the following keys back instead of leaving tombstones.
+ * Keys and values are stored in two flat arrays, and lookups scan the key array sequentially. No allocation is done except when
+ * growing the table size.
+ * <p>
+ * With {@link #setIncremental(boolean)}, growing the table does not rehash every key at once. The old table is kept, and every
+ * following put, remove or increment moves a few of its slots into the new table. Lookups check both tables until it is empty.
+ */
+public class ProbingIntFloatMap implements Iterable<ProbingIntFloatMap.Entry>{
+    private static final int EMPTY = 0;
+    /** Amount of old slots moved into the new table by each modification during an incremental resize. */
+    private static final int migrationStep = 8;
+
+    public int size;
+
+    int[] keyTable;
+    float[] valueTable;
+    float zeroValue;
+    boolean hasZeroValue;
+
+    private float loadFactor;
+    private int shift, mask, threshold;
+    private boolean incremental;
+
+    //the previous table during an incremental resize; slots are moved in order, starting from an empty slot
+    private int[] oldKeys;
+    private float[] oldValues;
+    private int oldShift, oldMask, migrationStart, migrated;
+
+    private Entries entries1, entries2;
+    private Values values1, values2;
+    private Keys keys1, keys2;
+
+    /** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+    public ProbingIntFloatMap(){
+        this(51, 0.8f);
+    }
+
+    /**
+     * Creates a new map with a load factor of 0.8.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     */
+    public ProbingIntFloatMap(int initialCapacity){
+        this(initialCapacity, 0.8f);
+    }
+
+    /**
+     * Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+     * growing the backing table.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     * @param loadFactor Must be below 1. Robin Hood hashing keeps probes short up to about 0.9.
+     */
+    public ProbingIntFloatMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if(loadFactor <= 0f || loadFactor >= 1f) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+        this.loadFactor = loadFactor;
+
+        int capacity = tableSize(initialCapacity, loadFactor);
+        keyTable = new int[capacity];
+        valueTable = new float[capacity];
+        setTable(capacity);
+    }
+
+    /** Creates a new map identical to the specified map. */
+    public ProbingIntFloatMap(ProbingIntFloatMap map){
+        this(0, map.loadFactor);
+        map.finishResize();
+        keyTable = map.keyTable.clone();
+        valueTable = map.valueTable.clone();
+        setTable(keyTable.length);
+        size = map.size;
+        zeroValue = map.zeroValue;
+        hasZeroValue = map.hasZeroValue;
+        incremental = map.incremental;
+    }
+
+    /** Sets whether growing the table is spread across the following modifications instead of rehashing every key at once. */
+    public void setIncremental(boolean incremental){
+        this.incremental = incremental;
+        if(!incremental) finishResize();
+    }
+
+    public boolean isIncremental(){
+        return incremental;
+    }
+
+    /** @return whether an incremental resize is in progress. */
+    public boolean isResizing(){
+        return oldKeys != null;
+    }
+
+    public void put(int key, float value){
+        if(key == 0){
+            zeroValue = value;
+            if(!hasZeroValue){
+                hasZeroValue = true;
+                size++;
+            }
+            return;
+        }
+
+        migrate();
+        int index = locate(key);
+        if(index >= 0){
+            valueTable[index] = value;
+            return;
+        }
+        if(oldKeys != null && (index = locateOld(key)) >= 0){
+            oldValues[index] = value;
+            return;
+        }
+
+        insert(key, value);
+        if(size++ >= threshold) grow();
+    }
+
+    public void putAll(ProbingIntFloatMap map){
+        for(Entry entry : map.entries())
+            put(entry.key, entry.value);
+    }
+
+    public float get(int key){
+        return get(key, 0);
+    }
+
+    /** @param defaultValue Returned if the key was not associated with a value. */
+    public float get(int key, float defaultValue){
+        if(key == 0) return hasZeroValue ? zeroValue : defaultValue;
+        int index = locate(key);
+        if(index >= 0) return valueTable[index];
+        if(oldKeys != null && (index = locateOld(key)) >= 0) return oldValues[index];
+        return defaultValue;
+    }
+
+    public float increment(int key, float increment){
+        return increment(key, 0, increment);
+    }
+
+    /**
+     * Returns the key's current value and increments the stored value. If the key is not in the map, defaultValue + increment is
+     * put into the map.
+     */
+    public float increment(int key, float defaultValue, float increment){
+        if(key == 0){
+            if(hasZeroValue){
+                float value = zeroValue;
+                zeroValue += increment;
+                return value;
+            }
+            hasZeroValue = true;
+            zeroValue = defaultValue + increment;
+            size++;
+            return defaultValue;
+        }
+
+        migrate();
+        int index = locate(key);
+        if(index >= 0){
+            float value = valueTable[index];
+            valueTable[index] = value + increment;
+            return value;
+        }
+        if(oldKeys != null && (index = locateOld(key)) >= 0){
+            float value = oldValues[index];
+            oldValues[index] = value + increment;
+            return value;
+        }
+
+        insert(key, defaultValue + increment);
+        if(size++ >= threshold) grow();
+        return defaultValue;
+    }
+
+    public float remove(int key, float defaultValue){
+        if(key == 0){
+            if(!hasZeroValue) return defaultValue;
+            hasZeroValue = false;
+            size--;
+            return zeroValue;
+        }
+
+        migrate();
+        int index = locate(key);
+        if(index >= 0){
+            float value = valueTable[index];
+            removeIndex(keyTable, valueTable, index, mask, shift);
+            size--;
+            return value;
+        }
+        if(oldKeys != null && (index = locateOld(key)) >= 0){
+            float value = oldValues[index];
+            removeIndex(oldKeys, oldValues, index, oldMask, oldShift);
+            size--;
+            return value;
+        }
+        return defaultValue;
+    }
+
+    /** Returns true if the map is empty. */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Reduces the size of the backing arrays to be the specified capacity or less. If the capacity is already less, nothing is
+     * done. If the map contains more items than the specified capacity, the next highest power of two capacity is used instead.
+     */
+    public void shrink(int maximumCapacity){
+        if(maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+        int capacity = tableSize(Math.max(size, maximumCapacity), loadFactor);
+        if(keyTable.length > capacity) resize(capacity);
+    }
+
+    /** Clears the map and reduces the size of the backing arrays to be the specified capacity if they are larger. */
+    public void clear(int maximumCapacity){
+        int capacity = tableSize(maximumCapacity, loadFactor);
+        if(keyTable.length <= capacity){
+            clear();
+            return;
+        }
+        oldKeys = null;
+        oldValues = null;
+        hasZeroValue = false;
+        size = 0;
+        keyTable = new int[capacity];
+        valueTable = new float[capacity];
+        setTable(capacity);
+    }
+
+    public void clear(){
+        if(size == 0) return;
+        Arrays.fill(keyTable, EMPTY);
+        oldKeys = null;
+        oldValues = null;
+        size = 0;
+        hasZeroValue = false;
+    }
+
+    /**
+     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may be
+     * an expensive operation.
+     */
+    public boolean containsValue(float value){
+        return hasZeroValue && zeroValue == value || findIndex(keyTable, valueTable, value) >= 0
+        || oldKeys != null && findIndex(oldKeys, oldValues, value) >= 0;
+    }
+
+    /**
+     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may be
+     * an expensive operation.
+     */
+    public boolean containsValue(float value, float epsilon){
+        if(hasZeroValue && Math.abs(zeroValue - value) <= epsilon) return true;
+        return containsValue(keyTable, valueTable, value, epsilon) || oldKeys != null && containsValue(oldKeys, oldValues, value, epsilon);
+    }
+
+    private static boolean containsValue(int[] keyTable, float[] valueTable, float value, float epsilon){
+        for(int i = keyTable.length; i-- > 0; )
+            if(keyTable[i] != EMPTY && Math.abs(valueTable[i] - value) <= epsilon) return true;
+        return false;
+    }
+
+    public boolean containsKey(int key){
+        if(key == 0) return hasZeroValue;
+        return locate(key) >= 0 || oldKeys != null && locateOld(key) >= 0;
+    }
+
+    /**
+     * Returns the key for the specified value, or notFound if it is not in the map. Note this traverses the entire map and compares
+     * every value, which may be an expensive operation.
+     */
+    public int findKey(float value, int notFound){
+        if(hasZeroValue && zeroValue == value) return 0;
+        int index = findIndex(keyTable, valueTable, value);
+        if(index >= 0) return keyTable[index];
+        if(oldKeys != null && (index = findIndex(oldKeys, oldValues, value)) >= 0) return oldKeys[index];
+        return notFound;
+    }
+
+    private static int findIndex(int[] keyTable, float[] valueTable, float value){
+        for(int i = keyTable.length; i-- > 0; )
+            if(keyTable[i] != EMPTY && valueTable[i] == value) return i;
+        return -1;
+    }
+
+    /**
+     * Increases the size of the backing array to accommodate the specified number of additional items. Useful before adding many
+     * items to avoid multiple backing array resizes. This always rehashes at once, even if the map is incremental.
+     */
+    public void ensureCapacity(int additionalCapacity){
+        if(additionalCapacity < 0) throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
+        finishResize();
+        int sizeNeeded = size + additionalCapacity;
+        if(sizeNeeded >= threshold) resize(tableSize(sizeNeeded, loadFactor));
+    }
+
+    /** Moves every remaining key of an incremental resize into the new table. */
+    public void finishResize(){
+        if(oldKeys == null) return;
+        int[] oldKeys = this.oldKeys;
+        float[] oldValues = this.oldValues;
+        this.oldKeys = null;
+        this.oldValues = null;
+        for(int i = 0; i < oldKeys.length; i++){
+            int key = oldKeys[i];
+            if(key != EMPTY) insert(key, oldValues[i]);
+        }
+    }
+
+    /** @return the index of the key in the current table, or -1. */
+    private int locate(int key){
+        int[] keyTable = this.keyTable;
+        int mask = this.mask, shift = this.shift;
+        for(int i = place(key, shift), distance = 0; ; i = i + 1 & mask, distance++){
+            int other = keyTable[i];
+            if(other == key) return i;
+            //a key closer to its home slot than this one means this one would have taken its place
+            if(other == EMPTY || (i - place(other, shift) & mask) < distance) return -1;
+        }
+    }
+
+    /** @return the index of the key in the old table of an incremental resize, or -1. */
+    private int locateOld(int key){
+        int[] oldKeys = this.oldKeys;
+        int mask = oldMask, shift = oldShift, home = place(key, shift), start = home;
+        //slots that were already moved are empty, so the probe starts after them
+        if((home - migrationStart & mask) < migrated) start = migrationStart + migrated & mask;
+        for(int i = start, distance = i - home & mask; ; i = i + 1 & mask, distance++){
+            int other = oldKeys[i];
+            if(other == key) return i;
+            if(other == EMPTY || (i - place(other, shift) & mask) < distance) return -1;
+        }
+    }
+
+    /** Inserts a key that is not in the map into the current table. */
+    private void insert(int key, float value){
+        int[] keyTable = this.keyTable;
+        float[] valueTable = this.valueTable;
+        int mask = this.mask, shift = this.shift;
+        for(int i = place(key, shift), distance = 0; ; i = i + 1 & mask, distance++){
+            int other = keyTable[i];
+            if(other == EMPTY){
+                keyTable[i] = key;
+                valueTable[i] = value;
+                return;
+            }
+            int otherDistance = i - place(other, shift) & mask;
+            if(otherDistance < distance){
+                float otherValue = valueTable[i];
+                keyTable[i] = key;
+                valueTable[i] = value;
+                key = other;
+                value = otherValue;
+                distance = otherDistance;
+            }
+        }
+    }
+
+    /** Removes the key at an index, shifting back the following keys until one is in its home slot. */
+    static void removeIndex(int[] keyTable, float[] valueTable, int index, int mask, int shift){
+        int next = index + 1 & mask, key;
+        while((key = keyTable[next]) != EMPTY && (next - place(key, shift) & mask) != 0){
+            keyTable[index] = key;
+            valueTable[index] = valueTable[next];
+            index = next;
+            next = next + 1 & mask;
+        }
+        keyTable[index] = EMPTY;
+    }
+
+    /** Moves a few slots of an incremental resize into the new table. */
+    private void migrate(){
+        if(oldKeys == null) return;
+        int[] oldKeys = this.oldKeys;
+        float[] oldValues = this.oldValues;
+        for(int i = 0; i < migrationStep; i++){
+            int index = migrationStart + migrated & oldMask, key = oldKeys[index];
+            if(key != EMPTY){
+                insert(key, oldValues[index]);
+                oldKeys[index] = EMPTY;
+            }
+            if(++migrated == oldKeys.length){
+                this.oldKeys = null;
+                this.oldValues = null;
+                return;
+            }
+        }
+    }
+
+    private void grow(){
+        int capacity = keyTable.length << 1;
+        if(!incremental){
+            resize(capacity);
+            return;
+        }
+
+        finishResize();
+        oldKeys = keyTable;
+        oldValues = valueTable;
+        oldMask = mask;
+        oldShift = shift;
+        migrated = 0;
+        migrationStart = 0;
+        //the table is never full, and starting at an empty slot keeps every remaining probe sequence intact
+        while(oldKeys[migrationStart] != EMPTY) migrationStart++;
+
+        keyTable = new int[capacity];
+        valueTable = new float[capacity];
+        setTable(capacity);
+    }
+
+    private void resize(int capacity){
+        finishResize();
+        int[] oldKeyTable = keyTable;
+        float[] oldValueTable = valueTable;
+        keyTable = new int[capacity];
+        valueTable = new float[capacity];
+        setTable(capacity);
+
+        for(int i = 0; i < oldKeyTable.length; i++){
+            int key = oldKeyTable[i];
+            if(key != EMPTY) insert(key, oldValueTable[i]);
+        }
+    }
+
+    private void setTable(int capacity){
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+        //the table grows after the insertion that reaches the threshold, which must still leave a slot empty so probes terminate
+        threshold = Math.min((int)(capacity * loadFactor), capacity - 2);
+    }
+
+    static int tableSize(int capacity, float loadFactor){
+        int size = Mathf.nextPowerOfTwo(Math.max(2, (int)Math.ceil(capacity / loadFactor)));
+        if(size > 1 << 30) throw new IllegalArgumentException("The required capacity is too large: " + capacity);
+        return size;
+    }
+
+    /** Fibonacci hashing: the upper bits of the product are well mixed, even for sequential keys. */
+    static int place(int key, int shift){
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    public int hashCode(){
+        int h = 0;
+        if(hasZeroValue){
+            h += Float.floatToIntBits(zeroValue);
+        }
+        for(Entry entry : new Entries(this)){
+            h += entry.key * 31 + Float.floatToIntBits(entry.value);
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj){
+        if(obj == this) return true;
+        if(!(obj instanceof ProbingIntFloatMap)) return false;
+        ProbingIntFloatMap other = (ProbingIntFloatMap)obj;
+        if(other.size != size) return false;
+        if(other.hasZeroValue != hasZeroValue) return false;
+        if(hasZeroValue && other.zeroValue != zeroValue) return false;
+        for(Entry entry : new Entries(this)){
+            float otherValue = other.get(entry.key, 0f);
+            if(otherValue == 0f && !other.containsKey(entry.key)) return false;
+            if(otherValue != entry.value) return false;
+        }
+        return true;
+    }
+
+    public String toString(){
+        if(size == 0) return "{}";
+        StringBuilder buffer = new StringBuilder(32);
+        buffer.append('{');
+        boolean first = true;
+        for(Entry entry : new Entries(this)){
+            if(!first) buffer.append(", ");
+            first = false;
+            buffer.append(entry.key);
+            buffer.append('=');
+            buffer.append(entry.value);
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+
+    public Iterator<Entry> iterator(){
+        return entries();
+    }
+
+    /**
+     * Returns an iterator for the entries in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Entries entries(){
+        if(entries1 == null){
+            entries1 = new Entries(this);
+            entries2 = new Entries(this);
+        }
+        if(!entries1.valid){
+            entries1.reset();
+            entries1.valid = true;
+            entries2.valid = false;
+            return entries1;
+        }
+        entries2.reset();
+        entries2.valid = true;
+        entries1.valid = false;
+        return entries2;
+    }
+
+    /**
+     * Returns an iterator for the values in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Values values(){
+        if(values1 == null){
+            values1 = new Values(this);
+            values2 = new Values(this);
+        }
+        if(!values1.valid){
+            values1.reset();
+            values1.valid = true;
+            values2.valid = false;
+            return values1;
+        }
+        values2.reset();
+        values2.valid = true;
+        values1.valid = false;
+        return values2;
+    }
+
+    /**
+     * Returns an iterator for the keys in the map. Remove is supported. Note that the same iterator instance is returned each time
+     * this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Keys keys(){
+        if(keys1 == null){
+            keys1 = new Keys(this);
+            keys2 = new Keys(this);
+        }
+        if(!keys1.valid){
+            keys1.reset();
+            keys1.valid = true;
+            keys2.valid = false;
+            return keys1;
+        }
+        keys2.reset();
+        keys2.valid = true;
+        keys1.valid = false;
+        return keys2;
+    }
+
+    public static class Entry{
+        public int key;
+        public float value;
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    /** Iterating finishes an incremental resize first, so only the current table is visited. */
+    private static class MapIterator{
+        static final int INDEX_ILLEGAL = -2;
+        static final int INDEX_ZERO = -1;
+        final ProbingIntFloatMap map;
+        public boolean hasNext;
+        int nextIndex, currentIndex;
+        boolean valid = true;
+
+        public MapIterator(ProbingIntFloatMap map){
+            this.map = map;
+            reset();
+        }
+
+        public void reset(){
+            map.finishResize();
+            currentIndex = INDEX_ILLEGAL;
+            nextIndex = INDEX_ZERO;
+            if(map.hasZeroValue)
+                hasNext = true;
+            else
+                findNextIndex();
+        }
+
+        void findNextIndex(){
+            hasNext = false;
+            int[] keyTable = map.keyTable;
+            for(int n = keyTable.length; ++nextIndex < n; ){
+                if(keyTable[nextIndex] != EMPTY){
+                    hasNext = true;
+                    break;
+                }
+            }
+        }
+
+        public void remove(){
+            if(currentIndex == INDEX_ZERO && map.hasZeroValue){
+                map.hasZeroValue = false;
+            }else if(currentIndex < 0){
+                throw new IllegalStateException("next must be called before remove.");
+            }else{
+                map.finishResize();
+                removeIndex(map.keyTable, map.valueTable, currentIndex, map.mask, map.shift);
+                //a following key may have been shifted into the removed slot
+                if(map.keyTable[currentIndex] != EMPTY){
+                    nextIndex = currentIndex - 1;
+                    findNextIndex();
+                }
+            }
+            currentIndex = INDEX_ILLEGAL;
+            map.size--;
+        }
+    }
+
+    public static class Entries extends MapIterator implements Iterable<Entry>, Iterator<Entry>{
+        private Entry entry = new Entry();
+
+        public Entries(ProbingIntFloatMap map){
+            super(map);
+        }
+
+        /** Note the same entry instance is returned each time this method is called. */
+        public Entry next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            if(nextIndex == INDEX_ZERO){
+                entry.key = 0;
+                entry.value = map.zeroValue;
+            }else{
+                entry.key = map.keyTable[nextIndex];
+                entry.value = map.valueTable[nextIndex];
+            }
+            currentIndex = nextIndex;
+            findNextIndex();
+            return entry;
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public Iterator<Entry> iterator(){
+            return this;
+        }
+
+        public void remove(){
+            super.remove();
+        }
+    }
+
+    public static class Values extends MapIterator{
+        public Values(ProbingIntFloatMap map){
+            super(map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public float next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            float value = nextIndex == INDEX_ZERO ? map.zeroValue : map.valueTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return value;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        public FloatSeq toArray(){
+            FloatSeq array = new FloatSeq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+    }
+
+    public static class Keys extends MapIterator{
+        public Keys(ProbingIntFloatMap map){
+            super(map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public int next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            int key = nextIndex == INDEX_ZERO ? 0 : map.keyTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return key;
+        }
+
+        /** Returns a new array containing the remaining keys. */
+        public IntSeq toArray(){
+            IntSeq array = new IntSeq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+    }
+}
@@ -0,0 +1,692 @@
+package arc.struct;
+
+import arc.func.*;
+import arc.util.*;
+
+import java.util.*;
+
+/**
+ * An unordered map that uses int keys, with the same API as {@link IntMap}. This implementation uses linear probing with Robin
+ * Hood hashing and backward shift deletion, as described in {@link ProbingIntIntMap}. Null values are allowed. No allocation is
+ * done except when growing the table size.
+ * <p>
+ * With {@link #setIncremental(boolean)}, growing the table is spread across the following puts and removes.
+ */
+@SuppressWarnings("unchecked")
+public class ProbingIntMap<V> implements Iterable<ProbingIntMap.Entry<V>>{
+    private static final int EMPTY = 0;
+    private static final int migrationStep = 8;
+
+    public int size;
+
+    int[] keyTable;
+    V[] valueTable;
+    V zeroValue;
+    boolean hasZeroValue;
+
+    private float loadFactor;
+    private int shift, mask, threshold;
+    private boolean incremental;
+
+    //the previous table during an incremental resize; slots are moved in order, starting from an empty slot
+    private int[] oldKeys;
+    private V[] oldValues;
+    private int oldShift, oldMask, migrationStart, migrated;
+
+    private Entries entries1, entries2;
+    private Values values1, values2;
+    private Keys keys1, keys2;
+
+    public static <V> ProbingIntMap<V> of(Object... values){
+        ProbingIntMap<V> map = new ProbingIntMap<>();
+
+        for(int i = 0; i < values.length / 2; i++){
+            Object key = values[i * 2];
+            int keyInt = (key instanceof Character ? ((Character)key).charValue() : (Integer)key);
+            map.put(keyInt, (V)values[i * 2 + 1]);
+        }
+
+        return map;
+    }
+
+    /** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+    public ProbingIntMap(){
+        this(51, 0.8f);
+    }
+
+    /**
+     * Creates a new map with a load factor of 0.8.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     */
+    public ProbingIntMap(int initialCapacity){
+        this(initialCapacity, 0.8f);
+    }
+
+    /**
+     * Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+     * growing the backing table.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     * @param loadFactor Must be below 1.
+     */
+    public ProbingIntMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if(loadFactor <= 0f || loadFactor >= 1f) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+        this.loadFactor = loadFactor;
+
+        int capacity = ProbingIntIntMap.tableSize(initialCapacity, loadFactor);
+        keyTable = new int[capacity];
+        valueTable = (V[])new Object[capacity];
+        setTable(capacity);
+    }
+
+    /** Creates a new map identical to the specified map. */
+    public ProbingIntMap(ProbingIntMap<? extends V> map){
+        this(0, map.loadFactor);
+        map.finishResize();
+        keyTable = map.keyTable.clone();
+        valueTable = (V[])map.valueTable.clone();
+        setTable(keyTable.length);
+        size = map.size;
+        zeroValue = map.zeroValue;
+        hasZeroValue = map.hasZeroValue;
+        incremental = map.incremental;
+    }
+
+    /** Sets whether growing the table is spread across the following modifications instead of rehashing every key at once. */
+    public void setIncremental(boolean incremental){
+        this.incremental = incremental;
+        if(!incremental) finishResize();
+    }
+
+    public boolean isIncremental(){
+        return incremental;
+    }
+
+    /** @return whether an incremental resize is in progress. */
+    public boolean isResizing(){
+        return oldKeys != null;
+    }
+
+    public V put(int key, V value){
+        if(key == 0){
+            V oldValue = zeroValue;
+            zeroValue = value;
+            if(!hasZeroValue){
+                hasZeroValue = true;
+                size++;
+            }
+            return oldValue;
+        }
+
+        migrate();
+        int index = locate(key);
+        if(index >= 0){
+            V oldValue = valueTable[index];
+            valueTable[index] = value;
+            return oldValue;
+        }
+        if(oldKeys != null && (index = locateOld(key)) >= 0){
+            V oldValue = oldValues[index];
+            oldValues[index] = value;
+            return oldValue;
+        }
+
+        insert(key, value);
+        if(size++ >= threshold) grow();
+        return null;
+    }
+
+    public void putAll(ProbingIntMap<? extends V> map){
+        for(Entry<? extends V> entry : map.entries())
+            put(entry.key, entry.value);
+    }
+
+    public V get(int key, Prov<V> defaultValue){
+        V out = get(key);
+        if(out == null){
+            out = defaultValue.get();
+            put(key, out);
+        }
+        return out;
+    }
+
+    public V get(int key){
+        return get(key, (V)null);
+    }
+
+    public V get(int key, V defaultValue){
+        if(key == 0) return hasZeroValue ? zeroValue : defaultValue;
+        int index = locate(key);
+        if(index >= 0) return valueTable[index];
+        if(oldKeys != null && (index = locateOld(key)) >= 0) return oldValues[index];
+        return defaultValue;
+    }
+
+    public V remove(int key){
+        if(key == 0){
+            if(!hasZeroValue) return null;
+            V oldValue = zeroValue;
+            zeroValue = null;
+            hasZeroValue = false;
+            size--;
+            return oldValue;
+        }
+
+        migrate();
+        int index = locate(key);
+        if(index >= 0){
+            V oldValue = valueTable[index];
+            removeIndex(keyTable, valueTable, index, mask, shift);
+            size--;
+            return oldValue;
+        }
+        if(oldKeys != null && (index = locateOld(key)) >= 0){
+            V oldValue = oldValues[index];
+            removeIndex(oldKeys, oldValues, index, oldMask, oldShift);
+            size--;
+            return oldValue;
+        }
+        return null;
+    }
+
+    /** Returns true if the map is empty. */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Reduces the size of the backing arrays to be the specified capacity or less. If the capacity is already less, nothing is
+     * done. If the map contains more items than the specified capacity, the next highest power of two capacity is used instead.
+     */
+    public void shrink(int maximumCapacity){
+        if(maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+        int capacity = ProbingIntIntMap.tableSize(Math.max(size, maximumCapacity), loadFactor);
+        if(keyTable.length > capacity) resize(capacity);
+    }
+
+    /** Clears the map and reduces the size of the backing arrays to be the specified capacity if they are larger. */
+    public void clear(int maximumCapacity){
+        int capacity = ProbingIntIntMap.tableSize(maximumCapacity, loadFactor);
+        if(keyTable.length <= capacity){
+            clear();
+            return;
+        }
+        oldKeys = null;
+        oldValues = null;
+        zeroValue = null;
+        hasZeroValue = false;
+        size = 0;
+        keyTable = new int[capacity];
+        valueTable = (V[])new Object[capacity];
+        setTable(capacity);
+    }
+
+    public void clear(){
+        if(size == 0) return;
+        Arrays.fill(keyTable, EMPTY);
+        Arrays.fill(valueTable, null);
+        oldKeys = null;
+        oldValues = null;
+        size = 0;
+        zeroValue = null;
+        hasZeroValue = false;
+    }
+
+    /**
+     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
+     * be an expensive operation.
+     * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+     * {@link #equals(Object)}.
+     */
+    public boolean containsValue(Object value, boolean identity){
+        if(hasZeroValue && (identity || value == null ? zeroValue == value : value.equals(zeroValue))) return true;
+        return findIndex(keyTable, valueTable, value, identity) >= 0 || oldKeys != null && findIndex(oldKeys, oldValues, value, identity) >= 0;
+    }
+
+    public boolean containsKey(int key){
+        if(key == 0) return hasZeroValue;
+        return locate(key) >= 0 || oldKeys != null && locateOld(key) >= 0;
+    }
+
+    /**
+     * Returns the key for the specified value, or <tt>notFound</tt> if it is not in the map. Note this traverses the entire map
+     * and compares every value, which may be an expensive operation.
+     * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+     * {@link #equals(Object)}.
+     */
+    public int findKey(Object value, boolean identity, int notFound){
+        if(hasZeroValue && (identity || value == null ? zeroValue == value : value.equals(zeroValue))) return 0;
+        int index = findIndex(keyTable, valueTable, value, identity);
+        if(index >= 0) return keyTable[index];
+        if(oldKeys != null && (index = findIndex(oldKeys, oldValues, value, identity)) >= 0) return oldKeys[index];
+        return notFound;
+    }
+
+    private static int findIndex(int[] keyTable, Object[] valueTable, Object value, boolean identity){
+        for(int i = keyTable.length; i-- > 0; ){
+            if(keyTable[i] == EMPTY) continue;
+            if(identity || value == null ? valueTable[i] == value : value.equals(valueTable[i])) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Increases the size of the backing array to accommodate the specified number of additional items. Useful before adding many
+     * items to avoid multiple backing array resizes. This always rehashes at once, even if the map is incremental.
+     */
+    public void ensureCapacity(int additionalCapacity){
+        if(additionalCapacity < 0) throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
+        finishResize();
+        int sizeNeeded = size + additionalCapacity;
+        if(sizeNeeded >= threshold) resize(ProbingIntIntMap.tableSize(sizeNeeded, loadFactor));
+    }
+
+    /** Moves every remaining key of an incremental resize into the new table. */
+    public void finishResize(){
+        if(oldKeys == null) return;
+        int[] oldKeys = this.oldKeys;
+        V[] oldValues = this.oldValues;
+        this.oldKeys = null;
+        this.oldValues = null;
+        for(int i = 0; i < oldKeys.length; i++){
+            int key = oldKeys[i];
+            if(key != EMPTY) insert(key, oldValues[i]);
+        }
+    }
+
+    private int locate(int key){
+        int[] keyTable = this.keyTable;
+        int mask = this.mask, shift = this.shift;
+        for(int i = ProbingIntIntMap.place(key, shift), distance = 0; ; i = i + 1 & mask, distance++){
+            int other = keyTable[i];
+            if(other == key) return i;
+            if(other == EMPTY || (i - ProbingIntIntMap.place(other, shift) & mask) < distance) return -1;
+        }
+    }
+
+    private int locateOld(int key){
+        int[] oldKeys = this.oldKeys;
+        int mask = oldMask, shift = oldShift, home = ProbingIntIntMap.place(key, shift), start = home;
+        if((home - migrationStart & mask) < migrated) start = migrationStart + migrated & mask;
+        for(int i = start, distance = i - home & mask; ; i = i + 1 & mask, distance++){
+            int other = oldKeys[i];
+            if(other == key) return i;
+            if(other == EMPTY || (i - ProbingIntIntMap.place(other, shift) & mask) < distance) return -1;
+        }
+    }
+
+    private void insert(int key, V value){
+        int[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        int mask = this.mask, shift = this.shift;
+        for(int i = ProbingIntIntMap.place(key, shift), distance = 0; ; i = i + 1 & mask, distance++){
+            int other = keyTable[i];
+            if(other == EMPTY){
+                keyTable[i] = key;
+                valueTable[i] = value;
+                return;
+            }
+            int otherDistance = i - ProbingIntIntMap.place(other, shift) & mask;
+            if(otherDistance < distance){
+                V otherValue = valueTable[i];
+                keyTable[i] = key;
+                valueTable[i] = value;
+                key = other;
+                value = otherValue;
+                distance = otherDistance;
+            }
+        }
+    }
+
+    static void removeIndex(int[] keyTable, Object[] valueTable, int index, int mask, int shift){
+        int next = index + 1 & mask, key;
+        while((key = keyTable[next]) != EMPTY && (next - ProbingIntIntMap.place(key, shift) & mask) != 0){
+            keyTable[index] = key;
+            valueTable[index] = valueTable[next];
+            index = next;
+            next = next + 1 & mask;
+        }
+        keyTable[index] = EMPTY;
+        valueTable[index] = null;
+    }
+
+    private void migrate(){
+        if(oldKeys == null) return;
+        int[] oldKeys = this.oldKeys;
+        V[] oldValues = this.oldValues;
+        for(int i = 0; i < migrationStep; i++){
+            int index = migrationStart + migrated & oldMask, key = oldKeys[index];
+            if(key != EMPTY){
+                insert(key, oldValues[index]);
+                oldKeys[index] = EMPTY;
+                oldValues[index] = null;
+            }
+            if(++migrated == oldKeys.length){
+                this.oldKeys = null;
+                this.oldValues = null;
+                return;
+            }
+        }
+    }
+
+    private void grow(){
+        int capacity = keyTable.length << 1;
+        if(!incremental){
+            resize(capacity);
+            return;
+        }
+
+        finishResize();
+        oldKeys = keyTable;
+        oldValues = valueTable;
+        oldMask = mask;
+        oldShift = shift;
+        migrated = 0;
+        migrationStart = 0;
+        while(oldKeys[migrationStart] != EMPTY) migrationStart++;
+
+        keyTable = new int[capacity];
+        valueTable = (V[])new Object[capacity];
+        setTable(capacity);
+    }
+
+    private void resize(int capacity){
+        finishResize();
+        int[] oldKeyTable = keyTable;
+        V[] oldValueTable = valueTable;
+        keyTable = new int[capacity];
+        valueTable = (V[])new Object[capacity];
+        setTable(capacity);
+
+        for(int i = 0; i < oldKeyTable.length; i++){
+            int key = oldKeyTable[i];
+            if(key != EMPTY) insert(key, oldValueTable[i]);
+        }
+    }
+
+    private void setTable(int capacity){
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+        threshold = Math.min((int)(capacity * loadFactor), capacity - 2);
+    }
+
+    public int hashCode(){
+        int h = 0;
+        if(hasZeroValue && zeroValue != null){
+            h += zeroValue.hashCode();
+        }
+        for(Entry<V> entry : new Entries<V>(this)){
+            h += entry.key * 31;
+            if(entry.value != null){
+                h += entry.value.hashCode();
+            }
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj){
+        if(obj == this) return true;
+        if(!(obj instanceof ProbingIntMap)) return false;
+        ProbingIntMap<V> other = (ProbingIntMap)obj;
+        if(other.size != size) return false;
+        if(other.hasZeroValue != hasZeroValue) return false;
+        if(hasZeroValue){
+            if(other.zeroValue == null){
+                if(zeroValue != null) return false;
+            }else{
+                if(!other.zeroValue.equals(zeroValue)) return false;
+            }
+        }
+        for(Entry<V> entry : new Entries<V>(this)){
+            if(entry.value == null){
+                if(!other.containsKey(entry.key) || other.get(entry.key) != null) return false;
+            }else{
+                if(!entry.value.equals(other.get(entry.key))) return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString(){
+        if(size == 0) return "[]";
+        StringBuilder buffer = new StringBuilder(32);
+        buffer.append('[');
+        boolean first = true;
+        for(Entry<V> entry : new Entries<V>(this)){
+            if(!first) buffer.append(", ");
+            first = false;
+            buffer.append(entry.key);
+            buffer.append('=');
+            buffer.append(entry.value);
+        }
+        buffer.append(']');
+        return buffer.toString();
+    }
+
+    public Iterator<Entry<V>> iterator(){
+        return entries();
+    }
+
+    /**
+     * Returns an iterator for the entries in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Entries<V> entries(){
+        if(entries1 == null){
+            entries1 = new Entries(this);
+            entries2 = new Entries(this);
+        }
+        if(!entries1.valid){
+            entries1.reset();
+            entries1.valid = true;
+            entries2.valid = false;
+            return entries1;
+        }
+        entries2.reset();
+        entries2.valid = true;
+        entries1.valid = false;
+        return entries2;
+    }
+
+    /**
+     * Returns an iterator for the values in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Values<V> values(){
+        if(values1 == null){
+            values1 = new Values(this);
+            values2 = new Values(this);
+        }
+        if(!values1.valid){
+            values1.reset();
+            values1.valid = true;
+            values2.valid = false;
+            return values1;
+        }
+        values2.reset();
+        values2.valid = true;
+        values1.valid = false;
+        return values2;
+    }
+
+    /**
+     * Returns an iterator for the keys in the map. Remove is supported. Note that the same iterator instance is returned each time
+     * this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Keys keys(){
+        if(keys1 == null){
+            keys1 = new Keys(this);
+            keys2 = new Keys(this);
+        }
+        if(!keys1.valid){
+            keys1.reset();
+            keys1.valid = true;
+            keys2.valid = false;
+            return keys1;
+        }
+        keys2.reset();
+        keys2.valid = true;
+        keys1.valid = false;
+        return keys2;
+    }
+
+    public static class Entry<V>{
+        public int key;
+        public V value;
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    /** Iterating finishes an incremental resize first, so only the current table is visited. */
+    private static class MapIterator<V>{
+        static final int INDEX_ILLEGAL = -2;
+        static final int INDEX_ZERO = -1;
+        final ProbingIntMap<V> map;
+        public boolean hasNext;
+        int nextIndex, currentIndex;
+        boolean valid = true;
+
+        public MapIterator(ProbingIntMap<V> map){
+            this.map = map;
+            reset();
+        }
+
+        public void reset(){
+            map.finishResize();
+            currentIndex = INDEX_ILLEGAL;
+            nextIndex = INDEX_ZERO;
+            if(map.hasZeroValue)
+                hasNext = true;
+            else
+                findNextIndex();
+        }
+
+        void findNextIndex(){
+            hasNext = false;
+            int[] keyTable = map.keyTable;
+            for(int n = keyTable.length; ++nextIndex < n; ){
+                if(keyTable[nextIndex] != EMPTY){
+                    hasNext = true;
+                    break;
+                }
+            }
+        }
+
+        public void remove(){
+            if(currentIndex == INDEX_ZERO && map.hasZeroValue){
+                map.zeroValue = null;
+                map.hasZeroValue = false;
+            }else if(currentIndex < 0){
+                throw new IllegalStateException("next must be called before remove.");
+            }else{
+                map.finishResize();
+                removeIndex(map.keyTable, map.valueTable, currentIndex, map.mask, map.shift);
+                //a following key may have been shifted into the removed slot
+                if(map.keyTable[currentIndex] != EMPTY){
+                    nextIndex = currentIndex - 1;
+                    findNextIndex();
+                }
+            }
+            currentIndex = INDEX_ILLEGAL;
+            map.size--;
+        }
+    }
+
+    public static class Entries<V> extends MapIterator<V> implements Iterable<Entry<V>>, Iterator<Entry<V>>{
+        private Entry<V> entry = new Entry();
+
+        public Entries(ProbingIntMap map){
+            super(map);
+        }
+
+        /** Note the same entry instance is returned each time this method is called. */
+        public Entry<V> next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            if(nextIndex == INDEX_ZERO){
+                entry.key = 0;
+                entry.value = map.zeroValue;
+            }else{
+                entry.key = map.keyTable[nextIndex];
+                entry.value = map.valueTable[nextIndex];
+            }
+            currentIndex = nextIndex;
+            findNextIndex();
+            return entry;
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public Iterator<Entry<V>> iterator(){
+            return this;
+        }
+
+        public void remove(){
+            super.remove();
+        }
+    }
+
+    public static class Values<V> extends MapIterator<V> implements Iterable<V>, Iterator<V>{
+        public Values(ProbingIntMap<V> map){
+            super(map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public V next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            V value = nextIndex == INDEX_ZERO ? map.zeroValue : map.valueTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return value;
+        }
+
+        public Iterator<V> iterator(){
+            return this;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        public Seq<V> toArray(){
+            Seq array = new Seq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+
+        public void remove(){
+            super.remove();
+        }
+    }
+
+    public static class Keys extends MapIterator{
+        public Keys(ProbingIntMap map){
+            super(map);
+        }
+
+        public int next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            int key = nextIndex == INDEX_ZERO ? 0 : map.keyTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return key;
+        }
+
+        /** Returns a new array containing the remaining keys. */
+        public IntSeq toArray(){
+            IntSeq array = new IntSeq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+    }
+}
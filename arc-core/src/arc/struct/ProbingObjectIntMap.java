@@ -0,0 +1,671 @@
+package arc.struct;
+
+import arc.util.*;
+
+import java.util.*;
+
+/**
+ * An unordered map where the values are ints, with the same API as {@link ObjectIntMap}. This implementation uses linear probing
+ * with Robin Hood hashing and backward shift deletion, as described in {@link ProbingIntIntMap}. Null keys are not allowed. No
+ * allocation is done except when growing the table size.
+ * <p>
+ * Probing compares the home slots of other keys, so {@link Object#hashCode()} should be cheap or cached, as it is for Strings.
+ * With {@link #setIncremental(boolean)}, growing the table is spread across the following puts and removes.
+ */
+@SuppressWarnings("unchecked")
+public class ProbingObjectIntMap<K> implements Iterable<ProbingObjectIntMap.Entry<K>>{
+    private static final int migrationStep = 8;
+
+    public int size;
+
+    K[] keyTable;
+    int[] valueTable;
+
+    private float loadFactor;
+    private int shift, mask, threshold;
+    private boolean incremental;
+
+    //the previous table during an incremental resize; slots are moved in order, starting from an empty slot
+    private K[] oldKeys;
+    private int[] oldValues;
+    private int oldShift, oldMask, migrationStart, migrated;
+
+    private Entries entries1, entries2;
+    private Values values1, values2;
+    private Keys keys1, keys2;
+
+    /** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+    public ProbingObjectIntMap(){
+        this(51, 0.8f);
+    }
+
+    /**
+     * Creates a new map with a load factor of 0.8.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     */
+    public ProbingObjectIntMap(int initialCapacity){
+        this(initialCapacity, 0.8f);
+    }
+
+    /**
+     * Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+     * growing the backing table.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     * @param loadFactor Must be below 1.
+     */
+    public ProbingObjectIntMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if(loadFactor <= 0f || loadFactor >= 1f) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+        this.loadFactor = loadFactor;
+
+        int capacity = ProbingIntIntMap.tableSize(initialCapacity, loadFactor);
+        keyTable = (K[])new Object[capacity];
+        valueTable = new int[capacity];
+        setTable(capacity);
+    }
+
+    /** Creates a new map identical to the specified map. */
+    public ProbingObjectIntMap(ProbingObjectIntMap<? extends K> map){
+        this(0, map.loadFactor);
+        map.finishResize();
+        keyTable = (K[])map.keyTable.clone();
+        valueTable = map.valueTable.clone();
+        setTable(keyTable.length);
+        size = map.size;
+        incremental = map.incremental;
+    }
+
+    /** Sets whether growing the table is spread across the following modifications instead of rehashing every key at once. */
+    public void setIncremental(boolean incremental){
+        this.incremental = incremental;
+        if(!incremental) finishResize();
+    }
+
+    public boolean isIncremental(){
+        return incremental;
+    }
+
+    /** @return whether an incremental resize is in progress. */
+    public boolean isResizing(){
+        return oldKeys != null;
+    }
+
+    public void put(K key, int value){
+        if(key == null) throw new IllegalArgumentException("key cannot be null.");
+
+        migrate();
+        int hash = key.hashCode();
+        int index = locate(key, hash);
+        if(index >= 0){
+            valueTable[index] = value;
+            return;
+        }
+        if(oldKeys != null && (index = locateOld(key, hash)) >= 0){
+            oldValues[index] = value;
+            return;
+        }
+
+        insert(key, hash, value);
+        if(size++ >= threshold) grow();
+    }
+
+    public void putAll(ProbingObjectIntMap<? extends K> map){
+        for(Entry<? extends K> entry : map.entries())
+            put(entry.key, entry.value);
+    }
+
+    public void putAll(Object... values){
+        for(int i = 0; i < values.length / 2; i++){
+            put((K)values[i * 2], (int)values[i * 2 + 1]);
+        }
+    }
+
+    public int get(K key){
+        return get(key, 0);
+    }
+
+    /** @param defaultValue Returned if the key was not associated with a value. */
+    public int get(K key, int defaultValue){
+        int hash = key.hashCode();
+        int index = locate(key, hash);
+        if(index >= 0) return valueTable[index];
+        if(oldKeys != null && (index = locateOld(key, hash)) >= 0) return oldValues[index];
+        return defaultValue;
+    }
+
+    public int increment(K key){
+        return increment(key, 1);
+    }
+
+    public int increment(K key, int amount){
+        return increment(key, 0, amount);
+    }
+
+    /**
+     * Returns the key's current value and increments the stored value. If the key is not in the map, defaultValue + increment is
+     * put into the map.
+     */
+    public int increment(K key, int defaultValue, int increment){
+        if(key == null) throw new IllegalArgumentException("key cannot be null.");
+
+        migrate();
+        int hash = key.hashCode();
+        int index = locate(key, hash);
+        if(index >= 0){
+            int value = valueTable[index];
+            valueTable[index] = value + increment;
+            return value;
+        }
+        if(oldKeys != null && (index = locateOld(key, hash)) >= 0){
+            int value = oldValues[index];
+            oldValues[index] = value + increment;
+            return value;
+        }
+
+        insert(key, hash, defaultValue + increment);
+        if(size++ >= threshold) grow();
+        return defaultValue;
+    }
+
+    public int remove(K key){
+        return remove(key, 0);
+    }
+
+    public int remove(K key, int defaultValue){
+        migrate();
+        int hash = key.hashCode();
+        int index = locate(key, hash);
+        if(index >= 0){
+            int value = valueTable[index];
+            removeIndex(keyTable, valueTable, index, mask, shift);
+            size--;
+            return value;
+        }
+        if(oldKeys != null && (index = locateOld(key, hash)) >= 0){
+            int value = oldValues[index];
+            removeIndex(oldKeys, oldValues, index, oldMask, oldShift);
+            size--;
+            return value;
+        }
+        return defaultValue;
+    }
+
+    /** Returns true if the map is empty. */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Reduces the size of the backing arrays to be the specified capacity or less. If the capacity is already less, nothing is
+     * done. If the map contains more items than the specified capacity, the next highest power of two capacity is used instead.
+     */
+    public void shrink(int maximumCapacity){
+        if(maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+        int capacity = ProbingIntIntMap.tableSize(Math.max(size, maximumCapacity), loadFactor);
+        if(keyTable.length > capacity) resize(capacity);
+    }
+
+    /** Clears the map and reduces the size of the backing arrays to be the specified capacity if they are larger. */
+    public void clear(int maximumCapacity){
+        int capacity = ProbingIntIntMap.tableSize(maximumCapacity, loadFactor);
+        if(keyTable.length <= capacity){
+            clear();
+            return;
+        }
+        oldKeys = null;
+        oldValues = null;
+        size = 0;
+        keyTable = (K[])new Object[capacity];
+        valueTable = new int[capacity];
+        setTable(capacity);
+    }
+
+    public void clear(){
+        if(size == 0) return;
+        Arrays.fill(keyTable, null);
+        oldKeys = null;
+        oldValues = null;
+        size = 0;
+    }
+
+    /**
+     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may be
+     * an expensive operation.
+     */
+    public boolean containsValue(int value){
+        return findIndex(keyTable, valueTable, value) >= 0 || oldKeys != null && findIndex(oldKeys, oldValues, value) >= 0;
+    }
+
+    public boolean containsKey(K key){
+        int hash = key.hashCode();
+        return locate(key, hash) >= 0 || oldKeys != null && locateOld(key, hash) >= 0;
+    }
+
+    /**
+     * Returns the key for the specified value, or null if it is not in the map. Note this traverses the entire map and compares
+     * every value, which may be an expensive operation.
+     */
+    public K findKey(int value){
+        int index = findIndex(keyTable, valueTable, value);
+        if(index >= 0) return keyTable[index];
+        if(oldKeys != null && (index = findIndex(oldKeys, oldValues, value)) >= 0) return oldKeys[index];
+        return null;
+    }
+
+    private static int findIndex(Object[] keyTable, int[] valueTable, int value){
+        for(int i = keyTable.length; i-- > 0; )
+            if(keyTable[i] != null && valueTable[i] == value) return i;
+        return -1;
+    }
+
+    /**
+     * Increases the size of the backing array to accommodate the specified number of additional items. Useful before adding many
+     * items to avoid multiple backing array resizes. This always rehashes at once, even if the map is incremental.
+     */
+    public void ensureCapacity(int additionalCapacity){
+        if(additionalCapacity < 0) throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
+        finishResize();
+        int sizeNeeded = size + additionalCapacity;
+        if(sizeNeeded >= threshold) resize(ProbingIntIntMap.tableSize(sizeNeeded, loadFactor));
+    }
+
+    /** Moves every remaining key of an incremental resize into the new table. */
+    public void finishResize(){
+        if(oldKeys == null) return;
+        K[] oldKeys = this.oldKeys;
+        int[] oldValues = this.oldValues;
+        this.oldKeys = null;
+        this.oldValues = null;
+        for(int i = 0; i < oldKeys.length; i++){
+            K key = oldKeys[i];
+            if(key != null) insert(key, key.hashCode(), oldValues[i]);
+        }
+    }
+
+    private int locate(K key, int hash){
+        K[] keyTable = this.keyTable;
+        int mask = this.mask, shift = this.shift;
+        for(int i = ProbingIntIntMap.place(hash, shift), distance = 0; ; i = i + 1 & mask, distance++){
+            K other = keyTable[i];
+            if(other == null || (i - ProbingIntIntMap.place(other.hashCode(), shift) & mask) < distance) return -1;
+            if(other.equals(key)) return i;
+        }
+    }
+
+    private int locateOld(K key, int hash){
+        K[] oldKeys = this.oldKeys;
+        int mask = oldMask, shift = oldShift, home = ProbingIntIntMap.place(hash, shift), start = home;
+        if((home - migrationStart & mask) < migrated) start = migrationStart + migrated & mask;
+        for(int i = start, distance = i - home & mask; ; i = i + 1 & mask, distance++){
+            K other = oldKeys[i];
+            if(other == null || (i - ProbingIntIntMap.place(other.hashCode(), shift) & mask) < distance) return -1;
+            if(other.equals(key)) return i;
+        }
+    }
+
+    private void insert(K key, int hash, int value){
+        K[] keyTable = this.keyTable;
+        int[] valueTable = this.valueTable;
+        int mask = this.mask, shift = this.shift;
+        for(int i = ProbingIntIntMap.place(hash, shift), distance = 0; ; i = i + 1 & mask, distance++){
+            K other = keyTable[i];
+            if(other == null){
+                keyTable[i] = key;
+                valueTable[i] = value;
+                return;
+            }
+            int otherDistance = i - ProbingIntIntMap.place(other.hashCode(), shift) & mask;
+            if(otherDistance < distance){
+                int otherValue = valueTable[i];
+                keyTable[i] = key;
+                valueTable[i] = value;
+                key = other;
+                value = otherValue;
+                distance = otherDistance;
+            }
+        }
+    }
+
+    static void removeIndex(Object[] keyTable, int[] valueTable, int index, int mask, int shift){
+        int next = index + 1 & mask;
+        Object key;
+        while((key = keyTable[next]) != null && (next - ProbingIntIntMap.place(key.hashCode(), shift) & mask) != 0){
+            keyTable[index] = key;
+            valueTable[index] = valueTable[next];
+            index = next;
+            next = next + 1 & mask;
+        }
+        keyTable[index] = null;
+    }
+
+    private void migrate(){
+        if(oldKeys == null) return;
+        K[] oldKeys = this.oldKeys;
+        int[] oldValues = this.oldValues;
+        for(int i = 0; i < migrationStep; i++){
+            int index = migrationStart + migrated & oldMask;
+            K key = oldKeys[index];
+            if(key != null){
+                insert(key, key.hashCode(), oldValues[index]);
+                oldKeys[index] = null;
+            }
+            if(++migrated == oldKeys.length){
+                this.oldKeys = null;
+                this.oldValues = null;
+                return;
+            }
+        }
+    }
+
+    private void grow(){
+        int capacity = keyTable.length << 1;
+        if(!incremental){
+            resize(capacity);
+            return;
+        }
+
+        finishResize();
+        oldKeys = keyTable;
+        oldValues = valueTable;
+        oldMask = mask;
+        oldShift = shift;
+        migrated = 0;
+        migrationStart = 0;
+        while(oldKeys[migrationStart] != null) migrationStart++;
+
+        keyTable = (K[])new Object[capacity];
+        valueTable = new int[capacity];
+        setTable(capacity);
+    }
+
+    private void resize(int capacity){
+        finishResize();
+        K[] oldKeyTable = keyTable;
+        int[] oldValueTable = valueTable;
+        keyTable = (K[])new Object[capacity];
+        valueTable = new int[capacity];
+        setTable(capacity);
+
+        for(int i = 0; i < oldKeyTable.length; i++){
+            K key = oldKeyTable[i];
+            if(key != null) insert(key, key.hashCode(), oldValueTable[i]);
+        }
+    }
+
+    private void setTable(int capacity){
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+        threshold = Math.min((int)(capacity * loadFactor), capacity - 2);
+    }
+
+    public int hashCode(){
+        int h = 0;
+        for(Entry<K> entry : new Entries<K>(this)){
+            h += entry.key.hashCode() * 31 + entry.value;
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj){
+        if(obj == this) return true;
+        if(!(obj instanceof ProbingObjectIntMap)) return false;
+        ProbingObjectIntMap<K> other = (ProbingObjectIntMap)obj;
+        if(other.size != size) return false;
+        for(Entry<K> entry : new Entries<K>(this)){
+            int otherValue = other.get(entry.key, 0);
+            if(otherValue == 0 && !other.containsKey(entry.key)) return false;
+            if(otherValue != entry.value) return false;
+        }
+        return true;
+    }
+
+    public String toString(){
+        if(size == 0) return "{}";
+        StringBuilder buffer = new StringBuilder(32);
+        buffer.append('{');
+        boolean first = true;
+        for(Entry<K> entry : new Entries<K>(this)){
+            if(!first) buffer.append(", ");
+            first = false;
+            buffer.append(entry.key);
+            buffer.append('=');
+            buffer.append(entry.value);
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+
+    public Entries<K> iterator(){
+        return entries();
+    }
+
+    /**
+     * Returns an iterator for the entries in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Entries<K> entries(){
+        if(entries1 == null){
+            entries1 = new Entries(this);
+            entries2 = new Entries(this);
+        }
+        if(!entries1.valid){
+            entries1.reset();
+            entries1.valid = true;
+            entries2.valid = false;
+            return entries1;
+        }
+        entries2.reset();
+        entries2.valid = true;
+        entries1.valid = false;
+        return entries2;
+    }
+
+    /**
+     * Returns an iterator for the values in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Values values(){
+        if(values1 == null){
+            values1 = new Values(this);
+            values2 = new Values(this);
+        }
+        if(!values1.valid){
+            values1.reset();
+            values1.valid = true;
+            values2.valid = false;
+            return values1;
+        }
+        values2.reset();
+        values2.valid = true;
+        values1.valid = false;
+        return values2;
+    }
+
+    /**
+     * Returns an iterator for the keys in the map. Remove is supported. Note that the same iterator instance is returned each time
+     * this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Keys<K> keys(){
+        if(keys1 == null){
+            keys1 = new Keys(this);
+            keys2 = new Keys(this);
+        }
+        if(!keys1.valid){
+            keys1.reset();
+            keys1.valid = true;
+            keys2.valid = false;
+            return keys1;
+        }
+        keys2.reset();
+        keys2.valid = true;
+        keys1.valid = false;
+        return keys2;
+    }
+
+    public static class Entry<K>{
+        public K key;
+        public int value;
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    /** Iterating finishes an incremental resize first, so only the current table is visited. */
+    private static class MapIterator<K>{
+        final ProbingObjectIntMap<K> map;
+        public boolean hasNext;
+        int nextIndex, currentIndex;
+        boolean valid = true;
+
+        public MapIterator(ProbingObjectIntMap<K> map){
+            this.map = map;
+            reset();
+        }
+
+        public void reset(){
+            map.finishResize();
+            currentIndex = -1;
+            nextIndex = -1;
+            findNextIndex();
+        }
+
+        void findNextIndex(){
+            hasNext = false;
+            K[] keyTable = map.keyTable;
+            for(int n = keyTable.length; ++nextIndex < n; ){
+                if(keyTable[nextIndex] != null){
+                    hasNext = true;
+                    break;
+                }
+            }
+        }
+
+        public void remove(){
+            if(currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
+            map.finishResize();
+            removeIndex(map.keyTable, map.valueTable, currentIndex, map.mask, map.shift);
+            //a following key may have been shifted into the removed slot
+            if(map.keyTable[currentIndex] != null){
+                nextIndex = currentIndex - 1;
+                findNextIndex();
+            }
+            currentIndex = -1;
+            map.size--;
+        }
+    }
+
+    public static class Entries<K> extends MapIterator<K> implements Iterable<Entry<K>>, Iterator<Entry<K>>{
+        private Entry<K> entry = new Entry();
+
+        public Entries(ProbingObjectIntMap<K> map){
+            super(map);
+        }
+
+        public Seq<Entry<K>> toArray(){
+            Seq<Entry<K>> out = new Seq<>();
+            for(Entry<K> entry : this){
+                Entry<K> e = new Entry<>();
+                e.key = entry.key;
+                e.value = entry.value;
+                out.add(e);
+            }
+            return out;
+        }
+
+        /** Note the same entry instance is returned each time this method is called. */
+        public Entry<K> next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            entry.key = map.keyTable[nextIndex];
+            entry.value = map.valueTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return entry;
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public Entries<K> iterator(){
+            return this;
+        }
+
+        public void remove(){
+            super.remove();
+        }
+    }
+
+    public static class Values extends MapIterator<Object>{
+        public Values(ProbingObjectIntMap<?> map){
+            super((ProbingObjectIntMap<Object>)map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public int next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            int value = map.valueTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return value;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        public IntSeq toArray(){
+            IntSeq array = new IntSeq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+    }
+
+    public static class Keys<K> extends MapIterator<K> implements Iterable<K>, Iterator<K>{
+        public Keys(ProbingObjectIntMap<K> map){
+            super(map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public K next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            K key = map.keyTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return key;
+        }
+
+        public Keys<K> iterator(){
+            return this;
+        }
+
+        /** Returns a new array containing the remaining keys. */
+        public Seq<K> toArray(){
+            Seq array = new Seq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+
+        /** Adds the remaining keys to the array. */
+        public Seq<K> toArray(Seq<K> array){
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+
+        public void remove(){
+            super.remove();
+        }
+    }
+}
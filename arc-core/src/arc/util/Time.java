@@ -4,8 +4,6 @@ import arc.*;
 import arc.struct.*;
 import arc.func.*;
 import arc.util.Timer.*;
-import arc.util.pooling.Pool.*;
-import arc.util.pooling.*;
 
 public class Time{
     /** Conversion factors for ticks to other unit values. */
@@ -20,17 +18,31 @@ public class Time{
 
     private static double timeRaw, globalTimeRaw;
 
-    private static Seq<DelayRun> runs = new Seq<>();
-    private static Seq<DelayRun> removal = new Seq<>();
+    private static TimingWheel<Runnable> runs = new TimingWheel<>(1.0, Runnable::run);
     private static LongSeq marks = new LongSeq();
     private static Floatp deltaimpl = () -> Math.min(Core.graphics.getDeltaTime() * 60f, 3f);
 
-    /** Runs a task with a delay of several ticks. If Time.clear() is called, this task will be cancelled. */
+    /**
+     * Runs a task with a delay of several ticks. If Time.clear() is called, this task will be cancelled. Must be called on the
+     * thread that calls {@link #update()}.
+     */
     public static void run(float delay, Runnable r){
-        DelayRun run = Pools.obtain(DelayRun.class, DelayRun::new);
-        run.finish = r;
-        run.delay = delay;
-        runs.add(run);
+        runs.schedule(delay, r);
+    }
+
+    /** Like {@link #run(float, Runnable)}, but may be called from any thread. The delay starts at the next update. */
+    public static void post(float delay, Runnable r){
+        runs.submit(delay, r);
+    }
+
+    /** @return the amount of tasks scheduled with {@link #run(float, Runnable)} that have not run yet. */
+    public static int pendingRuns(){
+        return runs.size();
+    }
+
+    /** @return the amount of tasks that ran in the last update. */
+    public static int expiredRuns(){
+        return runs.lastExpired;
     }
 
     /** Runs a task with a delay of several ticks. Unless the application is closed, this task will always complete. */
@@ -66,7 +78,6 @@ public class Time{
     /** Use normal delta time (e. g. delta * 60) */
     public static void update(){
         timeRaw += delta;
-        removal.clear();
 
         if(Double.isInfinite(timeRaw) || Double.isNaN(timeRaw)){
             timeRaw = 0;
@@ -75,17 +86,7 @@ public class Time{
         time = (float)timeRaw;
         globalTime = (float)globalTimeRaw;
 
-        for(DelayRun run : runs){
-            run.delay -= delta;
-
-            if(run.delay <= 0){
-                run.finish.run();
-                removal.add(run);
-                Pools.free(run);
-            }
-        }
-
-        runs.removeAll(removal);
+        runs.advance(delta);
     }
 
     public static void clear(){
@@ -142,15 +143,4 @@ public class Time{
     public static long timeSinceMillis(long prevTime){
         return millis() - prevTime;
     }
-
-    public static class DelayRun implements Poolable{
-        float delay;
-        Runnable finish;
-
-        @Override
-        public void reset(){
-            delay = 0;
-            finish = null;
-        }
-    }
 }
@@ -7,7 +7,8 @@ import arc.Files;
 import arc.struct.Seq;
 
 /**
- * Executes tasks in the future on the main loop thread.
+ * Executes tasks in the future on the main loop thread. Tasks are kept in a {@link TimingWheel} with a tick of one millisecond,
+ * so scheduling, cancelling and updating do not depend on the amount of tasks.
  * @author Nathan Sweet
  */
 // TimerThread access is synchronized using threadLock.
@@ -17,7 +18,12 @@ public class Timer{
     static final Object threadLock = new Object();
     static TimerThread thread;
 
-    final Seq<Task> tasks = new Seq<>(false, 8);
+    final TimingWheel<Task> wheel = new TimingWheel<>(1.0, this::expire);
+    /** The time of the wheel plus this is the value of System.nanoTime() / 1000000. */
+    final long offsetMillis = System.nanoTime() / 1000000;
+    /** The time of the wheel in the current update. */
+    private long updateMillis;
+    private final Seq<Task> delayed = new Seq<>(false, 16, Task.class);
 
     public Timer(){
         start();
@@ -140,10 +146,10 @@ public class Timer{
             synchronized(task){
                 if(task.timer != null) throw new IllegalArgumentException("The same task may not be scheduled twice.");
                 task.timer = this;
-                task.executeTimeMillis = System.nanoTime() / 1000000 + (long)(delaySeconds * 1000);
+                task.executeTimeMillis = System.nanoTime() / 1000000 - offsetMillis + (long)(delaySeconds * 1000);
                 task.intervalMillis = (long)(intervalSeconds * 1000);
                 task.repeatCount = repeatCount;
-                tasks.add(task);
+                task.handle = wheel.scheduleAt(task.executeTimeMillis, task);
             }
         }
         synchronized(threadLock){
@@ -172,14 +178,13 @@ public class Timer{
 
     /** Cancels all tasks. */
     public synchronized void clear(){
-        for(int i = 0, n = tasks.size; i < n; i++){
-            Task task = tasks.get(i);
+        wheel.each(task -> {
             synchronized(task){
                 task.executeTimeMillis = 0;
                 task.timer = null;
             }
-        }
-        tasks.clear();
+        });
+        wheel.clear();
     }
 
     /**
@@ -187,41 +192,53 @@ public class Timer{
      * instance to prevent tasks being added, removed, or updated.
      */
     public synchronized boolean isEmpty(){
-        return tasks.size == 0;
+        return wheel.size() == 0;
+    }
+
+    /** @return the amount of scheduled tasks. */
+    public synchronized int size(){
+        return wheel.size();
+    }
+
+    /** @return the amount of tasks that were due in the last update of the timer thread. */
+    public synchronized int lastExpired(){
+        return wheel.lastExpired;
     }
 
     synchronized long update(long timeMillis, long waitMillis){
-        for(int i = 0, n = tasks.size; i < n; i++){
-            Task task = tasks.get(i);
-            synchronized(task){
-                if(task.executeTimeMillis > timeMillis){
-                    waitMillis = Math.min(waitMillis, task.executeTimeMillis - timeMillis);
-                    continue;
-                }
-                if(task.repeatCount == 0){
-                    task.timer = null;
-                    tasks.remove(i);
-                    i--;
-                    n--;
-                }else{
-                    task.executeTimeMillis = timeMillis + task.intervalMillis;
-                    waitMillis = Math.min(waitMillis, task.intervalMillis);
-                    if(task.repeatCount > 0) task.repeatCount--;
-                }
-                task.app.post(task);
+        updateMillis = timeMillis - offsetMillis;
+        wheel.advanceTo(updateMillis);
+        double next = wheel.nextTime();
+        if(next != Double.POSITIVE_INFINITY) waitMillis = Math.min(waitMillis, Math.max((long)Math.ceil(next - updateMillis), 0));
+        return waitMillis;
+    }
+
+    private void expire(Task task){
+        synchronized(task){
+            if(task.repeatCount == 0){
+                task.timer = null;
+            }else{
+                task.executeTimeMillis = updateMillis + task.intervalMillis;
+                task.handle = wheel.scheduleAt(task.executeTimeMillis, task);
+                if(task.repeatCount > 0) task.repeatCount--;
             }
+            task.app.post(task);
         }
-        return waitMillis;
     }
 
     /** Adds the specified delay to all tasks. */
     public synchronized void delay(long delayMillis){
-        for(int i = 0, n = tasks.size; i < n; i++){
-            Task task = tasks.get(i);
+        //the wheel can't go back in time, so only the scheduled tasks are moved, and tasks scheduled later keep their delay
+        wheel.each(delayed::add);
+        for(int i = 0; i < delayed.size; i++){
+            Task task = delayed.get(i);
             synchronized(task){
+                wheel.cancel(task.handle);
                 task.executeTimeMillis += delayMillis;
+                task.handle = wheel.scheduleAt(task.executeTimeMillis, task);
             }
         }
+        delayed.clear();
     }
 
     /**
@@ -230,7 +247,8 @@ public class Timer{
      */
     static abstract public class Task implements Runnable{
         final Application app;
-        long executeTimeMillis, intervalMillis;
+        /** The time of the next execution, relative to the time of the timer's wheel. */
+        long executeTimeMillis, intervalMillis, handle;
         int repeatCount;
         volatile Timer timer;
 
@@ -253,7 +271,7 @@ public class Timer{
                     synchronized(this){
                         executeTimeMillis = 0;
                         this.timer = null;
-                        timer.tasks.remove(this, true);
+                        timer.wheel.cancel(handle);
                     }
                 }
             }else{
@@ -281,7 +299,8 @@ public class Timer{
 
         /** Returns the time in milliseconds when this task will be executed next. */
         public synchronized long getExecuteTimeMillis(){
-            return executeTimeMillis;
+            Timer timer = this.timer;
+            return timer == null ? 0 : executeTimeMillis + timer.offsetMillis;
         }
     }
 
@@ -0,0 +1,326 @@
+package arc.util;
+
+import arc.func.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A hierarchical timing wheel, which schedules and cancels tasks in constant time. Time is split into ticks of {@link #tickLength}.
+ * The first wheel has a slot for each of the next 64 ticks, the second wheel a slot for each of the following blocks of 64 ticks,
+ * and so on for {@link #levels} wheels. When time enters the slot of a higher wheel, its tasks move down to the lower wheels, so
+ * a task is moved at most once per wheel. Tasks past the last wheel wait in an overflow list.
+ * <p>
+ * Tasks in the current tick are compared with their exact time on every {@link #advance(double)}, so a task runs as soon as its
+ * delay has passed, like a countdown would. Tasks are given to the {@link #expired} listener in the order of their ticks.
+ * <p>
+ * Scheduling returns a handle that cancels the task; handles of tasks that ran or were cancelled do nothing. The internal task
+ * nodes are pooled. The wheel is not thread-safe, except for {@link #submit(double, Object)}.
+ */
+public class TimingWheel<T>{
+    static final int bits = 6, slots = 1 << bits, mask = slots - 1;
+    /** The amount of wheels. Delays up to 64^levels ticks do not use the overflow list. */
+    public static final int levels = 4;
+    static final int overflowLevel = levels, expiringLevel = levels + 1;
+
+    /** The length of a tick, in the unit of time used for delays. */
+    public final double tickLength;
+    /** Called with every task that is due. May schedule and cancel tasks. */
+    public final Cons<T> expired;
+
+    /** First and last nodes of each slot of each wheel, followed by the overflow and expiring lists. */
+    private final Node[][] heads = new Node[levels + 2][], tails = new Node[levels + 2][];
+    private final ConcurrentLinkedQueue<Submission<T>> submissions = new ConcurrentLinkedQueue<>();
+    private Node[] nodes = new Node[16];
+    private int nodeCount, size;
+    private @Nullable Node free;
+    private double time;
+    /** All slots of ticks before this one have expired. */
+    private long tick;
+
+    /** Tasks that ran in the last call to {@link #advance(double)}, and in total. */
+    public int lastExpired;
+    public long totalExpired;
+
+    public TimingWheel(double tickLength, Cons<T> expired){
+        if(!(tickLength > 0)) throw new IllegalArgumentException("tickLength must be positive: " + tickLength);
+        this.tickLength = tickLength;
+        this.expired = expired;
+        for(int level = 0; level < heads.length; level++){
+            heads[level] = new Node[level < levels ? slots : 1];
+            tails[level] = new Node[level < levels ? slots : 1];
+        }
+    }
+
+    /** Schedules a task that is due after a delay. Must not be called during {@link #advance(double)} on another thread. */
+    public long schedule(double delay, T task){
+        return scheduleAt(time + delay, task);
+    }
+
+    /** Schedules a task that is due at an absolute time. Times that have passed are due on the next advance. */
+    public long scheduleAt(double time, T task){
+        Node node = obtain();
+        node.task = task;
+        node.time = time;
+        node.tick = Math.max((long)Math.floor(time / tickLength), tick);
+        place(node);
+        size++;
+        return ((long)node.generation << 32) | node.index;
+    }
+
+    /**
+     * Schedules a task from any thread. It is added at the start of the next {@link #advance(double)}, with a delay relative to the
+     * time of that advance. Submitted tasks can't be cancelled.
+     */
+    public void submit(double delay, T task){
+        submissions.add(new Submission<>(delay, task));
+    }
+
+    /** Cancels a scheduled task. @return whether the handle belonged to a task that was still scheduled. */
+    public boolean cancel(long handle){
+        Node node = find(handle);
+        if(node == null) return false;
+        unlink(node);
+        release(node);
+        size--;
+        return true;
+    }
+
+    /** @return the task of a handle, or null if it has run or was cancelled. */
+    @SuppressWarnings("unchecked")
+    public @Nullable T get(long handle){
+        Node node = find(handle);
+        return node == null ? null : (T)node.task;
+    }
+
+    /** @return the time a task is due at, or NaN if it has run or was cancelled. */
+    public double getTime(long handle){
+        Node node = find(handle);
+        return node == null ? Double.NaN : node.time;
+    }
+
+    /** Moves time forward and runs every task that is due. */
+    public void advance(double delta){
+        advanceTo(time + delta);
+    }
+
+    /** Moves time to an absolute value and runs every task that is due. Time never moves backwards. */
+    @SuppressWarnings("unchecked")
+    public void advanceTo(double time){
+        Submission<T> submission;
+        while((submission = submissions.poll()) != null){
+            schedule(submission.delay, submission.task);
+        }
+
+        this.time = Math.max(this.time, time);
+        long target = (long)Math.floor(this.time / tickLength);
+        lastExpired = 0;
+
+        if(size == 0){
+            tick = Math.max(tick, target);
+            return;
+        }
+
+        //every task in the slots of past ticks is due
+        while(tick < target){
+            Node node = heads[0][(int)(tick & mask)];
+            while(node != null){
+                Node next = node.next;
+                move(node, expiringLevel, 0);
+                node = next;
+            }
+            tick++;
+            cascade();
+        }
+
+        //tasks in the current tick may not be due yet
+        for(Node node = heads[0][(int)(tick & mask)]; node != null; ){
+            Node next = node.next;
+            if(node.time <= this.time) move(node, expiringLevel, 0);
+            node = next;
+        }
+
+        try{
+            Node node;
+            while((node = heads[expiringLevel][0]) != null){
+                T task = (T)node.task;
+                unlink(node);
+                release(node);
+                size--;
+                lastExpired++;
+                totalExpired++;
+                expired.get(task);
+            }
+        }finally{
+            //if a task failed, the rest run on the next advance
+            while(heads[expiringLevel][0] != null) move(heads[expiringLevel][0], 0, (int)(tick & mask));
+        }
+    }
+
+    /** Moves the tasks of higher wheels that start at the current tick to lower wheels. */
+    private void cascade(){
+        if((tick & ((1L << (bits * levels)) - 1)) == 0) replace(overflowLevel, 0);
+        for(int level = levels - 1; level >= 1; level--){
+            if((tick & ((1L << (bits * level)) - 1)) != 0) continue;
+            replace(level, (int)((tick >>> (bits * level)) & mask));
+        }
+    }
+
+    /** Places every node of a list again. The list is detached first, as nodes may return to it. */
+    private void replace(int level, int slot){
+        Node node = heads[level][slot];
+        heads[level][slot] = tails[level][slot] = null;
+        while(node != null){
+            Node next = node.next;
+            place(node);
+            node = next;
+        }
+    }
+
+    /** Adds a node to the wheel that matches its distance from the current tick. */
+    private void place(Node node){
+        long delta = node.tick - tick;
+        for(int level = 0; level < levels; level++){
+            if(delta < 1L << (bits * (level + 1))){
+                link(node, level, (int)((node.tick >>> (bits * level)) & mask));
+                return;
+            }
+        }
+        link(node, overflowLevel, 0);
+    }
+
+    /**
+     * @return a time that is not after the time of the next task, or positive infinity if there are none. Exact for tasks in the
+     * next 64 ticks, unless a slot of a higher wheel starts before them; for later tasks, the start of the slot that holds them.
+     */
+    public double nextTime(){
+        if(size == 0) return Double.POSITIVE_INFINITY;
+        double min = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < slots; i++){
+            Node node = heads[0][(int)((tick + i) & mask)];
+            if(node == null) continue;
+            for(; node != null; node = node.next) min = Math.min(min, node.time);
+            break;
+        }
+        //slots of higher wheels can start before the first task of the lowest wheel, and their tasks may be due at their start
+        for(int level = 1; level < levels; level++){
+            long block = tick >>> (bits * level);
+            for(int i = 1; i <= slots; i++){
+                if(heads[level][(int)((block + i) & mask)] != null){
+                    min = Math.min(min, ((block + i) << (bits * level)) * tickLength);
+                    break;
+                }
+            }
+        }
+        if(heads[overflowLevel][0] != null){
+            min = Math.min(min, (((tick >>> (bits * levels)) + 1) << (bits * levels)) * tickLength);
+        }
+        return min;
+    }
+
+    /** Calls a function with every scheduled task, in no particular order. */
+    @SuppressWarnings("unchecked")
+    public void each(Cons<T> cons){
+        for(int i = 0; i < nodeCount; i++){
+            if(nodes[i].level >= 0) cons.get((T)nodes[i].task);
+        }
+    }
+
+    /** Cancels every scheduled and submitted task. */
+    public void clear(){
+        for(int i = 0; i < nodeCount; i++){
+            Node node = nodes[i];
+            if(node.level >= 0){
+                unlink(node);
+                release(node);
+            }
+        }
+        submissions.clear();
+        size = 0;
+    }
+
+    /** @return the amount of scheduled tasks. Submitted tasks are counted once they are added. */
+    public int size(){
+        return size;
+    }
+
+    /** @return the current time, which starts at 0. */
+    public double time(){
+        return time;
+    }
+
+    private @Nullable Node find(long handle){
+        int index = (int)handle;
+        if(index < 0 || index >= nodeCount) return null;
+        Node node = nodes[index];
+        return node.level >= 0 && node.generation == (int)(handle >>> 32) ? node : null;
+    }
+
+    private Node obtain(){
+        Node node = free;
+        if(node != null){
+            free = node.next;
+            node.next = null;
+            return node;
+        }
+        if(nodeCount == nodes.length) nodes = Arrays.copyOf(nodes, nodeCount * 2);
+        node = new Node(nodeCount);
+        nodes[nodeCount++] = node;
+        return node;
+    }
+
+    private void release(Node node){
+        node.task = null;
+        node.generation++;
+        node.level = -1;
+        node.next = free;
+        free = node;
+    }
+
+    private void move(Node node, int level, int slot){
+        unlink(node);
+        link(node, level, slot);
+    }
+
+    /** Adds a node to the end of a list. */
+    private void link(Node node, int level, int slot){
+        node.level = level;
+        node.slot = slot;
+        node.prev = tails[level][slot];
+        node.next = null;
+        if(node.prev != null) node.prev.next = node;
+        else heads[level][slot] = node;
+        tails[level][slot] = node;
+    }
+
+    private void unlink(Node node){
+        if(node.prev != null) node.prev.next = node.next;
+        else heads[node.level][node.slot] = node.next;
+        if(node.next != null) node.next.prev = node.prev;
+        else tails[node.level][node.slot] = node.prev;
+        node.prev = node.next = null;
+    }
+
+    static class Node{
+        final int index;
+        int generation, level = -1, slot;
+        long tick;
+        double time;
+        Object task;
+        @Nullable Node prev, next;
+
+        Node(int index){
+            this.index = index;
+        }
+    }
+
+    static class Submission<T>{
+        final double delay;
+        final T task;
+
+        Submission(double delay, T task){
+            this.delay = delay;
+            this.task = task;
+        }
+    }
+}
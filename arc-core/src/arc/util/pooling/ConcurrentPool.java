@@ -0,0 +1,223 @@
+package arc.util.pooling;
+
+import arc.struct.*;
+import arc.util.*;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A thread-safe pool. Each thread obtains and frees objects through two small thread-local magazines, without any locking.
+ * Only when both magazines of a thread are empty (or full) does it exchange a whole magazine with a shared lock-free depot.
+ * <p>
+ * {@link #max} limits the objects held by the depot. Each thread can additionally hold up to two magazines of free objects.
+ * {@link #clear()} only clears the depot and the magazines of the calling thread.
+ * Hits, misses and discards are counted per thread and published every 256 operations of that thread, so they lag behind by
+ * up to 256 operations per thread. The {@link #peak} field is only updated as a hint; use {@link #getPeak()}.
+ * @see Pools#setConcurrent(boolean)
+ */
+@SuppressWarnings("unchecked")
+abstract public class ConcurrentPool<T> extends Pool<T>{
+    private static final int publishInterval = 256;
+
+    /** The amount of objects in one magazine. */
+    public final int magazineSize;
+
+    private final ThreadLocal<Cache> caches = Threads.local(Cache::new);
+    private final AtomicReference<Magazine> depot = new AtomicReference<>();
+    private final AtomicInteger depotSize = new AtomicInteger(), depotPeak = new AtomicInteger();
+    private final AtomicLong totalHits = new AtomicLong(), totalMisses = new AtomicLong(), totalDiscarded = new AtomicLong();
+
+    /** Creates a pool with magazines of 32 objects and no maximum. */
+    public ConcurrentPool(){
+        this(32, Integer.MAX_VALUE);
+    }
+
+    /** @param max The maximum number of free objects to store in the shared depot. */
+    public ConcurrentPool(int magazineSize, int max){
+        super(0, max);
+        if(magazineSize <= 0) throw new IllegalArgumentException("magazineSize must be > 0: " + magazineSize);
+        this.magazineSize = magazineSize;
+    }
+
+    @Override
+    public T obtain(){
+        Cache cache = caches.get();
+
+        if(cache.loadedSize == 0){
+            if(cache.previousSize > 0){
+                cache.swap();
+            }else{
+                Magazine full = pop();
+                if(full == null){
+                    cache.misses++;
+                    cache.count(this);
+                    return newObject();
+                }
+                //the empty loaded array is replaced; the previous one stays as the spare
+                cache.loaded = full.items;
+                cache.loadedSize = full.size;
+            }
+        }
+
+        cache.hits++;
+        cache.count(this);
+        Object[] items = cache.loaded;
+        T object = (T)items[--cache.loadedSize];
+        items[cache.loadedSize] = null;
+        return object;
+    }
+
+    @Override
+    public void free(T object){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        //reset first, so the object is never visible to other threads in an inconsistent state
+        reset(object);
+        Cache cache = caches.get();
+        push(cache, object);
+        cache.count(this);
+    }
+
+    @Override
+    public void freeAll(Seq<T> objects){
+        if(objects == null) throw new IllegalArgumentException("objects cannot be null.");
+        Cache cache = caches.get();
+        for(int i = 0; i < objects.size; i++){
+            T object = objects.get(i);
+            if(object == null) continue;
+            reset(object);
+            push(cache, object);
+        }
+        cache.count(this);
+    }
+
+    private void push(Cache cache, T object){
+        if(cache.loadedSize == magazineSize){
+            if(cache.previousSize < magazineSize){
+                cache.swap();
+            }else if(reserve(cache.previousSize)){
+                Magazine full = new Magazine(cache.previous, cache.previousSize);
+                Magazine head;
+                do{
+                    head = depot.get();
+                    full.next = head;
+                }while(!depot.compareAndSet(head, full));
+
+                cache.previous = new Object[magazineSize];
+                cache.previousSize = 0;
+                cache.swap();
+            }else{
+                cache.discarded++;
+                return;
+            }
+        }
+
+        cache.loaded[cache.loadedSize++] = object;
+    }
+
+    /** Adds to the depot size before a magazine is pushed, so that concurrent pushes can't exceed {@link #max} together. */
+    private boolean reserve(int size){
+        int current;
+        do{
+            current = depotSize.get();
+            if(current > max - size) return false;
+        }while(!depotSize.compareAndSet(current, current + size));
+
+        peak = depotPeak.accumulateAndGet(current + size, Math::max);
+        return true;
+    }
+
+    private Magazine pop(){
+        Magazine head;
+        do{
+            head = depot.get();
+            if(head == null) return null;
+        }while(!depot.compareAndSet(head, head.next));
+
+        depotSize.addAndGet(-head.size);
+        return head;
+    }
+
+    /** Removes all free objects from the depot and from the magazines of the calling thread. */
+    @Override
+    public void clear(){
+        while(pop() != null);
+
+        Cache cache = caches.get();
+        java.util.Arrays.fill(cache.loaded, null);
+        java.util.Arrays.fill(cache.previous, null);
+        cache.loadedSize = cache.previousSize = 0;
+    }
+
+    /** @return the number of objects in the shared depot. Objects in thread magazines are not counted. */
+    @Override
+    public int getFree(){
+        return depotSize.get();
+    }
+
+    @Override
+    public long getHits(){
+        return totalHits.get();
+    }
+
+    @Override
+    public long getMisses(){
+        return totalMisses.get();
+    }
+
+    @Override
+    public long getDiscarded(){
+        return totalDiscarded.get();
+    }
+
+    @Override
+    public int getPeak(){
+        return depotPeak.get();
+    }
+
+    @Override
+    public void resetStats(){
+        totalHits.set(0);
+        totalMisses.set(0);
+        totalDiscarded.set(0);
+        depotPeak.set(0);
+        peak = 0;
+    }
+
+    /** A full magazine in the depot. Nodes are never reused, which rules out ABA problems in the depot stack. */
+    static class Magazine{
+        final Object[] items;
+        final int size;
+        Magazine next;
+
+        Magazine(Object[] items, int size){
+            this.items = items;
+            this.size = size;
+        }
+    }
+
+    class Cache{
+        Object[] loaded = new Object[magazineSize], previous = new Object[magazineSize];
+        int loadedSize, previousSize;
+        long hits, misses, discarded;
+        int operations;
+
+        void swap(){
+            Object[] items = loaded;
+            int size = loadedSize;
+            loaded = previous;
+            loadedSize = previousSize;
+            previous = items;
+            previousSize = size;
+        }
+
+        void count(ConcurrentPool<T> pool){
+            if(++operations >= publishInterval){
+                pool.totalHits.addAndGet(hits);
+                pool.totalMisses.addAndGet(misses);
+                pool.totalDiscarded.addAndGet(discarded);
+                hits = misses = discarded = 0;
+                operations = 0;
+            }
+        }
+    }
+}
@@ -13,6 +13,8 @@ abstract public class Pool<T>{
     private final Seq<T> freeObjects;
     /** The highest number of free objects. Can be reset any time. */
     public int peak;
+    /** Statistics: obtains served from the pool, obtains that created a new object, and frees dropped because the pool was full. */
+    protected long hits, misses, discarded;
 
     /** Creates a pool with an initial capacity of 16 and no maximum. */
     public Pool(){
@@ -37,7 +39,12 @@ abstract public class Pool<T>{
      * {@link #free(Object) freed}).
      */
     public T obtain(){
-        return freeObjects.size == 0 ? newObject() : freeObjects.pop();
+        if(freeObjects.size == 0){
+            misses++;
+            return newObject();
+        }
+        hits++;
+        return freeObjects.pop();
     }
 
     /**
@@ -51,6 +58,8 @@ abstract public class Pool<T>{
         if(freeObjects.size < max){
             freeObjects.add(object);
             peak = Math.max(peak, freeObjects.size);
+        }else{
+            discarded++;
         }
         reset(object);
     }
@@ -77,6 +86,7 @@ abstract public class Pool<T>{
             T object = objects.get(i);
             if(object == null) continue;
             if(freeObjects.size < max) freeObjects.add(object);
+            else discarded++;
             reset(object);
         }
         peak = Math.max(peak, freeObjects.size);
@@ -92,6 +102,32 @@ abstract public class Pool<T>{
         return freeObjects.size;
     }
 
+    /** @return the number of {@link #obtain()} calls that reused a free object. */
+    public long getHits(){
+        return hits;
+    }
+
+    /** @return the number of {@link #obtain()} calls that had to create a new object. */
+    public long getMisses(){
+        return misses;
+    }
+
+    /** @return the number of freed objects that were not pooled, because the pool already held {@link #max} objects. */
+    public long getDiscarded(){
+        return discarded;
+    }
+
+    /** @return the highest number of free objects since the last {@link #resetStats()}. */
+    public int getPeak(){
+        return peak;
+    }
+
+    /** Resets hit, miss and discard counts, as well as {@link #peak}. */
+    public void resetStats(){
+        hits = misses = discarded = 0;
+        peak = 0;
+    }
+
     /** Objects implementing this interface will have {@link #reset()} called when passed to {@link Pool#free(Object)}. */
     public interface Poolable{
         /** Resets the object for reuse. Object references should be nulled and fields may be set to default values. */
@@ -2,19 +2,47 @@ package arc.util.pooling;
 
 import arc.struct.Seq;
 import arc.struct.ObjectMap;
+import arc.func.Cons;
 import arc.func.Prov;
 
 /**
  * Stores a map of {@link Pool}s by type for convenient static access.
+ * <p>
+ * Pool lookups never lock; the map is replaced on every registration. Plain pools are still accessed under a global lock
+ * by {@link #obtain(Class, Prov)} and {@link #free(Object)}. If {@link #setConcurrent(boolean) concurrent mode} is enabled,
+ * new pools are {@link ConcurrentPool}s, which are accessed without any locking.
  * @author Nathan Sweet
  */
 @SuppressWarnings("unchecked")
 public class Pools{
-    private static final ObjectMap<Class, Pool> typePools = new ObjectMap<>();
+    private static volatile ObjectMap<Class, Pool> typePools = new ObjectMap<>();
+    private static boolean concurrent;
+    private static int defaultMax = 5000;
 
     private Pools(){
     }
 
+    /**
+     * If true, pools created by {@link #get(Class, Prov, int)} from now on are {@link ConcurrentPool}s.
+     * Existing pools are not affected. False by default.
+     */
+    public static void setConcurrent(boolean concurrent){
+        Pools.concurrent = concurrent;
+    }
+
+    public static boolean isConcurrent(){
+        return concurrent;
+    }
+
+    /** Sets the max size used by {@link #get(Class, Prov)}. 5000 by default. */
+    public static void setDefaultMax(int max){
+        defaultMax = max;
+    }
+
+    public static int getDefaultMax(){
+        return defaultMax;
+    }
+
     /**
      * Returns a new or existing pool for the specified type, stored in a Class to {@link Pool} map. Note that the max size is ignored for some reason.
      * if this is not the first time this pool has been requested.
@@ -22,41 +50,68 @@ public class Pools{
     public static <T> Pool<T> get(Class<T> type, Prov<T> supplier, int max){
         Pool<T> pool = typePools.get(type);
         if(pool == null){
-            pool = new Pool<T>(4, max){
-                @Override
-                protected T newObject(){
-                    return supplier.get();
+            synchronized(Pools.class){
+                pool = typePools.get(type);
+                if(pool == null){
+                    pool = concurrent ? new ConcurrentPool<T>(32, max){
+                        @Override
+                        protected T newObject(){
+                            return supplier.get();
+                        }
+                    } : new Pool<T>(4, max){
+                        @Override
+                        protected T newObject(){
+                            return supplier.get();
+                        }
+                    };
+                    put(type, pool);
                 }
-            };
-            typePools.put(type, pool);
+            }
         }
         return pool;
     }
 
     /**
      * Returns a new or existing pool for the specified type, stored in a Class to {@link Pool} map. The max size of the pool used
-     * is 5000.
+     * is {@link #getDefaultMax()}.
      */
     public static <T> Pool<T> get(Class<T> type, Prov<T> supplier){
-        return get(type, supplier, 5000);
+        return get(type, supplier, defaultMax);
     }
 
     /** Sets an existing pool for the specified type, stored in a Class to {@link Pool} map. */
-    public static <T> void set(Class<T> type, Pool<T> pool){
-        typePools.put(type, pool);
+    public static synchronized <T> void set(Class<T> type, Pool<T> pool){
+        put(type, pool);
+    }
+
+    /** Runs the consumer for every registered pool, e.g. to log {@link Pool#getHits()} and {@link Pool#getMisses()}. */
+    public static void each(Cons<Pool> cons){
+        for(Pool pool : typePools.values()){
+            cons.get(pool);
+        }
     }
 
     /** Obtains an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized <T> T obtain(Class<T> type, Prov<T> supplier){
-        return get(type, supplier).obtain();
+    public static <T> T obtain(Class<T> type, Prov<T> supplier){
+        Pool<T> pool = get(type, supplier);
+        if(pool instanceof ConcurrentPool) return pool.obtain();
+        synchronized(Pools.class){
+            return pool.obtain();
+        }
     }
 
     /** Frees an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized void free(Object object){
+    public static void free(Object object){
         if(object == null) throw new IllegalArgumentException("Object cannot be null.");
         Pool pool = typePools.get(object.getClass());
         if(pool == null) return; // Ignore freeing an object that was never retained.
-        pool.free(object);
+        if(pool instanceof ConcurrentPool){
+            pool.free(object);
+        }else{
+            synchronized(Pools.class){
+                pool.free(object);
+            }
+        }
     }
 
     /**
@@ -73,6 +128,7 @@ public class Pools{
      */
     public static void freeAll(Seq objects, boolean samePool){
         if(objects == null) throw new IllegalArgumentException("Objects cannot be null.");
+        ObjectMap<Class, Pool> typePools = Pools.typePools;
         Pool pool = null;
         for(int i = 0, n = objects.size; i < n; i++){
             Object object = objects.get(i);
@@ -85,4 +141,11 @@ public class Pools{
             if(!samePool) pool = null;
         }
     }
+
+    //copy-on-write, so that lookups can happen without locking; must be called while holding the lock
+    private static void put(Class type, Pool pool){
+        ObjectMap<Class, Pool> copy = new ObjectMap<>(typePools);
+        copy.put(type, pool);
+        typePools = copy;
+    }
 }
@@ -0,0 +1,312 @@
+import arc.assets.*;
+import arc.assets.loaders.*;
+import arc.func.*;
+import arc.files.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class AssetManagerTest{
+    static final FileHandleResolver resolver = Fi::new;
+
+    /** Loaded asynchronously; names like "a.data:5" sleep for 5 ms while loading. */
+    static class Data{
+        final String name;
+
+        Data(String name){
+            this.name = name;
+        }
+    }
+
+    /** Loaded synchronously after all of the data in its parameter. */
+    static class Bundle{
+        final Seq<Data> data = new Seq<>();
+    }
+
+    static class BundleParameter extends AssetLoaderParameters<Bundle>{
+        final String[] dependencies;
+
+        BundleParameter(String... dependencies){
+            this.dependencies = dependencies;
+        }
+    }
+
+    static class DataLoader extends AsynchronousAssetLoader<Data, AssetLoaderParameters<Data>>{
+        final AtomicInteger running = new AtomicInteger(), peak = new AtomicInteger(), prepared = new AtomicInteger();
+        final boolean concurrent;
+        //only used when not concurrent, like the state most loaders keep between steps
+        String current;
+
+        DataLoader(boolean concurrent){
+            super(resolver);
+            this.concurrent = concurrent;
+        }
+
+        @Override
+        public void loadAsync(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Data> parameter){
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            current = fileName;
+            if(fileName.endsWith("error")) throw new IllegalArgumentException("broken: " + fileName);
+            int split = fileName.indexOf(':');
+            if(split != -1) Threads.sleep(Integer.parseInt(fileName.substring(split + 1)));
+            running.decrementAndGet();
+            prepared.incrementAndGet();
+        }
+
+        @Override
+        public Data loadSync(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Data> parameter){
+            if(!concurrent && !fileName.equals(current)) throw new IllegalStateException("Loader state was overwritten: " + current);
+            prepared.decrementAndGet();
+            return new Data(fileName);
+        }
+
+        @Override
+        public void unloadAsync(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Data> parameter){
+            prepared.decrementAndGet();
+        }
+
+        @Override
+        public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, AssetLoaderParameters<Data> parameter){
+            return null;
+        }
+
+        @Override
+        public boolean isConcurrent(){
+            return concurrent;
+        }
+    }
+
+    static class BundleLoader extends SynchronousAssetLoader<Bundle, BundleParameter>{
+
+        BundleLoader(){
+            super(resolver);
+        }
+
+        @Override
+        public Bundle load(AssetManager manager, String fileName, Fi file, BundleParameter parameter){
+            Bundle bundle = new Bundle();
+            for(String name : parameter.dependencies){
+                bundle.data.add(manager.get(name, Data.class));
+            }
+            return bundle;
+        }
+
+        @Override
+        public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, BundleParameter parameter){
+            Seq<AssetDescriptor> result = new Seq<>();
+            for(String name : parameter.dependencies){
+                result.add(new AssetDescriptor<>(name, Data.class));
+            }
+            return result;
+        }
+    }
+
+    /** Loaded synchronously by a loader that keeps the name of its asset between getDependencies and load. */
+    static class Left{
+        final String name;
+
+        Left(String name){
+            this.name = name;
+        }
+    }
+
+    static class Right extends Left{
+        Right(String name){
+            super(name);
+        }
+    }
+
+    static class LinkParameter<T> extends AssetLoaderParameters<T>{
+        final AssetDescriptor[] dependencies;
+
+        LinkParameter(AssetDescriptor... dependencies){
+            this.dependencies = dependencies;
+        }
+    }
+
+    static class LinkLoader<T> extends SynchronousAssetLoader<T, LinkParameter<T>>{
+        final Func<String, T> constructor;
+        String current;
+
+        LinkLoader(Func<String, T> constructor){
+            super(resolver);
+            this.constructor = constructor;
+        }
+
+        @Override
+        public T load(AssetManager manager, String fileName, Fi file, LinkParameter<T> parameter){
+            if(!fileName.equals(current)) throw new IllegalStateException("Loader state was overwritten: " + current);
+            return constructor.get(fileName);
+        }
+
+        @Override
+        public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, LinkParameter<T> parameter){
+            current = fileName;
+            return parameter == null ? null : Seq.with(parameter.dependencies);
+        }
+    }
+
+    static AssetManager manager(int threads, boolean concurrent){
+        AssetManager manager = new AssetManager(resolver, false);
+        manager.setLoader(Data.class, new DataLoader(concurrent));
+        manager.setLoader(Bundle.class, new BundleLoader());
+        manager.setParallel(threads);
+        return manager;
+    }
+
+    static void loadBundles(AssetManager manager){
+        manager.load("a.bundle", Bundle.class, new BundleParameter("1.data:2", "2.data:1", "shared.data:3"));
+        manager.load("b.bundle", Bundle.class, new BundleParameter("shared.data:3", "3.data"));
+        manager.load("shared.data:3", Data.class);
+        manager.load("c.bundle", Bundle.class, new BundleParameter("3.data"));
+    }
+
+    @Test
+    public void dependencies(){
+        AssetManager sequential = manager(0, true), parallel = manager(4, true);
+        loadBundles(sequential);
+        loadBundles(parallel);
+        sequential.finishLoading();
+        parallel.finishLoading();
+
+        assertEquals(sequential.getLoadedAssets(), parallel.getLoadedAssets());
+        for(String name : sequential.getAssetNames()){
+            assertEquals(name, sequential.getReferenceCount(name), parallel.getReferenceCount(name));
+        }
+        assertEquals(3, parallel.getReferenceCount("shared.data:3"));
+        assertEquals(3, parallel.get("a.bundle", Bundle.class).data.size);
+        assertEquals(1f, parallel.getProgress(), 0.0001f);
+        assertEquals(parallel.getLoadedAssets(), parallel.getTimings().size);
+
+        parallel.unload("a.bundle");
+        assertFalse(parallel.isLoaded("1.data:2"));
+        assertEquals(2, parallel.getReferenceCount("shared.data:3"));
+
+        parallel.clear();
+        assertEquals(0, parallel.getLoadedAssets());
+        parallel.dispose();
+        sequential.dispose();
+    }
+
+    @Test
+    public void nonConcurrentLoader(){
+        AssetManager manager = manager(8, false);
+        for(int i = 0; i < 16; i++){
+            manager.load(i + ".data:1", Data.class);
+        }
+        manager.finishLoading();
+
+        assertEquals(16, manager.getLoadedAssets());
+        assertEquals(1, ((DataLoader)manager.getLoader(Data.class)).peak.get());
+        manager.dispose();
+    }
+
+    @Test
+    public void interdependentLoaders(){
+        AssetManager manager = manager(2, true);
+        manager.setLoader(Left.class, new LinkLoader<>(Left::new));
+        manager.setLoader(Right.class, new LinkLoader<>(Right::new));
+
+        //a.right and a.left start once the slow asset is loaded, and each holds its loader while waiting for an asset of the other
+        manager.load("first.right", Right.class, new LinkParameter<Right>(new AssetDescriptor<>("slow.data:5", Data.class)));
+        manager.load("a.right", Right.class, new LinkParameter<Right>(new AssetDescriptor<>("b.left", Left.class)));
+        manager.load("a.left", Left.class, new LinkParameter<Left>(new AssetDescriptor<>("b.right", Right.class)));
+
+        boolean done = false;
+        for(int i = 0; i < 1000 && !done; i++){
+            done = manager.update();
+            Threads.sleep(1);
+        }
+        assertTrue(done);
+        assertEquals(6, manager.getLoadedAssets());
+        assertEquals("a.right", manager.get("a.right", Right.class).name);
+        assertEquals(1, manager.getReferenceCount("b.left"));
+        manager.dispose();
+    }
+
+    @Test
+    public void errors(){
+        AssetManager manager = manager(4, true);
+        Throwable[] error = {null};
+
+        AssetDescriptor<Bundle> broken = manager.load("broken.bundle", Bundle.class, new BundleParameter("1.data", "bad.error"));
+        manager.load("good.bundle", Bundle.class, new BundleParameter("1.data", "2.data:2"));
+        //the dependency was never given an error handler, so update throws
+        try{
+            manager.finishLoading();
+            fail();
+        }catch(ArcRuntimeException e){
+            error[0] = e;
+        }
+        assertNotNull(error[0]);
+        assertFalse(manager.contains(broken.fileName));
+
+        manager.finishLoading();
+        assertTrue(manager.isLoaded("good.bundle"));
+        assertEquals(1, manager.getReferenceCount("1.data"));
+        assertFalse(manager.isLoaded("bad.error"));
+        manager.dispose();
+    }
+
+    @Test
+    public void cancelAfterAsync(){
+        AssetManager manager = manager(2, true);
+        DataLoader loader = (DataLoader)manager.getLoader(Data.class);
+        manager.setSyncBudget(0f);
+
+        //both are loaded asynchronously, then only the first one gets its synchronous step
+        manager.load("a.data:10", Data.class);
+        manager.load("b.data:10", Data.class);
+        manager.update();
+        Threads.sleep(50);
+        manager.update();
+        //either may finish first
+        String waiting = manager.isLoaded("a.data:10") ? "b.data:10" : "a.data:10";
+        assertEquals(1, manager.getLoadedAssets());
+        assertEquals(1, loader.prepared.get());
+
+        //waiting for its synchronous step
+        manager.unload(waiting);
+        assertEquals(0, loader.prepared.get());
+
+        //still running when unloaded
+        manager.load("c.data:20", Data.class);
+        manager.update();
+        manager.unload("c.data:20");
+        Threads.sleep(50);
+        manager.update();
+        assertEquals(0, loader.prepared.get());
+        assertFalse(manager.contains("c.data:20"));
+        manager.dispose();
+    }
+
+    @Test
+    public void benchmark(){
+        for(int threads : new int[]{0, 8}){
+            AssetManager manager = manager(threads, true);
+            manager.setSyncBudget(1f);
+
+            for(int i = 0; i < 32; i++){
+                manager.load("bundle" + i + ".bundle", Bundle.class, new BundleParameter(i + "a.data:4", i + "b.data:4", "shared" + (i % 4) + ".data:2"));
+            }
+
+            int updates = 0;
+            long start = Time.nanos();
+            while(!manager.update()){
+                updates++;
+                Thread.yield();
+            }
+            long elapsed = Time.timeSinceNanos(start);
+
+            AssetTiming slowest = manager.getTimings().max(t -> t.totalTime);
+            Log.info("[Assets] @: @ assets in @ms over @ updates, slowest: @",
+            threads == 0 ? "sequential" : threads + " threads", manager.getLoadedAssets(), elapsed / 1000000, updates, slowest);
+            assertEquals(32 * 3 + 4, manager.getLoadedAssets());
+            manager.dispose();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class EventBusTest{
+    enum Trigger{
+        first, second
+    }
+
+    static class Event{
+        int value;
+    }
+
+    @Test
+    public void priorities(){
+        EventBus bus = new EventBus();
+        IntSeq order = new IntSeq();
+
+        bus.on(Event.class, e -> order.add(1));
+        bus.on(Event.class, 10, e -> order.add(0));
+        bus.on(Event.class, e -> order.add(2));
+        bus.on(Event.class, -5, e -> order.add(3));
+
+        bus.fire(new Event());
+        assertArrayEquals(new int[]{0, 1, 2, 3}, order.toArray());
+    }
+
+    @Test
+    public void modifyWhileFiring(){
+        EventBus bus = new EventBus();
+        IntSeq calls = new IntSeq();
+
+        Runnable[] self = {null};
+        self[0] = () -> {
+            calls.add(0);
+            bus.remove(Trigger.first, self[0]);
+            bus.run(Trigger.first, () -> calls.add(1));
+        };
+        bus.run(Trigger.first, self[0]);
+
+        bus.fire(Trigger.first);
+        assertArrayEquals(new int[]{0}, calls.toArray());
+
+        bus.fire(Trigger.first);
+        assertArrayEquals(new int[]{0, 1}, calls.toArray());
+
+        //the other constant of the enum must not be affected
+        bus.fire(Trigger.second);
+        assertEquals(2, calls.size);
+    }
+
+    @Test
+    public void ids(){
+        EventBus bus = new EventBus();
+        int[] sum = {0};
+        bus.on(Event.class, e -> sum[0] += e.value);
+
+        int id = bus.id(Event.class);
+        Event event = new Event();
+        event.value = 3;
+        bus.fire(id, event);
+        bus.fire(event);
+
+        assertEquals(6, sum[0]);
+        assertEquals(2, bus.types().get(id).fires);
+    }
+
+    @Test
+    public void queued() throws InterruptedException{
+        EventBus bus = new EventBus();
+        int[] count = {0};
+        bus.on(Event.class, e -> count[0]++);
+        bus.run(Trigger.second, () -> count[0]++);
+
+        Thread thread = new Thread(() -> {
+            for(int i = 0; i < 1000; i++){
+                bus.post(new Event());
+            }
+        });
+        thread.start();
+        bus.post(Trigger.second);
+        thread.join();
+
+        assertEquals(0, count[0]);
+        assertEquals(1001, bus.dispatch());
+        assertEquals(1001, count[0]);
+        assertEquals(0, bus.dispatch());
+    }
+
+    @Test
+    public void benchmark(){
+        EventBus bus = new EventBus();
+        int[] sum = {0};
+        for(int i = 0; i < 4; i++){
+            bus.on(Event.class, e -> sum[0] += e.value);
+        }
+        bus.run(Trigger.first, () -> sum[0]++);
+        bus.profile = true;
+
+        Event event = new Event();
+        int iterations = 1_000_000;
+        long start = Time.nanos();
+        for(int i = 0; i < iterations; i++){
+            bus.fire(event);
+            bus.fire(Trigger.first);
+        }
+        long elapsed = Time.timeSinceNanos(start);
+
+        for(EventBus.Listeners list : bus.types()){
+            if(list.fires > 0) Log.info("[Events] @: @ fires, @ ns in listeners", list.type, list.fires, list.time);
+        }
+        Log.info("[Events] @ ns per fire", elapsed / (iterations * 2));
+    }
+}
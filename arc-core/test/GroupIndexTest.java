@@ -0,0 +1,223 @@
+import arc.*;
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.Font.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.mock.*;
+import arc.scene.*;
+import arc.scene.event.*;
+import arc.scene.ui.*;
+import arc.scene.ui.Dialog.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class GroupIndexTest{
+    static final Seq<Element> drawn = new Seq<>();
+
+    static class TestGroup extends Group{
+        @Override
+        public void draw(){
+            drawn.add(this);
+        }
+
+        void drawCulled(){
+            drawChildren();
+        }
+    }
+
+    static class Leaf extends Element{
+        @Override
+        public void draw(){
+            drawn.add(this);
+        }
+    }
+
+    @Test
+    public void spatialHash(){
+        check(new SpatialHash(64f));
+    }
+
+    @Test
+    public void looseQuadTree(){
+        check(new LooseQuadTree(new Rect(0, 0, 2000, 2000)));
+    }
+
+    @Test
+    public void modalDialog(){
+        Core.app = new MockApplication();
+        Core.graphics = new MockGraphics();
+        Core.gl = Core.gl20 = new MockGL20();
+        Fi dir = Fi.tempDirectory("font");
+        Fi file = dir.child("font.fnt");
+        file.writeString("info face=\"test\" size=12 padding=0,0,0,0 spacing=1,1\n" +
+        "common lineHeight=14 base=11 scaleW=16 scaleH=16 pages=1 packed=0\n" +
+        "page id=0 file=\"font.png\"\n" +
+        "chars count=1\n" +
+        "char id=65 x=0 y=0 width=5 height=10 xoffset=0 yoffset=1 xadvance=6 page=0 chnl=0\n");
+        Texture texture = Texture.createEmpty(null);
+        texture.width = texture.height = 16;
+        DialogStyle style = new DialogStyle();
+        style.titleFont = new Font(new FontData(file, false), new TextureRegion(texture), false);
+        dir.deleteDirectory();
+
+        TestGroup group = new TestGroup();
+        group.setChildIndex(new SpatialHash(64f));
+        Dialog dialog = new Dialog("", style);
+        dialog.setBounds(100f, 100f, 50f, 50f);
+        group.addChild(dialog);
+
+        //modal dialogs are hit outside of their bounds, but stay cullable
+        assertTrue(dialog.cullable);
+        assertSame(dialog, group.hit(500f, 500f, true));
+
+        dialog.setModal(false);
+        assertNull(group.hit(500f, 500f, true));
+        assertSame(dialog, group.hit(110f, 110f, true));
+    }
+
+    void check(SpatialIndex index){
+        Rand rand = new Rand(5);
+        TestGroup group = new TestGroup();
+        for(int i = 0; i < 1500; i++){
+            group.addChild(randomChild(rand));
+        }
+        group.setChildIndex(index);
+
+        Vec2 point = new Vec2();
+        Seq<Element> expected = new Seq<>();
+        for(int step = 0; step < 60; step++){
+            for(int i = 0; i < 40; i++){
+                mutate(group, rand);
+            }
+
+            for(int i = 0; i < 300; i++){
+                point.set(rand.random(-100f, 2100f), rand.random(-100f, 2100f));
+                boolean touchable = rand.chance(0.5);
+                assertSame("step " + step, hitAll(group, point.x, point.y, touchable), group.hit(point.x, point.y, touchable));
+            }
+
+            group.setTransform(rand.chance(0.5));
+            Rect area = new Rect(rand.random(-100f, 1800f), rand.random(-100f, 1800f), rand.random(0f, 600f), rand.random(0f, 600f));
+            group.setCullingArea(area);
+            drawn.clear();
+            group.drawCulled();
+            expected.clear();
+            for(Element child : group.getChildren()){
+                if(child.visible && (!child.cullable || (child.x <= area.x + area.width && child.y <= area.y + area.height &&
+                child.x + child.getWidth() >= area.x && child.y + child.getHeight() >= area.y))) expected.add(child);
+            }
+            assertEquals("step " + step, expected, drawn);
+        }
+
+        group.setChildIndex(null);
+        assertSame(hitAll(group, 500, 500, true), group.hit(500, 500, true));
+    }
+
+    static Element randomChild(Rand rand){
+        Element child;
+        if(rand.chance(0.05)){
+            //groups with children outside of their bounds are not cullable
+            TestGroup inner = new TestGroup();
+            inner.cullable = false;
+            for(int i = 0; i < 5; i++){
+                Leaf leaf = new Leaf();
+                leaf.setBounds(rand.random(-50f, 100f), rand.random(-50f, 100f), rand.random(5f, 40f), rand.random(5f, 40f));
+                inner.addChild(leaf);
+            }
+            child = inner;
+        }else{
+            child = new Leaf();
+        }
+        child.setBounds(rand.random(-50f, 2000f), rand.random(-50f, 2000f), rand.random(5f, 60f), rand.random(5f, 60f));
+        if(rand.chance(0.1)) child.setRotation(rand.random(360f));
+        if(rand.chance(0.1)) child.setScale(rand.random(0.3f, 2f), rand.random(0.3f, 2f));
+        if(rand.chance(0.1)) child.setOrigin(Align.center);
+        if(rand.chance(0.05)) child.setTranslation(rand.random(-20f, 20f), rand.random(-20f, 20f));
+        if(rand.chance(0.05)) child.visible = false;
+        if(rand.chance(0.05)) child.touchable = Touchable.disabled;
+        if(rand.chance(0.02)) child.cullable = false;
+        return child;
+    }
+
+    static void mutate(TestGroup group, Rand rand){
+        SnapshotSeq<Element> children = group.getChildren();
+        Element child = children.random(rand);
+        switch(rand.random(9)){
+            case 0: child.setPosition(rand.random(-50f, 2000f), rand.random(-50f, 2000f)); break;
+            case 1: child.moveBy(rand.range(30f), rand.range(30f)); break;
+            case 2: child.setSize(rand.random(5f, 80f), rand.random(5f, 80f)); break;
+            case 3: child.setRotation(rand.random(360f)); break;
+            case 4: child.setScale(rand.random(0.5f, 1.5f)); break;
+            case 5: child.setTranslation(rand.range(10f), rand.range(10f)); break;
+            case 6: if(rand.chance(0.5)) child.toFront(); else child.setZIndex(rand.random(children.size - 1)); break;
+            case 7: child.remove(); group.addChildAt(rand.random(children.size), randomChild(rand)); break;
+            case 8: group.swapActor(child, children.random(rand)); break;
+            case 9:
+                //fields changed directly need an invalidation
+                child.x = rand.random(2000f);
+                if(child instanceof Leaf) child.cullable = !child.cullable;
+                group.invalidateIndex();
+                break;
+        }
+    }
+
+    /** The hit test of a group without a spatial index and without a size. */
+    static Element hitAll(Group group, float x, float y, boolean touchable){
+        if(touchable && group.touchable == Touchable.disabled) return null;
+        Vec2 point = new Vec2();
+        SnapshotSeq<Element> children = group.getChildren();
+        for(int i = children.size - 1; i >= 0; i--){
+            Element child = children.get(i);
+            if(!child.visible) continue;
+            child.parentToLocalCoordinates(point.set(x, y));
+            Element hit = child.hit(point.x, point.y, touchable);
+            if(hit != null) return hit;
+        }
+        //the group itself has no size
+        return null;
+    }
+
+    @Test
+    public void benchmark(){
+        TestGroup group = new TestGroup();
+        int columns = 200, rows = 100, hits = 20000, frames = 200;
+        for(int i = 0; i < columns * rows; i++){
+            Leaf leaf = new Leaf();
+            leaf.setBounds(i % columns * 48f, i / columns * 48f, 44f, 44f);
+            group.addChild(leaf);
+        }
+        Rand rand = new Rand(1);
+        float[] points = new float[hits * 2];
+        for(int i = 0; i < points.length; i++) points[i] = rand.random(columns * 48f);
+        group.setCullingArea(new Rect());
+
+        for(boolean indexed : new boolean[]{false, true}){
+            group.setChildIndex(indexed ? new SpatialHash(96f) : null);
+            group.hit(0, 0, true);
+
+            long time = Time.nanos();
+            int found = 0;
+            for(int i = 0; i < hits; i++){
+                if(group.hit(points[i * 2], points[i * 2 + 1], true) != null) found++;
+            }
+            long hitTime = Time.timeSinceNanos(time);
+
+            //scroll a screen-sized culling area across the group
+            time = Time.nanos();
+            for(int frame = 0; frame < frames; frame++){
+                drawn.clear();
+                group.getCullingArea().set(frame * 20f, frame * 10f, 1920f, 1080f);
+                group.drawCulled();
+            }
+            long drawTime = Time.timeSinceNanos(time);
+
+            Log.info("[GroupIndex] @: @ hits in @ms (@ found), @ culled frames of @ children in @ms", indexed ? "spatial hash" : "linear",
+            hits, Strings.autoFixed(hitTime / 1000000f, 2), found, frames, columns * rows, Strings.autoFixed(drawTime / 1000000f, 2));
+        }
+    }
+}
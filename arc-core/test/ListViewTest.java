@@ -0,0 +1,281 @@
+import arc.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.mock.*;
+import arc.scene.*;
+import arc.scene.ui.*;
+import arc.scene.ui.ListView.*;
+import arc.scene.ui.ScrollPane.*;
+import arc.scene.ui.layout.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class ListViewTest{
+
+    static class Row extends Element{
+        final int type;
+        int index = -1;
+
+        Row(int type){
+            this.type = type;
+        }
+    }
+
+    /** Items of varying heights, where every fifth item uses the height of the list. */
+    static class TestAdapter implements Adapter{
+        int size;
+        float[] heights;
+        int unbound;
+
+        TestAdapter(int size){
+            this.size = size;
+            heights = new float[size];
+            Rand rand = new Rand(size);
+            for(int i = 0; i < size; i++) heights[i] = i % 5 == 0 ? -1f : rand.random(10f, 90f);
+        }
+
+        @Override
+        public int size(){
+            return size;
+        }
+
+        @Override
+        public Element create(int type){
+            return new Row(type);
+        }
+
+        @Override
+        public void bind(Element element, int index){
+            Row row = (Row)element;
+            assertEquals(-1, row.index);
+            assertEquals(type(index), row.type);
+            row.index = index;
+        }
+
+        @Override
+        public void unbind(Element element, int index){
+            assertEquals(index, ((Row)element).index);
+            ((Row)element).index = -1;
+            unbound++;
+        }
+
+        @Override
+        public int type(int index){
+            return index % 3 == 0 ? 1 : 0;
+        }
+
+        @Override
+        public float height(int index){
+            return heights[index];
+        }
+    }
+
+    @BeforeClass
+    public static void init(){
+        Core.app = new MockApplication(){
+            @Override
+            public ApplicationType getType(){
+                return ApplicationType.desktop;
+            }
+        };
+    }
+
+    @Test
+    public void prefixSums(){
+        Rand rand = new Rand(4);
+        PrefixSumTree tree = new PrefixSumTree(2);
+        for(int size : new int[]{0, 1, 7, 64, 1000}){
+            tree.setSize(size, 3f);
+            float[] values = new float[size];
+            java.util.Arrays.fill(values, 3f);
+            for(int step = 0; step < 500 && size > 0; step++){
+                int index = rand.random(size - 1);
+                values[index] = rand.chance(0.1) ? 0f : rand.random(20f);
+                tree.set(index, values[index]);
+
+                int end = rand.random(size);
+                float sum = 0;
+                for(int i = 0; i < end; i++) sum += values[i];
+                assertEquals(sum, tree.sum(end), 0.01f);
+
+                float offset = rand.random(-10f, tree.total() + 10f);
+                int found = tree.find(offset);
+                assertTrue(found == 0 || tree.sum(found) <= offset);
+                assertTrue(found == size - 1 || offset < tree.sum(found + 1));
+            }
+            assertEquals(size == 0 ? -1 : 0, tree.find(-5f));
+        }
+    }
+
+    @Test
+    public void itemsInView(){
+        TestAdapter adapter = new TestAdapter(100_000);
+        ListView list = new ListView(adapter);
+        list.itemHeight = 25f;
+        list.setSize(300f, list.getPrefHeight());
+        list.validate();
+
+        double[] tops = new double[adapter.size + 1];
+        for(int i = 0; i < adapter.size; i++){
+            tops[i + 1] = tops[i] + (adapter.heights[i] < 0 ? 25f : adapter.heights[i]);
+        }
+        assertEquals(tops[adapter.size], list.getHeight(), 0.5f);
+
+        Rand rand = new Rand(8);
+        Rect area = new Rect();
+        for(int step = 0; step < 300; step++){
+            //mostly scroll by small amounts, sometimes jump
+            float scroll = rand.chance(0.9) ? list.getHeight() - area.y - area.height + rand.range(200f) : rand.random(list.getHeight());
+            scroll = Mathf.clamp(scroll, 0, list.getHeight() - 500f);
+            list.setCullingArea(area.set(0, list.getHeight() - scroll - 500f, 300f, 500f));
+            check(list, adapter, tops, scroll, 500f);
+        }
+
+        //elements are only created for items in view, the rest is recycled
+        assertTrue("created " + list.created, list.created < 80);
+        assertEquals(list.bound - list.getItemCount(), adapter.unbound);
+    }
+
+    void check(ListView list, TestAdapter adapter, double[] tops, float scroll, float height){
+        int first = list.getFirstItem(), count = list.getItemCount();
+        assertEquals(count, list.getChildren().size);
+        //the items in view and a buffer of two on each side, the area in view is rounded to floats
+        assertTrue(first == 0 || tops[first + 2] <= scroll + 0.5f);
+        assertTrue(first + count == adapter.size || tops[first + count - 2] >= scroll + height - 0.5f);
+        assertTrue(first + 3 > adapter.size || tops[first + 3] > scroll - 0.5f);
+
+        for(int i = first; i < first + count; i++){
+            Row row = (Row)list.getElement(i);
+            assertEquals(i, row.index);
+            assertSame(list, row.parent);
+            //positions far from the top are less precise as floats
+            assertEquals(list.getHeight() - tops[i + 1], row.y, 0.5f);
+            assertEquals(tops[i + 1] - tops[i], row.getHeight(), 0.001f);
+            assertEquals(list.getWidth(), row.getWidth(), 0f);
+        }
+    }
+
+    @Test
+    public void changes(){
+        TestAdapter adapter = new TestAdapter(1000);
+        ListView list = new ListView(adapter);
+        list.setSize(200f, list.getPrefHeight());
+        list.setCullingArea(new Rect(0, list.getHeight() - 400f, 200f, 400f));
+        float height = list.getPrefHeight();
+
+        //a taller item moves the items below it
+        Row second = (Row)list.getElement(1);
+        float y = list.getElement(2).y;
+        adapter.heights[1] += 30f;
+        list.itemChanged(1);
+        assertEquals(height + 30f, list.getPrefHeight(), 0.01f);
+        assertEquals(1, second.index);
+        list.setHeight(list.getPrefHeight());
+        list.validate();
+        assertEquals(y, list.getElement(2).y, 0.01f);
+
+        //removing items binds the elements in view again
+        adapter.size = 10;
+        list.dataChanged();
+        list.setHeight(list.getPrefHeight());
+        list.setCullingArea(new Rect(0, 0, 200f, list.getHeight()));
+        assertEquals(10, list.getItemCount());
+        for(int i = 0; i < 10; i++) assertEquals(i, ((Row)list.getElement(i)).index);
+        assertNull(list.getElement(10));
+
+        list.setAdapter(null);
+        assertEquals(0, list.getChildren().size);
+        assertEquals(0f, list.getPrefHeight(), 0f);
+    }
+
+    @Test
+    public void grid(){
+        TestAdapter adapter = new TestAdapter(1000);
+        GridView grid = new GridView(adapter);
+        grid.itemWidth = 60f;
+        grid.itemHeight = 25f;
+        ScrollPane pane = new ScrollPane(grid, new ScrollPaneStyle());
+        pane.setSize(250f, 400f);
+        pane.validate();
+        pane.validate();
+
+        //four columns of 62.5 fit
+        float total = 0;
+        for(int row = 0; row < 250; row++){
+            float height = 0;
+            for(int i = row * 4; i < row * 4 + 4; i++) height = Math.max(height, adapter.heights[i] < 0 ? 25f : adapter.heights[i]);
+            total += height;
+        }
+        //elements are only bound once the scroll pane sets the area in view
+        assertEquals(0, grid.getChildren().size);
+        assertEquals(250f, grid.getWidth(), 0f);
+        assertEquals(total, grid.getHeight(), 0.1f);
+
+        grid.setCullingArea(new Rect(0, grid.getHeight() - 400f, 250f, 400f));
+        assertEquals(0, grid.getFirstItem());
+        Element element = grid.getElement(6);
+        assertEquals(125f, element.x, 0f);
+        assertEquals(62.5f, element.getWidth(), 0f);
+        assertEquals(grid.getHeight() - grid.getItemOffset(6) - element.getHeight(), element.y, 0f);
+
+        //scrolling to an item puts its row in view
+        grid.scrollTo(801);
+        float scroll = pane.getScrollY();
+        assertTrue(grid.getItemOffset(801) >= scroll && grid.getItemOffset(804) <= scroll + 400.01f);
+    }
+
+    @Test
+    public void benchmark(){
+        int size = 100_000, frames = 300;
+        float height = 600f;
+
+        //the same rows in a table, with an element for every item
+        long time = Time.nanos();
+        Table table = new Table();
+        for(int i = 0; i < size; i++){
+            table.add(new Row(0)).height(30f).growX().row();
+        }
+        table.setSize(300f, table.getPrefHeight());
+        table.validate();
+        long tableTime = Time.timeSinceNanos(time);
+
+        Adapter adapter = new Adapter(){
+            @Override
+            public int size(){
+                return size;
+            }
+
+            @Override
+            public Element create(int type){
+                return new Row(type);
+            }
+
+            @Override
+            public void bind(Element element, int index){
+                ((Row)element).index = index;
+            }
+
+            @Override
+            public float height(int index){
+                return 20f + index % 7 * 5f;
+            }
+        };
+        time = Time.nanos();
+        ListView list = new ListView(adapter);
+        list.setSize(300f, list.getPrefHeight());
+        Rect area = new Rect();
+        Rand rand = new Rand(3);
+        float scroll = 0f;
+        for(int frame = 0; frame < frames; frame++){
+            scroll = rand.chance(0.95) ? Mathf.clamp(scroll + rand.range(300f), 0, list.getHeight() - height) : rand.random(list.getHeight() - height);
+            list.setCullingArea(area.set(0, list.getHeight() - scroll - height, 300f, height));
+        }
+        long listTime = Time.timeSinceNanos(time);
+
+        Log.info("[ListView] table of @ rows: @ elements, built in @ms; list view: @ elements, @ bindings, built and scrolled @ frames in @ms",
+        size, table.getChildren().size, Strings.autoFixed(tableTime / 1000000f, 2), list.created, list.bound, frames, Strings.autoFixed(listTime / 1000000f, 2));
+    }
+}
@@ -0,0 +1,331 @@
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.mock.*;
+import arc.scene.*;
+import arc.scene.actions.*;
+import arc.scene.ui.*;
+import arc.scene.ui.Button.*;
+import arc.scene.ui.layout.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class RenderCacheTest{
+    static TextureRegion region;
+    static int boxesDrawn;
+
+    /** Collects the vertices of everything drawn, in the format of SpriteBatch. */
+    static class TestBatch extends Batch{
+        final FloatSeq vertices = new FloatSeq();
+        final Seq<Texture> textures = new Seq<>();
+        /** The z of each sprite. */
+        final FloatSeq zs = new FloatSeq();
+        int flushes;
+
+        @Override
+        protected void draw(Texture texture, float[] spriteVertices, int offset, int count){
+            for(int i = 0; i < count / SpriteBatch.SPRITE_SIZE; i++){
+                textures.add(texture);
+                zs.add(z);
+            }
+            vertices.addAll(spriteVertices, offset, count);
+        }
+
+        @Override
+        protected void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+            float color = colorPacked, mix = mixColorPacked;
+            textures.add(region.texture);
+            zs.add(z);
+            vertices.addAll(x, y, color, region.u, region.v2, mix);
+            vertices.addAll(x, y + height, color, region.u, region.v, mix);
+            vertices.addAll(x + width, y + height, color, region.u2, region.v, mix);
+            vertices.addAll(x + width, y, color, region.u2, region.v2, mix);
+        }
+
+        @Override
+        protected void flush(){
+            flushes++;
+        }
+
+        float currentZ(){
+            return z;
+        }
+
+        void clear(){
+            vertices.clear();
+            textures.clear();
+            zs.clear();
+        }
+    }
+
+    static class Box extends Element{
+        @Override
+        public void draw(){
+            boxesDrawn++;
+            Draw.color(color, color.a * parentAlpha);
+            Draw.rect(region, x + width / 2f, y + height / 2f, width, height);
+        }
+    }
+
+    /** Draws a box above the others, then goes back to the previous layer. */
+    static class Layered extends Box{
+        @Override
+        public void draw(){
+            float z = Draw.z();
+            Draw.z(z + 1f);
+            super.draw();
+            Draw.z(z);
+        }
+    }
+
+    /** Flushes the batch, like a clipping scroll pane. */
+    static class Clipped extends Element{
+        @Override
+        public void draw(){
+            Draw.flush();
+        }
+    }
+
+    TestBatch batch;
+
+    @BeforeClass
+    public static void init(){
+        Core.gl = Core.gl20 = new MockGL20();
+        Core.app = new MockApplication();
+        region = new TextureRegion(new Texture(new Pixmap(4, 4)), 1, 1, 2, 2);
+    }
+
+    @Before
+    public void setBatch(){
+        Core.batch = batch = new TestBatch();
+    }
+
+    @Test
+    public void matchesDrawing(){
+        //the same panel with and without a cache, changed in the same ways
+        WidgetGroup root = new WidgetGroup(), plainRoot = new WidgetGroup();
+        WidgetGroup panel = panel(new Rand(3), 3), plain = panel(new Rand(3), 3);
+        root.addChild(panel);
+        plainRoot.addChild(plain);
+        panel.setRenderCache(true);
+        Rand rand = new Rand(4), plainRand = new Rand(4);
+
+        for(int frame = 0; frame < 60; frame++){
+            change(panel, rand, frame);
+            change(plain, plainRand, frame);
+
+            frame(root);
+            float[] cached = batch.vertices.toArray();
+            Seq<Texture> textures = new Seq<>(batch.textures);
+            frame(plainRoot);
+            assertArrayEquals("frame " + frame, batch.vertices.toArray(), cached, 0.0001f);
+            assertEquals(batch.textures, textures);
+        }
+        RenderCache cache = panel.getRenderCache();
+        assertTrue(cache.hits >= 20);
+        assertTrue(cache.rebuilds >= 30);
+        assertEquals(0, cache.failures);
+    }
+
+    @Test
+    public void invalidation(){
+        Rand rand = new Rand(5);
+        WidgetGroup root = new WidgetGroup();
+        WidgetGroup panel = panel(rand, 2);
+        root.addChild(panel);
+        WidgetGroup inner = new WidgetGroup();
+        Box child = new Box();
+        child.setBounds(10f, 10f, 20f, 20f);
+        inner.addChild(child);
+        panel.addChild(inner);
+        Button button = new Button(new ButtonStyle());
+        panel.addChild(button);
+        panel.setRenderCache(true);
+        RenderCache cache = panel.getRenderCache();
+
+        frame(root);
+        assertEquals(1, cache.rebuilds);
+        assertTrue(cache.sprites() > 0);
+        assertTrue(cache.memory() >= cache.sprites() * SpriteBatch.SPRITE_SIZE * 4);
+
+        //nothing changed, so no box is drawn
+        boxesDrawn = 0;
+        frame(root);
+        frame(root);
+        assertEquals(0, boxesDrawn);
+        assertEquals(2, cache.hits);
+
+        //moving the panel moves the recording
+        panel.moveBy(20f, 5f);
+        frame(root);
+        assertEquals(1, cache.rebuilds);
+        assertEquals(3, cache.hits);
+
+        //changes of children
+        Runnable toggle = () -> {
+            child.visible = !child.visible;
+            child.invalidateRender();
+        };
+        Runnable[] changes = {
+            () -> child.moveBy(1f, 0f),
+            () -> child.setColor(Color.red),
+            () -> panel.addChild(new Box()),
+            () -> inner.toBack(),
+            () -> child.fire(new arc.scene.event.ChangeListener.ChangeEvent()),
+            toggle,
+            toggle,
+            () -> panel.color.a = 0.5f,
+            () -> button.setDisabled(true),
+            () -> button.setChecked(true),
+        };
+        for(int i = 0; i < changes.length; i++){
+            int rebuilds = cache.rebuilds;
+            changes[i].run();
+            frame(root);
+            assertEquals("change " + i, rebuilds + 1, cache.rebuilds);
+            frame(root);
+            assertEquals("change " + i, rebuilds + 1, cache.rebuilds);
+        }
+
+        //the cache is rebuilt while an action runs
+        child.addAction(Actions.moveBy(10f, 0f, 3f));
+        int rebuilds = cache.rebuilds;
+        for(int i = 0; i < 4; i++){
+            root.act(1f);
+            frame(root);
+        }
+        assertEquals(rebuilds + 3, cache.rebuilds);
+        assertEquals(0, child.getActions().size);
+    }
+
+    @Test
+    public void layers(){
+        WidgetGroup root = new WidgetGroup();
+        WidgetGroup panel = panel(new Rand(6), 1);
+        for(int i = 0; i < 3; i++){
+            Layered box = new Layered();
+            box.setBounds(i * 20f, 10f, 15f, 15f);
+            panel.addChildAt(i * 2, box);
+        }
+        root.addChild(panel);
+        panel.setRenderCache(true);
+
+        Draw.z(5f);
+        frame(root);
+        float[] drawn = batch.zs.toArray();
+        assertTrue(batch.zs.contains(6f));
+        frame(root);
+        assertEquals(1, panel.getRenderCache().hits);
+        //replayed sprites keep their layers, and the batch is left at the z it was at
+        assertArrayEquals(drawn, batch.zs.toArray(), 0f);
+        assertEquals(5f, batch.currentZ(), 0f);
+        Draw.z(0f);
+
+        //changing the sorting can't be replayed
+        panel.addChild(new Element(){
+            @Override
+            public void draw(){
+                Draw.sort(false);
+            }
+        });
+        frame(root);
+        assertTrue(panel.getRenderCache().isFailed());
+    }
+
+    @Test
+    public void failure(){
+        Rand rand = new Rand(7);
+        WidgetGroup root = new WidgetGroup();
+        WidgetGroup panel = panel(rand, 2);
+        root.addChild(panel);
+        panel.addChild(new Clipped());
+        panel.setRenderCache(true);
+        RenderCache cache = panel.getRenderCache();
+
+        for(int i = 0; i < 3; i++){
+            boxesDrawn = 0;
+            frame(root);
+            assertTrue(boxesDrawn > 0);
+            assertTrue(cache.isFailed());
+        }
+        //recording is only tried again after a change
+        assertEquals(1, cache.failures);
+        assertEquals(0, cache.hits);
+        assertEquals(0, cache.sprites());
+        panel.getChildren().peek().remove();
+        frame(root);
+        frame(root);
+        assertFalse(cache.isFailed());
+        assertEquals(1, cache.hits);
+
+        long memory = RenderCache.totalMemory, used = cache.memory();
+        assertTrue(used > 0);
+        panel.setRenderCache(false);
+        assertEquals(memory - used, RenderCache.totalMemory);
+    }
+
+    @Test
+    public void benchmark(){
+        Rand rand = new Rand(1);
+        WidgetGroup root = new WidgetGroup();
+        WidgetGroup panel = panel(rand, 4);
+        root.addChild(panel);
+        int frames = 2000;
+
+        for(boolean cached : new boolean[]{false, true}){
+            panel.setRenderCache(cached);
+            RenderCache.resetStats();
+            boxesDrawn = 0;
+            long time = Time.nanos();
+            for(int frame = 0; frame < frames; frame++){
+                //an occasional change to the panel
+                if(frame % 100 == 0) panel.getChildren().random(rand).moveBy(1f, 0f);
+                frame(root);
+            }
+            Log.info("[RenderCache] @: @ frames in @ms, @ boxes drawn, @ hits, @ rebuilds, @ bytes cached", cached ? "cached" : "uncached",
+            frames, Strings.autoFixed(Time.timeSinceNanos(time) / 1000000f, 2), boxesDrawn, RenderCache.totalHits, RenderCache.totalRebuilds,
+            cached ? panel.getRenderCache().memory() : 0);
+        }
+        panel.setRenderCache(false);
+    }
+
+    void frame(Group root){
+        batch.clear();
+        root.draw();
+    }
+
+    /** A panel of nested groups of boxes. */
+    static WidgetGroup panel(Rand rand, int depth){
+        WidgetGroup group = new WidgetGroup();
+        group.setBounds(rand.random(50f), rand.random(50f), 400f, 400f);
+        for(int i = 0; i < 6; i++){
+            Element child;
+            if(depth > 0 && rand.chance(0.4)){
+                child = panel(rand, depth - 1);
+            }else{
+                child = new Box();
+                child.setBounds(rand.random(300f), rand.random(300f), rand.random(5f, 50f), rand.random(5f, 50f));
+                child.color.set(rand.random(1f), rand.random(1f), rand.random(1f), rand.random(0.5f, 1f));
+            }
+            group.addChild(child);
+        }
+        return group;
+    }
+
+    /** Changes the panel in a different way each frame, or not at all. */
+    static void change(WidgetGroup panel, Rand rand, int frame){
+        Element child = panel.getChildren().random(rand);
+        switch(frame % 6){
+            case 0: child.moveBy(rand.range(5f), rand.range(5f)); break;
+            case 1: panel.moveBy(rand.range(10f), rand.range(10f)); break;
+            case 2: child.setColor(rand.random(1f), 0.5f, 0.5f, 1f); break;
+            case 3: panel.color.a = rand.random(0.2f, 1f); break;
+            case 4: panel.setCullingArea(rand.chance(0.5) ? null : new Rect(rand.random(200f), rand.random(200f), 200f, 200f)); break;
+        }
+    }
+}
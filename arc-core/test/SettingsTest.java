@@ -0,0 +1,197 @@
+import arc.*;
+import arc.files.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class SettingsTest{
+    Fi directory;
+
+    @Before
+    public void setup() throws IOException{
+        directory = new Fi(java.nio.file.Files.createTempDirectory("settings").toFile());
+    }
+
+    @After
+    public void cleanup(){
+        directory.deleteDirectory();
+    }
+
+    Settings create(boolean journal){
+        Settings settings = new Settings();
+        settings.setDataDirectory(directory);
+        settings.setJournal(journal);
+        settings.loadValues();
+        return settings;
+    }
+
+    @Test
+    public void journal(){
+        Settings settings = create(true);
+        settings.put("int", 3);
+        settings.put("float", 1.5f);
+        settings.put("bool", true);
+        settings.put("long", Long.MAX_VALUE);
+        settings.put("string", "text");
+        settings.put("bytes", new byte[]{1, 2, 3});
+        settings.put("removed", 1);
+        settings.saveValues();
+        long compacted = settings.getJournalFile().length();
+
+        settings.put("int", 4);
+        settings.remove("removed");
+        settings.saveValues();
+        assertEquals(9, settings.getJournalRecords());
+        //only the changes were appended
+        assertTrue(settings.getJournalFile().length() - compacted < 40);
+
+        Settings loaded = create(true);
+        assertEquals(4, loaded.getInt("int", 0));
+        assertEquals(1.5f, loaded.getFloat("float", 0f), 0f);
+        assertTrue(loaded.getBool("bool", false));
+        assertEquals(Long.MAX_VALUE, loaded.getLong("long", 0));
+        assertEquals("text", loaded.getString("string", null));
+        assertArrayEquals(new byte[]{1, 2, 3}, loaded.getBytes("bytes", null));
+        assertFalse(loaded.has("removed"));
+        assertEquals(6, loaded.keySize());
+    }
+
+    @Test
+    public void importOldFormat(){
+        Settings old = create(false);
+        old.put("value", 12);
+        old.put("bytes", new byte[]{4, 5});
+        old.saveValues();
+
+        Settings settings = create(true);
+        assertEquals(12, settings.getInt("value", 0));
+        settings.saveValues();
+        assertTrue(settings.getJournalFile().exists());
+
+        Settings loaded = create(true);
+        assertEquals(12, loaded.getInt("value", 0));
+        assertArrayEquals(new byte[]{4, 5}, loaded.getBytes("bytes", null));
+    }
+
+    @Test
+    public void incompleteBatch(){
+        Settings settings = create(true);
+        settings.put("value", 1);
+        settings.saveValues();
+        settings.put("value", 2);
+        settings.saveValues();
+
+        //simulate a crash in the middle of writing a batch
+        settings.getJournalFile().writeBytes(new byte[]{0, 0, 0, 40, 1, 2}, true);
+
+        Settings loaded = create(true);
+        assertEquals(2, loaded.getInt("value", 0));
+        loaded.put("value", 3);
+        loaded.saveValues();
+
+        assertEquals(3, create(true).getInt("value", 0));
+    }
+
+    @Test
+    public void loadSeveralJournals() throws IOException{
+        Settings first = create(true);
+        first.put("first", new byte[]{1, 2, 3});
+        first.saveValues();
+        Fi copy = directory.child("first.journal");
+        first.getJournalFile().copyTo(copy);
+
+        Settings second = create(true);
+        second.clear();
+        second.put("padding", 1);
+        second.put("second", new byte[]{4, 5});
+        second.saveValues();
+
+        //binary values of the first journal stay intact after loading the second one
+        Settings settings = new Settings();
+        settings.loadValues(copy);
+        settings.loadValues(second.getJournalFile());
+        assertArrayEquals(new byte[]{1, 2, 3}, settings.getBytes("first", null));
+        assertArrayEquals(new byte[]{4, 5}, settings.getBytes("second", null));
+    }
+
+    @Test
+    public void valuesField(){
+        //subclasses access the stored values directly
+        Settings settings = new Settings(){{
+            setDataDirectory(directory);
+            setJournal(true);
+            loadValues();
+            values.put("direct", 5);
+        }};
+        settings.put("float", 2f);
+        assertEquals(2f, settings.get("float", null));
+        assertEquals(5, settings.getInt("direct", 0));
+        settings.saveValues();
+        assertEquals(2f, create(true).getFloat("float", 0f), 0f);
+    }
+
+    @Test
+    public void unchangedValues(){
+        for(boolean journal : new boolean[]{false, true}){
+            Settings settings = create(journal);
+            settings.put("value", 1);
+            settings.saveValues();
+
+            Settings loaded = create(journal);
+            int records = loaded.getJournalRecords();
+            loaded.put("value", 1);
+            //only the journal skips values that didn't change
+            assertEquals(!journal, loaded.modified());
+            loaded.saveValues();
+            assertEquals(records, loaded.getJournalRecords());
+            directory.emptyDirectory();
+        }
+    }
+
+    @Test
+    public void compaction(){
+        Settings settings = create(true);
+        settings.setCompaction(2f, 16);
+        for(int i = 0; i < 100; i++){
+            settings.put("value", i);
+            settings.saveValues();
+        }
+        assertTrue(settings.getJournalRecords() <= 16);
+        assertEquals(99, create(true).getInt("value", 0));
+    }
+
+    @Test
+    public void benchmark(){
+        int keys = 20000, changes = 10;
+        byte[] blob = new byte[256];
+
+        for(boolean journal : new boolean[]{false, true}){
+            Settings settings = create(journal);
+            for(int i = 0; i < keys; i++){
+                settings.put("int" + i, i);
+                if(i % 10 == 0) settings.put("blob" + i, blob);
+            }
+            settings.saveValues();
+
+            long start = Time.nanos();
+            for(int save = 0; save < 20; save++){
+                for(int i = 0; i < changes; i++){
+                    settings.put("int" + i, save);
+                }
+                settings.saveValues();
+            }
+            long saveTime = Time.timeSinceNanos(start) / 20;
+
+            start = Time.nanos();
+            Settings loaded = create(journal);
+            long loadTime = Time.timeSinceNanos(start);
+            assertEquals(19, loaded.getInt("int0", 0));
+
+            Log.info("[Settings] @: @ us per save of @ changes, @ ms to load @ keys", journal ? "journal" : "full file", saveTime / 1000, changes, loadTime / 1000000, loaded.keySize());
+            directory.emptyDirectory();
+        }
+    }
+}
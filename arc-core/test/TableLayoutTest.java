@@ -0,0 +1,263 @@
+import arc.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.mock.*;
+import arc.scene.*;
+import arc.scene.ui.layout.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TableLayoutTest{
+
+    /** An element with a preferred size that can be changed, like a label with changing text. */
+    static class Sized extends Element{
+        float prefWidth, prefHeight;
+
+        Sized(float prefWidth, float prefHeight){
+            this.prefWidth = prefWidth;
+            this.prefHeight = prefHeight;
+        }
+
+        void resize(float prefWidth, float prefHeight){
+            this.prefWidth = prefWidth;
+            this.prefHeight = prefHeight;
+            invalidateHierarchy();
+        }
+
+        @Override
+        public float getPrefWidth(){
+            return prefWidth;
+        }
+
+        @Override
+        public float getPrefHeight(){
+            return prefHeight;
+        }
+
+        @Override
+        public float getMinWidth(){
+            return prefWidth / 2f;
+        }
+
+        @Override
+        public float getMinHeight(){
+            return prefHeight / 2f;
+        }
+    }
+
+    @BeforeClass
+    public static void init(){
+        Core.app = new MockApplication(){
+            @Override
+            public ApplicationType getType(){
+                return ApplicationType.desktop;
+            }
+        };
+    }
+
+    @Test
+    public void matchesFullLayout(){
+        Rand rand = new Rand(9);
+        for(int iteration = 0; iteration < 20; iteration++){
+            Seq<Sized> elements = new Seq<>();
+            Table root = table(rand, elements, 0, iteration % 4 == 0);
+            root.setSize(rand.random(300f, 1500f), rand.random(300f, 1500f));
+            root.validate();
+
+            for(int step = 0; step < 30; step++){
+                for(int i = rand.random(1, 4); i > 0; i--){
+                    Sized element = elements.random(rand);
+                    //most changes stay within the size of the row and column
+                    float scale = rand.chance(0.7) ? rand.random(0.5f, 1f) : rand.random(0.5f, 2f);
+                    element.resize(element.prefWidth * scale, element.prefHeight * scale);
+                }
+                if(rand.chance(0.2)){
+                    //padding changes move the element without changing its size
+                    Sized element = elements.random(rand);
+                    ((Table)element.parent).getCell(element).padLeft(rand.random(4f)).padTop(rand.random(4f));
+                    element.invalidateHierarchy();
+                }
+                if(rand.chance(0.1)) root.setSize(root.getWidth() + rand.range(20f), root.getHeight());
+                root.validate();
+
+                float[] incremental = bounds(root);
+                invalidateAll(root);
+                root.validate();
+                assertArrayEquals("iteration " + iteration + ", step " + step, bounds(root), incremental, 0f);
+            }
+        }
+    }
+
+    @Test
+    public void counters(){
+        Seq<Sized> elements = new Seq<>();
+        Table table = new Table();
+        for(int y = 0; y < 50; y++){
+            for(int x = 0; x < 20; x++){
+                Sized element = new Sized(40f, 20f);
+                elements.add(element);
+                table.add(element).pad(2f);
+            }
+            table.row();
+        }
+        table.setSize(1000f, 1200f);
+        table.validate();
+
+        //a smaller element keeps the sizes of its row and column, so only its cell is laid out
+        Table.resetLayoutStats();
+        elements.get(123).resize(30f, 10f);
+        table.validate();
+        assertEquals(0, Table.layoutPasses);
+        assertEquals(1, Table.partialLayoutPasses);
+        assertEquals(1, Table.cellsMeasured);
+        assertEquals(1, Table.cellsPlaced);
+        assertEquals(30f, elements.get(123).getWidth(), 0f);
+        assertTrue(Table.layoutNanos > 0);
+
+        //several changes in one frame are laid out once
+        Table.resetLayoutStats();
+        for(int i = 0; i < 10; i++){
+            elements.get(i * 7).resize(35f, 15f + i);
+            elements.get(i * 7).resize(35f, 15f);
+        }
+        table.validate();
+        assertEquals(1, Table.partialLayoutPasses);
+        assertEquals(10, Table.cellsPlaced);
+
+        //a larger element widens its column, so every cell is placed again, but only the changed cell is measured
+        Table.resetLayoutStats();
+        elements.get(5).resize(60f, 20f);
+        table.validate();
+        assertEquals(1, Table.layoutPasses);
+        assertEquals(0, Table.partialLayoutPasses);
+        assertEquals(1, Table.cellsMeasured);
+        assertEquals(elements.size, Table.cellsPlaced);
+        assertEquals(64f, table.getPrefWidth() - 19 * 44f, 0.001f);
+
+        //shrinking it again measures the column from the stored sizes
+        elements.get(5).resize(40f, 20f);
+        assertEquals(20 * 44f, table.getPrefWidth(), 0.001f);
+    }
+
+    @Test
+    public void padding(){
+        Table table = new Table();
+        Sized first = new Sized(40f, 20f), second = new Sized(40f, 20f);
+        table.add(first).pad(5f);
+        table.add(second).pad(5f);
+        table.left();
+        table.setSize(500f, 100f);
+        table.validate();
+
+        //a larger padding widens the column
+        table.getCell(second).padLeft(30f);
+        second.invalidateHierarchy();
+        table.validate();
+        assertEquals(80f, second.x, 0f);
+        assertLayout(table);
+
+        //a padding that keeps the size of the column still moves the element in it
+        table.getCell(second).padLeft(5f).padRight(30f);
+        second.invalidateHierarchy();
+        table.validate();
+        assertEquals(55f, second.x, 0f);
+        assertLayout(table);
+    }
+
+    /** Checks that the current layout matches a full layout. */
+    static void assertLayout(Table table){
+        float[] incremental = bounds(table);
+        invalidateAll(table);
+        table.validate();
+        assertArrayEquals(bounds(table), incremental, 0f);
+    }
+
+    @Test
+    public void benchmark(){
+        Seq<Sized> elements = new Seq<>();
+        Table root = new Table();
+        for(int y = 0; y < 200; y++){
+            Table row = new Table();
+            for(int x = 0; x < 50; x++){
+                Sized element = new Sized(40f, 20f);
+                elements.add(element);
+                row.add(element).pad(2f).left();
+            }
+            root.add(row).growX().row();
+        }
+        root.setSize(2400f, 200 * 24f);
+        root.validate();
+
+        int frames = 300;
+        Rand rand = new Rand(2);
+        for(boolean incremental : new boolean[]{false, true}){
+            Table.resetLayoutStats();
+            long time = Time.nanos();
+            for(int frame = 0; frame < frames; frame++){
+                //a few labels change their text every frame
+                for(int i = 0; i < 5; i++){
+                    elements.random(rand).resize(rand.random(30f, 40f), 20f);
+                }
+                if(!incremental) invalidateAll(root);
+                root.validate();
+            }
+            Log.info("[TableLayout] @: @ frames of @ cells in @ms, @ full and @ partial passes, @ cells measured, @ placed",
+            incremental ? "incremental" : "full", frames, elements.size, Strings.autoFixed(Time.timeSinceNanos(time) / 1000000f, 2),
+            Table.layoutPasses, Table.partialLayoutPasses, Table.cellsMeasured, Table.cellsPlaced);
+        }
+    }
+
+    static Table table(Rand rand, Seq<Sized> elements, int depth, boolean linked){
+        Table table = new Table();
+        int columns = rand.random(1, 5), rows = rand.random(1, 5);
+        for(int y = 0; y < rows; y++){
+            for(int x = 0; x < columns; x++){
+                Element element;
+                if(depth < 2 && rand.chance(0.2)){
+                    element = table(rand, elements, depth + 1, linked);
+                }else{
+                    Sized sized = new Sized(rand.random(5f, 80f), rand.random(5f, 40f));
+                    elements.add(sized);
+                    element = sized;
+                }
+                Cell<?> cell = table.add(element).pad(rand.random(4f));
+                if(rand.chance(0.2)) cell.fill();
+                if(rand.chance(0.2)) cell.expand();
+                if(rand.chance(0.3)) cell.left();
+                if(rand.chance(0.3)) cell.bottom();
+                if(rand.chance(0.1)) cell.maxWidth(50f);
+                if(linked && rand.chance(0.2)) cell.uniform();
+                if(linked && x < columns - 1 && rand.chance(0.2)){
+                    cell.colspan(2);
+                    x++;
+                }
+            }
+            table.row();
+        }
+        if(rand.chance(0.5)) table.left();
+        return table;
+    }
+
+    static void invalidateAll(Element element){
+        element.invalidate();
+        if(element instanceof Group){
+            for(Element child : ((Group)element).getChildren()){
+                invalidateAll(child);
+            }
+        }
+    }
+
+    /** @return the bounds of every element, in the coordinates of the root. */
+    static float[] bounds(Table root){
+        FloatSeq out = new FloatSeq();
+        Vec2 point = new Vec2();
+        root.forEach(e -> {
+            e.localToAscendantCoordinates(root, point.set(0, 0));
+            out.addAll(point.x, point.y, e.getWidth(), e.getHeight());
+        });
+        return out.toArray();
+    }
+}
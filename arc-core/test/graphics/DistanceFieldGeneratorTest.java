@@ -0,0 +1,251 @@
+package graphics;
+
+import arc.*;
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.DistanceFieldGenerator.*;
+import arc.graphics.g2d.Font.*;
+import arc.math.*;
+import arc.mock.*;
+import arc.util.*;
+import arc.struct.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class DistanceFieldGeneratorTest{
+    static Fi dir;
+
+    @BeforeClass
+    public static void init(){
+        Core.gl = Core.gl20 = new MockGL20();
+        dir = Fi.tempDirectory("sdf");
+    }
+
+    @AfterClass
+    public static void cleanup(){
+        dir.deleteDirectory();
+    }
+
+    @Test
+    public void square(){
+        Pixmap source = new Pixmap(64, 64);
+        source.fillRect(16, 16, 32, 32, -1);
+        DistanceFieldGenerator generator = new DistanceFieldGenerator();
+        Pixmap field = generator.generate(source);
+
+        //64 source pixels are 16 generated pixels, and 4 more on each side
+        assertEquals(24, field.width);
+        assertEquals(24, field.height);
+        //half a pixel outside of the left edge, and 2.5 pixels inside
+        assertEquals(0.5f - 0.5f / 8f, alpha(field, 7, 12), 1.5f / 255f);
+        assertEquals(0.5f + 2.5f / 8f, alpha(field, 10, 12), 1.5f / 255f);
+        assertEquals(0f, alpha(field, 0, 0), 0f);
+        assertEquals(0xffffff00, field.get(0, 0) & 0xffffff00);
+        //distances are euclidean near corners
+        assertEquals(0.5f - 0.77f / 8f, alpha(field, 7, 7), 1.5f / 255f);
+    }
+
+    @Test
+    public void exactDistances(){
+        Rand rand = new Rand(3);
+        Pixmap source = new Pixmap(23, 19);
+        for(int i = 0; i < 6; i++){
+            source.fillCircle(rand.random(22), rand.random(18), rand.random(2, 6), -1);
+        }
+
+        for(int downscale : new int[]{1, 2, 3}){
+            DistanceFieldGenerator generator = new DistanceFieldGenerator();
+            generator.downscale = downscale;
+            generator.spread = 2.5f;
+            int offsetX = downscale - 1, offsetY = downscale / 2, pad = 3;
+            Pixmap field = generator.generate(source, 0, 0, source.width, source.height, offsetX, offsetY);
+
+            //compare with a brute force search for the nearest pixel on the other side of the edge
+            for(int y = 0; y < field.height; y++){
+                for(int x = 0; x < field.width; x++){
+                    float distance = 0f;
+                    for(int sy : new int[]{(downscale - 1) / 2, downscale / 2}){
+                        for(int sx : new int[]{(downscale - 1) / 2, downscale / 2}){
+                            distance += bruteForce(source, x * downscale + sx - pad * downscale - offsetX, y * downscale + sy - pad * downscale - offsetY);
+                        }
+                    }
+                    float expected = Mathf.clamp(0.5f - distance / 4f / downscale / 5f);
+                    assertEquals(expected, alpha(field, x, y), 1f / 255f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parallelMatchesSequential(){
+        Pixmap page = page(64);
+        FontData data = new FontData(sourceFont(page, 64), false);
+
+        DistanceFieldGenerator generator = new DistanceFieldGenerator();
+        generator.pageWidth = generator.pageHeight = 64;
+        Result parallel = generator.generate(data, Seq.with(page));
+        generator.setPool(null);
+        Result sequential = generator.generate(data, Seq.with(page));
+
+        assertTrue(parallel.pages.size > 1);
+        assertEquals(sequential.pages.size, parallel.pages.size);
+        for(int i = 0; i < parallel.pages.size; i++){
+            assertEquals(sequential.pages.get(i).pixels, parallel.pages.get(i).pixels);
+        }
+        assertSameGlyphs(sequential.data, parallel.data);
+        parallel.dispose();
+        sequential.dispose();
+    }
+
+    @Test
+    public void metrics(){
+        Pixmap page = page(64);
+        FontData source = new FontData(sourceFont(page, 64), false);
+        Result result = new DistanceFieldGenerator().generate(source, Seq.with(page));
+        FontData data = result.data;
+
+        assertEquals(source.lineHeight / 4f, data.lineHeight, 0.5f);
+        assertEquals(4f, data.padLeft, 0f);
+        //'A' is 26x32 at 6, -57 from the origin. It is aligned to whole pixels, and grows by 4 on each side
+        Glyph glyph = data.getGlyph('A');
+        assertEquals(-57, source.getGlyph('A').yoffset);
+        assertEquals(7 + 8, glyph.width);
+        assertEquals(9 + 8, glyph.height);
+        assertEquals(1 - 4, glyph.xoffset);
+        assertEquals(-15 - 4, glyph.yoffset);
+        assertEquals(7, glyph.xadvance);
+        assertEquals(-1, data.getGlyph('A').getKerning('V'));
+        //the space has no pixels, and is as wide as when loading a font file
+        assertEquals((int)(8 + data.getGlyph(' ').xadvance), data.getGlyph(' ').width);
+        assertNotNull(data.missingGlyph);
+
+        //the field of the glyph is in the page, and is outside of the glyph at its corners
+        Pixmap out = result.pages.get(glyph.page);
+        assertTrue(alpha(out, glyph.srcX + 5, glyph.srcY + glyph.height / 2) > 0.5f);
+        assertEquals(0f, alpha(out, glyph.srcX, glyph.srcY), 0f);
+        result.dispose();
+    }
+
+    @Test
+    public void writeAndLoad(){
+        Pixmap page = page(64);
+        FontData source = new FontData(sourceFont(page, 64), false);
+        DistanceFieldGenerator generator = new DistanceFieldGenerator();
+        generator.pageWidth = generator.pageHeight = 64;
+        Result result = generator.generate(source, Seq.with(page));
+
+        Fi file = dir.child("out.fnt");
+        result.write(file);
+        FontData loaded = new FontData(file, false);
+        assertSameGlyphs(result.data, loaded);
+        assertEquals(result.data.lineHeight, loaded.lineHeight, 0f);
+        assertEquals(result.data.padTop, loaded.padTop, 0f);
+        assertEquals(result.data.spaceXadvance, loaded.spaceXadvance, 0f);
+        assertEquals(result.pages.size, loaded.imagePaths.length);
+        for(int i = 0; i < result.pages.size; i++){
+            Pixmap image = PixmapIO.readPNG(new Fi(loaded.imagePaths[i]));
+            for(int y = 0; y < image.height; y++){
+                for(int x = 0; x < image.width; x++){
+                    assertEquals(result.pages.get(i).get(x, y), image.get(x, y));
+                }
+            }
+        }
+
+        DistanceFieldFont font = result.createFont();
+        assertEquals(result.pages.size, font.getRegions().size);
+        assertEquals(Texture.TextureFilter.linear, font.getRegion(0).texture.getMagFilter());
+        result.dispose();
+    }
+
+    @Test
+    public void benchmark(){
+        Pixmap page = page(128);
+        FontData source = new FontData(sourceFont(page, 128), false);
+        DistanceFieldGenerator generator = new DistanceFieldGenerator();
+        generator.downscale = 8;
+        generator.pageWidth = generator.pageHeight = 1024;
+
+        for(boolean parallel : new boolean[]{false, true}){
+            generator.setPool(parallel ? java.util.concurrent.ForkJoinPool.commonPool() : null);
+            generator.generate(source, Seq.with(page)).dispose();
+            long time = Time.nanos();
+            Result result = generator.generate(source, Seq.with(page));
+            Log.info("[DistanceFieldGenerator] @: 95 glyphs of 128px at 1/8 scale, @ms", parallel ? "parallel" : "sequential",
+            Strings.autoFixed(Time.timeSinceNanos(time) / 1000000f, 2));
+            result.dispose();
+        }
+    }
+
+    static void assertSameGlyphs(FontData expected, FontData actual){
+        for(int c = 0; c < 256; c++){
+            Glyph a = expected.getGlyph((char)c), b = actual.getGlyph((char)c);
+            assertEquals(a == null, b == null);
+            if(a == null) continue;
+            String name = String.valueOf((char)c);
+            assertEquals(name, a.srcX, b.srcX);
+            assertEquals(name, a.srcY, b.srcY);
+            assertEquals(name, a.width, b.width);
+            assertEquals(name, a.height, b.height);
+            assertEquals(name, a.xoffset, b.xoffset);
+            assertEquals(name, a.yoffset, b.yoffset);
+            assertEquals(name, a.xadvance, b.xadvance);
+            assertEquals(name, a.page, b.page);
+            for(int k = 0; k < 256; k++){
+                assertEquals(name, a.getKerning((char)k), b.getKerning((char)k));
+            }
+        }
+        assertEquals(expected.missingGlyph == null, actual.missingGlyph == null);
+    }
+
+    static float alpha(Pixmap pixmap, int x, int y){
+        return (pixmap.get(x, y) & 0xff) / 255f;
+    }
+
+    /** @return the distance from a source pixel center to the nearest pixel center on the other side of the edge, minus half a pixel. */
+    static float bruteForce(Pixmap source, int x, int y){
+        boolean in = inside(source, x, y);
+        float best = Float.MAX_VALUE;
+        for(int sy = y - 60; sy <= y + 60; sy++){
+            for(int sx = x - 60; sx <= x + 60; sx++){
+                if(inside(source, sx, sy) != in) best = Math.min(best, Mathf.dst(x, y, sx, sy));
+            }
+        }
+        return in ? 0.5f - best : best - 0.5f;
+    }
+
+    static boolean inside(Pixmap source, int x, int y){
+        return x >= 0 && y >= 0 && x < source.width && y < source.height && (source.get(x, y) & 0xff) >= 128;
+    }
+
+    static Pixmap page(int size){
+        return new Pixmap(size * 16, size * 6);
+    }
+
+    /** Creates a font with glyphs for printable ASCII characters, drawn as rectangles with a hole on a {@link #page(int)}. */
+    static Fi sourceFont(Pixmap page, int size){
+        Fi file = dir.child("source" + size + ".fnt");
+        int cell = size;
+        StringBuilder out = new StringBuilder();
+        out.append("info face=\"test\" size=").append(size).append(" padding=0,0,0,0 spacing=1,1\n");
+        out.append(Strings.format("common lineHeight=@ base=@ scaleW=@ scaleH=@ pages=1 packed=0\n", size + size / 8, size, page.width, page.height));
+        out.append("page id=0 file=\"source.png\"\n");
+        out.append("chars count=96\n");
+        for(int c = 31; c < 127; c++){
+            int index = c - 31, x = index % 16 * cell, y = index / 16 * cell;
+            int width = c == ' ' ? 0 : size - 40 + c % 7, height = c == ' ' ? 0 : size - 32 + c % 5;
+            out.append(Strings.format("char id=@ x=@ y=@ width=@ height=@ xoffset=@ yoffset=@ xadvance=@ page=0 chnl=0\n",
+            c == 31 ? 0 : c, x, y, width, height, 4 + c % 3, size - height - 8 + c % 2, size - 36));
+            if(width > 0){
+                page.fillRect(x, y, width, height, -1);
+                page.fillRect(x + width / 3, y + height / 3, width / 3, height / 3, 0);
+            }
+        }
+        out.append("kernings count=2\n");
+        out.append("kerning first=65 second=86 amount=-4\n");
+        out.append("kerning first=86 second=65 amount=-6\n");
+        file.writeString(out.toString());
+        return file;
+    }
+}
@@ -0,0 +1,136 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.Texture.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.GlyphAtlas.*;
+import arc.mock.*;
+import arc.struct.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class GlyphAtlasTest{
+
+    @BeforeClass
+    public static void init(){
+        Core.gl = Core.gl20 = new MockGL20();
+    }
+
+    @Test
+    public void addAndUpload(){
+        GlyphAtlas atlas = atlas(2);
+        Slot a = atlas.add('a', glyph(10, 12, 0xff0000ff), false), b = atlas.add('b', glyph(8, 11, 0x00ff00ff), false);
+        assertNotNull(a);
+        assertNotNull(b);
+        //similar heights share a shelf
+        assertEquals(a.y, b.y);
+        assertEquals(a.x + 10 + atlas.padding, b.x);
+        assertSame(a, atlas.get('a'));
+
+        Pixmap page = atlas.getPages().first().pixmap;
+        assertEquals(0xff0000ff, page.get(a.x + 9, a.y + 11));
+        assertEquals(0x00ff00ff, page.get(b.x, b.y));
+        assertEquals(0, page.get(a.x + 10, a.y));
+
+        atlas.upload();
+        assertEquals(1, atlas.uploads);
+        //only the used part of the shelf is uploaded
+        assertTrue(atlas.uploadedPixels < 64 * 16);
+        atlas.upload();
+        assertEquals(1, atlas.uploads);
+        atlas.dispose();
+    }
+
+    @Test
+    public void pagesAndEviction(){
+        GlyphAtlas atlas = atlas(2);
+        IntSeq evicted = new IntSeq();
+        atlas.evicted = evicted::add;
+
+        //a 64x64 page has 4 shelves of 16 with 4 glyphs each
+        atlas.setFrame(0);
+        for(int i = 0; i < 32; i++){
+            assertNotNull(atlas.add(i, glyph(15, 15, 0xffffffff), i == 3));
+        }
+        assertEquals(2, atlas.getPages().size);
+        assertEquals(32, atlas.size());
+
+        //everything was used too recently to be evicted
+        atlas.setFrame(1);
+        assertFalse(atlas.fits(15, 15));
+        assertNull(atlas.add(100, glyph(15, 15, -1), false));
+
+        //glyphs in the shelves that hold 4-7 and 8-11 are used again
+        atlas.setFrame(5);
+        atlas.get(5);
+        atlas.get(9);
+        atlas.setFrame(6);
+        assertTrue(atlas.fits(15, 15));
+        assertEquals(32, atlas.size());
+        Slot slot = atlas.add(100, glyph(15, 15, -1), false);
+        assertNotNull(slot);
+        //the first shelf holds a pinned glyph, so the oldest unpinned shelf is the fourth
+        assertArrayEquals(new int[]{12, 13, 14, 15}, evicted.toArray());
+        assertFalse(atlas.has(12));
+        assertTrue(atlas.has(3));
+        assertEquals(0, slot.page);
+        assertEquals(48, slot.y);
+        assertEquals(0, slot.x);
+
+        //the rest of the reused shelf is cleared as new glyphs are added
+        Pixmap page = atlas.getPages().first().pixmap;
+        assertEquals(0, page.get(15, 50));
+        atlas.add(101, glyph(15, 8, -1), false);
+        assertEquals(-1, page.get(16, 48));
+        assertEquals(0, page.get(31, 48));
+        assertEquals(0, page.get(16, 56));
+        assertEquals(4, atlas.evictions);
+        atlas.dispose();
+    }
+
+    @Test
+    public void remove(){
+        GlyphAtlas atlas = atlas(1);
+        atlas.add('a', glyph(15, 15, -1), false);
+        atlas.add('a', glyph(15, 15, -1), false);
+        assertEquals(1, atlas.size());
+        atlas.remove('a');
+        assertNull(atlas.get('a'));
+        //the emptied shelf is reused from the start
+        assertEquals(0, atlas.add('b', glyph(15, 15, -1), false).x);
+        atlas.dispose();
+    }
+
+    @Test
+    public void fits(){
+        GlyphAtlas atlas = atlas(1);
+        assertTrue(atlas.fits(15, 15));
+        assertFalse(atlas.fits(64, 10));
+
+        //one shelf of 16 is left, and a glyph of 40 needs a new one
+        atlas.setFrame(0);
+        for(int i = 0; i < 12; i++){
+            atlas.add(i, glyph(15, 15, -1), false);
+        }
+        assertTrue(atlas.fits(15, 15));
+        assertFalse(atlas.fits(15, 40));
+        atlas.dispose();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLarge(){
+        atlas(1).add('a', glyph(64, 10, -1), false);
+    }
+
+    static GlyphAtlas atlas(int pages){
+        return new GlyphAtlas(64, 64, pages, 1, TextureFilter.nearest, TextureFilter.nearest);
+    }
+
+    static Pixmap glyph(int width, int height, int color){
+        Pixmap pixmap = new Pixmap(width, height);
+        pixmap.fill(color);
+        return pixmap;
+    }
+}
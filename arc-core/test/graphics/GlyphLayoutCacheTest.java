@@ -0,0 +1,210 @@
+package graphics;
+
+import arc.*;
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.Font.*;
+import arc.math.*;
+import arc.mock.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class GlyphLayoutCacheTest{
+    static final String[] texts = {
+        "Hello, world", "AVAVA To Ty", "[red]Red [blue]blue[] red", "a label that is long enough to wrap a few times", "   ", "", "line\nbreak\n\nblank"
+    };
+
+    static Fi dir;
+    static CaptureBatch batch;
+
+    @BeforeClass
+    public static void init(){
+        Core.gl = Core.gl20 = new MockGL20();
+        Core.batch = batch = new CaptureBatch();
+        dir = Fi.tempDirectory("font");
+    }
+
+    @AfterClass
+    public static void cleanup(){
+        dir.deleteDirectory();
+    }
+
+    @Test
+    public void sameVertices(){
+        for(boolean integer : new boolean[]{false, true}){
+            Font font = font(integer);
+            font.getData().markupEnabled = true;
+            GlyphLayoutCache cache = new GlyphLayoutCache();
+
+            for(String text : texts){
+                for(int align : new int[]{Align.left, Align.center, Align.right}){
+                    //integer positions are rounded once instead of per glyph, so they only match at whole positions
+                    float x = integer ? 31f : 31.25f, y = integer ? 40f : 40.5f;
+                    font.setColor(Color.sky);
+                    float[] expected = draw(font, text, x, y, 80f, align, true, null);
+                    float[] truncated = draw(font, text, x, y, 60f, align, false, "...");
+
+                    font.setLayoutCache(cache);
+                    for(int i = 0; i < 2; i++){
+                        assertArrayEquals(text, expected, draw(font, text, x, y, 80f, align, true, null), 0.001f);
+                        assertArrayEquals(text, truncated, draw(font, text, x, y, 60f, align, false, "..."), 0.001f);
+                    }
+                    font.setLayoutCache(null);
+                }
+            }
+            assertEquals(texts.length * 3 * 2, cache.misses);
+            assertEquals(texts.length * 3 * 2, cache.hits);
+            assertEquals(0, cache.evictions);
+        }
+    }
+
+    @Test
+    public void keys(){
+        Font font = font(false);
+        GlyphLayoutCache cache = new GlyphLayoutCache();
+        font.setLayoutCache(cache);
+
+        StringBuilder builder = new StringBuilder("score: 10");
+        font.draw(builder, 0, 0);
+        builder.setLength(0);
+        builder.append("score: 10");
+        font.draw(builder, 5, 5);
+        font.draw("score: 10", 0, 0);
+        assertEquals(1, cache.misses);
+        assertEquals(2, cache.hits);
+
+        builder.setCharAt(8, '1');
+        font.draw(builder, 0, 0);
+        font.setColor(Color.red);
+        font.draw("score: 10", 0, 0);
+        font.getData().setScale(2f);
+        font.draw("score: 10", 0, 0);
+        font.draw("xscore: 10", 0, 0, 1, 10, 0, Align.left, false);
+        assertEquals(4, cache.misses);
+        assertEquals(3, cache.hits);
+        assertEquals(4, cache.size());
+
+        //entries made before the glyphs changed are laid out again
+        font.getData().glyphVersion++;
+        font.draw("score: 10", 0, 0);
+        assertEquals(5, cache.misses);
+        assertEquals(4, cache.size());
+
+        cache.clear(font);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void evictions(){
+        Font font = font(false);
+        GlyphLayoutCache cache = new GlyphLayoutCache(3, Long.MAX_VALUE);
+        font.setLayoutCache(cache);
+
+        font.draw("a", 0, 0);
+        font.draw("b", 0, 0);
+        font.draw("c", 0, 0);
+        font.draw("a", 0, 0);
+        font.draw("d", 0, 0);
+        assertEquals(1, cache.evictions);
+        assertEquals(3, cache.size());
+
+        //b was the least recently used
+        cache.resetStats();
+        font.draw("a", 0, 0);
+        font.draw("c", 0, 0);
+        font.draw("d", 0, 0);
+        assertEquals(3, cache.hits);
+        font.draw("b", 0, 0);
+        assertEquals(1, cache.misses);
+        assertEquals(0.75f, cache.hitRate(), 0.001f);
+
+        cache.maxBytes = 1;
+        cache.trim();
+        assertEquals(1, cache.size());
+        font.draw("a", 0, 0);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void benchmark(){
+        int labels = 10_000, frames = 20;
+        Font font = font(true);
+        String[] text = new String[labels];
+        Rand rand = new Rand(1);
+        for(int i = 0; i < labels; i++){
+            text[i] = i % 4 == 0 ? "Label " + i : "Health: " + rand.random(100) + " / 100";
+        }
+
+        GlyphLayoutCache cache = new GlyphLayoutCache(16384, 64 * 1024 * 1024);
+        batch.record = false;
+        for(GlyphLayoutCache layouts : new GlyphLayoutCache[]{null, cache}){
+            font.setLayoutCache(layouts);
+            long total = 0;
+            for(int frame = 0; frame < frames; frame++){
+                long time = Time.nanos();
+                for(int i = 0; i < labels; i++){
+                    font.draw(text[i], i % 100 * 10f, i / 100 * 10f, 150f, Align.left, true);
+                }
+                //the first frames warm up the JIT, and fill the cache
+                if(frame >= frames / 2) total += Time.timeSinceNanos(time);
+            }
+            Log.info("[GlyphLayoutCache] @: @ labels, @ms/frame@", layouts == null ? "uncached" : "cached", labels,
+            Strings.autoFixed(total / (frames / 2) / 1000000f, 3), layouts == null ? "" : ", " + layouts);
+        }
+        batch.record = true;
+    }
+
+    static float[] draw(Font font, String text, float x, float y, float targetWidth, int align, boolean wrap, String truncate){
+        batch.vertices.clear();
+        font.draw(text, x, y, 0, text.length(), targetWidth, align, wrap, truncate);
+        return batch.vertices.toArray();
+    }
+
+    /** Creates a font with fixed-size glyphs for printable ASCII characters, and kerning for a few pairs. */
+    static Font font(boolean integer){
+        Fi file = dir.child("font.fnt");
+        StringBuilder out = new StringBuilder();
+        out.append("info face=\"test\" size=12 padding=0,0,0,0 spacing=1,1\n");
+        out.append("common lineHeight=14 base=11 scaleW=256 scaleH=256 pages=1 packed=0\n");
+        out.append("page id=0 file=\"font.png\"\n");
+        out.append("chars count=95\n");
+        for(int c = 32; c < 127; c++){
+            int index = c - 32;
+            out.append(Strings.format("char id=@ x=@ y=@ width=@ height=10 xoffset=@ yoffset=1 xadvance=@ page=0 chnl=0\n",
+            c, index % 16 * 16, index / 16 * 16, c == ' ' ? 0 : 5 + c % 4, c % 2, 6 + c % 3));
+        }
+        out.append("kernings count=3\n");
+        out.append("kerning first=65 second=86 amount=-2\n");
+        out.append("kerning first=86 second=65 amount=-2\n");
+        out.append("kerning first=84 second=121 amount=-1\n");
+        file.writeString(out.toString());
+
+        Texture texture = Texture.createEmpty(null);
+        texture.width = texture.height = 256;
+        return new Font(new FontData(file, false), new TextureRegion(texture), integer);
+    }
+
+    /** Records the vertices of everything that is drawn. */
+    static class CaptureBatch extends Batch{
+        FloatSeq vertices = new FloatSeq();
+        boolean record = true;
+
+        @Override
+        protected void draw(Texture texture, float[] spriteVertices, int offset, int count){
+            if(record) vertices.addAll(spriteVertices, offset, count);
+        }
+
+        @Override
+        protected void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+        }
+
+        @Override
+        protected void flush(){
+        }
+    }
+}
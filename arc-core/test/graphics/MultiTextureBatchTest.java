@@ -0,0 +1,144 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.mock.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+public class MultiTextureBatchTest{
+    static MockGL20 gl;
+    static Texture[] textures = new Texture[5];
+    static TextureRegion[] regions = new TextureRegion[5];
+
+    @BeforeClass
+    public static void init(){
+        ArcNativesLoader.load();
+        Core.app = new MockApplication();
+        Core.graphics = new MockGraphics();
+        //shaders compile and link successfully
+        Core.gl = Core.gl20 = gl = new MockGL20(){
+            @Override
+            public int glCreateShader(int type){
+                return 1;
+            }
+
+            @Override
+            public int glCreateProgram(){
+                return 1;
+            }
+
+            @Override
+            public void glGetShaderiv(int shader, int pname, IntBuffer params){
+                params.put(0, 1);
+            }
+
+            @Override
+            public void glGetProgramiv(int program, int pname, IntBuffer params){
+                params.put(0, pname == GL20.GL_LINK_STATUS ? 1 : 0);
+            }
+
+            @Override
+            public String glGetShaderInfoLog(int shader){
+                return "";
+            }
+        };
+        Core.gl30 = null;
+
+        for(int i = 0; i < textures.length; i++){
+            textures[i] = new Texture(new Pixmap(2, 2));
+            regions[i] = new TextureRegion(textures[i]);
+        }
+    }
+
+    @After
+    public void reset(){
+        Draw.shader();
+        Core.batch = null;
+    }
+
+    @Test
+    public void slots(){
+        SlotBatch batch = new SlotBatch(4);
+        Core.batch = batch;
+
+        //sprites of three textures share one draw call, and each keeps the slot of its texture
+        gl.drawCalls = 0;
+        for(int i = 0; i < 6; i++){
+            Draw.rect(regions[i % 3], 10f, 10f);
+        }
+        Draw.flush();
+        assertEquals(1, gl.drawCalls);
+        assertArrayEquals(new int[]{0, 1, 2, 0, 1, 2}, batch.slots.toArray());
+        for(int i = 0; i < 6; i++){
+            assertSame(textures[i % 3], batch.drawn.get(i));
+        }
+
+        //a fifth texture flushes once every slot is taken, and starts over at the first slot
+        batch.slots.clear();
+        batch.drawn.clear();
+        gl.drawCalls = 0;
+        for(int i = 0; i < 5; i++){
+            Draw.rect(regions[i], 10f, 10f);
+        }
+        Draw.flush();
+        assertEquals(2, gl.drawCalls);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 0}, batch.slots.toArray());
+        for(int i = 0; i < 5; i++){
+            assertSame(textures[i], batch.drawn.get(i));
+        }
+    }
+
+    @Test
+    public void drawCalls(){
+        //alternating textures flushes on every switch with a single texture
+        Core.batch = new SpriteBatch(100);
+        assertEquals(30, alternate());
+
+        Core.batch = new MultiTextureBatch(100, 8);
+        assertEquals(1, alternate());
+
+        //custom shaders don't know about slots, so they get one texture per draw call
+        Draw.shader(SpriteBatch.createShader());
+        assertEquals(30, alternate());
+    }
+
+    /** @return the amount of draw calls for 30 sprites that alternate between three textures. */
+    static int alternate(){
+        gl.drawCalls = 0;
+        for(int i = 0; i < 30; i++){
+            Draw.rect(regions[i % 3], 10f, 10f);
+        }
+        Draw.flush();
+        return gl.drawCalls;
+    }
+
+    /** Records the slot of every flushed sprite, and the texture bound to that slot. */
+    static class SlotBatch extends MultiTextureBatch{
+        final IntSeq slots = new IntSeq();
+        final Seq<Texture> drawn = new Seq<>();
+
+        SlotBatch(int maxTextures){
+            super(100, maxTextures);
+        }
+
+        @Override
+        protected void flush(){
+            for(int i = 0; i < idx; i += SPRITE_SIZE){
+                int slot = (int)buffer.get(i + SpriteBatch.VERTEX_SIZE);
+                for(int v = 1; v < 4; v++){
+                    assertEquals(slot, (int)buffer.get(i + v * VERTEX_SIZE + SpriteBatch.VERTEX_SIZE));
+                }
+                slots.add(slot);
+                drawn.add(textures[slot]);
+            }
+            super.flush();
+        }
+    }
+}
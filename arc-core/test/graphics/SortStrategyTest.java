@@ -0,0 +1,98 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.g2d.*;
+import arc.math.*;
+import arc.mock.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class SortStrategyTest{
+    static final int requests = 100_000, layers = 40, frames = 20;
+
+    static SpriteBatch batch;
+    static IntSeq drawn = new IntSeq(requests);
+
+    @BeforeClass
+    public static void init(){
+        Core.app = new MockApplication();
+        batch = new SpriteBatch(0);
+        Core.batch = batch;
+    }
+
+    @Test
+    public void sameOrder(){
+        float[] z = layers(requests, 1);
+        int[] expected = expected(z);
+
+        for(SortStrategy strategy : new SortStrategy[]{SortStrategy.standard, SortStrategy.threaded, new SortStrategy.Radix(), new SortStrategy.Radix(true)}){
+            batch.setSortStrategy(strategy);
+            submit(z);
+            assertArrayEquals(expected, drawn.toArray());
+        }
+    }
+
+    @Test
+    public void negativeLayers(){
+        float[] z = new float[1000];
+        Rand rand = new Rand(2);
+        for(int i = 0; i < z.length; i++){
+            z[i] = rand.random(-40f, 40f);
+        }
+        int[] expected = expected(z);
+
+        batch.setSortStrategy(new SortStrategy.Radix());
+        submit(z);
+        assertArrayEquals(expected, drawn.toArray());
+    }
+
+    @Test
+    public void benchmark(){
+        float[] z = layers(requests, 3);
+
+        for(SortStrategy strategy : new SortStrategy[]{SortStrategy.standard, SortStrategy.threaded, new SortStrategy.Radix()}){
+            batch.setSortStrategy(strategy);
+            long total = 0;
+            for(int i = 0; i < frames; i++){
+                submit(z);
+                total += batch.getLastSortTime();
+            }
+            Log.info("[Sort] @: @ requests, @ ns/frame", strategy instanceof SortStrategy.Radix ? "radix" : strategy == SortStrategy.standard ? "standard" : "threaded",
+                batch.getLastSortRequests(), total / frames);
+        }
+    }
+
+    static void submit(float[] z){
+        drawn.clear();
+        Draw.sort(true);
+        for(int i = 0; i < z.length; i++){
+            int index = i;
+            Draw.draw(z[i], () -> drawn.add(index));
+        }
+        Draw.flush();
+        Draw.sort(false);
+    }
+
+    /** Layers are submitted in short streaks, like entity draw code that changes Z a few times per entity. */
+    static float[] layers(int amount, long seed){
+        Rand rand = new Rand(seed);
+        float[] z = new float[amount];
+        for(int i = 0; i < amount; i++){
+            z[i] = rand.chance(0.3f) || i == 0 ? rand.random(layers) : z[i - 1];
+        }
+        return z;
+    }
+
+    /** Stable sort by Z, which every non-grouping strategy must reproduce. */
+    static int[] expected(float[] z){
+        Integer[] indices = new Integer[z.length];
+        for(int i = 0; i < z.length; i++) indices[i] = i;
+        java.util.Arrays.sort(indices, (a, b) -> Integer.compare(Float.floatToRawIntBits(z[a] + 16f), Float.floatToRawIntBits(z[b] + 16f)));
+        int[] result = new int[z.length];
+        for(int i = 0; i < z.length; i++) result[i] = indices[i];
+        return result;
+    }
+}
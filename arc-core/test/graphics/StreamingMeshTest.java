@@ -0,0 +1,96 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.gl.*;
+import arc.mock.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+public class StreamingMeshTest{
+    static MockGL20 gl;
+
+    @BeforeClass
+    public static void init(){
+        ArcNativesLoader.load();
+        Core.app = new MockApplication();
+        //shaders compile and link successfully, without any attributes or uniforms
+        Core.gl = Core.gl20 = gl = new MockGL20(){
+            @Override
+            public int glCreateShader(int type){
+                return 1;
+            }
+
+            @Override
+            public int glCreateProgram(){
+                return 1;
+            }
+
+            @Override
+            public void glGetShaderiv(int shader, int pname, IntBuffer params){
+                params.put(0, 1);
+            }
+
+            @Override
+            public void glGetProgramiv(int program, int pname, IntBuffer params){
+                params.put(0, pname == GL20.GL_LINK_STATUS ? 1 : 0);
+            }
+
+            @Override
+            public String glGetShaderInfoLog(int shader){
+                return "";
+            }
+        };
+        Core.gl30 = null;
+    }
+
+    @Test
+    public void ringBuffer(){
+        //8 bytes per vertex, so uploads of 50 vertices fill the ring of 4 * 800 bytes after 8 frames
+        Mesh mesh = new Mesh(false, 100, 0, VertexAttribute.position);
+        mesh.setStreaming(true);
+        Shader shader = new Shader("void main(){}", "void main(){}"){
+            @Override
+            public int getAttributeLocation(String name){
+                return 0;
+            }
+        };
+        float[] vertices = new float[100];
+
+        gl.uploadedBytes = gl.bufferDataCalls = gl.bufferSubDataCalls = 0;
+        for(int frame = 0; frame < 10; frame++){
+            //uploads before binding and while bound both move the attributes to the new data
+            if(frame % 2 == 0){
+                mesh.setVertices(vertices);
+                mesh.bind(shader);
+            }else{
+                mesh.bind(shader);
+                mesh.setVertices(vertices);
+            }
+            assertEquals("frame " + frame, frame % 8 * 400, gl.attribPointerOffset);
+            mesh.unbind(shader);
+        }
+
+        //the ring is orphaned on the first upload and once it is full
+        assertEquals(2, gl.bufferDataCalls);
+        assertEquals(10, gl.bufferSubDataCalls);
+        assertEquals(10 * 400, gl.uploadedBytes);
+
+        //without streaming, every upload replaces the whole buffer
+        mesh.setStreaming(false);
+        gl.uploadedBytes = gl.bufferDataCalls = gl.bufferSubDataCalls = 0;
+        for(int frame = 0; frame < 3; frame++){
+            mesh.setVertices(vertices);
+            mesh.bind(shader);
+            assertEquals(0, gl.attribPointerOffset);
+            mesh.unbind(shader);
+        }
+        assertEquals(3, gl.bufferDataCalls);
+        assertEquals(0, gl.bufferSubDataCalls);
+        assertEquals(3 * 400, gl.uploadedBytes);
+    }
+}
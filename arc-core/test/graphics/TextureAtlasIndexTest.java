@@ -0,0 +1,178 @@
+package graphics;
+
+import arc.*;
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.TextureAtlas.*;
+import arc.graphics.g2d.TextureAtlas.TextureAtlasData.*;
+import arc.math.*;
+import arc.mock.*;
+import arc.util.*;
+import arc.util.io.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TextureAtlasIndexTest{
+    static Fi dir;
+
+    @BeforeClass
+    public static void init(){
+        Core.gl = Core.gl20 = new MockGL20();
+        dir = Fi.tempDirectory("atlas");
+    }
+
+    @AfterClass
+    public static void cleanup(){
+        dir.deleteDirectory();
+    }
+
+    @Test
+    public void sameRegions(){
+        Fi pack = dir.child("same.aatls"), indexFile = dir.child("same.aatli");
+        writePack(pack, 3000, 2);
+        TextureAtlasIndex.write(new TextureAtlasData(pack, dir, false), indexFile);
+        assertTrue(TextureAtlasIndex.isIndex(indexFile));
+        assertFalse(TextureAtlasIndex.isIndex(pack));
+
+        for(boolean flip : new boolean[]{false, true}){
+            TextureAtlasData data = new TextureAtlasData(pack, dir, flip);
+            TextureAtlasIndex index = new TextureAtlasIndex(indexFile, dir, flip);
+            assertEquals(data.getPages().size, index.getPages().size);
+            Texture[] textures = new Texture[data.getPages().size];
+            for(int i = 0; i < textures.length; i++){
+                textures[i] = texture();
+                data.getPages().get(i).texture = index.getPages().get(i).texture = textures[i];
+                assertEquals(data.getPages().get(i).textureFile, index.getPages().get(i).textureFile);
+            }
+
+            TextureAtlas expected = new TextureAtlas(data), atlas = new TextureAtlas(index);
+            assertEquals("error", atlas.find("missing").name);
+            assertNull(atlas.find("missing", (TextureRegion)null));
+            assertTrue(atlas.has("region0"));
+            assertFalse(atlas.has("region"));
+
+            for(AtlasRegion region : expected.getRegionMap().values()){
+                AtlasRegion other = atlas.find(region.name);
+                assertSame(other, atlas.find(region.name));
+                assertEquals(region.name, other.name);
+                assertSame(region.texture, other.texture);
+                assertEquals(region.u, other.u, 0f);
+                assertEquals(region.v, other.v, 0f);
+                assertEquals(region.u2, other.u2, 0f);
+                assertEquals(region.v2, other.v2, 0f);
+                assertEquals(region.width, other.width);
+                assertEquals(region.height, other.height);
+                assertEquals(region.offsetX, other.offsetX, 0f);
+                assertEquals(region.offsetY, other.offsetY, 0f);
+                assertEquals(region.originalWidth, other.originalWidth);
+                assertEquals(region.originalHeight, other.originalHeight);
+                assertArrayEquals(region.splits, other.splits);
+                assertArrayEquals(region.pads, other.pads);
+            }
+            //duplicate names resolve to the last region, like the regular loader
+            assertEquals(expected.getRegionMap().size, atlas.getRegionMap().size);
+            assertEquals(expected.getRegions().size - 1, atlas.getRegions().size);
+            assertNotNull(atlas.createPatch("region10"));
+        }
+    }
+
+    @Test
+    public void benchmark(){
+        int regions = 20_000;
+        Fi pack = dir.child("bench.aatls"), indexFile = dir.child("bench.aatli");
+        writePack(pack, regions, 8);
+        TextureAtlasIndex.write(new TextureAtlasData(pack, dir, false), indexFile);
+        Texture texture = texture();
+
+        for(int round = 0; round < 5; round++){
+            long heap = usedHeap(), time = Time.nanos();
+            TextureAtlasData data = new TextureAtlasData(pack, dir, false);
+            for(AtlasPage page : data.getPages()) page.texture = texture;
+            TextureAtlas atlas = new TextureAtlas(data);
+            long packTime = Time.timeSinceNanos(time), packHeap = usedHeap() - heap;
+            time = Time.nanos();
+            for(int i = 0; i < 1000; i++) atlas.find("region" + i * 7);
+            long packFind = Time.timeSinceNanos(time);
+            atlas = null;
+            data = null;
+
+            heap = usedHeap();
+            time = Time.nanos();
+            TextureAtlasIndex index = new TextureAtlasIndex(indexFile, dir, false);
+            for(AtlasPage page : index.getPages()) page.texture = texture;
+            TextureAtlas indexed = new TextureAtlas(index);
+            long indexTime = Time.timeSinceNanos(time), indexHeap = usedHeap() - heap;
+            time = Time.nanos();
+            for(int i = 0; i < 1000; i++) indexed.find("region" + i * 7);
+            long indexFind = Time.timeSinceNanos(time);
+
+            if(round == 4){
+                Log.info("[TextureAtlasIndex] @ regions: pack file load @ms, @KB heap, 1000 finds @ms; index load @ms, @KB heap, 1000 first finds @ms",
+                regions, packTime / 1000000f, packHeap / 1024, packFind / 1000000f, indexTime / 1000000f, indexHeap / 1024, indexFind / 1000000f);
+            }
+        }
+    }
+
+    static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static Texture texture(){
+        Texture texture = Texture.createEmpty(null);
+        texture.width = texture.height = 4096;
+        return texture;
+    }
+
+    /** Writes a pack file in the format of the texture packer, with an error region and one duplicate name. */
+    static void writePack(Fi file, int regions, int pages){
+        Rand rand = new Rand(regions);
+        try(Writes write = file.writes(false)){
+            write.b(TextureAtlasData.formatHeader);
+            write.b(TextureAtlasData.formatVersion);
+            int perPage = regions / pages;
+            for(int p = 0; p < pages; p++){
+                int count = perPage + (p == 0 ? 1 : 0);
+                write.b(1);
+                write.str("page" + p + ".png");
+                write.s(4096);
+                write.s(4096);
+                write.b(0);
+                write.b(0);
+                write.b(0);
+                write.b(0);
+                write.i(count);
+                for(int i = 0; i < count; i++){
+                    int id = p * perPage + i;
+                    //the extra region on the first page repeats a name
+                    write.str(id == 1 ? "error" : "region" + (i == perPage ? 5 : id));
+                    write.s(rand.random(4000));
+                    write.s(rand.random(4000));
+                    write.s(rand.random(1, 90));
+                    write.s(rand.random(1, 90));
+                    boolean offsets = id % 3 == 0;
+                    write.bool(offsets);
+                    if(offsets){
+                        write.s(rand.random(8));
+                        write.s(rand.random(8));
+                        write.s(rand.random(90, 100));
+                        write.s(rand.random(90, 100));
+                    }
+                    boolean splits = id % 10 == 0;
+                    write.bool(splits);
+                    if(splits){
+                        for(int s = 0; s < 4; s++) write.s(rand.random(1, 4));
+                    }
+                    boolean pads = splits && id % 20 == 0;
+                    write.bool(pads);
+                    if(pads){
+                        for(int s = 0; s < 4; s++) write.s(rand.random(1, 4));
+                    }
+                }
+            }
+        }
+    }
+}
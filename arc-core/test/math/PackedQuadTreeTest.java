@@ -0,0 +1,189 @@
+package math;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+import math.SpatialIndexTest.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class PackedQuadTreeTest{
+
+    @Test
+    public void intersect(){
+        Seq<Unit> units = SpatialIndexTest.units(5000, 4, 0.01f, 400f);
+        Rand rand = new Rand(5);
+        Rect rect = new Rect(), query = new Rect();
+        IntSeq result = new IntSeq(), expected = new IntSeq();
+
+        PackedQuadTree tree = new PackedQuadTree();
+        tree.build(units);
+        assertEquals(units.size, tree.size());
+
+        for(int q = 0; q < 200; q++){
+            float size = rand.chance(0.1) ? rand.random(500f, 3000f) : rand.random(1f, 80f);
+            query.set(rand.random(-100f, SpatialIndexTest.worldSize), rand.random(-100f, SpatialIndexTest.worldSize), size, size);
+
+            expected.clear();
+            for(int i = 0; i < units.size; i++){
+                units.get(i).hitbox(rect);
+                if(rect.overlaps(query)) expected.add(i);
+            }
+
+            result.clear();
+            tree.intersect(query, result);
+            result.sort();
+            assertArrayEquals(expected.toArray(), result.toArray());
+            assertEquals(expected.size > 0, tree.any(query.x, query.y, query.width, query.height));
+        }
+
+        IntSeq ids = new IntSeq();
+        for(int i = 0; i < units.size; i += 2) ids.add(i);
+        tree.build(ids, (id, out) -> units.get(id).hitbox(out));
+        assertEquals(ids.size, tree.size());
+        result.clear();
+        tree.intersect(-1000f, -1000f, 10000f, 10000f, result);
+        result.sort();
+        assertArrayEquals(ids.toArray(), result.toArray());
+
+        tree.build(0, (id, out) -> {});
+        assertFalse(tree.any(-1000f, -1000f, 10000f, 10000f));
+    }
+
+    @Test
+    public void mortonOrder(){
+        //the corners of the bounds get the smallest and largest codes, with the top bit set for the upper two
+        float[] centers = {0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f};
+        int[] order = {0, 1, 2, 3};
+        assertTrue(PackedQuadTree.morton(65535, 65535) < 0);
+
+        PackedQuadTree tree = new PackedQuadTree(){{
+            build(4, (id, out) -> out.setCentered(centers[id * 2], centers[id * 2 + 1], 0.1f));
+            assertArrayEquals(order, Arrays.copyOf(indices, 4));
+        }};
+        assertEquals(4, tree.size());
+    }
+
+    @Test
+    public void pairs(){
+        Seq<Unit> units = SpatialIndexTest.units(4000, 6, 0.01f, 200f);
+        PackedQuadTree tree = new PackedQuadTree(4);
+        tree.build(units);
+
+        IntSeq result = new IntSeq();
+        tree.pairs(result);
+        assertEquals(0, result.size % 2);
+
+        //compare as sorted (smaller, larger) keys against brute force
+        LongSeq found = new LongSeq(), expected = new LongSeq();
+        for(int i = 0; i < result.size; i += 2){
+            int a = result.get(i), b = result.get(i + 1);
+            assertNotEquals(a, b);
+            found.add((long)Math.min(a, b) << 32 | Math.max(a, b));
+        }
+
+        Rect ra = new Rect(), rb = new Rect();
+        for(int a = 0; a < units.size; a++){
+            units.get(a).hitbox(ra);
+            for(int b = a + 1; b < units.size; b++){
+                units.get(b).hitbox(rb);
+                if(ra.overlaps(rb)) expected.add((long)a << 32 | b);
+            }
+        }
+
+        found.sort();
+        expected.sort();
+        assertArrayEquals(expected.toArray(), found.toArray());
+    }
+
+    @Test
+    public void deterministic(){
+        Seq<Unit> units = SpatialIndexTest.units(30_000, 7, 0.002f, 64f);
+        ForkJoinPool single = new ForkJoinPool(1), many = new ForkJoinPool(Math.max(OS.cores, 4));
+
+        try{
+            PackedQuadTree first = new PackedQuadTree(), second = new PackedQuadTree();
+            first.setPool(single);
+            second.setPool(many);
+            first.build(units);
+            second.build(units);
+
+            IntSeq pairs1 = new IntSeq(), pairs2 = new IntSeq(), query1 = new IntSeq(), query2 = new IntSeq();
+            first.pairs(pairs1);
+            second.pairs(pairs2);
+            assertTrue(pairs1.size > 0);
+            assertArrayEquals(pairs1.toArray(), pairs2.toArray());
+
+            first.intersect(500f, 500f, 1000f, 1000f, query1);
+            second.intersect(500f, 500f, 1000f, 1000f, query2);
+            assertArrayEquals(query1.toArray(), query2.toArray());
+
+            //no pool at all gives the same order too
+            second.setPool(null);
+            second.build(units);
+            pairs2.clear();
+            second.pairs(pairs2);
+            assertArrayEquals(pairs1.toArray(), pairs2.toArray());
+        }finally{
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+
+    @Test
+    public void benchmark(){
+        Seq<Unit> units = SpatialIndexTest.units(50_000, 3, 0.002f, 64f);
+        PackedQuadTree sequential = new PackedQuadTree(), parallel = new PackedQuadTree();
+        sequential.setPool(null);
+        LooseQuadTree loose = new LooseQuadTree(new Rect(0, 0, SpatialIndexTest.worldSize, SpatialIndexTest.worldSize));
+        IntSeq result = new IntSeq(), query = new IntSeq();
+
+        for(int round = 0; round < 5; round++){
+            long looseBuild = Time.nanos();
+            loose.rebuild(units);
+            looseBuild = Time.timeSinceNanos(looseBuild);
+
+            //all pairs through one query per object, as a single-threaded baseline
+            long loosePairs = Time.nanos();
+            int looseFound = 0;
+            Rect rect = new Rect();
+            for(int i = 0; i < units.size; i++){
+                units.get(i).hitbox(rect);
+                query.clear();
+                loose.intersect(rect, query);
+                looseFound += query.size - 1;
+            }
+            loosePairs = Time.timeSinceNanos(loosePairs);
+
+            long seqBuild = Time.nanos();
+            sequential.build(units);
+            seqBuild = Time.timeSinceNanos(seqBuild);
+
+            long seqPairs = Time.nanos();
+            result.clear();
+            sequential.pairs(result);
+            seqPairs = Time.timeSinceNanos(seqPairs);
+
+            long parBuild = Time.nanos();
+            parallel.build(units);
+            parBuild = Time.timeSinceNanos(parBuild);
+
+            long parPairs = Time.nanos();
+            result.clear();
+            parallel.pairs(result);
+            parPairs = Time.timeSinceNanos(parPairs);
+
+            if(round == 4){
+                Log.info("[LooseQuadTree] @ objects: rebuild @ms, pairs by query @ms (@ pairs)", units.size, looseBuild / 1000000f, loosePairs / 1000000f, looseFound / 2);
+                Log.info("[PackedQuadTree] sequential: build @ms, pairs @ms", seqBuild / 1000000f, seqPairs / 1000000f);
+                Log.info("[PackedQuadTree] parallel (@ threads): build @ms, pairs @ms (@ pairs)",
+                ForkJoinPool.commonPool().getParallelism(), parBuild / 1000000f, parPairs / 1000000f, result.size / 2);
+            }
+        }
+    }
+}
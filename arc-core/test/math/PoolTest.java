@@ -6,6 +6,10 @@ import arc.util.*;
 import arc.util.pooling.*;
 import org.junit.*;
 
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
 public class PoolTest{
 
     @Test
@@ -46,6 +50,71 @@ public class PoolTest{
         Log.info("Total memory allocated: @ mb", Strings.fixed((post - start)/1024f/1024f, 1));
     }
 
+    @Test
+    public void stats(){
+        Pool<Object> pool = new Pool<Object>(4, 2){
+            @Override
+            protected Object newObject(){
+                return new Object();
+            }
+        };
+
+        Object a = pool.obtain(), b = pool.obtain(), c = pool.obtain();
+        pool.free(a);
+        pool.free(b);
+        pool.free(c);
+        pool.obtain();
+
+        assertEquals(3, pool.getMisses());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getDiscarded());
+        assertEquals(2, pool.peak);
+        assertEquals(2, pool.getPeak());
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException{
+        AtomicInteger created = new AtomicInteger();
+        ConcurrentPool<int[]> pool = new ConcurrentPool<int[]>(8, 64){
+            @Override
+            protected int[] newObject(){
+                created.incrementAndGet();
+                return new int[1];
+            }
+        };
+
+        int threads = 4, iterations = 200_000;
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        long start = Time.nanos();
+        for(int t = 0; t < threads; t++){
+            int id = t + 1;
+            workers[t] = new Thread(() -> {
+                int[][] held = new int[16][];
+                for(int i = 0; i < iterations; i++){
+                    int slot = i % held.length;
+                    if(held[slot] != null){
+                        //an object handed to two threads at once would be overwritten here
+                        if(held[slot][0] != id) errors.incrementAndGet();
+                        pool.free(held[slot]);
+                    }
+                    held[slot] = pool.obtain();
+                    held[slot][0] = id;
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread worker : workers){
+            worker.join();
+        }
+
+        assertEquals(0, errors.get());
+        assertTrue(pool.getFree() <= pool.max);
+        assertTrue(pool.getPeak() <= pool.max);
+        assertTrue(pool.getPeak() >= pool.getFree());
+        Log.info("[ConcurrentPool] @ threads: @ ms, @ objects created for @ obtains", threads, Time.timeSinceNanos(start) / 1000000, created.get(), threads * iterations);
+    }
+
     long memory(){
         return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
     }
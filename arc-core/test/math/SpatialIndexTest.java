@@ -0,0 +1,216 @@
+package math;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class SpatialIndexTest{
+    static final float worldSize = 4000f;
+
+    static class Unit implements QuadTreeObject{
+        float x, y, size;
+
+        @Override
+        public void hitbox(Rect out){
+            out.setCentered(x, y, size);
+        }
+    }
+
+    static Seq<Unit> units(int amount, long seed, float largeChance, float largeSize){
+        Rand rand = new Rand(seed);
+        Seq<Unit> units = new Seq<>(amount);
+        for(int i = 0; i < amount; i++){
+            Unit unit = new Unit();
+            //a few units are much larger, or outside the world
+            unit.size = rand.chance(largeChance) ? rand.random(largeSize / 4f, largeSize) : rand.random(4f, 16f);
+            unit.x = rand.random(-50f, worldSize + 50f);
+            unit.y = rand.random(-50f, worldSize + 50f);
+            units.add(unit);
+        }
+        return units;
+    }
+
+    static void check(SpatialIndex index, Seq<Unit> units, IntSeq present, Rand rand){
+        Rect rect = new Rect(), query = new Rect();
+        IntSeq result = new IntSeq(), expected = new IntSeq();
+
+        for(int q = 0; q < 200; q++){
+            float size = rand.chance(0.1) ? rand.random(500f, 3000f) : rand.random(1f, 80f);
+            query.set(rand.random(-100f, worldSize), rand.random(-100f, worldSize), size, size * rand.random(0.5f, 2f));
+
+            expected.clear();
+            for(int i = 0; i < present.size; i++){
+                units.get(present.items[i]).hitbox(rect);
+                if(rect.overlaps(query)) expected.add(present.items[i]);
+            }
+
+            result.clear();
+            index.intersect(query, result);
+            result.sort();
+            expected.sort();
+            assertArrayEquals(expected.toArray(), result.toArray());
+            assertEquals(expected.size > 0, index.any(query.x, query.y, query.width, query.height));
+        }
+    }
+
+    static void correctness(SpatialIndex index){
+        Seq<Unit> units = units(3000, 1, 0.01f, 400f);
+        Rand rand = new Rand(2);
+        IntSeq present = new IntSeq();
+
+        index.rebuild(units);
+        for(int i = 0; i < units.size; i++) present.add(i);
+        assertEquals(units.size, index.size());
+        check(index, units, present, rand);
+
+        //move everything, and remove every third unit
+        Rect rect = new Rect();
+        present.clear();
+        for(int i = 0; i < units.size; i++){
+            Unit unit = units.get(i);
+            unit.x += rand.range(30f);
+            unit.y += rand.range(30f);
+            if(i % 3 == 0){
+                assertTrue(index.remove(i));
+                assertFalse(index.remove(i));
+            }else{
+                unit.hitbox(rect);
+                index.insert(i, rect);
+                present.add(i);
+            }
+        }
+        assertEquals(present.size, index.size());
+        check(index, units, present, rand);
+
+        IntSeq all = new IntSeq();
+        index.getObjects(all);
+        all.sort();
+        assertArrayEquals(present.toArray(), all.toArray());
+
+        float[] rects = {0f, 0f, 500f, 500f, 1000f, 1000f, 20f, 20f};
+        IntSeq out = new IntSeq(), offsets = new IntSeq(), single = new IntSeq();
+        index.intersectAll(rects, 2, out, offsets);
+        assertEquals(3, offsets.size);
+        index.intersect(1000f, 1000f, 20f, 20f, single);
+        assertEquals(single.size, offsets.get(2) - offsets.get(1));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.any(-10000f, -10000f, 100000f, 100000f));
+    }
+
+    @Test
+    public void looseQuadTree(){
+        correctness(new LooseQuadTree(new Rect(0, 0, worldSize, worldSize), 7));
+    }
+
+    @Test
+    public void spatialHash(){
+        correctness(new SpatialHash(32f, 16));
+    }
+
+    @Test
+    public void benchmark(){
+        Seq<Unit> units = units(50_000, 3, 0.002f, 64f);
+        Rect bounds = new Rect(0, 0, worldSize, worldSize);
+
+        QuadTree<Unit> tree = new QuadTree<>(new Rect(-100, -100, worldSize + 200, worldSize + 200));
+        LooseQuadTree loose = new LooseQuadTree(bounds);
+        SpatialHash hash = new SpatialHash(32f, units.size);
+
+        for(int round = 0; round < 3; round++){
+            boolean log = round == 2;
+            benchmarkTree(tree, units, log);
+            benchmarkIndex("LooseQuadTree", loose, units, log);
+            benchmarkIndex("SpatialHash", hash, units, log);
+        }
+    }
+
+    static void benchmarkTree(QuadTree<Unit> tree, Seq<Unit> units, boolean log){
+        Seq<Unit> result = new Seq<>();
+        long insert = Time.nanos();
+        tree.clear();
+        for(Unit unit : units) tree.insert(unit);
+        insert = Time.timeSinceNanos(insert);
+
+        long query = Time.nanos();
+        int found = 0;
+        for(int i = 0; i < 10_000; i++){
+            Unit unit = units.get(i);
+            result.clear();
+            tree.intersect(unit.x - 32f, unit.y - 32f, 64f, 64f, result);
+            found += result.size;
+        }
+        query = Time.timeSinceNanos(query);
+
+        long move = Time.nanos();
+        for(Unit unit : units){
+            tree.remove(unit);
+            unit.x += 1f;
+            tree.insert(unit);
+        }
+        move = Time.timeSinceNanos(move);
+
+        long rebuild = Time.nanos();
+        tree.clear();
+        for(Unit unit : units) tree.insert(unit);
+        rebuild = Time.timeSinceNanos(rebuild);
+
+        long remove = Time.nanos();
+        for(Unit unit : units) tree.remove(unit);
+        remove = Time.timeSinceNanos(remove);
+
+        if(log) log("QuadTree", units.size, insert, query, found, move, rebuild, remove);
+    }
+
+    static void benchmarkIndex(String name, SpatialIndex index, Seq<Unit> units, boolean log){
+        Rect rect = new Rect();
+        IntSeq result = new IntSeq();
+        long insert = Time.nanos();
+        index.clear();
+        for(int i = 0; i < units.size; i++){
+            units.get(i).hitbox(rect);
+            index.insert(i, rect);
+        }
+        insert = Time.timeSinceNanos(insert);
+
+        long query = Time.nanos();
+        int found = 0;
+        for(int i = 0; i < 10_000; i++){
+            Unit unit = units.get(i);
+            result.clear();
+            index.intersect(unit.x - 32f, unit.y - 32f, 64f, 64f, result);
+            found += result.size;
+        }
+        query = Time.timeSinceNanos(query);
+
+        long move = Time.nanos();
+        for(int i = 0; i < units.size; i++){
+            Unit unit = units.get(i);
+            unit.x -= 1f;
+            unit.hitbox(rect);
+            index.insert(i, rect);
+        }
+        move = Time.timeSinceNanos(move);
+
+        long rebuild = Time.nanos();
+        index.rebuild(units);
+        rebuild = Time.timeSinceNanos(rebuild);
+
+        long remove = Time.nanos();
+        for(int i = 0; i < units.size; i++) index.remove(i);
+        remove = Time.timeSinceNanos(remove);
+
+        if(log) log(name, units.size, insert, query, found, move, rebuild, remove);
+    }
+
+    static void log(String name, int amount, long insert, long query, int found, long move, long rebuild, long remove){
+        Log.info("[@] @ objects: insert @ms, 10k queries @ms (@ found), move @ms, rebuild @ms, remove @ms",
+        name, amount, insert / 1000000f, query / 1000000f, found, move / 1000000f, rebuild / 1000000f, remove / 1000000f);
+    }
+}
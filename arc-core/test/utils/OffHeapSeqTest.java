@@ -0,0 +1,184 @@
+package utils;
+
+import arc.files.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel.*;
+
+import static org.junit.Assert.*;
+
+public class OffHeapSeqTest{
+    //keeps benchmark results alive
+    static long sink;
+
+    @Test
+    public void growth(){
+        OffHeapIntSeq seq = new OffHeapIntSeq(64, false);
+        assertEquals(16, seq.chunkSize());
+
+        for(int i = 0; i < 10; i++) seq.add(i);
+        assertEquals(16, seq.capacity());
+
+        //growing only adds chunks, so earlier elements keep their memory
+        seq.ensureCapacity(1000);
+        assertTrue(seq.capacity() >= 1010);
+        for(int i = 10; i < 1000; i++) seq.add(i * 3);
+        for(int i = 0; i < 1000; i++) assertEquals(i < 10 ? i : i * 3, seq.get(i));
+
+        int[] array = new int[100];
+        for(int i = 0; i < array.length; i++) array[i] = -i;
+        seq.addAll(array, 10, 90);
+        assertEquals(1090, seq.size);
+        assertEquals(-10, seq.get(1000));
+        assertEquals(-99, seq.peek());
+
+        int[] out = new int[40];
+        seq.get(990, out, 0, 40);
+        assertEquals(990 * 3, out[0]);
+        assertEquals(-10, out[10]);
+        assertEquals(-39, out[39]);
+
+        seq.incr(0, 5);
+        assertEquals(5, seq.first());
+        assertEquals(-99, seq.pop());
+        assertEquals(1089, seq.size);
+        assertEquals(1000, seq.indexOf(-10));
+        assertFalse(seq.contains(12345));
+
+        seq.truncate(20);
+        seq.shrink();
+        assertEquals(32, seq.capacity());
+        assertEquals(15 * 3, seq.get(15));
+
+        try{
+            seq.get(20);
+            fail();
+        }catch(IndexOutOfBoundsException ignored){
+        }
+
+        seq.dispose();
+        assertTrue(seq.isDisposed());
+        assertEquals(0, seq.size);
+        assertEquals(0, seq.allocatedBytes());
+        try{
+            seq.add(1);
+            fail();
+        }catch(IllegalStateException ignored){
+        }
+    }
+
+    @Test
+    public void types(){
+        OffHeapFloatSeq floats = new OffHeapFloatSeq(32, false);
+        OffHeapLongSeq longs = new OffHeapLongSeq(32, false);
+        OffHeapByteSeq bytes = new OffHeapByteSeq(32, false);
+        for(int i = 0; i < 500; i++){
+            floats.add(i * 0.5f);
+            longs.add((long)i << 40);
+            bytes.add((byte)i);
+        }
+        for(int i = 0; i < 500; i++){
+            assertEquals(i * 0.5f, floats.get(i), 0f);
+            assertEquals((long)i << 40, longs.get(i));
+            assertEquals((byte)i, bytes.get(i));
+        }
+        assertArrayEquals(floats.toSeq().toArray(), floats.toArray(), 0f);
+        assertEquals(500, longs.toArray().length);
+        assertEquals((byte)499, bytes.peek());
+
+        floats.dispose();
+        longs.dispose();
+        bytes.dispose();
+    }
+
+    @Test
+    public void writeRead() throws IOException{
+        OffHeapIntSeq seq = new OffHeapIntSeq(256, false);
+        Rand rand = new Rand(1);
+        for(int i = 0; i < 5000; i++) seq.add(rand.nextInt());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        seq.write(new Writes(new DataOutputStream(bytes)));
+        assertEquals(4 + 5000 * 4, bytes.size());
+
+        //the format is the same as writing each value with Writes
+        Reads reads = new Reads(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(5000, reads.i());
+        for(int i = 0; i < 5000; i++) assertEquals(seq.get(i), reads.i());
+
+        //reading appends after existing elements, across chunk boundaries
+        OffHeapIntSeq copy = new OffHeapIntSeq(256, false);
+        copy.add(7);
+        copy.read(new Reads(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        assertEquals(5001, copy.size);
+        assertEquals(7, copy.get(0));
+        for(int i = 0; i < 5000; i++) assertEquals(seq.get(i), copy.get(i + 1));
+
+        seq.dispose();
+        copy.dispose();
+    }
+
+    @Test
+    public void map(){
+        Fi file = Fi.tempFile("offheap");
+        ByteBuffer buffer = ByteBuffer.allocate(3000 * 8);
+        for(int i = 0; i < 3000; i++) buffer.putLong(i * 31L);
+        file.writeBytes(buffer.array(), false);
+
+        OffHeapLongSeq seq = OffHeapLongSeq.map(file, MapMode.READ_WRITE);
+        assertTrue(seq.isMapped());
+        assertEquals(3000, seq.size);
+        for(int i = 0; i < 3000; i++) assertEquals(i * 31L, seq.get(i));
+
+        //changes are written through to the file
+        seq.set(2999, -1L);
+        seq.dispose();
+        assertEquals(-1L, ByteBuffer.wrap(file.readBytes()).getLong(2999 * 8));
+
+        OffHeapLongSeq readOnly = OffHeapLongSeq.map(file, MapMode.READ_ONLY);
+        readOnly.pop();
+        try{
+            readOnly.ensureCapacity(2);
+            fail();
+        }catch(IllegalStateException ignored){
+        }
+        readOnly.dispose();
+        file.delete();
+    }
+
+    @Test
+    public void benchmark(){
+        int count = 20_000_000;
+        for(int round = 0; round < 3; round++){
+            long time = Time.nanos();
+            IntSeq heap = new IntSeq();
+            for(int i = 0; i < count; i++) heap.add(i);
+            long heapTime = Time.timeSinceNanos(time);
+            sink += heap.size;
+            heap = null;
+
+            time = Time.nanos();
+            OffHeapIntSeq offHeap = new OffHeapIntSeq();
+            for(int i = 0; i < count; i++) offHeap.add(i);
+            long offHeapTime = Time.timeSinceNanos(time);
+
+            time = Time.nanos();
+            long sum = 0;
+            for(int i = 0; i < count; i++) sum += offHeap.get(i);
+            long readTime = Time.timeSinceNanos(time);
+            sink += sum;
+            offHeap.dispose();
+
+            if(round == 2){
+                Log.info("[OffHeapIntSeq] add @ ints: IntSeq @ms, off-heap @ms; off-heap get @ms",
+                count, heapTime / 1000000f, offHeapTime / 1000000f, readTime / 1000000f);
+            }
+        }
+    }
+}
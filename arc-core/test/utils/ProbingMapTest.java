@@ -0,0 +1,227 @@
+package utils;
+
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ProbingMapTest{
+    //keeps benchmark results alive
+    static int sink;
+
+    @Test
+    public void intIntMap(){
+        for(boolean incremental : new boolean[]{false, true}){
+            ProbingIntIntMap map = new ProbingIntIntMap(4, 0.9f);
+            map.setIncremental(incremental);
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            Rand rand = new Rand(1);
+            boolean resized = false;
+
+            for(int i = 0; i < 300_000; i++){
+                //a small key range, so the same keys are added and removed many times; includes 0 and negative keys
+                int key = rand.random(-100, 20_000), op = rand.random(9);
+                if(op < 5){
+                    map.put(key, i);
+                    expected.put(key, i);
+                }else if(op < 8){
+                    Integer old = expected.remove(key);
+                    assertEquals(old == null ? -1 : old, map.remove(key, -1));
+                }else{
+                    assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key, -1));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                }
+                assertEquals(expected.size(), map.size);
+                resized |= map.isResizing();
+
+                if(i % 50_000 == 0){
+                    checkIterator(map, expected);
+                }
+            }
+            assertEquals(incremental, resized);
+            checkIterator(map, expected);
+
+            ProbingIntIntMap copy = new ProbingIntIntMap(map);
+            assertEquals(map, copy);
+            assertEquals(map.hashCode(), copy.hashCode());
+
+            map.clear();
+            assertEquals(0, map.size);
+            assertFalse(map.keys().hasNext);
+        }
+    }
+
+    static void checkIterator(ProbingIntIntMap map, HashMap<Integer, Integer> expected){
+        int count = 0;
+        for(ProbingIntIntMap.Entry entry : map.entries()){
+            assertEquals(expected.get(entry.key).intValue(), entry.value);
+            count++;
+        }
+        assertEquals(expected.size(), count);
+
+        //removing during iteration shifts later keys back, which must not skip any
+        Iterator<ProbingIntIntMap.Entry> it = map.entries();
+        while(it.hasNext()){
+            ProbingIntIntMap.Entry entry = it.next();
+            if((entry.key & 1) == 0){
+                it.remove();
+                expected.remove(entry.key);
+            }
+        }
+        assertEquals(expected.size(), map.size);
+        for(Integer key : expected.keySet()) assertTrue(map.containsKey(key));
+    }
+
+    @Test
+    public void incrementalResize(){
+        ProbingIntIntMap map = new ProbingIntIntMap(100);
+        map.setIncremental(true);
+        int count = 0;
+        while(!map.isResizing()) map.put(++count, count);
+
+        //keys of both tables are visible while the resize is in progress
+        for(int i = 1; i <= count; i++) assertEquals(i, map.get(i));
+        map.increment(3, 10);
+        map.remove(5);
+        assertTrue(map.isResizing());
+        assertEquals(13, map.get(3));
+        assertFalse(map.containsKey(5));
+
+        for(int i = 1000; map.isResizing(); i++) map.put(i, i);
+        for(int i = 1; i <= count; i++) assertEquals(i == 5 ? 0 : i == 3 ? 13 : i, map.get(i));
+        assertEquals(map.size, map.values().toArray().size);
+    }
+
+    @Test
+    public void otherMaps(){
+        Rand rand = new Rand(2);
+        for(boolean incremental : new boolean[]{false, true}){
+            ProbingIntMap<String> intMap = new ProbingIntMap<>(4);
+            ProbingLongMap<String> longMap = new ProbingLongMap<>(4);
+            ProbingIntFloatMap floatMap = new ProbingIntFloatMap(4);
+            ProbingObjectIntMap<String> objectMap = new ProbingObjectIntMap<>(4);
+            intMap.setIncremental(incremental);
+            longMap.setIncremental(incremental);
+            floatMap.setIncremental(incremental);
+            objectMap.setIncremental(incremental);
+            HashMap<Integer, String> expected = new HashMap<>();
+
+            for(int i = 0; i < 100_000; i++){
+                int key = rand.random(-10, 5000);
+                //spread keys across the upper bits, which only a 64-bit hash sees
+                long longKey = (long)key << 32 | 7;
+                String value = "v" + i, name = "k" + key;
+
+                if(rand.chance(0.6)){
+                    assertEquals(expected.get(key), intMap.put(key, value));
+                    assertEquals(expected.get(key), longMap.put(longKey, value));
+                    floatMap.put(key, i);
+                    objectMap.put(name, i);
+                    expected.put(key, value);
+                }else{
+                    String old = expected.remove(key);
+                    assertEquals(old, intMap.remove(key));
+                    assertEquals(old, longMap.remove(longKey));
+                    assertEquals(old == null ? -1f : Float.parseFloat(old.substring(1)), floatMap.remove(key, -1f), 0f);
+                    assertEquals(old == null ? -1 : Integer.parseInt(old.substring(1)), objectMap.remove(name, -1));
+                }
+
+                assertEquals(expected.size(), intMap.size);
+                assertEquals(expected.size(), longMap.size);
+                assertEquals(expected.size(), floatMap.size);
+                assertEquals(expected.size(), objectMap.size);
+            }
+
+            for(Map.Entry<Integer, String> entry : expected.entrySet()){
+                int key = entry.getKey(), value = Integer.parseInt(entry.getValue().substring(1));
+                assertEquals(entry.getValue(), intMap.get(key));
+                assertEquals(entry.getValue(), longMap.get((long)key << 32 | 7));
+                assertEquals(value, floatMap.get(key, -1f), 0f);
+                assertEquals(value, objectMap.get("k" + key, -1));
+            }
+
+            assertEquals(expected.size(), intMap.keys().toArray().size);
+            assertEquals(expected.size(), longMap.values().toArray().size);
+            assertEquals(expected.size(), floatMap.values().toArray().size);
+            assertEquals(expected.size(), objectMap.keys().toArray().size);
+        }
+    }
+
+    @Test
+    public void benchmark(){
+        int keys = 200_000, operations = 1_000_000;
+        float[] loadFactors = {0.5f, 0.75f, 0.9f};
+        //fractions of get and put; the rest is remove
+        float[][] mixes = {{0.9f, 0.05f}, {0.5f, 0.3f}, {0.2f, 0.5f}};
+
+        int[] ops = new int[operations], values = new int[operations];
+        Rand rand = new Rand(3);
+        for(int i = 0; i < operations; i++){
+            ops[i] = rand.nextInt();
+            values[i] = rand.random(keys * 4);
+        }
+
+        for(int round = 0; round < 3; round++){
+            boolean log = round == 2;
+            for(float loadFactor : loadFactors){
+                for(float[] mix : mixes){
+                    long cuckoo = run(new IntIntMap(keys / 2, loadFactor), null, ops, values, mix, keys);
+                    long probing = run(null, new ProbingIntIntMap(keys / 2, loadFactor), ops, values, mix, keys);
+                    ProbingIntIntMap map = new ProbingIntIntMap(16, loadFactor);
+                    map.setIncremental(true);
+                    long incremental = run(null, map, ops, values, mix, keys);
+
+                    if(log){
+                        Log.info("[IntIntMap] load @, get @% put @%: cuckoo @ms, probing @ms, probing incremental @ms",
+                        loadFactor, (int)(mix[0] * 100), (int)(mix[1] * 100), cuckoo / 1000000f, probing / 1000000f, incremental / 1000000f);
+                    }
+                }
+            }
+        }
+
+        //worst single put with growth: incremental spreads the rehash across the following puts
+        for(boolean incremental : new boolean[]{false, true}){
+            ProbingIntIntMap map = new ProbingIntIntMap(16);
+            map.setIncremental(incremental);
+            long worst = 0;
+            for(int i = 1; i <= 2_000_000; i++){
+                long time = Time.nanos();
+                map.put(i, i);
+                worst = Math.max(worst, Time.timeSinceNanos(time));
+            }
+            Log.info("[ProbingIntIntMap] incremental: @, worst put during growth to 2M keys: @ms", incremental, worst / 1000000f);
+        }
+    }
+
+    static long run(IntIntMap cuckoo, ProbingIntIntMap probing, int[] ops, int[] values, float[] mix, int keys){
+        int getBelow = (int)(mix[0] * 1000), putBelow = (int)((mix[0] + mix[1]) * 1000);
+        //prefill half of the key range, so every mix works on a similar size
+        for(int i = 1; i <= keys / 2; i++){
+            int key = i * 3;
+            if(cuckoo != null) cuckoo.put(key, i);
+            else probing.put(key, i);
+        }
+
+        int sum = 0;
+        long time = Time.nanos();
+        for(int i = 0; i < ops.length; i++){
+            int op = (ops[i] & 0x7fffffff) % 1000, key = values[i];
+            if(cuckoo != null){
+                if(op < getBelow) sum += cuckoo.get(key, 0);
+                else if(op < putBelow) cuckoo.put(key, i);
+                else sum += cuckoo.remove(key, 0);
+            }else{
+                if(op < getBelow) sum += probing.get(key, 0);
+                else if(op < putBelow) probing.put(key, i);
+                else sum += probing.remove(key, 0);
+            }
+        }
+        time = Time.timeSinceNanos(time);
+        sink += sum;
+        return time;
+    }
+}
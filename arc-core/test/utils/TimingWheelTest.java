@@ -0,0 +1,302 @@
+package utils;
+
+import arc.*;
+import arc.math.*;
+import arc.mock.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.Timer.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest{
+
+    @Test
+    public void matchesCountdown(){
+        //delays reach every wheel and the overflow list
+        for(double maxDelay : new double[]{50, 5000, 300_000, 40_000_000}){
+            IntSeq ran = new IntSeq();
+            TimingWheel<Integer> wheel = new TimingWheel<>(1.0, ran::add);
+            Rand rand = new Rand(7);
+            double[] due = new double[1000];
+            boolean[] done = new boolean[due.length];
+            LongSeq handles = new LongSeq();
+            IntSeq expected = new IntSeq();
+            int count = 0;
+
+            for(int step = 0; step < 400; step++){
+                for(int i = 0; i < 3 && count < due.length; i++){
+                    double delay = rand.chance(0.1) ? 0 : rand.random((float)maxDelay);
+                    due[count] = wheel.time() + delay;
+                    handles.add(wheel.schedule(delay, count++));
+                }
+                if(rand.chance(0.2) && count > 0){
+                    int id = rand.random(count - 1);
+                    assertEquals(!done[id], wheel.cancel(handles.get(id)));
+                    done[id] = true;
+                }
+
+                ran.clear();
+                expected.clear();
+                wheel.advance(rand.random((float)maxDelay / 40f));
+                for(int id = 0; id < count; id++){
+                    if(!done[id] && due[id] <= wheel.time()){
+                        expected.add(id);
+                        done[id] = true;
+                    }
+                }
+                ran.sort();
+                assertEquals("max delay " + maxDelay + ", step " + step, expected, ran);
+                assertEquals(ran.size, wheel.lastExpired);
+            }
+
+            int pending = 0;
+            for(int id = 0; id < count; id++) if(!done[id]) pending++;
+            assertEquals(pending, wheel.size());
+        }
+    }
+
+    @Test
+    public void fractionalDelays(){
+        IntSeq ran = new IntSeq();
+        TimingWheel<Integer> wheel = new TimingWheel<>(1.0, ran::add);
+        wheel.schedule(0.5, 1);
+        wheel.schedule(1.25, 2);
+        wheel.schedule(0, 3);
+
+        wheel.advance(0.25);
+        assertArrayEquals(new int[]{3}, ran.toArray());
+        wheel.advance(0.25);
+        assertArrayEquals(new int[]{3, 1}, ran.toArray());
+        wheel.advance(0.7);
+        assertEquals(2, ran.size);
+        wheel.advance(0.05);
+        assertArrayEquals(new int[]{3, 1, 2}, ran.toArray());
+    }
+
+    @Test
+    public void handles(){
+        IntSeq ran = new IntSeq();
+        TimingWheel<Integer> wheel = new TimingWheel<>(1.0, ran::add);
+        long first = wheel.schedule(10, 1);
+        assertEquals(1, (int)wheel.get(first));
+        assertEquals(10.0, wheel.getTime(first), 0.0);
+        assertTrue(wheel.cancel(first));
+        assertFalse(wheel.cancel(first));
+        assertNull(wheel.get(first));
+
+        //the pooled node is reused, but the old handle stays invalid
+        long second = wheel.schedule(10, 2);
+        assertNotEquals(first, second);
+        assertFalse(wheel.cancel(first));
+        wheel.advance(10);
+        assertArrayEquals(new int[]{2}, ran.toArray());
+        assertFalse(wheel.cancel(second));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void scheduleWhileRunning(){
+        Seq<String> ran = new Seq<>();
+        TimingWheel<String>[] wheel = new TimingWheel[1];
+        long[] cancelled = new long[1];
+        wheel[0] = new TimingWheel<>(1.0, name -> {
+            ran.add(name);
+            if(name.equals("a")){
+                wheel[0].schedule(0, "again");
+                wheel[0].cancel(cancelled[0]);
+            }
+            if(name.equals("fail")) throw new IllegalStateException();
+        });
+
+        wheel[0].schedule(1, "a");
+        cancelled[0] = wheel[0].schedule(1, "cancelled");
+        wheel[0].advance(1);
+        //tasks scheduled while running wait for the next advance
+        assertEquals(Seq.with("a"), ran);
+        wheel[0].advance(0);
+        assertEquals(Seq.with("a", "again"), ran);
+
+        wheel[0].schedule(1, "fail");
+        wheel[0].schedule(1, "after");
+        try{
+            wheel[0].advance(1);
+            fail();
+        }catch(IllegalStateException ignored){
+        }
+        assertEquals(1, wheel[0].size());
+        wheel[0].advance(0);
+        assertEquals(Seq.with("a", "again", "fail", "after"), ran);
+    }
+
+    @Test
+    public void nextTime(){
+        TimingWheel<Integer> wheel = new TimingWheel<>(1.0, i -> {});
+        assertEquals(Double.POSITIVE_INFINITY, wheel.nextTime(), 0.0);
+        wheel.schedule(30.5, 0);
+        assertEquals(30.5, wheel.nextTime(), 0.0);
+        wheel.clear();
+        wheel.schedule(1000, 0);
+        double next = wheel.nextTime();
+        assertTrue(next <= 1000 && next > 900);
+
+        //a block of the second wheel starts before the first task of the first wheel
+        wheel.clear();
+        wheel.schedule(64.5, 0);
+        wheel.advance(20);
+        wheel.schedule(50.5, 1);
+        assertTrue(wheel.nextTime() <= 64.5);
+
+        //never after the next task, wherever it is
+        Rand rand = new Rand(2);
+        wheel.clear();
+        double[] due = new double[2000];
+        for(int step = 0; step < due.length; step++){
+            double delay = rand.chance(0.01) ? rand.random(30_000_000f) : rand.random(rand.chance(0.5) ? 100f : 10_000f);
+            wheel.schedule(delay, step);
+            due[step] = wheel.time() + delay;
+            wheel.advance(rand.random(50f));
+            double min = Double.POSITIVE_INFINITY;
+            for(int i = 0; i <= step; i++) if(due[i] > wheel.time()) min = Math.min(min, due[i]);
+            assertTrue("step " + step, wheel.nextTime() <= min);
+        }
+    }
+
+    @Test
+    public void submit() throws Exception{
+        AtomicInteger ran = new AtomicInteger();
+        TimingWheel<Runnable> wheel = new TimingWheel<>(1.0, Runnable::run);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for(int t = 0; t < 4; t++){
+            executor.submit(() -> {
+                for(int i = 0; i < 10000; i++) wheel.submit(i % 3, ran::incrementAndGet);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        wheel.advance(0);
+        assertEquals(4 * 3334, ran.get());
+        wheel.advance(2);
+        assertEquals(40000, ran.get());
+    }
+
+    @Test
+    public void timeRun(){
+        Time.clear();
+        Time.delta = 1f;
+        IntSeq ran = new IntSeq();
+        Time.run(2.5f, () -> ran.add(1));
+        Time.run(1f, () -> ran.add(2));
+        Time.post(0f, () -> ran.add(3));
+        assertEquals(2, Time.pendingRuns());
+
+        Time.update();
+        assertArrayEquals(new int[]{3, 2}, ran.toArray());
+        assertEquals(2, Time.expiredRuns());
+        Time.update();
+        Time.update();
+        assertArrayEquals(new int[]{3, 2, 1}, ran.toArray());
+
+        Time.run(1f, () -> ran.add(4));
+        Time.clear();
+        Time.update();
+        assertEquals(3, ran.size);
+    }
+
+    @Test
+    public void timer() throws Exception{
+        Core.app = new MockApplication();
+        Timer timer = new Timer();
+        CountDownLatch latch = new CountDownLatch(5);
+        AtomicInteger once = new AtomicInteger(), repeated = new AtomicInteger(), cancelled = new AtomicInteger();
+
+        timer.scheduleTask(task(() -> { once.incrementAndGet(); latch.countDown(); }), 0.05f);
+        timer.scheduleTask(task(() -> { repeated.incrementAndGet(); latch.countDown(); }), 0.01f, 0.01f, 3);
+        Task cancel = timer.scheduleTask(task(cancelled::incrementAndGet), 0.03f);
+        assertTrue(cancel.isScheduled());
+        assertTrue(cancel.getExecuteTimeMillis() > 0);
+        cancel.cancel();
+        assertFalse(cancel.isScheduled());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(1, once.get());
+        assertEquals(4, repeated.get());
+        assertEquals(0, cancelled.get());
+        assertTrue(timer.isEmpty());
+        timer.stop();
+    }
+
+    @Test
+    public void timerDelay() throws Exception{
+        Core.app = new MockApplication();
+        Timer timer = new Timer();
+        CountDownLatch latch = new CountDownLatch(2);
+        long[] ran = new long[2];
+        long start = System.nanoTime() / 1000000;
+
+        //only tasks that are already scheduled are delayed
+        Task delayed = timer.scheduleTask(task(() -> { ran[0] = System.nanoTime() / 1000000; latch.countDown(); }), 0.1f);
+        timer.delay(300);
+        assertTrue(delayed.getExecuteTimeMillis() >= start + 400);
+        timer.scheduleTask(task(() -> { ran[1] = System.nanoTime() / 1000000; latch.countDown(); }), 0.05f);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue("ran after " + (ran[1] - start), ran[1] - start >= 45);
+        assertTrue("ran after " + (ran[0] - start), ran[0] - start >= 395);
+        assertTrue(ran[1] < ran[0]);
+        timer.stop();
+    }
+
+    @Test
+    public void benchmark(){
+        int tasks = 50_000, frames = 600;
+        Rand rand = new Rand(1);
+        float[] delays = new float[tasks];
+        for(int i = 0; i < tasks; i++) delays[i] = rand.random(10f, 1200f);
+        int[] ran = {0};
+        Runnable run = () -> ran[0]++;
+
+        //the previous implementation: a countdown for every pending task, every frame
+        Seq<float[]> countdowns = new Seq<>(false, tasks);
+        long time = Time.nanos();
+        for(int i = 0; i < tasks; i++) countdowns.add(new float[]{delays[i]});
+        for(int frame = 0; frame < frames; frame++){
+            for(int i = 0; i < countdowns.size; i++){
+                float[] countdown = countdowns.get(i);
+                countdown[0] -= 1f;
+                if(countdown[0] <= 0){
+                    run.run();
+                    countdowns.remove(i--);
+                }
+            }
+        }
+        long scan = Time.timeSinceNanos(time);
+        int scanned = ran[0];
+
+        ran[0] = 0;
+        TimingWheel<Runnable> wheel = new TimingWheel<>(1.0, Runnable::run);
+        time = Time.nanos();
+        for(int i = 0; i < tasks; i++) wheel.schedule(delays[i], run);
+        for(int frame = 0; frame < frames; frame++) wheel.advance(1.0);
+        long wheeled = Time.timeSinceNanos(time);
+
+        assertEquals(scanned, ran[0]);
+        Log.info("[TimingWheel] @ tasks over @ frames: countdown scan @ms, timing wheel @ms, @ still pending", tasks, frames,
+        Strings.autoFixed(scan / 1000000f, 2), Strings.autoFixed(wheeled / 1000000f, 2), wheel.size());
+    }
+
+    static Task task(Runnable run){
+        return new Task(){
+            @Override
+            public void run(){
+                run.run();
+            }
+        };
+    }
+}
@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.net.Socket;
 import java.net.*;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Represents a TCP and optionally a UDP connection between a {@link Client} and
@@ -21,7 +23,14 @@ public class Connection{
     EndPoint endPoint;
     TcpConnection tcp;
     UdpConnection udp;
-    InetSocketAddress udpRemoteAddress;
+    volatile InetSocketAddress udpRemoteAddress;
+    /** The server worker thread that owns this connection, or null if it is updated by the main update thread. */
+    Server.Worker worker;
+    /** Whether this connection still counts towards the load of its worker. */
+    boolean assigned;
+    /** Listener notifications waiting to be run by {@link Server#setListenerExecutor}. */
+    final ConcurrentLinkedQueue<Runnable> queuedEvents = new ConcurrentLinkedQueue<>();
+    final AtomicBoolean dispatching = new AtomicBoolean();
     private NetListener[] listeners = {};
     private final Object listenerLock = new Object();
     private int lastPingID;
@@ -80,6 +89,17 @@ public class Connection{
         }
     }
 
+    /** Sends a frame that was encoded once for many connections using TCP. */
+    int sendTCP(FramePool.Frame frame){
+        try{
+            return tcp.send(frame);
+        }catch(IOException | ArcNetException ex){
+            close(DcReason.error);
+            ArcNet.handleError(ex);
+            return 0;
+        }
+    }
+
     /**
      * Sends the object over the network using UDP.
      * @return The number of bytes sent.
@@ -299,14 +319,14 @@ public class Connection{
      * socket, if any.
      */
     public int getTcpWriteBufferSize(){
-        return tcp.writeBuffer.position();
+        return tcp.writeBuffer.position() + tcp.queuedBytes;
     }
 
     /**
      * @see #setIdleThreshold(float)
      */
     public boolean isIdle(){
-        return tcp.writeBuffer.position() / (float)tcp.writeBuffer.capacity() < tcp.idleThreshold;
+        return (tcp.writeBuffer.position() + tcp.queuedBytes) / (float)tcp.writeBuffer.capacity() < tcp.idleThreshold;
     }
 
     /**
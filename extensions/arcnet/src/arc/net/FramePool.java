@@ -0,0 +1,112 @@
+package arc.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Pool of direct buffers that each hold one serialized TCP message, including its length.
+ * Frames are reference counted, so one frame can be queued on many connections at once.
+ * This class is thread safe.
+ */
+class FramePool{
+    final int frameSize, max;
+    private final ConcurrentLinkedQueue<Frame> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger(), inUse = new AtomicInteger();
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * @param frameSize The capacity of each frame.
+     * @param max The maximum amount of free frames kept for reuse.
+     */
+    FramePool(int frameSize, int max){
+        this.frameSize = frameSize;
+        this.max = max;
+    }
+
+    /** Serializes an object into a frame with a reference count of 1. */
+    Frame encode(NetSerializer serializer, Object object){
+        Frame frame = obtain();
+        ByteBuffer buffer = frame.buffer;
+        int lengthLength = serializer.getLengthLength();
+        try{
+            buffer.position(lengthLength);
+            serializer.write(buffer, object);
+        }catch(Throwable ex){
+            frame.release();
+            throw new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex);
+        }
+        int end = buffer.position();
+        buffer.position(0);
+        serializer.writeLength(buffer, end - lengthLength);
+        buffer.position(0);
+        buffer.limit(end);
+        return frame;
+    }
+
+    Frame obtain(){
+        Frame frame = free.poll();
+        if(frame == null){
+            allocated.incrementAndGet();
+            frame = new Frame(this, ByteBuffer.allocateDirect(frameSize));
+        }else{
+            freeCount.decrementAndGet();
+        }
+        frame.buffer.clear();
+        frame.refs.set(1);
+        inUse.incrementAndGet();
+        return frame;
+    }
+
+    void free(Frame frame){
+        inUse.decrementAndGet();
+        if(freeCount.get() < max){
+            freeCount.incrementAndGet();
+            free.add(frame);
+        }
+    }
+
+    /** @return the amount of frames waiting for reuse. */
+    int getFree(){
+        return freeCount.get();
+    }
+
+    /** @return the amount of frames that are still queued on a connection, or being encoded. */
+    int getInUse(){
+        return inUse.get();
+    }
+
+    /** @return the total amount of direct buffers that were allocated by this pool. */
+    long getAllocated(){
+        return allocated.get();
+    }
+
+    static class Frame{
+        final FramePool pool;
+        /** The encoded message, between 0 and its limit. Never modified after encoding; connections write from duplicates. */
+        final ByteBuffer buffer;
+        final AtomicInteger refs = new AtomicInteger();
+
+        Frame(FramePool pool, ByteBuffer buffer){
+            this.pool = pool;
+            this.buffer = buffer;
+        }
+
+        int size(){
+            return buffer.limit();
+        }
+
+        void retain(){
+            refs.incrementAndGet();
+        }
+
+        void release(){
+            int count = refs.decrementAndGet();
+            if(count == 0){
+                pool.free(this);
+            }else if(count < 0){
+                throw new IllegalStateException("Frame released too many times.");
+            }
+        }
+    }
+}
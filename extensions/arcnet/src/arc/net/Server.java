@@ -10,10 +10,18 @@ import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Manages TCP and optionally UDP connections from many {@linkplain Client
  * Clients}.
+ * <p>
+ * By default, every connection is processed by the thread calling
+ * {@link #update(int)}. With {@link #setWorkerThreads(int)}, accepted TCP
+ * connections are instead spread across several worker threads, each with its
+ * own selector. The update thread then only accepts connections and handles
+ * UDP.
  * @author Nathan Sweet <misc@n4te.com>
  */
 public class Server implements EndPoint{
@@ -23,9 +31,16 @@ public class Server implements EndPoint{
     private int emptySelects;
     private ServerSocketChannel serverChannel;
     private UdpConnection udp;
-    private Connection[] connections = {};
+    private volatile Connection[] connections = {};
     private ObjectMap<InetSocketAddress, Connection> udpAddressToConnection = new ObjectMap<>();
     private IntMap<Connection> pendingConnections = new IntMap<>();
+    private final Object connectionLock = new Object();
+    private int workerThreads;
+    private Worker[] workers = {};
+    private volatile Executor listenerExecutor;
+    private final FramePool framePool;
+    private final AtomicLong broadcasts = new AtomicLong(), broadcastBytes = new AtomicLong();
+    private volatile int lastBroadcastBytes;
     NetListener[] listeners = {};
     private Object listenerLock = new Object();
     private volatile boolean shutdown;
@@ -39,28 +54,28 @@ public class Server implements EndPoint{
 
     private NetListener dispatchListener = new NetListener(){
         public void connected(Connection connection){
-            NetListener[] listeners = Server.this.listeners;
-            for(int i = 0, n = listeners.length; i < n; i++)
-                listeners[i].connected(connection);
+            Executor executor = listenerExecutor;
+            if(executor == null) fireConnected(connection);
+            else queue(executor, connection, () -> fireConnected(connection));
         }
 
         public void disconnected(Connection connection, DcReason reason){
             removeConnection(connection);
-            NetListener[] listeners = Server.this.listeners;
-            for(int i = 0, n = listeners.length; i < n; i++)
-                listeners[i].disconnected(connection, reason);
+            Executor executor = listenerExecutor;
+            if(executor == null) fireDisconnected(connection, reason);
+            else queue(executor, connection, () -> fireDisconnected(connection, reason));
         }
 
         public void received(Connection connection, Object object){
-            NetListener[] listeners = Server.this.listeners;
-            for(int i = 0, n = listeners.length; i < n; i++)
-                listeners[i].received(connection, object);
+            Executor executor = listenerExecutor;
+            if(executor == null) fireReceived(connection, object);
+            else queue(executor, connection, () -> fireReceived(connection, object));
         }
 
         public void idle(Connection connection){
-            NetListener[] listeners = Server.this.listeners;
-            for(int i = 0, n = listeners.length; i < n; i++)
-                listeners[i].idle(connection);
+            Executor executor = listenerExecutor;
+            if(executor == null) fireIdle(connection);
+            else queue(executor, connection, () -> fireIdle(connection));
         }
     };
 
@@ -92,6 +107,7 @@ public class Server implements EndPoint{
         this.writeBufferSize = writeBufferSize;
         this.objectBufferSize = objectBufferSize;
         this.serializer = serializer;
+        this.framePool = new FramePool(objectBufferSize, 64);
 
         this.discoveryHandler = (address, handler) -> handler.respond(ByteBuffer.allocate(0));
 
@@ -123,6 +139,38 @@ public class Server implements EndPoint{
         return connectFilter;
     }
 
+    /**
+     * Sets the amount of worker threads that process TCP connections. Each
+     * worker has its own selector, and new connections are assigned to the
+     * worker with the fewest connections. Listeners are then notified on the
+     * worker thread that owns the connection, unless a
+     * {@link #setListenerExecutor(Executor) listener executor} is set.
+     * <p>
+     * Takes effect on the next {@link #bind(InetSocketAddress, InetSocketAddress) bind}.
+     * Defaults to 0, which processes all connections on the update thread.
+     */
+    public void setWorkerThreads(int workerThreads){
+        if(workerThreads < 0) throw new IllegalArgumentException("workerThreads must be >= 0: " + workerThreads);
+        this.workerThreads = workerThreads;
+    }
+
+    public int getWorkerThreads(){
+        return workerThreads;
+    }
+
+    /**
+     * If set, listener notifications are run by this executor instead of the
+     * network thread. Notifications of a single connection are still run one
+     * at a time, in order. May be null, which is the default.
+     */
+    public void setListenerExecutor(Executor listenerExecutor){
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    public Executor getListenerExecutor(){
+        return listenerExecutor;
+    }
+
     /**
      * Opens a TCP only server.
      * @throws IOException if the server could not be opened.
@@ -160,6 +208,17 @@ public class Server implements EndPoint{
                     udp.bind(selector, udpPort);
                 }
 
+                if(workerThreads > 0){
+                    Worker[] workers = new Worker[workerThreads];
+                    for(int i = 0; i < workers.length; i++){
+                        workers[i] = new Worker(i);
+                    }
+                    this.workers = workers;
+                    for(Worker worker : workers){
+                        worker.thread.start();
+                    }
+                }
+
                 if(multicastGroup != null && (udpPort == null || multicastPort != udpPort.getPort())){
                     discoveryReceiver = new DiscoveryReceiver(multicastPort);
                     discoveryReceiver.start();
@@ -209,7 +268,7 @@ public class Server implements EndPoint{
             synchronized(keys){
                 UdpConnection udp = this.udp;
                 for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
-                    keepAlive();
+                    keepAlive(null);
                     SelectionKey selectionKey = iter.next();
                     iter.remove();
                     Connection fromConnection = (Connection)selectionKey.attachment();
@@ -218,30 +277,7 @@ public class Server implements EndPoint{
 
                         if(fromConnection != null){ // Must be a TCP read or
                             // write operation.
-                            if(udp != null && fromConnection.udpRemoteAddress == null){
-                                fromConnection.close(DcReason.error);
-                                continue;
-                            }
-                            if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
-                                try{
-                                    while(true){
-                                        Object object = fromConnection.tcp.readObject();
-                                        if(object == null)
-                                            break;
-                                        fromConnection.notifyReceived(object);
-                                    }
-                                }catch(IOException | ArcNetException ex){
-                                    ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
-                            if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
-                                try{
-                                    fromConnection.tcp.writeOperation();
-                                }catch(IOException ex){
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
+                            tcpOperation(fromConnection, ops);
                             continue;
                         }
 
@@ -274,7 +310,9 @@ public class Server implements EndPoint{
                         if(fromAddress == null)
                             continue;
 
-                        fromConnection = udpAddressToConnection.get(fromAddress);
+                        synchronized(connectionLock){
+                            fromConnection = udpAddressToConnection.get(fromAddress);
+                        }
 
                         Object object;
                         try{
@@ -290,8 +328,10 @@ public class Server implements EndPoint{
                                 // reply over TCP with a RegisterUDP to indicate
                                 // success.
                                 int fromConnectionID = ((RegisterUDP)object).connectionID;
-                                Connection connection = pendingConnections
-                                .remove(fromConnectionID);
+                                Connection connection;
+                                synchronized(connectionLock){
+                                    connection = pendingConnections.remove(fromConnectionID);
+                                }
                                 if(connection != null){
                                     if(connection.udpRemoteAddress != null) continue;
                                     connection.udpRemoteAddress = fromAddress;
@@ -324,10 +364,44 @@ public class Server implements EndPoint{
                 }
             }
         }
+        updateConnections(null);
+    }
+
+    /** Reads or writes pending TCP data of a connection. */
+    private void tcpOperation(Connection fromConnection, int ops){
+        if(udp != null && fromConnection.udpRemoteAddress == null){
+            fromConnection.close(DcReason.error);
+            return;
+        }
+        if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
+            try{
+                while(true){
+                    Object object = fromConnection.tcp.readObject();
+                    if(object == null)
+                        break;
+                    fromConnection.notifyReceived(object);
+                }
+            }catch(IOException | ArcNetException ex){
+                ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+        if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
+            try{
+                fromConnection.tcp.writeOperation();
+            }catch(IOException ex){
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+    }
+
+    /** Handles timeouts, keep alives and idle notifications of the connections owned by a worker, or by the update thread if null. */
+    private void updateConnections(Worker owner){
         long time = System.currentTimeMillis();
         Connection[] connections = this.connections;
         for(int i = 0, n = connections.length; i < n; i++){
             Connection connection = connections[i];
+            if(connection.worker != owner) continue;
             if(connection.tcp.isTimedOut(time)){
                 connection.close(DcReason.timeout);
             }else{
@@ -339,12 +413,12 @@ public class Server implements EndPoint{
         }
     }
 
-    private void keepAlive(){
+    private void keepAlive(Worker owner){
         long time = System.currentTimeMillis();
         Connection[] connections = this.connections;
         for(int i = 0, n = connections.length; i < n; i++){
             Connection connection = connections[i];
-            if(connection.tcp.needsKeepAlive(time))
+            if(connection.worker == owner && connection.tcp.needsKeepAlive(time))
                 connection.sendTCP(FrameworkMessage.keepAlive);
         }
     }
@@ -381,10 +455,28 @@ public class Server implements EndPoint{
             }catch(IOException ignored){}
         }
 
+        Worker[] workers = this.workers;
+        if(workers.length > 0){
+            Worker worker = workers[0];
+            for(int i = 1; i < workers.length; i++){
+                if(workers[i].load.get() < worker.load.get()) worker = workers[i];
+            }
+            //the channel has to be registered by the worker itself, as registering blocks while its selector is selecting
+            worker.load.incrementAndGet();
+            worker.accepted.add(socketChannel);
+            worker.selector.wakeup();
+        }else{
+            registerConnection(socketChannel, selector, null);
+        }
+    }
+
+    private void registerConnection(SocketChannel socketChannel, Selector selector, Worker worker){
         Connection connection = newConnection();
         connection.initialize(serializer,
         writeBufferSize, objectBufferSize);
         connection.endPoint = this;
+        connection.worker = worker;
+        connection.assigned = worker != null;
         UdpConnection udp = this.udp;
         if(udp != null)
             connection.udp = udp;
@@ -392,15 +484,18 @@ public class Server implements EndPoint{
             SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
             selectionKey.attach(connection);
 
-            int id = generateId();
-            connection.id = id;
+            int id;
+            synchronized(connectionLock){
+                id = generateId();
+                connection.id = id;
+                if(udp != null)
+                    pendingConnections.put(id, connection);
+            }
             connection.setConnected(true);
             connection.addListener(dispatchListener);
 
             if(udp == null)
                 addConnection(connection);
-            else
-                pendingConnections.put(id, connection);
 
             RegisterTCP registerConnection = new RegisterTCP();
             registerConnection.connectionID = id;
@@ -410,6 +505,7 @@ public class Server implements EndPoint{
                 connection.notifyConnected();
         }catch(IOException ex){
             connection.close(DcReason.error);
+            release(connection);
         }
     }
 
@@ -431,6 +527,12 @@ public class Server implements EndPoint{
     }
 
     private void addConnection(Connection connection){
+        synchronized(connectionLock){
+            addConnectionLocked(connection);
+        }
+    }
+
+    private void addConnectionLocked(Connection connection){
         Connection[] newConnections = new Connection[connections.length + 1];
         newConnections[0] = connection;
         System.arraycopy(connections, 0, newConnections, 1, connections.length);
@@ -442,34 +544,156 @@ public class Server implements EndPoint{
     }
 
     void removeConnection(Connection connection){
-        ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
-        temp.remove(connection);
-        connections = temp.toArray(new Connection[0]);
+        synchronized(connectionLock){
+            ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
+            temp.remove(connection);
+            connections = temp.toArray(new Connection[0]);
+
+            pendingConnections.remove(connection.id);
+            if(connection.udpRemoteAddress != null){
+                udpAddressToConnection.remove(connection.udpRemoteAddress);
+            }
+        }
+        release(connection);
+    }
 
-        pendingConnections.remove(connection.id);
-        if(connection.udpRemoteAddress != null){
-            udpAddressToConnection.remove(connection.udpRemoteAddress);
+    /** Stops counting a connection towards the load of its worker. */
+    private void release(Connection connection){
+        synchronized(connectionLock){
+            if(connection.assigned){
+                connection.assigned = false;
+                connection.worker.load.decrementAndGet();
+            }
         }
     }
 
-    // BOZO - Provide mechanism for sending to multiple clients without
-    // serializing multiple times.
+    private void fireConnected(Connection connection){
+        NetListener[] listeners = this.listeners;
+        for(int i = 0, n = listeners.length; i < n; i++)
+            listeners[i].connected(connection);
+    }
 
-    public void sendToAllTCP(Object object){
-        Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            connection.sendTCP(object);
+    private void fireDisconnected(Connection connection, DcReason reason){
+        NetListener[] listeners = this.listeners;
+        for(int i = 0, n = listeners.length; i < n; i++)
+            listeners[i].disconnected(connection, reason);
+    }
+
+    private void fireReceived(Connection connection, Object object){
+        NetListener[] listeners = this.listeners;
+        for(int i = 0, n = listeners.length; i < n; i++)
+            listeners[i].received(connection, object);
+    }
+
+    private void fireIdle(Connection connection){
+        NetListener[] listeners = this.listeners;
+        for(int i = 0, n = listeners.length; i < n; i++)
+            listeners[i].idle(connection);
+    }
+
+    /** Queues a notification of a connection. Notifications of one connection never run concurrently, and keep their order. */
+    private void queue(Executor executor, Connection connection, Runnable event){
+        connection.queuedEvents.add(event);
+        if(connection.dispatching.compareAndSet(false, true)){
+            executor.execute(() -> drain(executor, connection));
         }
     }
 
+    private void drain(Executor executor, Connection connection){
+        Runnable event;
+        while((event = connection.queuedEvents.poll()) != null){
+            try{
+                event.run();
+            }catch(Throwable t){
+                ArcNet.handleError(t);
+            }
+        }
+        connection.dispatching.set(false);
+        //an event may have been queued after the last poll, but before the flag was cleared
+        if(!connection.queuedEvents.isEmpty() && connection.dispatching.compareAndSet(false, true)){
+            executor.execute(() -> drain(executor, connection));
+        }
+    }
+
+    /**
+     * Sends an object to every connection using TCP. The object is serialized
+     * only once, into a pooled direct buffer that is shared by all connections.
+     */
+    public void sendToAllTCP(Object object){
+        broadcastTCP(object, 0, false);
+    }
+
+    /** Like {@link #sendToAllTCP(Object)}, but skips the connection with the specified ID. */
     public void sendToAllExceptTCP(int connectionID, Object object){
+        broadcastTCP(object, connectionID, true);
+    }
+
+    private void broadcastTCP(Object object, int exceptID, boolean except){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
         Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            if(connection.id != connectionID)
-                connection.sendTCP(object);
+        if(connections.length == 0 || (except && connections.length == 1 && connections[0].id == exceptID)) return;
+
+        FramePool.Frame frame;
+        try{
+            frame = framePool.encode(serializer, object);
+        }catch(ArcNetException ex){
+            // The object does not fit into a frame; send it the old way, which serializes it for every connection.
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(!except || connection.id != exceptID)
+                    connection.sendTCP(object);
+            }
+            return;
         }
+
+        try{
+            broadcasts.incrementAndGet();
+            broadcastBytes.addAndGet(frame.size());
+            lastBroadcastBytes = frame.size();
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(!except || connection.id != exceptID)
+                    connection.sendTCP(frame);
+            }
+        }finally{
+            frame.release();
+        }
+    }
+
+    /** Returns the amount of objects serialized by {@link #sendToAllTCP(Object)} and {@link #sendToAllExceptTCP(int, Object)}. */
+    public long getBroadcastCount(){
+        return broadcasts.get();
+    }
+
+    /** Returns the total amount of bytes serialized by TCP broadcasts. Each broadcast is serialized once, regardless of the amount of connections. */
+    public long getBroadcastBytes(){
+        return broadcastBytes.get();
+    }
+
+    /** Returns the amount of bytes serialized by the last TCP broadcast, including the length prefix. */
+    public int getLastBroadcastBytes(){
+        return lastBroadcastBytes;
+    }
+
+    /** Returns the amount of broadcast buffers that are still queued on at least one connection. */
+    public int getBroadcastBuffersInUse(){
+        return framePool.getInUse();
+    }
+
+    /** Returns the amount of pooled broadcast buffers that are ready for reuse. */
+    public int getBroadcastBuffersFree(){
+        return framePool.getFree();
+    }
+
+    /** Returns the total amount of direct broadcast buffers that were allocated. */
+    public long getBroadcastBuffersAllocated(){
+        return framePool.getAllocated();
+    }
+
+    public void resetBroadcastStats(){
+        broadcasts.set(0);
+        broadcastBytes.set(0);
+        lastBroadcastBytes = 0;
     }
 
     public void sendToTCP(int connectionID, Object object){
@@ -560,6 +784,11 @@ public class Server implements EndPoint{
             connections[i].close(DcReason.closed);
         this.connections = new Connection[0];
 
+        Worker[] workers = this.workers;
+        this.workers = new Worker[0];
+        for(Worker worker : workers)
+            worker.stop();
+
         ServerSocketChannel serverChannel = this.serverChannel;
         if(serverChannel != null){
             try{
@@ -612,6 +841,98 @@ public class Server implements EndPoint{
         return connections;
     }
 
+    /** Returns the amount of connections owned by each worker thread. Empty if worker threads are disabled. */
+    public int[] getWorkerLoads(){
+        Worker[] workers = this.workers;
+        int[] loads = new int[workers.length];
+        for(int i = 0; i < workers.length; i++)
+            loads[i] = workers[i].load.get();
+        return loads;
+    }
+
+    /** Processes the TCP connections assigned to it with its own selector. */
+    class Worker implements Runnable{
+        final Selector selector;
+        final Thread thread;
+        final AtomicInteger load = new AtomicInteger();
+        final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+        private int emptySelects;
+
+        Worker(int index) throws IOException{
+            selector = Selector.open();
+            thread = new Thread(this, "Server Worker " + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run(){
+            while(running){
+                try{
+                    update(250);
+                }catch(IOException ex){
+                    ArcNet.handleError(ex);
+                }
+            }
+
+            SocketChannel channel;
+            while((channel = accepted.poll()) != null){
+                try{
+                    channel.close();
+                }catch(IOException ignored){
+                }
+            }
+            try{
+                selector.close();
+            }catch(IOException ignored){
+            }
+        }
+
+        void update(int timeout) throws IOException{
+            long startTime = System.currentTimeMillis();
+            int select = selector.select(timeout);
+
+            SocketChannel channel;
+            while(running && (channel = accepted.poll()) != null){
+                registerConnection(channel, selector, this);
+            }
+
+            if(select == 0){
+                emptySelects++;
+                if(emptySelects == 100){
+                    emptySelects = 0;
+                    // Same as Server#update.
+                    long elapsedTime = System.currentTimeMillis() - startTime;
+                    try{
+                        if(elapsedTime < 25) Thread.sleep(25 - elapsedTime);
+                    }catch(InterruptedException ignored){
+                    }
+                }
+            }else{
+                emptySelects = 0;
+                Set<SelectionKey> keys = selector.selectedKeys();
+                for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
+                    SelectionKey selectionKey = iter.next();
+                    iter.remove();
+                    Connection fromConnection = (Connection)selectionKey.attachment();
+                    try{
+                        tcpOperation(fromConnection, selectionKey.readyOps());
+                    }catch(CancelledKeyException ex){
+                        fromConnection.close(DcReason.error);
+                    }
+                }
+                keepAlive(this);
+            }
+
+            updateConnections(this);
+        }
+
+        void stop(){
+            running = false;
+            selector.wakeup();
+        }
+    }
+
     //I don't care about deprecation here, as the socket system methods won't be removed
     //it really doesn't matter if the multicast works or not
     @SuppressWarnings("deprecation")
@@ -7,6 +7,7 @@ import java.net.Socket;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.util.*;
 
 /**
  * @author Nathan Sweet <misc@n4te.com>
@@ -23,6 +24,12 @@ class TcpConnection{
     private volatile long lastWriteTime, lastReadTime;
     private int currentObjectLength;
     private final Object writeLock = new Object();
+    /** Shared frames queued before the contents of the write buffer. Only accessed while holding the write lock. */
+    private final ArrayDeque<FramePool.Frame> frames = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> frameViews = new ArrayDeque<>();
+    private ByteBuffer[] gather = new ByteBuffer[8];
+    /** Bytes of queued frames that have not been written yet. */
+    volatile int queuedBytes;
 
     public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
         this.serialization = serialization;
@@ -162,13 +169,40 @@ class TcpConnection{
 
         ByteBuffer buffer = writeBuffer;
         buffer.flip();
-        while(buffer.hasRemaining()){
-            if(socketChannel.write(buffer) == 0)
-                break;
+        if(frames.isEmpty()){
+            while(buffer.hasRemaining()){
+                if(socketChannel.write(buffer) == 0)
+                    break;
+            }
+        }else{
+            // Write every queued frame and the write buffer with as few calls as possible.
+            int count = frameViews.size() + 1;
+            if(gather.length < count) gather = new ByteBuffer[Math.max(count, gather.length * 2)];
+            ByteBuffer[] gather = this.gather;
+            int i = 0;
+            for(ByteBuffer view : frameViews)
+                gather[i++] = view;
+            gather[i++] = buffer;
+
+            // Segments are written in order, so the last frame being done means all frames are.
+            while(buffer.hasRemaining() || gather[count - 2].hasRemaining()){
+                if(socketChannel.write(gather, 0, count) == 0)
+                    break;
+            }
+            Arrays.fill(gather, 0, count, null);
+
+            int remaining = 0;
+            while(!frameViews.isEmpty() && !frameViews.peekFirst().hasRemaining()){
+                frameViews.pollFirst();
+                frames.pollFirst().release();
+            }
+            for(ByteBuffer view : frameViews)
+                remaining += view.remaining();
+            queuedBytes = remaining;
         }
         buffer.compact();
 
-        return buffer.position() == 0;
+        return buffer.position() == 0 && frames.isEmpty();
     }
 
     /**
@@ -200,7 +234,7 @@ class TcpConnection{
             writeBuffer.position(end);
 
             // Write to socket if no data was queued.
-            if(start == 0 && !writeToSocket()){
+            if(start == 0 && frames.isEmpty() && !writeToSocket()){
                 // A partial write, set OP_WRITE to be notified when more
                 // writing can occur.
                 selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
@@ -214,7 +248,50 @@ class TcpConnection{
         }
     }
 
+    /**
+     * Queues an encoded frame that may be shared with other connections.
+     * This method is thread safe.
+     */
+    public int send(FramePool.Frame frame) throws IOException{
+        SocketChannel socketChannel = this.socketChannel;
+        if(socketChannel == null)
+            throw new SocketException("Connection is closed.");
+        synchronized(writeLock){
+            int size = frame.size();
+            boolean pending = writeBuffer.position() > 0 || !frames.isEmpty();
+
+            if(writeBuffer.position() > 0){
+                // Bytes in the write buffer are sent after all queued frames, so the frame has to be copied after them.
+                if(writeBuffer.remaining() < size)
+                    throw new ArcNetException("Write buffer overflow, unable to queue " + size + " bytes.");
+                writeBuffer.put(frame.buffer.duplicate());
+            }else{
+                if(queuedBytes + size > writeBuffer.capacity())
+                    throw new ArcNetException("Write queue overflow, unable to queue " + size + " bytes.");
+                frame.retain();
+                frames.addLast(frame);
+                frameViews.addLast(frame.buffer.duplicate());
+                queuedBytes += size;
+            }
+
+            if(!pending && !writeToSocket()){
+                selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }else{
+                selectionKey.selector().wakeup();
+            }
+
+            lastWriteTime = System.currentTimeMillis();
+            return size;
+        }
+    }
+
     public void close(){
+        synchronized(writeLock){
+            while(!frames.isEmpty())
+                frames.pollFirst().release();
+            frameViews.clear();
+            queuedBytes = 0;
+        }
         try{
             if(socketChannel != null){
                 socketChannel.close();
@@ -0,0 +1,263 @@
+package arc.net;
+
+import arc.net.FrameworkMessage.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+/** Loopback echo benchmark of the single-threaded and worker thread server modes. */
+public class ServerTest{
+    static final int clients = 16, messages = 2000, window = 32;
+
+    @Test
+    public void singleThreaded() throws Exception{
+        run(0, null);
+    }
+
+    @Test
+    public void workers() throws Exception{
+        run(4, null);
+    }
+
+    @Test
+    public void workersWithExecutor() throws Exception{
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            run(4, executor);
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void broadcast() throws Exception{
+        int port = freePort(), broadcasts = 500;
+
+        Server server = new Server(32768, 8192, new TestSerializer());
+        server.setWorkerThreads(2);
+        server.bind(port);
+        server.start();
+
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicInteger orderErrors = new AtomicInteger();
+        Client[] all = new Client[clients];
+
+        try{
+            for(int c = 0; c < clients; c++){
+                int[] received = {0};
+                Client client = new Client(32768, 8192, new TestSerializer());
+                client.addListener(new NetListener(){
+                    @Override
+                    public void received(Connection connection, Object object){
+                        if(!(object instanceof Echo)) return;
+                        if(((Echo)object).value != received[0]++) orderErrors.incrementAndGet();
+                        if(received[0] == broadcasts) done.countDown();
+                    }
+                });
+                client.start();
+                client.connect(5000, "127.0.0.1", port);
+                all[c] = client;
+            }
+
+            //the last client connects asynchronously on the server side
+            long wait = Time.millis();
+            while(server.getConnections().length < clients && Time.timeSinceMillis(wait) < 5000) Thread.sleep(1);
+            assertEquals(clients, server.getConnections().length);
+
+            long start = Time.nanos();
+            Echo echo = new Echo();
+            for(int i = 0; i < broadcasts; i++){
+                echo.value = i;
+                echo.time = Time.nanos();
+                server.sendToAllTCP(echo);
+            }
+
+            assertTrue("Timed out waiting for broadcasts.", done.await(30, TimeUnit.SECONDS));
+            long elapsed = Time.timeSinceNanos(start);
+
+            assertEquals(0, orderErrors.get());
+            assertEquals(broadcasts, server.getBroadcastCount());
+            //serialized once per broadcast, not once per connection
+            assertEquals(broadcasts * (long)server.getLastBroadcastBytes(), server.getBroadcastBytes());
+            //frames are released right after the write that completes them, which may still be running
+            wait = Time.millis();
+            while(server.getBroadcastBuffersInUse() > 0 && Time.timeSinceMillis(wait) < 5000) Thread.sleep(1);
+            assertEquals(0, server.getBroadcastBuffersInUse());
+
+            Log.info("[Server] @ broadcasts to @ clients: @ ms, @ bytes serialized, @ buffers allocated, @ pooled",
+                broadcasts, clients, elapsed / 1000000, server.getBroadcastBytes(),
+                server.getBroadcastBuffersAllocated(), server.getBroadcastBuffersFree());
+        }finally{
+            for(Client client : all){
+                if(client != null){
+                    client.stop();
+                    client.dispose();
+                }
+            }
+            server.stop();
+            server.dispose();
+        }
+    }
+
+    void run(int workers, Executor executor) throws Exception{
+        int port = freePort();
+        AtomicInteger orderErrors = new AtomicInteger();
+
+        Server server = new Server(32768, 8192, new TestSerializer());
+        server.setWorkerThreads(workers);
+        server.setListenerExecutor(executor);
+        server.addListener(new NetListener(){
+            @Override
+            public void received(Connection connection, Object object){
+                if(object instanceof Echo){
+                    Echo echo = (Echo)object;
+                    //messages of one connection have to arrive in order, even when dispatched by an executor
+                    Integer last = (Integer)connection.getArbitraryData();
+                    if(last != null && last + 1 != echo.value) orderErrors.incrementAndGet();
+                    connection.setArbitraryData(echo.value);
+                    connection.sendTCP(echo);
+                }
+            }
+        });
+        server.bind(port);
+        server.start();
+
+        CountDownLatch done = new CountDownLatch(clients);
+        long[] latencies = new long[clients * messages];
+        Client[] all = new Client[clients];
+        int[] sent = new int[clients];
+
+        try{
+            for(int c = 0; c < clients; c++){
+                int index = c;
+                int[] received = {0};
+                Client client = new Client(32768, 8192, new TestSerializer());
+                client.addListener(new NetListener(){
+                    @Override
+                    public void received(Connection connection, Object object){
+                        if(!(object instanceof Echo)) return;
+                        latencies[index * messages + received[0]++] = Time.timeSinceNanos(((Echo)object).time);
+                        sendNext(client, sent, index);
+                        if(received[0] == messages) done.countDown();
+                    }
+                });
+                client.start();
+                client.connect(5000, "127.0.0.1", port);
+                all[c] = client;
+            }
+
+            long start = Time.nanos();
+            for(int c = 0; c < clients; c++){
+                for(int i = 0; i < window; i++){
+                    sendNext(all[c], sent, c);
+                }
+            }
+
+            assertTrue("Timed out waiting for echoes.", done.await(30, TimeUnit.SECONDS));
+            long elapsed = Time.timeSinceNanos(start);
+
+            Arrays.sort(latencies);
+            long sum = 0;
+            for(long l : latencies) sum += l;
+
+            assertEquals(0, orderErrors.get());
+            Log.info("[Server] @ workers@: @ msg/s, latency mean @ us, p99 @ us, loads @",
+                workers, executor == null ? "" : " + executor",
+                (long)(latencies.length / (elapsed / 1e9)),
+                sum / latencies.length / 1000, latencies[(int)(latencies.length * 0.99)] / 1000,
+                Arrays.toString(server.getWorkerLoads()));
+        }finally{
+            for(Client client : all){
+                if(client != null){
+                    client.stop();
+                    client.dispose();
+                }
+            }
+            server.stop();
+            server.dispose();
+        }
+    }
+
+    //the counter is shared by the test thread and the client update thread, so sending has to be atomic with incrementing it
+    static void sendNext(Client client, int[] sent, int index){
+        synchronized(client){
+            if(sent[index] >= messages) return;
+            Echo echo = new Echo();
+            echo.value = sent[index]++;
+            echo.time = Time.nanos();
+            client.sendTCP(echo);
+        }
+    }
+
+    static int freePort() throws IOException{
+        try(ServerSocket socket = new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+
+    public static class Echo{
+        public int value;
+        public long time;
+    }
+
+    static class TestSerializer implements NetSerializer{
+        @Override
+        public void write(ByteBuffer buffer, Object object){
+            if(object instanceof Echo){
+                buffer.put((byte)0);
+                buffer.putInt(((Echo)object).value);
+                buffer.putLong(((Echo)object).time);
+            }else if(object instanceof RegisterTCP){
+                buffer.put((byte)1);
+                buffer.putInt(((RegisterTCP)object).connectionID);
+            }else if(object instanceof RegisterUDP){
+                buffer.put((byte)2);
+                buffer.putInt(((RegisterUDP)object).connectionID);
+            }else if(object instanceof KeepAlive){
+                buffer.put((byte)3);
+            }else if(object instanceof Ping){
+                buffer.put((byte)4);
+                buffer.putInt(((Ping)object).id);
+                buffer.put(((Ping)object).isReply ? (byte)1 : 0);
+            }else{
+                throw new IllegalArgumentException("Unknown object: " + object);
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer buffer){
+            switch(buffer.get()){
+                case 0:
+                    Echo echo = new Echo();
+                    echo.value = buffer.getInt();
+                    echo.time = buffer.getLong();
+                    return echo;
+                case 1:
+                    RegisterTCP tcp = new RegisterTCP();
+                    tcp.connectionID = buffer.getInt();
+                    return tcp;
+                case 2:
+                    RegisterUDP udp = new RegisterUDP();
+                    udp.connectionID = buffer.getInt();
+                    return udp;
+                case 3:
+                    return FrameworkMessage.keepAlive;
+                case 4:
+                    Ping ping = new Ping();
+                    ping.id = buffer.getInt();
+                    ping.isReply = buffer.get() == 1;
+                    return ping;
+                default:
+                    throw new IllegalArgumentException("Unknown type.");
+            }
+        }
+    }
+}
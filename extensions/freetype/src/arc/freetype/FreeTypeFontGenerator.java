@@ -1,14 +1,19 @@
 package arc.freetype;
 
+import arc.Core;
 import arc.freetype.FreeType.*;
 import arc.struct.Seq;
 import arc.files.Fi;
 import arc.graphics.Color;
 import arc.graphics.Pixmap;
 import arc.graphics.Texture.TextureFilter;
+import arc.graphics.g2d.DistanceFieldFont;
+import arc.graphics.g2d.DistanceFieldGenerator;
 import arc.graphics.g2d.Font;
 import arc.graphics.g2d.Font.FontData;
 import arc.graphics.g2d.Font.Glyph;
+import arc.graphics.g2d.GlyphAtlas;
+import arc.graphics.g2d.GlyphLayout;
 import arc.graphics.g2d.GlyphLayout.GlyphRun;
 import arc.graphics.g2d.PixmapPacker;
 import arc.graphics.g2d.PixmapPacker.GuillotineStrategy;
@@ -17,15 +22,22 @@ import arc.graphics.g2d.PixmapPacker.SkylineStrategy;
 import arc.graphics.g2d.TextureRegion;
 import arc.math.Mathf;
 import arc.math.geom.Rect;
+import arc.struct.IntIntMap;
+import arc.struct.IntMap;
+import arc.struct.IntSet;
 import arc.util.ArcRuntimeException;
 import arc.util.Buffers;
 import arc.util.Disposable;
 import arc.util.Log;
+import arc.util.Nullable;
+import arc.util.Threads;
 import arc.util.io.Streams;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Generates {@link Font} and {@link FontData} instances from TrueType, OTF, and other FreeType supported fonts.
@@ -207,10 +219,52 @@ public class FreeTypeFontGenerator implements Disposable{
             parameter.packer.updateTextureRegions(data.regions, parameter.minFilter, parameter.magFilter, parameter.genMipMaps);
         if(data.regions.isEmpty()) throw new ArcRuntimeException("Unable to create a font with no texture regions.");
         Font font = new Font(data, data.regions, true);
-        font.setOwnsTexture(parameter.packer == null);
+        font.setOwnsTexture(parameter.packer == null && !parameter.dynamic);
         return font;
     }
 
+    /**
+     * Generates a signed distance field font that can be drawn at any scale. Glyphs are rendered at
+     * {@link DistanceFieldGenerator#downscale} times {@link FreeTypeFontParameter#size}, then their distance fields are generated
+     * in parallel. Only the shape of the glyphs is used, so the color of the parameter is ignored; borders and shadows become part
+     * of the shape. {@link FreeTypeFontParameter#packer}, {@link FreeTypeFontParameter#incremental} and
+     * {@link FreeTypeFontParameter#dynamic} are ignored. The result can be written to a font file, see
+     * {@link DistanceFieldGenerator.Result#write(Fi)}, and must be disposed.
+     */
+    public DistanceFieldGenerator.Result generateDistanceField(FreeTypeFontParameter parameter, DistanceFieldGenerator generator){
+        int size = parameter.size;
+        PixmapPacker packer = parameter.packer;
+        boolean incremental = parameter.incremental, dynamic = parameter.dynamic;
+
+        int pageSize = Math.max(1024, Mathf.nextPowerOfTwo(size * generator.downscale * 2));
+        PixmapPacker sourcePacker = new PixmapPacker(pageSize, pageSize, 1, false, new SkylineStrategy());
+        parameter.size = size * generator.downscale;
+        parameter.packer = sourcePacker;
+        parameter.incremental = parameter.dynamic = false;
+        try{
+            FreeTypeFontData data = generateData(parameter, new FreeTypeFontData());
+            Seq<Pixmap> pages = new Seq<>();
+            for(PixmapPacker.Page page : sourcePacker.getPages()) pages.add(page.getPixmap());
+            return generator.generate(data, pages);
+        }finally{
+            parameter.size = size;
+            parameter.packer = packer;
+            parameter.incremental = incremental;
+            parameter.dynamic = dynamic;
+            sourcePacker.dispose();
+        }
+    }
+
+    /** Generates a signed distance field font with its own textures. See {@link #generateDistanceField(FreeTypeFontParameter, DistanceFieldGenerator)}. */
+    public DistanceFieldFont generateDistanceFieldFont(FreeTypeFontParameter parameter, DistanceFieldGenerator generator){
+        DistanceFieldGenerator.Result result = generateDistanceField(parameter, generator);
+        try{
+            return result.createFont();
+        }finally{
+            result.dispose();
+        }
+    }
+
     /**
      * Uses ascender and descender of font to calculate real height that makes all glyphs to fit in given pixel size. Source:
      * http://nothings.org/stb/stb_truetype.h / stbtt_ScaleForPixelHeight
@@ -330,7 +384,7 @@ public class FreeTypeFontGenerator implements Disposable{
      * Generates a new {@link FontData} instance, expert usage only. Throws a ArcRuntimeException if something went wrong.
      * @param parameter configures how the font is generated
      */
-    public FreeTypeFontData generateData(FreeTypeFontParameter parameter, FreeTypeFontData data){
+    public synchronized FreeTypeFontData generateData(FreeTypeFontParameter parameter, FreeTypeFontData data){
         parameter = parameter == null ? new FreeTypeFontParameter() : parameter;
         char[] characters = parameter.characters.toCharArray();
         int charactersLength = characters.length;
@@ -388,6 +442,12 @@ public class FreeTypeFontGenerator implements Disposable{
             data.down = -data.down;
         }
 
+        if(parameter.dynamic){
+            generateDynamic(parameter, data, characters, baseLine);
+            setSpaceGlyph(parameter, data);
+            return data;
+        }
+
         boolean ownsAtlas = false;
 
         PixmapPacker packer = parameter.packer;
@@ -507,7 +567,12 @@ public class FreeTypeFontGenerator implements Disposable{
             packer.updateTextureRegions(data.regions, parameter.minFilter, parameter.magFilter, parameter.genMipMaps);
         }
 
-        // Set space glyph.
+        setSpaceGlyph(parameter, data);
+
+        return data;
+    }
+
+    private void setSpaceGlyph(FreeTypeFontParameter parameter, FreeTypeFontData data){
         Glyph spaceGlyph = data.getGlyph(' ');
         if(spaceGlyph == null){
             spaceGlyph = new Glyph();
@@ -516,14 +581,65 @@ public class FreeTypeFontGenerator implements Disposable{
             data.setGlyph(' ', spaceGlyph);
         }
         if(spaceGlyph.width == 0) spaceGlyph.width = (int)(spaceGlyph.xadvance + data.padRight);
+    }
 
-        return data;
+    /** Sets up a font that rasterizes glyphs into a {@link GlyphAtlas} when they are first needed. */
+    private void generateDynamic(FreeTypeFontParameter parameter, FreeTypeFontData data, char[] characters, float baseLine){
+        data.generator = this;
+        data.parameter = parameter;
+        data.baseLine = baseLine;
+        if(parameter.borderWidth > 0){
+            data.stroker = library.createStroker();
+            data.stroker.set((int)(parameter.borderWidth * 64f),
+            parameter.borderStraight ? FreeType.FT_STROKER_LINECAP_BUTT : FreeType.FT_STROKER_LINECAP_ROUND,
+            parameter.borderStraight ? FreeType.FT_STROKER_LINEJOIN_MITER_FIXED : FreeType.FT_STROKER_LINEJOIN_ROUND, 0);
+        }
+        parameter.kerning &= face.hasKerning();
+
+        GlyphAtlas atlas = data.atlas = new GlyphAtlas(parameter.dynamicPageSize, parameter.dynamicPageSize, parameter.dynamicMaxPages, 1,
+        parameter.minFilter, parameter.magFilter);
+        atlas.evicted = data::evicted;
+        data.glyphs = new Seq<>();
+        data.regions = new Seq<>();
+        data.regions.add(atlas.getPages().first().region());
+
+        //only the requested characters are rasterized up front
+        for(char c : characters){
+            Glyph glyph = data.getGlyph(c);
+            if(c == '\0' && glyph != null && glyph.width != 0 && glyph.height != 0) data.missingGlyph = glyph;
+        }
+        atlas.upload();
+        data.dirty = false;
+        if(parameter.async) data.executor = Threads.executor("FreeType", 1);
     }
 
     /** @return null if glyph was not found. */
     Glyph createGlyph(char c, FreeTypeFontData data, FreeTypeFontParameter parameter, Stroker stroker, float baseLine,
                       PixmapPacker packer){
+        RasterizedGlyph result = rasterize(c, parameter, stroker, baseLine);
+        if(result == null) return null;
+        Glyph glyph = result.glyph;
+
+        Rect rect = packer.pack(result.pixmap);
+        glyph.page = packer.getPages().size - 1; // Glyph is always packed into the last page for now.
+        glyph.srcX = (int)rect.x;
+        glyph.srcY = (int)rect.y;
 
+        // If a page was added, create a new texture region for the incrementally added glyph.
+        if(parameter.incremental && data.regions != null && data.regions.size <= glyph.page)
+            packer.updateTextureRegions(data.regions, parameter.minFilter, parameter.magFilter, parameter.genMipMaps);
+
+        result.pixmap.dispose();
+
+        return glyph;
+    }
+
+    /**
+     * Renders a glyph to a new pixmap, with its border and shadow. The glyph has no texture location yet. Uses the face, so calls
+     * must be synchronized on the generator when glyphs may be rasterized on another thread.
+     * @return null if glyph was not found.
+     */
+    @Nullable RasterizedGlyph rasterize(char c, FreeTypeFontParameter parameter, Stroker stroker, float baseLine){
         boolean missing = face.getCharIndex(c) == 0 && c != 0;
         if(missing) return null;
 
@@ -639,19 +755,12 @@ public class FreeTypeFontGenerator implements Disposable{
             }
         }
 
-        Rect rect = packer.pack(mainPixmap);
-        glyph.page = packer.getPages().size - 1; // Glyph is always packed into the last page for now.
-        glyph.srcX = (int)rect.x;
-        glyph.srcY = (int)rect.y;
-
-        // If a page was added, create a new texture region for the incrementally added glyph.
-        if(parameter.incremental && data.regions != null && data.regions.size <= glyph.page)
-            packer.updateTextureRegions(data.regions, parameter.minFilter, parameter.magFilter, parameter.genMipMaps);
-
-        mainPixmap.dispose();
         mainGlyph.dispose();
 
-        return glyph;
+        RasterizedGlyph result = new RasterizedGlyph();
+        result.glyph = glyph;
+        result.pixmap = mainPixmap;
+        return result;
     }
 
     /** Cleans up all resources of the generator. Call this if you no longer use the generator. */
@@ -661,6 +770,14 @@ public class FreeTypeFontGenerator implements Disposable{
         library.dispose();
     }
 
+    /** A rendered glyph that has not been placed in a texture yet. */
+    static class RasterizedGlyph{
+        char c;
+        /** Null if the font has no glyph for the character. */
+        @Nullable Glyph glyph;
+        Pixmap pixmap;
+    }
+
     /** Font smoothing algorithm. */
     public enum Hinting{
         /** Disable hinting. Generated glyphs will look blurry. */
@@ -699,8 +816,30 @@ public class FreeTypeFontGenerator implements Disposable{
         Seq<Glyph> glyphs;
         private boolean dirty;
 
+        // Fields for dynamic glyph generation.
+        GlyphAtlas atlas;
+        @Nullable ExecutorService executor;
+        float baseLine;
+        /** Characters that are being rasterized on the executor, with the invisible glyphs used until they are done. */
+        final IntMap<Glyph> pending = new IntMap<>();
+        /** Characters the font has no glyph for. */
+        final IntSet missing = new IntSet();
+        /** Characters that did not fit in the atlas, with the invisible glyphs used until they do, and their size as width << 16 | height. */
+        final IntMap<Glyph> unplaced = new IntMap<>();
+        final IntIntMap unplacedSizes = new IntIntMap();
+        /** The {@link #glyphVersion} at which the glyph of each character was last added or evicted. */
+        final IntIntMap changed = new IntIntMap();
+        final ConcurrentLinkedQueue<RasterizedGlyph> rasterized = new ConcurrentLinkedQueue<>();
+        long frame = -1;
+
+        /** @return the atlas of a font generated with {@link FreeTypeFontParameter#dynamic}, or null. */
+        public @Nullable GlyphAtlas getAtlas(){
+            return atlas;
+        }
+
         @Override
         public Glyph getGlyph(char ch){
+            if(atlas != null) return getDynamicGlyph(ch);
             Glyph glyph = super.getGlyph(ch);
             if(glyph == null && generator != null){
                 generator.setPixelSizes(0, parameter.size);
@@ -731,7 +870,191 @@ public class FreeTypeFontGenerator implements Disposable{
             return glyph;
         }
 
+        private Glyph getDynamicGlyph(char ch){
+            Glyph glyph = super.getGlyph(ch);
+            if(glyph != null){
+                atlas.get(ch);
+                return glyph;
+            }
+            if(missing.contains(ch)) return missingGlyph;
+
+            //rasterizing again is pointless until the atlas can make space
+            Glyph placeholder = unplaced.get(ch);
+            if(placeholder != null){
+                int size = unplacedSizes.get(ch, 0);
+                if(!atlas.fits(size >>> 16, size & 0xffff)) return placeholder;
+                unplaced.remove(ch);
+                unplacedSizes.remove(ch, 0);
+            }
+
+            if(executor != null){
+                placeholder = pending.get(ch);
+                if(placeholder == null){
+                    placeholder = placeholder(ch);
+                    pending.put(ch, placeholder);
+                    executor.submit(() -> {
+                        RasterizedGlyph result;
+                        synchronized(generator){
+                            generator.setPixelSizes(0, parameter.size);
+                            result = generator.rasterize(ch, parameter, stroker, baseLine);
+                        }
+                        if(result == null){
+                            result = new RasterizedGlyph();
+                        }
+                        result.c = ch;
+                        rasterized.add(result);
+                    });
+                }
+                return placeholder;
+            }
+
+            RasterizedGlyph result;
+            synchronized(generator){
+                generator.setPixelSizes(0, parameter.size);
+                result = generator.rasterize(ch, parameter, stroker, baseLine);
+            }
+            Glyph added = addGlyph(ch, result);
+            if(added != null) return added;
+            placeholder = unplaced.get(ch);
+            return placeholder == null ? missingGlyph : placeholder;
+        }
+
+        /** @return an invisible glyph that reserves roughly the right space until the real glyph is available. */
+        private Glyph placeholder(char ch){
+            Glyph placeholder = new Glyph();
+            placeholder.id = ch;
+            placeholder.xadvance = (int)spaceXadvance;
+            return placeholder;
+        }
+
+        /**
+         * Places a rasterized glyph in the atlas.
+         * @return the glyph, or null if the font has no glyph for the character or the atlas has no space for it.
+         */
+        @Nullable Glyph addGlyph(char ch, @Nullable RasterizedGlyph result){
+            if(result == null || result.glyph == null){
+                missing.add(ch);
+                return null;
+            }
+            GlyphAtlas.Slot slot = atlas.add(ch, result.pixmap, ch == 0);
+            int size = result.pixmap.width << 16 | result.pixmap.height;
+            result.pixmap.dispose();
+            if(slot == null){
+                //tried again once the atlas has space for it
+                unplaced.put(ch, placeholder(ch));
+                unplacedSizes.put(ch, size);
+                return null;
+            }
+
+            Glyph glyph = result.glyph;
+            glyph.page = slot.page;
+            glyph.srcX = slot.x;
+            glyph.srcY = slot.y;
+            while(regions.size < atlas.getPages().size){
+                regions.add(atlas.getPages().get(regions.size).region());
+            }
+            setGlyphRegion(glyph, regions.get(glyph.page));
+            setGlyph(ch, glyph);
+            glyphs.add(glyph);
+            dirty = true;
+
+            if(parameter.kerning){
+                synchronized(generator){
+                    Face face = generator.face;
+                    int glyphIndex = face.getCharIndex(ch);
+                    for(int i = 0, n = glyphs.size; i < n; i++){
+                        Glyph other = glyphs.get(i);
+                        int otherIndex = face.getCharIndex(other.id);
+
+                        int kerning = face.getKerning(glyphIndex, otherIndex, 0);
+                        if(kerning != 0) glyph.setKerning(other.id, FreeType.toInt(kerning));
+
+                        kerning = face.getKerning(otherIndex, glyphIndex, 0);
+                        if(kerning != 0) other.setKerning(ch, FreeType.toInt(kerning));
+                    }
+                }
+            }
+            return glyph;
+        }
+
+        void evicted(int ch){
+            Glyph glyph = super.getGlyph((char)ch);
+            if(glyph != null){
+                setGlyph(ch, null);
+                glyphs.remove(glyph, true);
+            }
+            changed.put(ch, ++glyphVersion);
+        }
+
+        /**
+         * Once per frame, places glyphs that were rasterized on the executor. Uploads glyphs that were added since the last
+         * upload.
+         */
+        void updateAtlas(){
+            long frame = Core.graphics == null ? 0 : Core.graphics.getFrameId();
+            if(frame != this.frame){
+                this.frame = frame;
+                atlas.setFrame(frame);
+
+                boolean added = false;
+                RasterizedGlyph result;
+                while((result = rasterized.poll()) != null){
+                    if(!added){
+                        added = true;
+                        glyphVersion++;
+                    }
+                    //layouts with the placeholder must be redone
+                    pending.remove(result.c);
+                    changed.put(result.c, glyphVersion);
+                    addGlyph(result.c, result);
+                }
+            }
+            if(dirty){
+                dirty = false;
+                atlas.upload();
+            }
+        }
+
+        /** Only layouts with glyphs that were added, evicted or can now be placed in the atlas have to be laid out again. */
+        @Override
+        public boolean markUsed(GlyphLayout layout, int version){
+            if(atlas == null) return super.markUsed(layout, version);
+            updateAtlas();
+            if(version == glyphVersion && unplaced.size == 0){
+                for(int i = 0, n = layout.runs.size; i < n; i++){
+                    Seq<Glyph> glyphs = layout.runs.get(i).glyphs;
+                    for(int j = 0, m = glyphs.size; j < m; j++){
+                        atlas.get(glyphs.get(j).id);
+                    }
+                }
+                return false;
+            }
+
+            boolean stale = false;
+            for(int i = 0, n = layout.runs.size; i < n; i++){
+                Seq<Glyph> glyphs = layout.runs.get(i).glyphs;
+                for(int j = 0, m = glyphs.size; j < m; j++){
+                    int id = glyphs.get(j).id;
+                    atlas.get(id);
+                    if(changed.get(id, 0) > version){
+                        stale = true;
+                    }else if(unplaced.containsKey(id)){
+                        int size = unplacedSizes.get(id, 0);
+                        if(atlas.fits(size >>> 16, size & 0xffff)) stale = true;
+                    }
+                }
+            }
+            return stale;
+        }
+
         public void getGlyphs(GlyphRun run, CharSequence str, int start, int end, Glyph lastGlyph){
+            if(atlas != null){
+                updateAtlas();
+                super.getGlyphs(run, str, start, end, lastGlyph);
+                //glyphs rasterized right away are shown in this frame
+                updateAtlas();
+                return;
+            }
             if(packer != null) packer.setPackToTexture(true); // All glyphs added after this are packed directly to the texture.
             super.getGlyphs(run, str, start, end, lastGlyph);
             if(dirty && !ignoreDirty){
@@ -742,8 +1065,16 @@ public class FreeTypeFontGenerator implements Disposable{
 
         @Override
         public void dispose(){
+            if(executor != null){
+                executor.shutdownNow();
+                RasterizedGlyph result;
+                while((result = rasterized.poll()) != null){
+                    if(result.pixmap != null) result.pixmap.dispose();
+                }
+            }
             if(stroker != null) stroker.dispose();
             if(packer != null) packer.dispose();
+            if(atlas != null) atlas.dispose();
         }
     }
 
@@ -817,6 +1148,21 @@ public class FreeTypeFontGenerator implements Disposable{
          * {@link FreeTypeFontGenerator#getMaxTextureSize()}.
          */
         public boolean incremental;
+        /**
+         * When true, glyphs are rasterized when they are first needed into a {@link GlyphAtlas} with pages of a fixed size,
+         * instead of packing every character up front. When the atlas is full, the least recently used glyphs are evicted. Only
+         * {@link #characters} are rasterized right away, so it can be short for fonts with large character sets. Like
+         * {@link #incremental}, the generator must not be disposed while the font is in use, and the {@link FreeTypeFontData} must
+         * be disposed separately. {@link #packer} is not used.
+         */
+        public boolean dynamic;
+        /** The size and maximum amount of the pages of a {@link #dynamic} font. */
+        public int dynamicPageSize = 1024, dynamicMaxPages = 4;
+        /**
+         * If true, glyphs of a {@link #dynamic} font are rasterized on a background thread. Text drawn before a glyph is done
+         * leaves a space for it, and the glyph is shown from the next frame on.
+         */
+        public boolean async;
     }
 
     public class GlyphAndBitmap{
@@ -0,0 +1,60 @@
+package arc.packer;
+
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.Font.*;
+import arc.struct.*;
+
+/**
+ * Converts a font that was rendered at a large size into a signed distance field font for {@link DistanceFieldFont}. The font
+ * file and its pages are read like {@link Font} does, and the result is written as a font file with PNG pages.
+ * @see DistanceFieldGenerator
+ */
+public class DistanceFieldFontPacker{
+    private static final String HELP = "Usage: fontFile [outputFile] [downscale] [spread]";
+
+    /** Converts a font. The output file is overwritten, and its pages are written next to it. */
+    public static void process(DistanceFieldGenerator generator, Fi fontFile, Fi outputFile){
+        FontData data = new FontData(fontFile, false);
+        Seq<Pixmap> pages = new Seq<>();
+        try{
+            for(String path : data.imagePaths){
+                pages.add(new Pixmap(new Fi(path)));
+            }
+            DistanceFieldGenerator.Result result = generator.generate(data, pages);
+            try{
+                result.write(outputFile);
+            }finally{
+                result.dispose();
+            }
+        }finally{
+            for(Pixmap page : pages) page.dispose();
+        }
+    }
+
+    @SuppressWarnings("fallthrough")
+    public static void main(String[] args){
+        DistanceFieldGenerator generator = new DistanceFieldGenerator();
+        Fi input = null, output = null;
+
+        //arguments are optional from the end, so each case falls through to read the ones before it
+        switch(args.length){
+            case 4:
+                generator.spread = Float.parseFloat(args[3]);
+            case 3:
+                generator.downscale = Integer.parseInt(args[2]);
+            case 2:
+                output = new Fi(args[1]);
+            case 1:
+                input = new Fi(args[0]);
+                break;
+            default:
+                System.out.println(HELP);
+                System.exit(0);
+        }
+
+        if(output == null) output = input.sibling(input.nameWithoutExtension() + "-sdf.fnt");
+        process(generator, input, output);
+    }
+}
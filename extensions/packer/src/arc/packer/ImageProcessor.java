@@ -7,7 +7,7 @@ import arc.struct.*;
 import arc.util.*;
 
 import java.io.*;
-import java.math.*;
+import java.nio.*;
 import java.security.*;
 import java.util.*;
 
@@ -19,6 +19,7 @@ public class ImageProcessor{
     private final Seq<Rect> rects = new Seq<>();
     private float scale = 1;
     private boolean resampling;
+    private @Nullable PackerCache cache;
 
     public ImageProcessor(Settings settings){
         this.settings = settings;
@@ -28,21 +29,8 @@ public class ImageProcessor{
      * @param rootPath Used to strip the root directory prefix from image file names, can be null.
      */
     public void addImage(File file, String rootPath){
-        Pixmap image = new Pixmap(new Fi(file));
-
-        String name = file.getAbsolutePath().replace('\\', '/');
-
-        // Strip root dir off front of image path.
-        if(rootPath != null){
-            if(!name.startsWith(rootPath)) throw new RuntimeException("Path '" + name + "' does not start with root: " + rootPath);
-            name = name.substring(rootPath.length());
-        }
-
-        // Strip extension.
-        int dotIndex = name.lastIndexOf('.');
-        if(dotIndex != -1) name = name.substring(0, dotIndex);
-
-        addImage(image, name);
+        String name = getName(file, rootPath);
+        addImage(loadImage(file, name), name);
     }
 
     /**
@@ -50,16 +38,22 @@ public class ImageProcessor{
      * @see #addImage(File, String)
      */
     public Rect addImage(Pixmap image, String name){
-        Rect rect = processImage(image, name);
+        return addImage(prepareImage(image, name), name);
+    }
 
+    /**
+     * Adds an image returned by {@link #loadImage(File, String)} or {@link #prepareImage(Pixmap, String)} and checks it for
+     * aliases. Images must be added in the same order every time for the output to be stable.
+     * @param rect The image, or null if it was blank.
+     */
+    public Rect addImage(@Nullable Rect rect, String name){
         if(rect == null){
             if(!settings.silent) System.out.println("Ignoring blank input image: " + name);
             return null;
         }
 
         if(settings.alias){
-            String crc = hash(rect.getImage(this));
-            Rect existing = crcs.get(crc);
+            Rect existing = crcs.get(rect.hash);
             if(existing != null){
                 if(!settings.silent && settings.printAliases){
                     System.out.println(rect.name + " (alias of " + existing.name + ")");
@@ -67,13 +61,67 @@ public class ImageProcessor{
                 existing.aliases.add(new Alias(rect));
                 return null;
             }
-            crcs.put(crc, rect);
+            crcs.put(rect.hash, rect);
         }
 
         rects.add(rect);
         return rect;
     }
 
+    /**
+     * Loads and processes an image file without adding it. With a cache, unchanged files are not decoded or processed again.
+     * Safe to call from multiple threads.
+     * @param name The name returned by {@link #getName(File, String)}.
+     * @return the image, or null if it is blank and should be ignored.
+     */
+    public @Nullable Rect loadImage(File file, String name){
+        if(cache == null) return prepareImage(new Pixmap(new Fi(file)), name);
+
+        byte[] bytes = new Fi(file).readBytes();
+        String key = cache.imageKey(bytes, name, scale);
+        Rect rect = cache.readImage(key);
+        if(rect == PackerCache.blank) return null;
+        if(rect != null){
+            rect.name = name.endsWith(".9") ? name.substring(0, name.length() - 2) : name;
+            return rect;
+        }
+
+        rect = prepareImage(new Pixmap(bytes), name);
+        cache.writeImage(key, rect);
+        return rect;
+    }
+
+    /**
+     * Processes an image without adding it. Safe to call from multiple threads.
+     * @return the image, or null if it is blank and should be ignored.
+     */
+    public @Nullable Rect prepareImage(Pixmap image, String name){
+        Rect rect = processImage(image, name);
+        if(rect != null && (settings.alias || cache != null)) rect.hash = hash(rect.getImage(this));
+        return rect;
+    }
+
+    /** @return the image name of a file, without the root directory and the extension. */
+    public static String getName(File file, String rootPath){
+        String name = file.getAbsolutePath().replace('\\', '/');
+
+        // Strip root dir off front of image path.
+        if(rootPath != null){
+            if(!name.startsWith(rootPath)) throw new RuntimeException("Path '" + name + "' does not start with root: " + rootPath);
+            name = name.substring(rootPath.length());
+        }
+
+        // Strip extension.
+        int dotIndex = name.lastIndexOf('.');
+        if(dotIndex != -1) name = name.substring(0, dotIndex);
+        return name;
+    }
+
+    /** Sets the cache used by {@link #loadImage(File, String)}, can be null. */
+    public void setCache(@Nullable PackerCache cache){
+        this.cache = cache;
+    }
+
     public void setScale(float scale){
         this.scale = scale;
     }
@@ -386,25 +434,19 @@ public class ImageProcessor{
     }
 
     private static String hash(Pixmap image){
-        try{
-            MessageDigest digest = MessageDigest.getInstance("SHA1");
+        MessageDigest digest = PackerCache.digest();
 
-            int width = image.width;
-            int height = image.height;
+        //a duplicate, so that images shared between threads can be hashed at once
+        ByteBuffer pixels = image.pixels.duplicate();
+        pixels.position(0);
+        byte[] bytes = new byte[pixels.capacity()];
+        pixels.get(bytes);
+        digest.update(bytes);
 
-            byte[] bytes = new byte[image.pixels.capacity()];
-            image.pixels.position(0);
-            image.pixels.get(bytes);
-            digest.update(bytes);
-            image.pixels.position(0);
+        hash(digest, image.width);
+        hash(digest, image.height);
 
-            hash(digest, width);
-            hash(digest, height);
-
-            return new BigInteger(1, digest.digest()).toString(16);
-        }catch(NoSuchAlgorithmException ex){
-            throw new RuntimeException(ex);
-        }
+        return PackerCache.hex(digest);
     }
 
     private static void hash(MessageDigest digest, int value){
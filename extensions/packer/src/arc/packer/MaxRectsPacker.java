@@ -1,14 +1,20 @@
 package arc.packer;
 
+import arc.func.*;
 import arc.math.*;
 import arc.packer.TexturePacker.*;
 import arc.struct.*;
+import arc.util.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Packs pages of images using the maximal rectangles bin packing algorithm by Jukka Jylänki. A brute force binary search is
  * used to pack into the smallest bin possible.
+ * <p>
+ * With a pool, every heuristic is tried at the same time, and the binary search packs the sizes it can try next ahead of
+ * time. The result is the same as packing on one thread.
  * @author Nathan Sweet
  */
 public class MaxRectsPacker implements Packer{
@@ -16,6 +22,7 @@ public class MaxRectsPacker implements Packer{
     private final FreeRectChoiceHeuristic[] methods = FreeRectChoiceHeuristic.values();
     private final MaxRects maxRects = new MaxRects();
     private final Sort sort = new Sort();
+    private @Nullable ForkJoinPool pool;
 
     private final Comparator<Rect> rectComparator = new Comparator<Rect>(){
         @Override
@@ -29,6 +36,12 @@ public class MaxRectsPacker implements Packer{
         if(settings.minWidth > settings.maxWidth) throw new RuntimeException("Page min width cannot be higher than max width.");
         if(settings.minHeight > settings.maxHeight)
             throw new RuntimeException("Page min height cannot be higher than max height.");
+        pool = settings.threads > 1 ? ForkJoinPool.commonPool() : null;
+    }
+
+    /** Sets the pool used to try heuristics and page sizes in parallel. Null packs on the calling thread. */
+    public void setPool(@Nullable ForkJoinPool pool){
+        this.pool = pool;
     }
 
     @Override
@@ -132,8 +145,9 @@ public class MaxRectsPacker implements Packer{
             BinarySearch sizeSearch = new BinarySearch(minSize, maxSize, settings.fast ? 25 : 15, settings.pot,
             settings.multipleOfFour);
             int size = sizeSearch.reset(), i = 0;
+            IntMap<Page> results = new IntMap<>();
             while(size != -1){
-                Page result = packAtSize(true, size + adjustX, size + adjustY, inputRects);
+                Page result = packAtSearch(sizeSearch, size, -1, adjustX, adjustY, inputRects, results);
                 if(!settings.silent){
                     if(++i % 70 == 0) System.out.println();
                     System.out.print(".");
@@ -155,10 +169,12 @@ public class MaxRectsPacker implements Packer{
             settings.multipleOfFour);
             int width = widthSearch.reset(), i = 0;
             int height = settings.square ? width : heightSearch.reset();
+            IntMap<Page> results = new IntMap<>();
             while(true){
                 Page bestWidthResult = null;
+                results.clear();
                 while(width != -1){
-                    Page result = packAtSize(true, width + adjustX, height + adjustY, inputRects);
+                    Page result = packAtSearch(widthSearch, width, height, adjustX, adjustY, inputRects, results);
                     if(!settings.silent){
                         if(++i % 70 == 0) System.out.println();
                         System.out.print(".");
@@ -184,29 +200,40 @@ public class MaxRectsPacker implements Packer{
         }
     }
 
+    /**
+     * Returns the result of packing at a size tried by a binary search. If the pool has threads to spare, the two sizes the
+     * search can try after this one are packed at the same time, so the search only waits on every other step.
+     * @param height The page height, or -1 to use the size for both dimensions.
+     * @param results Results of sizes that were already packed, for the current height.
+     */
+    private Page packAtSearch(BinarySearch search, int size, int height, int adjustX, int adjustY, Seq<Rect> inputRects, IntMap<Page> results){
+        if(!results.containsKey(size)){
+            IntSeq sizes = IntSeq.with(size);
+            if(pool != null && pool.getParallelism() > methods.length){
+                int larger = new BinarySearch(search).next(true), smaller = new BinarySearch(search).next(false);
+                if(larger != -1 && !results.containsKey(larger)) sizes.addUnique(larger);
+                if(smaller != -1 && !results.containsKey(smaller)) sizes.addUnique(smaller);
+            }
+
+            Page[] pages = new Page[sizes.size];
+            invoke(sizes.size, i -> pages[i] = packAtSize(true, sizes.get(i) + adjustX, (height == -1 ? sizes.get(i) : height) + adjustY, inputRects));
+            for(int i = 0; i < sizes.size; i++){
+                results.put(sizes.get(i), pages[i]);
+            }
+        }
+        return results.get(size);
+    }
+
     /**
      * @param fully If true, the only results that pack all rects will be considered. If false, all results are considered, not
      * all rects may be packed.
      */
     private Page packAtSize(boolean fully, int width, int height, Seq<Rect> inputRects){
+        Page[] results = new Page[methods.length];
+        invoke(methods.length, i -> results[i] = packWith(pool == null ? maxRects : new MaxRects(), methods[i], width, height, inputRects));
+
         Page bestResult = null;
-        for(FreeRectChoiceHeuristic method : methods){
-            maxRects.init(width, height);
-            Page result;
-            if(!settings.fast){
-                result = maxRects.pack(inputRects, method);
-            }else{
-                Seq<Rect> remaining = new Seq();
-                for(int ii = 0, nn = inputRects.size; ii < nn; ii++){
-                    Rect rect = inputRects.get(ii);
-                    if(maxRects.insert(rect, method) == null){
-                        while(ii < nn)
-                            remaining.add(inputRects.get(ii++));
-                    }
-                }
-                result = maxRects.getResult();
-                result.remainingRects = remaining;
-            }
+        for(Page result : results){
             if(fully && result.remainingRects.size > 0) continue;
             if(result.outputRects.size == 0) continue;
             bestResult = getBest(bestResult, result);
@@ -214,6 +241,44 @@ public class MaxRectsPacker implements Packer{
         return bestResult;
     }
 
+    private Page packWith(MaxRects maxRects, FreeRectChoiceHeuristic method, int width, int height, Seq<Rect> inputRects){
+        maxRects.init(width, height);
+        if(!settings.fast){
+            return maxRects.pack(inputRects, method);
+        }
+
+        Seq<Rect> remaining = new Seq<>();
+        for(int ii = 0, nn = inputRects.size; ii < nn; ii++){
+            Rect rect = inputRects.get(ii);
+            if(maxRects.insert(rect, method) == null){
+                while(ii < nn)
+                    remaining.add(inputRects.get(ii++));
+            }
+        }
+        Page result = maxRects.getResult();
+        result.remainingRects = remaining;
+        return result;
+    }
+
+    /** Runs the body for every index in [0, count), on the pool if there is one. */
+    private void invoke(int count, Intc body){
+        if(pool == null || count == 1){
+            for(int i = 0; i < count; i++) body.get(i);
+            return;
+        }
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask[count];
+        for(int i = 0; i < count; i++){
+            int index = i;
+            tasks[i] = ForkJoinTask.adapt(() -> body.get(index));
+        }
+        if(ForkJoinTask.inForkJoinPool()){
+            ForkJoinTask.invokeAll(tasks);
+        }else{
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+    }
+
     private Page getBest(Page result1, Page result2){
         if(result1 == null) return result2;
         if(result2 == null) return result1;
@@ -225,6 +290,17 @@ public class MaxRectsPacker implements Packer{
         final int min, max, fuzziness;
         int low, high, current;
 
+        BinarySearch(BinarySearch search){
+            pot = search.pot;
+            mod4 = search.mod4;
+            min = search.min;
+            max = search.max;
+            fuzziness = search.fuzziness;
+            low = search.low;
+            high = search.high;
+            current = search.current;
+        }
+
         public BinarySearch(int min, int max, int fuzziness, boolean pot, boolean mod4){
             if(pot){
                 this.min = (int)(Math.log(Mathf.nextPowerOfTwo(min)) / Math.log(2));
@@ -0,0 +1,279 @@
+package arc.packer;
+
+import arc.files.*;
+import arc.func.*;
+import arc.graphics.*;
+import arc.packer.TexturePacker.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import arc.util.serialization.*;
+
+import java.io.*;
+import java.math.*;
+import java.nio.*;
+import java.security.*;
+
+/**
+ * A persistent on-disk cache for {@link TexturePacker}, enabled with {@link Settings#cacheDir}. Stores processed images keyed by
+ * the content hash of the source file, page layouts keyed by the sizes of the packed images, and encoded page images keyed by
+ * the layout and the content of every image on the page. Every key includes the settings, so changing them invalidates the
+ * cache. Entries are never removed; delete the directory to clear it.
+ * <p>
+ * Reading and writing image entries is safe from multiple threads.
+ */
+public class PackerCache{
+    private static final int version = 1;
+
+    /** Returned by {@link #readImage(String)} for images that were blank and ignored. */
+    static final Rect blank = new Rect();
+
+    private final Fi images, layouts, pages;
+    private final String settingsKey;
+
+    public PackerCache(Fi directory, Settings settings){
+        images = directory.child("images");
+        layouts = directory.child("layouts");
+        pages = directory.child("pages");
+
+        //settings that do not change the output must not invalidate the cache
+        Settings copy = settings.copy();
+        copy.cacheDir = null;
+        copy.threads = 0;
+        copy.silent = false;
+        copy.printAliases = false;
+        settingsKey = version + new Json().toJson(copy);
+    }
+
+    /** @return the key of a processed image, from the contents of its source file. */
+    public String imageKey(byte[] source, String name, float scale){
+        MessageDigest digest = digest();
+        digest.update(source);
+        update(digest, name);
+        update(digest, settingsKey);
+        update(digest, Float.toString(scale));
+        return hex(digest);
+    }
+
+    /** @return a processed image, {@link #blank} if the image was ignored, or null if it is not cached. */
+    public @Nullable Rect readImage(String key){
+        Fi file = images.child(key);
+        if(!file.exists()) return null;
+
+        try(Reads read = file.readsDeflate()){
+            if(!read.bool()) return blank;
+
+            Rect rect = new Rect();
+            rect.hash = read.str();
+            rect.isPatch = read.bool();
+            rect.canRotate = read.bool();
+            rect.offsetX = read.i();
+            rect.offsetY = read.i();
+            rect.regionWidth = rect.width = read.i();
+            rect.regionHeight = rect.height = read.i();
+            rect.originalWidth = read.i();
+            rect.originalHeight = read.i();
+            rect.splits = readInts(read);
+            rect.pads = readInts(read);
+
+            Pixmap pixmap = new Pixmap(read.i(), read.i());
+            byte[] bytes = read.b(pixmap.pixels.capacity());
+            ByteBuffer pixels = pixmap.pixels.duplicate();
+            pixels.position(0);
+            pixels.put(bytes);
+            rect.pixmap = pixmap;
+            return rect;
+        }catch(Throwable e){
+            //a corrupt entry is treated like a missing one
+            Log.warn("Ignoring invalid texture packer cache entry '@': @", key, Strings.getFinalMessage(e));
+            return null;
+        }
+    }
+
+    /** Stores a processed image. A null rect marks the image as blank. */
+    public void writeImage(String key, @Nullable Rect rect){
+        write(images.child(key), write -> {
+            write.bool(rect != null);
+            if(rect == null) return;
+
+            write.str(rect.hash);
+            write.bool(rect.isPatch);
+            write.bool(rect.canRotate);
+            write.i(rect.offsetX);
+            write.i(rect.offsetY);
+            write.i(rect.regionWidth);
+            write.i(rect.regionHeight);
+            write.i(rect.originalWidth);
+            write.i(rect.originalHeight);
+            writeInts(write, rect.splits);
+            writeInts(write, rect.pads);
+
+            Pixmap pixmap = rect.pixmap;
+            write.i(pixmap.width);
+            write.i(pixmap.height);
+            ByteBuffer pixels = pixmap.pixels.duplicate();
+            pixels.position(0);
+            byte[] bytes = new byte[pixels.remaining()];
+            pixels.get(bytes);
+            write.b(bytes);
+        });
+    }
+
+    /** @return the key of a page layout, from everything the packer looks at. */
+    public String layoutKey(Seq<Rect> rects, float scale){
+        MessageDigest digest = digest();
+        update(digest, settingsKey);
+        update(digest, Float.toString(scale));
+        for(Rect rect : rects){
+            update(digest, rect.name);
+            update(digest, rect.width + "," + rect.height + "," + rect.canRotate);
+        }
+        return hex(digest);
+    }
+
+    /**
+     * Recreates the pages of a previous layout for the same input rects, which must be in the order passed to
+     * {@link #layoutKey(Seq, float)}.
+     * @return the pages, or null if the layout is not cached.
+     */
+    public @Nullable Seq<Page> readLayout(String key, Seq<Rect> rects){
+        Fi file = layouts.child(key);
+        if(!file.exists()) return null;
+
+        try(Reads read = file.readsDeflate()){
+            Seq<Page> result = new Seq<>();
+            int count = read.i();
+            for(int i = 0; i < count; i++){
+                Page page = new Page();
+                page.width = read.i();
+                page.height = read.i();
+                page.occupancy = read.f();
+                int rectCount = read.i();
+                page.outputRects = new Seq<>(rectCount);
+                page.remainingRects = new Seq<>();
+                for(int r = 0; r < rectCount; r++){
+                    Rect rect = new Rect();
+                    rect.set(rects.get(read.i()));
+                    rect.x = read.i();
+                    rect.y = read.i();
+                    rect.width = read.i();
+                    rect.height = read.i();
+                    rect.rotated = read.bool();
+                    page.outputRects.add(rect);
+                }
+                result.add(page);
+            }
+            return result;
+        }catch(Throwable e){
+            Log.warn("Ignoring invalid texture packer cache entry '@': @", key, Strings.getFinalMessage(e));
+            return null;
+        }
+    }
+
+    /** Stores packed pages. The input rects must be in the order passed to {@link #layoutKey(Seq, float)}. */
+    public void writeLayout(String key, Seq<Rect> rects, Seq<Page> result){
+        ObjectIntMap<String> indices = new ObjectIntMap<>();
+        for(int i = 0; i < rects.size; i++){
+            //rects can only be matched up by name
+            if(indices.containsKey(rects.get(i).name)) return;
+            indices.put(rects.get(i).name, i);
+        }
+
+        write(layouts.child(key), write -> {
+            write.i(result.size);
+            for(Page page : result){
+                write.i(page.width);
+                write.i(page.height);
+                write.f(page.occupancy);
+                write.i(page.outputRects.size);
+                for(Rect rect : page.outputRects){
+                    write.i(indices.get(rect.name));
+                    write.i(rect.x);
+                    write.i(rect.y);
+                    write.i(rect.width);
+                    write.i(rect.height);
+                    write.bool(rect.rotated);
+                }
+            }
+        });
+    }
+
+    /** @return the key of an encoded page image, or null if an image on the page has no content hash. */
+    public @Nullable String pageKey(String layoutKey, int index, Page page){
+        MessageDigest digest = digest();
+        update(digest, layoutKey);
+        update(digest, index + "," + page.x + "," + page.y + "," + page.imageWidth + "," + page.imageHeight);
+        for(Rect rect : page.outputRects){
+            if(rect.hash == null) return null;
+            update(digest, rect.hash);
+        }
+        return hex(digest);
+    }
+
+    /** @return the cached file of an encoded page image. It might not exist. */
+    public Fi pageFile(String key){
+        return pages.child(key);
+    }
+
+    /** Copies an encoded page image into the cache. */
+    public void writePage(String key, Fi image){
+        Fi file = pages.child(key), temp = tempFile(file);
+        image.copyTo(temp);
+        move(temp, file);
+    }
+
+    private void write(Fi file, Cons<Writes> cons){
+        Fi temp = tempFile(file);
+        try(Writes write = temp.writesDeflate()){
+            cons.get(write);
+        }
+        move(temp, file);
+    }
+
+    private static Fi tempFile(Fi file){
+        return file.sibling(file.name() + "." + Thread.currentThread().getId() + ".tmp");
+    }
+
+    /** Replaces the file at once, so concurrent builds never read half-written entries. */
+    private static void move(Fi temp, Fi file){
+        if(!temp.file().renameTo(file.file())){
+            //another build wrote the same entry first
+            temp.delete();
+        }
+    }
+
+    private static void writeInts(Writes write, @Nullable int[] values){
+        write.b(values == null ? 0 : values.length);
+        if(values != null) for(int value : values) write.i(value);
+    }
+
+    private static @Nullable int[] readInts(Reads read){
+        int length = read.ub();
+        if(length == 0) return null;
+        int[] values = new int[length];
+        for(int i = 0; i < length; i++) values[i] = read.i();
+        return values;
+    }
+
+    static MessageDigest digest(){
+        try{
+            return MessageDigest.getInstance("SHA1");
+        }catch(NoSuchAlgorithmException ex){
+            throw new RuntimeException(ex);
+        }
+    }
+
+    static String hex(MessageDigest digest){
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    private static void update(MessageDigest digest, String value){
+        try{
+            digest.update(value.getBytes("UTF-8"));
+        }catch(UnsupportedEncodingException e){
+            throw new RuntimeException(e);
+        }
+        //separator, so that concatenated values are unambiguous
+        digest.update((byte)0);
+    }
+}
@@ -0,0 +1,189 @@
+package arc.packer;
+
+import arc.math.*;
+import arc.packer.TexturePacker.*;
+import arc.struct.*;
+
+/**
+ * Packs pages using the skyline bottom-left algorithm. Every page is packed once at a width estimated from the total image area,
+ * so this is much faster than {@link MaxRectsPacker}, but pages are usually less full. Rects are ordered by size and name
+ * before packing, so the result only depends on the images and not on the order they were added in. Enabled with
+ * {@link Settings#skyline}.
+ */
+public class SkylinePacker implements Packer{
+    private final Settings settings;
+    /** The skyline, as segments that start at x and have a height of y. */
+    private final IntSeq xs = new IntSeq(), ys = new IntSeq(), widths = new IntSeq();
+
+    public SkylinePacker(Settings settings){
+        this.settings = settings;
+    }
+
+    @Override
+    public Seq<Page> pack(Seq<Rect> inputRects){
+        if(!settings.silent) System.out.print("| Packing");
+
+        // Rects are packed with right and top padding, so the max size is increased to match. After packing the padding is
+        // subtracted from the page size.
+        int paddingX = settings.paddingX, paddingY = settings.paddingY;
+        int adjustX = paddingX, adjustY = paddingY;
+        if(settings.edgePadding){
+            if(settings.duplicatePadding){
+                adjustX -= paddingX;
+                adjustY -= paddingY;
+            }else{
+                adjustX -= paddingX * 2;
+                adjustY -= paddingY * 2;
+            }
+        }
+        int maxWidth = settings.maxWidth + adjustX, maxHeight = settings.maxHeight + adjustY;
+
+        for(Rect rect : inputRects){
+            rect.width += paddingX;
+            rect.height += paddingY;
+            boolean fits = rect.width <= maxWidth && rect.height <= maxHeight;
+            if(!fits && rect.canRotate && settings.rotation) fits = rect.height <= maxWidth && rect.width <= maxHeight;
+            if(!fits){
+                throw new RuntimeException("Image does not fit with max page size " + settings.maxWidth + "x" + settings.maxHeight
+                + " and padding " + paddingX + "," + paddingY + ": " + rect.name + "[" + (rect.width - paddingX) + "," + (rect.height - paddingY) + "]");
+            }
+        }
+
+        //tallest first; names break ties, so the order of the input does not matter
+        inputRects.sort((a, b) -> a.height != b.height ? b.height - a.height : a.width != b.width ? b.width - a.width : a.name.compareTo(b.name));
+
+        Seq<Page> pages = new Seq<>();
+        while(inputRects.size > 0){
+            Page page = packPage(inputRects, maxWidth, maxHeight, adjustX);
+            page.width -= paddingX;
+            page.height -= paddingY;
+            pages.add(page);
+            inputRects = page.remainingRects;
+            if(!settings.silent) System.out.print(".");
+        }
+        if(!settings.silent) System.out.println();
+        return pages;
+    }
+
+    private Page packPage(Seq<Rect> inputRects, int maxWidth, int maxHeight, int adjustX){
+        //aim for a square page that fits every remaining rect
+        long area = 0;
+        int minWidth = 0;
+        for(Rect rect : inputRects){
+            area += (long)rect.width * rect.height;
+            //the narrowest orientation that fits the height
+            int needed = rect.height <= maxHeight ? rect.width : Integer.MAX_VALUE;
+            if(rect.canRotate && settings.rotation && rect.width <= maxHeight) needed = Math.min(needed, rect.height);
+            minWidth = Math.max(minWidth, needed);
+        }
+        int width = Math.max((int)Math.ceil(Math.sqrt(area)) - adjustX, settings.minWidth);
+        if(settings.pot) width = Mathf.nextPowerOfTwo(width);
+        if(settings.multipleOfFour) width = (width + 3) / 4 * 4;
+        int binWidth = Math.min(Math.max(width + adjustX, minWidth), maxWidth);
+
+        xs.clear();
+        ys.clear();
+        widths.clear();
+        xs.add(0);
+        ys.add(0);
+        widths.add(binWidth);
+
+        Page page = new Page();
+        page.outputRects = new Seq<>();
+        page.remainingRects = new Seq<>();
+        long usedArea = 0;
+
+        for(Rect rect : inputRects){
+            boolean rotate = rect.canRotate && settings.rotation;
+            int bestIndex = -1, bestY = 0, bestTop = Integer.MAX_VALUE, bestX = Integer.MAX_VALUE;
+            boolean bestRotated = false;
+
+            for(int i = 0; i < xs.size; i++){
+                for(int r = 0; r < (rotate ? 2 : 1); r++){
+                    int w = r == 0 ? rect.width : rect.height, h = r == 0 ? rect.height : rect.width;
+                    int y = fit(i, w, h, binWidth, maxHeight);
+                    if(y == -1) continue;
+                    int top = y + h;
+                    if(top < bestTop || (top == bestTop && xs.get(i) < bestX)){
+                        bestIndex = i;
+                        bestY = y;
+                        bestTop = top;
+                        bestX = xs.get(i);
+                        bestRotated = r == 1;
+                    }
+                }
+            }
+
+            if(bestIndex == -1){
+                //smaller rects that come later may still fit
+                page.remainingRects.add(rect);
+                continue;
+            }
+
+            Rect placed = new Rect();
+            placed.set(rect);
+            placed.x = bestX;
+            placed.y = bestY;
+            placed.width = bestRotated ? rect.height : rect.width;
+            placed.height = bestRotated ? rect.width : rect.height;
+            placed.rotated = bestRotated;
+            place(bestIndex, placed.x, placed.y + placed.height, placed.width);
+
+            page.outputRects.add(placed);
+            page.width = Math.max(page.width, placed.x + placed.width);
+            page.height = Math.max(page.height, placed.y + placed.height);
+            usedArea += (long)placed.width * placed.height;
+        }
+
+        page.outputRects.sort((a, b) -> Rect.getAtlasName(a.name, settings.flattenPaths).compareTo(Rect.getAtlasName(b.name, settings.flattenPaths)));
+        page.occupancy = page.width == 0 ? 0f : (float)usedArea / ((long)page.width * page.height);
+        return page;
+    }
+
+    /** @return the y position of a rect placed at the start of a segment, or -1 if it does not fit there. */
+    private int fit(int index, int width, int height, int binWidth, int binHeight){
+        int x = xs.get(index);
+        if(x + width > binWidth) return -1;
+        int y = 0;
+        for(int i = index, left = width; left > 0; i++){
+            y = Math.max(y, ys.get(i));
+            if(y + height > binHeight) return -1;
+            left -= widths.get(i);
+        }
+        return y;
+    }
+
+    /** Raises the skyline to top over [x, x + width), which starts at the segment index. */
+    private void place(int index, int x, int top, int width){
+        xs.insert(index, x);
+        ys.insert(index, top);
+        widths.insert(index, width);
+
+        //shorten or remove the segments that are now covered
+        for(int i = index + 1; i < xs.size; ){
+            int overlap = x + width - xs.get(i);
+            if(overlap <= 0) break;
+            if(overlap >= widths.get(i)){
+                xs.removeIndex(i);
+                ys.removeIndex(i);
+                widths.removeIndex(i);
+            }else{
+                xs.incr(i, overlap);
+                widths.incr(i, -overlap);
+                break;
+            }
+        }
+
+        //merge neighbours of the same height
+        for(int i = 0; i < xs.size - 1; ){
+            if(ys.get(i) == ys.get(i + 1)){
+                widths.incr(i, widths.get(i + 1));
+                xs.removeIndex(i + 1);
+                ys.removeIndex(i + 1);
+                widths.removeIndex(i + 1);
+            }else{
+                i++;
+            }
+        }
+    }
+}
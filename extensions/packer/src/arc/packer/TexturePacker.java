@@ -12,6 +12,7 @@ import arc.util.serialization.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /** @author Nathan Sweet */
 public class TexturePacker{
@@ -20,6 +21,8 @@ public class TexturePacker{
     private final Packer packer;
     private final ImageProcessor imageProcessor;
     private final Seq<InputImage> inputImages = new Seq<>();
+    /** Statistics of every scale packed by {@link #pack(File, String)}, in order. */
+    public final Seq<PackStats> stats = new Seq<>();
 
     /** @param rootDir See {@link #setRootDir(File)}. */
     public TexturePacker(File rootDir, Settings settings){
@@ -41,6 +44,8 @@ public class TexturePacker{
 
         if(settings.grid)
             packer = new GridPacker(settings);
+        else if(settings.skyline)
+            packer = new SkylinePacker(settings);
         else
             packer = new MaxRectsPacker(settings);
 
@@ -81,38 +86,99 @@ public class TexturePacker{
             packFileName = packFileName.substring(0, packFileName.length() - settings.atlasExtension.length());
         outputDir.mkdirs();
 
-        int n = settings.scale.length;
-        for(int i = 0; i < n; i++){
+        PackerCache cache = settings.cacheDir == null ? null : new PackerCache(new Fi(settings.cacheDir), settings);
+        ExecutorService executor = settings.threads > 1 ? Threads.executor("TexturePacker", settings.threads) : null;
+        imageProcessor.setCache(cache);
 
-            imageProcessor.setScale(settings.scale[i]);
-            imageProcessor.setResampling(settings.scaleResampling);
+        try{
+            int n = settings.scale.length;
+            for(int i = 0; i < n; i++){
+
+                imageProcessor.setScale(settings.scale[i]);
+                imageProcessor.setResampling(settings.scaleResampling);
+
+                addImages(executor);
+
+                Seq<Rect> images = imageProcessor.getImages();
+                //the packer reorders its input, so keep the original order for the layout cache
+                Seq<Rect> inputs = new Seq<>(images);
+                String layoutKey = cache == null ? null : cache.layoutKey(inputs, settings.scale[i]);
+                Seq<Page> pages = cache == null ? null : cache.readLayout(layoutKey, inputs);
+
+                PackStats stat = new PackStats();
+                stat.scale = settings.scale[i];
+                stat.images = inputs.size;
+                stat.cached = pages != null;
+                if(pages == null){
+                    long time = Time.nanos();
+                    pages = packer.pack(images);
+                    stat.packNanos = Time.timeSinceNanos(time);
+                    if(cache != null) cache.writeLayout(layoutKey, inputs, pages);
+                }
 
-            for(int ii = 0, nn = inputImages.size; ii < nn; ii++){
-                InputImage inputImage = inputImages.get(ii);
-                if(inputImage.file != null){
-                    imageProcessor.addImage(inputImage.file, inputImage.rootPath);
-                }else{
-                    imageProcessor.addImage(inputImage.image, inputImage.name);
+                String scaledPackFileName = settings.getScaledPackFileName(packFileName, i);
+                writeImages(outputDir, scaledPackFileName, pages, executor, cache, layoutKey);
+
+                stat.pages = pages.size;
+                long usedArea = 0, pageArea = 0;
+                for(Page page : pages){
+                    pageArea += (long)page.imageWidth * page.imageHeight;
+                    for(Rect rect : page.outputRects) usedArea += (long)rect.regionWidth * rect.regionHeight;
+                }
+                stat.occupancy = pageArea == 0 ? 0f : (float)usedArea / pageArea;
+                stats.add(stat);
+                if(!settings.silent) System.out.println("| " + stat);
+                try{
+                    writePackFile(outputDir, scaledPackFileName, pages);
+                }catch(IOException ex){
+                    throw new RuntimeException("Error writing pack file.", ex);
                 }
+                imageProcessor.clear();
             }
-            Seq<Page> pages = packer.pack(imageProcessor.getImages());
+        }finally{
+            if(executor != null) executor.shutdown();
+            imageProcessor.setCache(null);
+        }
+    }
 
-            String scaledPackFileName = settings.getScaledPackFileName(packFileName, i);
-            writeImages(outputDir, scaledPackFileName, pages);
-            try{
-                writePackFile(outputDir, scaledPackFileName, pages);
-            }catch(IOException ex){
-                throw new RuntimeException("Error writing pack file.", ex);
+    /** Loads and processes input images on the executor, then adds them in input order so aliases are stable. */
+    private void addImages(@Nullable ExecutorService executor){
+        String[] names = new String[inputImages.size];
+        for(int i = 0; i < inputImages.size; i++){
+            InputImage input = inputImages.get(i);
+            names[i] = input.file != null ? ImageProcessor.getName(input.file, input.rootPath) : input.name;
+        }
+
+        if(executor == null){
+            for(int i = 0; i < inputImages.size; i++){
+                imageProcessor.addImage(prepare(inputImages.get(i), names[i]), names[i]);
             }
-            imageProcessor.clear();
+            return;
         }
+
+        Seq<Future<Rect>> results = new Seq<>(inputImages.size);
+        for(int i = 0; i < inputImages.size; i++){
+            InputImage input = inputImages.get(i);
+            String name = names[i];
+            results.add(executor.submit(() -> prepare(input, name)));
+        }
+        for(int i = 0; i < results.size; i++){
+            imageProcessor.addImage(Threads.await(results.get(i)), names[i]);
+        }
+    }
+
+    private Rect prepare(InputImage input, String name){
+        return input.file != null ? imageProcessor.loadImage(input.file, name) : imageProcessor.prepareImage(input.image, name);
     }
 
-    private void writeImages(File outputDir, String scaledPackFileName, Seq<Page> pages){
+    /** Writes page images, encoding them on the executor if it is not null. Pages found in the cache are copied instead. */
+    private void writeImages(File outputDir, String scaledPackFileName, Seq<Page> pages, @Nullable ExecutorService executor,
+                             @Nullable PackerCache cache, @Nullable String layoutKey){
         File packFileNoExt = new File(outputDir, scaledPackFileName);
         File packDir = packFileNoExt.getParentFile();
         String imageName = packFileNoExt.getName();
 
+        Seq<Future<?>> writes = new Seq<>();
         int fileIndex = 0;
         for(int p = 0, pn = pages.size; p < pn; p++){
             Page page = pages.get(p);
@@ -153,78 +219,102 @@ public class TexturePacker{
             new Fi(outputFile).parent().mkdirs();
             page.imageName = outputFile.getName();
 
-            Pixmap canvas = new Pixmap(width, height);
+            int index = p;
+            File file = outputFile;
+            Runnable write = () -> writePage(page, file, cache, cache == null ? null : cache.pageKey(layoutKey, index, page));
+            if(executor == null){
+                write.run();
+            }else{
+                writes.add(executor.submit(write));
+            }
+        }
+        Threads.awaitAll(writes);
+    }
 
-            if(!settings.silent) System.out.println("| Writing " + canvas.width + "x" + canvas.height + ": " + outputFile);
+    private void writePage(Page page, File outputFile, @Nullable PackerCache cache, @Nullable String pageKey){
+        if(pageKey != null){
+            Fi cached = cache.pageFile(pageKey);
+            if(cached.exists()){
+                if(!settings.silent) System.out.println("| Copying cached " + page.imageWidth + "x" + page.imageHeight + ": " + outputFile);
+                cached.copyTo(new Fi(outputFile));
+                return;
+            }
+        }
 
-            for(int r = 0, rn = page.outputRects.size; r < rn; r++){
-                Rect rect = page.outputRects.get(r);
-                Pixmap image = rect.getImage(imageProcessor);
-                int iw = image.width;
-                int ih = image.height;
-                int rectX = page.x + rect.x, rectY = page.y + page.height - rect.y - (rect.height - settings.paddingY);
-                if(settings.duplicatePadding){
-                    int amountX = settings.paddingX / 2;
-                    int amountY = settings.paddingY / 2;
-                    if(rect.rotated){
-                        // Copy corner pixels to fill corners of the padding.
-                        for(int i = 1; i <= amountX; i++){
-                            for(int j = 1; j <= amountY; j++){
-                                canvas.set(rectX - j, rectY + iw - 1 + i, image.getRaw(0, 0));
-                                canvas.set(rectX + ih - 1 + j, rectY + iw - 1 + i, image.getRaw(0, ih - 1));
-                                canvas.set(rectX - j, rectY - i, image.getRaw(iw - 1, 0));
-                                canvas.set(rectX + ih - 1 + j, rectY - i, image.getRaw(iw - 1, ih - 1));
-                            }
+        Pixmap canvas = new Pixmap(page.imageWidth, page.imageHeight);
+
+        if(!settings.silent) System.out.println("| Writing " + canvas.width + "x" + canvas.height + ": " + outputFile);
+
+        for(int r = 0, rn = page.outputRects.size; r < rn; r++){
+            Rect rect = page.outputRects.get(r);
+            Pixmap image = rect.getImage(imageProcessor);
+            int iw = image.width;
+            int ih = image.height;
+            int rectX = page.x + rect.x, rectY = page.y + page.height - rect.y - (rect.height - settings.paddingY);
+            if(settings.duplicatePadding){
+                int amountX = settings.paddingX / 2;
+                int amountY = settings.paddingY / 2;
+                if(rect.rotated){
+                    // Copy corner pixels to fill corners of the padding.
+                    for(int i = 1; i <= amountX; i++){
+                        for(int j = 1; j <= amountY; j++){
+                            canvas.set(rectX - j, rectY + iw - 1 + i, image.getRaw(0, 0));
+                            canvas.set(rectX + ih - 1 + j, rectY + iw - 1 + i, image.getRaw(0, ih - 1));
+                            canvas.set(rectX - j, rectY - i, image.getRaw(iw - 1, 0));
+                            canvas.set(rectX + ih - 1 + j, rectY - i, image.getRaw(iw - 1, ih - 1));
                         }
-                        // Copy edge pixels into padding.
-                        for(int i = 1; i <= amountY; i++){
-                            for(int j = 0; j < iw; j++){
-                                canvas.set(rectX - i, rectY + iw - 1 - j, image.getRaw(j, 0));
-                                canvas.set(rectX + ih - 1 + i, rectY + iw - 1 - j, image.getRaw(j, ih - 1));
-                            }
-                        }
-                        for(int i = 1; i <= amountX; i++){
-                            for(int j = 0; j < ih; j++){
-                                canvas.set(rectX + j, rectY - i, image.getRaw(iw - 1, j));
-                                canvas.set(rectX + j, rectY + iw - 1 + i, image.getRaw(0, j));
-                            }
-                        }
-                    }else{
-                        // Copy corner pixels to fill corners of the padding.
-                        for(int i = 1; i <= amountX; i++){
-                            for(int j = 1; j <= amountY; j++){
-                                canvas.set(rectX - i, rectY - j, image.getRaw(0, 0));
-                                canvas.set(rectX - i, rectY + ih - 1 + j, image.getRaw(0, ih - 1));
-                                canvas.set(rectX + iw - 1 + i, rectY - j, image.getRaw(iw - 1, 0));
-                                canvas.set(rectX + iw - 1 + i, rectY + ih - 1 + j, image.getRaw(iw - 1, ih - 1));
-                            }
+                    }
+                    // Copy edge pixels into padding.
+                    for(int i = 1; i <= amountY; i++){
+                        for(int j = 0; j < iw; j++){
+                            canvas.set(rectX - i, rectY + iw - 1 - j, image.getRaw(j, 0));
+                            canvas.set(rectX + ih - 1 + i, rectY + iw - 1 - j, image.getRaw(j, ih - 1));
                         }
-                        // Copy edge pixels into padding.
-                        for(int i = 1; i <= amountY; i++){
-                            copy(image, 0, 0, iw, 1, canvas, rectX, rectY - i, rect.rotated);
-                            copy(image, 0, ih - 1, iw, 1, canvas, rectX, rectY + ih - 1 + i, rect.rotated);
+                    }
+                    for(int i = 1; i <= amountX; i++){
+                        for(int j = 0; j < ih; j++){
+                            canvas.set(rectX + j, rectY - i, image.getRaw(iw - 1, j));
+                            canvas.set(rectX + j, rectY + iw - 1 + i, image.getRaw(0, j));
                         }
-                        for(int i = 1; i <= amountX; i++){
-                            copy(image, 0, 0, 1, ih, canvas, rectX - i, rectY, rect.rotated);
-                            copy(image, iw - 1, 0, 1, ih, canvas, rectX + iw - 1 + i, rectY, rect.rotated);
+                    }
+                }else{
+                    // Copy corner pixels to fill corners of the padding.
+                    for(int i = 1; i <= amountX; i++){
+                        for(int j = 1; j <= amountY; j++){
+                            canvas.set(rectX - i, rectY - j, image.getRaw(0, 0));
+                            canvas.set(rectX - i, rectY + ih - 1 + j, image.getRaw(0, ih - 1));
+                            canvas.set(rectX + iw - 1 + i, rectY - j, image.getRaw(iw - 1, 0));
+                            canvas.set(rectX + iw - 1 + i, rectY + ih - 1 + j, image.getRaw(iw - 1, ih - 1));
                         }
                     }
+                    // Copy edge pixels into padding.
+                    for(int i = 1; i <= amountY; i++){
+                        copy(image, 0, 0, iw, 1, canvas, rectX, rectY - i, rect.rotated);
+                        copy(image, 0, ih - 1, iw, 1, canvas, rectX, rectY + ih - 1 + i, rect.rotated);
+                    }
+                    for(int i = 1; i <= amountX; i++){
+                        copy(image, 0, 0, 1, ih, canvas, rectX - i, rectY, rect.rotated);
+                        copy(image, iw - 1, 0, 1, ih, canvas, rectX + iw - 1 + i, rectY, rect.rotated);
+                    }
                 }
-                copy(image, 0, 0, iw, ih, canvas, rectX, rectY, rect.rotated);
             }
+            copy(image, 0, 0, iw, ih, canvas, rectX, rectY, rect.rotated);
+        }
 
-            if(settings.bleed){
-                Pixmaps.bleed(canvas, settings.bleedIterations);
-            }
+        if(settings.bleed){
+            Pixmaps.bleed(canvas, settings.bleedIterations);
+        }
 
-            if(settings.outputFormat.equalsIgnoreCase("apix")){
-                PixmapIO.writeApix(new Fi(outputFile), canvas);
-            }else if(settings.outputFormat.equalsIgnoreCase("png")){
-                PixmapIO.writePng(new Fi(outputFile), canvas);
-            }else{
-                throw new ArcRuntimeException("Unsupported image format: '" + settings.outputFormat + "'. Must be one of: apix, png");
-            }
+        if(settings.outputFormat.equalsIgnoreCase("apix")){
+            PixmapIO.writeApix(new Fi(outputFile), canvas);
+        }else if(settings.outputFormat.equalsIgnoreCase("png")){
+            PixmapIO.writePng(new Fi(outputFile), canvas);
+        }else{
+            throw new ArcRuntimeException("Unsupported image format: '" + settings.outputFormat + "'. Must be one of: apix, png");
         }
+
+        canvas.dispose();
+        if(pageKey != null) cache.writePage(pageKey, new Fi(outputFile));
     }
 
     private static void copy(Pixmap src, int x, int y, int w, int h, Pixmap dst, int dx, int dy, boolean rotated){
@@ -326,6 +416,26 @@ public class TexturePacker{
         }
     }
 
+    /** Statistics of packing one scale, to compare the quality of packers and settings against their build time. */
+    public static class PackStats{
+        public float scale;
+        /** Amount of packed images, not counting aliases. */
+        public int images;
+        public int pages;
+        /** Fraction of the area of every page image that is covered by images, without padding. */
+        public float occupancy;
+        /** Time spent by the {@link Packer}, in nanoseconds. */
+        public long packNanos;
+        /** Whether the layout was reused from the {@link PackerCache}, instead of packing again. */
+        public boolean cached;
+
+        @Override
+        public String toString(){
+            return Strings.format("Packed @ image(s) into @ page(s) at scale @: @% occupancy, @",
+            images, pages, scale, Strings.autoFixed(occupancy * 100f, 1), cached ? "cached layout" : Strings.autoFixed(packNanos / 1000000f, 1) + "ms");
+        }
+    }
+
     /** @author Nathan Sweet */
     public static class Page{
         public String imageName;
@@ -386,6 +496,8 @@ public class TexturePacker{
         boolean isPatch;
         Pixmap pixmap;
         Fi file;
+        /** Hash of the processed pixels, used to find aliases and as a cache key. Can be null. */
+        @Nullable String hash;
         int score1, score2;
 
         Rect(Pixmap source, int left, int top, int newWidth, int newHeight, boolean isPatch){
@@ -446,6 +558,7 @@ public class TexturePacker{
             score2 = rect.score2;
             file = rect.file;
             isPatch = rect.isPatch;
+            hash = rect.hash;
         }
 
         @Override
@@ -595,10 +708,23 @@ public class TexturePacker{
         public boolean bleed = true;
         public int bleedIterations = 2;
         public boolean grid;
+        /**
+         * Whether to pack with the {@link SkylinePacker}, which is much faster than the default packer and does not depend on the
+         * input order, but usually fills pages less. Useful for iterative builds.
+         */
+        public boolean skyline;
         public float[] scale = {1};
         public String[] scaleSuffix = {""};
         public boolean scaleResampling = true;
         public String atlasExtension = ".aatls";
+        /** Threads used to process input images and write pages. 1 processes everything on the calling thread. */
+        public int threads = OS.cores;
+        /**
+         * Directory of a persistent cache for processed images, page layouts and page images, so unchanged inputs are not
+         * processed again in later builds. Can be shared by every directory and scale. Null disables caching.
+         * @see PackerCache
+         */
+        public @Nullable String cacheDir;
 
         public Settings copy(){
             try{